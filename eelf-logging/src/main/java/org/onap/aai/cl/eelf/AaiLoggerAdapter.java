@@ -25,10 +25,18 @@ import com.att.eelf.configuration.EELFLogger.Level;
 import com.att.eelf.i18n.EELFResolvableResourceEnum;
 import com.att.eelf.i18n.EELFResourceManager;
 import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLevel;
 import org.onap.aai.cl.api.LogLine;
 import org.onap.aai.cl.api.LogLine.LogLineType;
 import org.onap.aai.cl.api.Logger;
+import org.onap.aai.cl.api.Span;
+import org.onap.aai.cl.eelf.async.CapturedEvent;
+import org.onap.aai.cl.eelf.recorder.LogFlightRecorder;
+import org.onap.aai.cl.eelf.stats.StageProfiler;
+import org.onap.aai.cl.eelf.stats.StageProfiler.Stage;
+import org.onap.aai.cl.mdc.MdcContext;
 import org.onap.aai.cl.mdc.MdcOverride;
+import org.slf4j.MDC;
 
 /**
  * This class provides a logging implementation which wraps the EELF logging
@@ -47,6 +55,9 @@ public class AaiLoggerAdapter implements Logger {
      */
     private static final String NOT_APPLICABLE = "na";
 
+    /** The EELF level for each {@link LogLevel}, by ordinal. */
+    private static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+
     /**
      * The instance of the actual EELF logger that we will be sending our messages
      * to.
@@ -62,6 +73,15 @@ public class AaiLoggerAdapter implements Logger {
     /** An identifier for the component that is generating the log statements. */
     private String component = NOT_APPLICABLE;
 
+    /** Shared state, such as additional sinks, which formatted lines are handed to. */
+    private final LogPipeline pipeline;
+
+    /** Immutable values for the fields which every line of this logger shares, or null. */
+    private final LogFields template;
+
+    /** The runtime level of our component, as last resolved from the pipeline's level control. */
+    private volatile ResolvedLevel resolvedLevel;
+
     /**
      * Creates a new instance of the {@link AaiLoggerAdapter}, backed by the
      * supplied {@link EELFLogger} instance.
@@ -70,47 +90,81 @@ public class AaiLoggerAdapter implements Logger {
      *          - The instance of {@link EELFLogger} that this logger will invoke.
      */
     public AaiLoggerAdapter(EELFLogger eelfLogger, LogLineType logLineType, String componentName) {
+        this(eelfLogger, logLineType, componentName, new LogPipeline());
+    }
+
+    /**
+     * Creates a new instance of the {@link AaiLoggerAdapter}, backed by the
+     * supplied {@link EELFLogger} instance, which also hands every formatted
+     * line to the sinks of the supplied {@link LogPipeline}.
+     *
+     * @param eelfLogger
+     *          - The instance of {@link EELFLogger} that this logger will invoke.
+     * @param pipeline
+     *          - The pipeline shared with the other loggers of the same factory.
+     */
+    public AaiLoggerAdapter(EELFLogger eelfLogger, LogLineType logLineType, String componentName,
+        LogPipeline pipeline) {
+
+        this(eelfLogger, logLineType, componentName, pipeline, null);
+    }
+
+    private AaiLoggerAdapter(EELFLogger eelfLogger, LogLineType logLineType, String componentName,
+        LogPipeline pipeline, LogFields template) {
 
         // Store the supplied EELFLogger instance.
         this.eelfLogger = eelfLogger;
         this.logLineType = logLineType;
         component = componentName;
+        this.pipeline = pipeline;
+        this.template = template;
+    }
+
+    /**
+     * Creates a logger which writes the same lines as this one, with the
+     * fields of a template filled in on every line. The fields passed to each
+     * call are layered over the template, so they only need to supply the
+     * values which differ from it.
+     *
+     * @param fields
+     *          - The fields every line shares. An immutable copy is taken
+     *          unless they are already a template.
+     *
+     * @return - The new logger.
+     */
+    public AaiLoggerAdapter withFields(LogFields fields) {
+        return new AaiLoggerAdapter(eelfLogger, logLineType, component, pipeline, fields.toTemplate());
     }
 
     @Override
     public boolean isTraceEnabled() {
-        return eelfLogger.isTraceEnabled();
+        return eelfLogger.isTraceEnabled() && isEnabled(Level.TRACE, null);
     }
 
     @Override
     public boolean isInfoEnabled() {
-        return eelfLogger.isInfoEnabled();
+        return eelfLogger.isInfoEnabled() && isEnabled(Level.INFO, null);
     }
 
     @Override
     public boolean isErrorEnabled() {
-        return eelfLogger.isErrorEnabled();
+        return eelfLogger.isErrorEnabled() && isEnabled(Level.ERROR, null);
     }
 
     @Override
     public boolean isWarnEnabled() {
-        return eelfLogger.isWarnEnabled();
+        return eelfLogger.isWarnEnabled() && isEnabled(Level.WARN, null);
     }
 
     @Override
     public boolean isDebugEnabled() {
-        return eelfLogger.isDebugEnabled();
+        return eelfLogger.isDebugEnabled() && isEnabled(Level.DEBUG, null);
     }
 
     /**
      * Sets a number of the common fields which prefix all standard log
      * statements.
      */
-    private void initLogLine(LogLine logLine, String level, String logCode, String msg,
-        LogFields fields) {
-        logLine.init(component, logCode, level, msg, fields, new MdcOverride());
-    }
-
     private void initLogLine(LogLine logLine, String level, String logCode, String msg,
         LogFields fields, MdcOverride override) {
         logLine.init(component, logCode, level, msg, fields, override);
@@ -118,225 +172,439 @@ public class AaiLoggerAdapter implements Logger {
 
     @Override
     public void info(Enum logCode, String... arguments) {
-        info(logCode, new LogFields(), arguments);
+        log(LogLevel.INFO, logCode, null, null, null, arguments);
     }
 
     @Override
     public void info(Enum logCode, LogFields fields, String... arguments) {
-
-        // We expect our error code to be compatible with the templating
-        // functionality provided by the EELF framework, so make sure
-        // that this is the case before we try to decode our error code.
-        if (logCode instanceof LogMessageEnum) {
-            // Cast our error code enum to make the EELF framework happy.
-            LogMessageEnum eelfLogCode = (LogMessageEnum) logCode;
-
-            // Initialize the log line
-            LogLine logLine = getLogLine();
-            if (logLine != null) {
-                initLogLine(logLine, Level.INFO.toString(), EELFResourceManager.getIdentifier(eelfLogCode),
-                    EELFResourceManager.format(eelfLogCode, arguments),
-                    fields == null ? new LogFields() : fields);
-
-                // Pass our log string to the EELF logging framework.
-                eelfLogger.info(logLine.getFormattedLine());
-            }
-        } else {
-            eelfLogger.error(BAD_ENUM_MSG + logCode);
-        }
+        log(LogLevel.INFO, logCode, fields, null, null, arguments);
     }
 
     @Override
     public void info(Enum logCode, LogFields fields, MdcOverride override, String... arguments) {
-
-        // We expect our error code to be compatible with the templating
-        // functionality provided by the EELF framework, so make sure
-        // that this is the case before we try to decode our error code.
-        if (logCode instanceof LogMessageEnum) {
-            // Cast our error code enum to make the EELF framework happy.
-            LogMessageEnum eelfLogCode = (LogMessageEnum) logCode;
-
-            // Initialize the log line
-            LogLine logLine = getLogLine();
-            if (logLine != null) {
-                initLogLine(logLine, Level.INFO.toString(), EELFResourceManager.getIdentifier(eelfLogCode),
-                    EELFResourceManager.format(eelfLogCode, arguments),
-                    fields == null ? new LogFields() : fields, override);
-
-                // Pass our log string to the EELF logging framework.
-                eelfLogger.info(logLine.getFormattedLine());
-            }
-        } else {
-            eelfLogger.error(BAD_ENUM_MSG + logCode);
-        }
+        log(LogLevel.INFO, logCode, fields, override, null, arguments);
     }
 
     @Override
     public void debug(String message) {
-        // Initialize the log line
-        LogLine logLine = getLogLine();
-        if (logLine != null) {
-            initLogLine(logLine, Level.DEBUG.toString(), "", message, new LogFields());
-
-            // Pass our log string the the EELF logging framework.
-            eelfLogger.debug(logLine.getFormattedLine());
-        }
+        log(Level.DEBUG, null, null, null, null, -1, -1, new String[] {message}, beginProbe());
     }
 
     @Override
     public void debug(Enum logCode, String... arguments) {
-        debug(logCode, new LogFields(), arguments);
+        log(LogLevel.DEBUG, logCode, null, null, null, arguments);
     }
 
     @Override
     public void debug(Enum logCode, LogFields fields, String... arguments) {
-
-        // We expect our log code to be compatible with the templating
-        // functionality provided by the EELF framework, so make sure
-        // that this is the case before we try to decode it.
-        if (logCode instanceof LogMessageEnum) {
-            // Cast our error code enum to make the EELF framework happy.
-            LogMessageEnum eelfLogCode = (LogMessageEnum) logCode;
-
-            // Initialize the log lineLogLine logLine = getLogLine()
-            LogLine logLine = getLogLine();
-            if (logLine != null) {
-                initLogLine(logLine, Level.DEBUG.toString(), EELFResourceManager.getIdentifier(eelfLogCode),
-                    EELFResourceManager.format(eelfLogCode, arguments),
-                    fields == null ? new LogFields() : fields);
-
-                // Pass our log string to the EELF logging framework.
-                eelfLogger.debug(logLine.getFormattedLine());
-            }
-        } else {
-            eelfLogger.error(BAD_ENUM_MSG + logCode);
-        }
+        log(LogLevel.DEBUG, logCode, fields, null, null, arguments);
     }
 
     @Override
     public void warn(Enum logCode, String... arguments) {
-        warn(logCode, new LogFields(), arguments);
+        log(LogLevel.WARN, logCode, null, null, null, arguments);
     }
 
     @Override
     public void warn(Enum logCode, LogFields fields, String... arguments) {
-
-        // We expect our log code to be compatible with the templating
-        // functionality provided by the EELF framework, so make sure
-        // that this is the case before we try to decode our it.
-        if (logCode instanceof LogMessageEnum) {
-            // Cast our error code enum to make the EELF framework happy.
-            LogMessageEnum eelfLogCode = (LogMessageEnum) logCode;
-
-            // Initialize the log line
-            LogLine logLine = getLogLine();
-            if (logLine != null) {
-                initLogLine(logLine, Level.WARN.toString(), EELFResourceManager.getIdentifier(eelfLogCode),
-                    EELFResourceManager.format(eelfLogCode, arguments),
-                    fields == null ? new LogFields() : fields);
-
-                // Pass our log string to the EELF logging framework.
-                eelfLogger.warn(logLine.getFormattedLine());
-            }
-        } else {
-            eelfLogger.error(BAD_ENUM_MSG + logCode);
-        }
+        log(LogLevel.WARN, logCode, fields, null, null, arguments);
     }
 
     @Override
     public void trace(Enum logCode, String... arguments) {
-        trace(logCode, new LogFields(), arguments);
+        log(LogLevel.TRACE, logCode, null, null, null, arguments);
     }
 
     @Override
     public void trace(Enum logCode, LogFields fields, String... arguments) {
+        log(LogLevel.TRACE, logCode, fields, null, null, arguments);
+    }
+
+    @Override
+    public void error(Enum logCode, String... arguments) {
+        log(LogLevel.ERROR, logCode, null, null, null, arguments);
+    }
+
+    @Override
+    public void error(Enum logCode, LogFields fields, String... arguments) {
+        log(LogLevel.ERROR, logCode, fields, null, null, arguments);
+    }
+
+    @Override
+    public void error(Enum logCode, Throwable ex, String... arguments) {
+        log(LogLevel.ERROR, logCode, null, null, ex, arguments);
+    }
+
+    @Override
+    public void error(Enum logCode, LogFields fields, Throwable ex, String... arguments) {
+        log(LogLevel.ERROR, logCode, fields, null, ex, arguments);
+    }
+
+    @Override
+    public void log(LogLevel level, Enum logCode, LogFields fields, MdcOverride override, Throwable ex,
+        Object... arguments) {
+        StageProfiler.Probe probe = beginProbe();
 
         // We expect our log code to be compatible with the templating
         // functionality provided by the EELF framework, so make sure
-        // that this is the case before we try to decode our it.
+        // that this is the case before we try to decode it.
         if (logCode instanceof LogMessageEnum) {
-            // Cast our error code enum to make the EELF framework happy.
-            LogMessageEnum eelfLogCode = (LogMessageEnum) logCode;
-
-            // Initialize the log line
-            LogLine logLine = getLogLine();
-            if (logLine != null) {
-                initLogLine(logLine, Level.TRACE.toString(), EELFResourceManager.getIdentifier(eelfLogCode),
-                    EELFResourceManager.format(eelfLogCode, arguments),
-                    fields == null ? new LogFields() : fields);
-
-                // Pass our log string to the EELF logging framework.
-                eelfLogger.trace(logLine.getFormattedLine());
-            }
+            log(LEVELS[level.ordinal()], (LogMessageEnum) logCode, fields, override, ex, -1, -1,
+                toStrings(arguments), probe);
         } else {
             eelfLogger.error(BAD_ENUM_MSG + logCode);
         }
     }
 
     @Override
-    public void error(Enum logCode, String... arguments) {
-        error(logCode, new LogFields(), arguments);
+    public void logSpan(Span span) {
+        // Spans are subject to the same log code checks as any other line, and
+        // use their own timings in place of the start time held in the MDC.
+        StageProfiler.Probe probe = beginProbe();
+        if (span.getLogCode() instanceof LogMessageEnum) {
+            log(Level.INFO, (LogMessageEnum) span.getLogCode(), span.getFields(), null, null,
+                span.getStartTime(), span.getElapsedTime(), span.getArguments(), probe);
+        } else {
+            eelfLogger.error(BAD_ENUM_MSG + span.getLogCode());
+        }
     }
 
     @Override
-    public void error(Enum logCode, LogFields fields, String... arguments) {
+    public String formatMsg(Enum logCode, String... arguments) {
+        return EELFResourceManager.getMessage((EELFResolvableResourceEnum) logCode, arguments);
+    }
 
-        // We expect our log code to be compatible with the templating
-        // functionality provided by the EELF framework, so make sure
-        // that this is the case before we try to decode it.
-        if (logCode instanceof LogMessageEnum) {
+    /**
+     * Produces a log line at the specified level. Every logging method funnels
+     * into this method once its log code has been validated, so that there is
+     * a single path from the call to the line being written.
+     *
+     * @param logCode
+     *          - The log code of the line, or null for a simple message held in
+     *          the first argument.
+     * @param override
+     *          - Selective overrides of the {@link org.onap.aai.cl.mdc.MdcContext},
+     *          or null for none.
+     * @param ex
+     *          - An exception to log along with the line, or null for none.
+     * @param startTime
+     *          - The start time of a timed operation, or -1 to take it from
+     *          the MDC.
+     * @param elapsedTime
+     *          - The elapsed time of a timed operation, or -1 to compute it.
+     * @param probe
+     *          - The probe begun as the call was made, or null if the call is
+     *          not being profiled. A call which is suppressed is not recorded,
+     *          and one which is deferred is only timed up to its capture.
+     */
+    private void log(Level level, LogMessageEnum logCode, LogFields fields, MdcOverride override,
+        Throwable ex, long startTime, long elapsedTime, String[] arguments, StageProfiler.Probe probe) {
+        if (!isEnabled(level, logCode)) {
+            pipeline.getStats().recordSuppressed(logLineType, level.toString(),
+                logCode == null ? "" : EELFResourceManager.getIdentifier(logCode));
+            // The flight recorder still keeps the line, so that it is there to
+            // be dumped if something goes wrong later on. It is recorded as its
+            // log code and arguments, and only formatted if it is dumped.
+            LogFlightRecorder recorder = pipeline.getFlightRecorder();
+            if (recorder != null) {
+                String requestId = override != null && override.hasOverride(MdcContext.MDC_REQUEST_ID)
+                    ? override.getAttributeValue(MdcContext.MDC_REQUEST_ID) : MDC.get(MdcContext.MDC_REQUEST_ID);
+                recorder.record(logLineType, level, logCode, requestId, component, ex, arguments);
+            }
+            return;
+        }
+        fields = withTemplate(fields);
+        if (defer(level, logCode, fields, override, ex, startTime, elapsedTime, arguments)) {
+            if (probe != null) {
+                probe.mark(Stage.DISPATCH);
+                probe.end(logCode == null ? "" : EELFResourceManager.getIdentifier(logCode));
+            }
+        } else {
+            render(level, logCode, fields, override, ex, startTime, elapsedTime, -1, null, arguments, probe);
+        }
+    }
 
-            // Cast our error code enum to make the EELF framework happy.
-            LogMessageEnum eelfLogCode = (LogMessageEnum) logCode;
+    /** Layers the fields of a call over our template, if we have one. */
+    private LogFields withTemplate(LogFields fields) {
+        if (template == null) {
+            return fields;
+        }
+        return fields == null ? template : fields.withDefaults(template);
+    }
 
-            // Initialize the log line
-            LogLine logLine = getLogLine();
-            if (logLine != null) {
-                initLogLine(logLine, Level.ERROR.toString(), EELFResourceManager.getIdentifier(eelfLogCode),
-                    EELFResourceManager.format(eelfLogCode, arguments),
-                    fields == null ? new LogFields() : fields);
+    /**
+     * Checks a line against the runtime levels and disabled log codes of the
+     * pipeline's {@link LevelControl}. Our component's level is only looked up
+     * again when the settings have changed.
+     */
+    private boolean isEnabled(Level level, LogMessageEnum logCode) {
+        LevelControl.Snapshot levels = pipeline.getLevelControl().getSnapshot();
+        if (levels.isEmpty()) {
+            return true;
+        }
+        ResolvedLevel resolved = resolvedLevel;
+        if (resolved == null || resolved.snapshot != levels) {
+            resolved = new ResolvedLevel(levels, levels.getLevel(component));
+            resolvedLevel = resolved;
+        }
+        return levels.isEnabled(level, resolved.level, (Enum<?>) logCode);
+    }
+
+    /**
+     * Hands a logging call to the pipeline's deferred renderer, if there is one
+     * and it renders our type of line, unless one of our sinks must be invoked
+     * on the calling thread.
+     *
+     * @return - true if the call was captured for rendering in the background,
+     *         false if it must be rendered now.
+     */
+    private boolean defer(Level level, LogMessageEnum logCode, LogFields fields, MdcOverride override,
+        Throwable ex, long startTime, long elapsedTime, String[] arguments) {
+        DeferredRenderer renderer = pipeline.getDeferredRenderer();
+        return renderer != null && !pipeline.needsCallingThread(logLineType) && renderer.capture(this, logLineType, level, (Enum) logCode, component, fields,
+            override, ex, startTime, elapsedTime, arguments);
+    }
+
+    /**
+     * Renders and writes a call which was captured by the deferred renderer,
+     * as the call itself would have, using the time, thread name and MDC
+     * attributes it captured.
+     *
+     * @param event
+     *          - The captured call.
+     */
+    void render(CapturedEvent event) {
+        render(event.getLevel(), (LogMessageEnum) event.getLogCode(), event.getFields(), event.getMdc(),
+            event.getThrowable(), event.getStartTime(), event.getElapsedTime(), event.getTimestamp(),
+            event.getThreadName(), event.getArguments(), null);
+    }
 
-                // Pass our log string to the EELF logging framework.
-                eelfLogger.error(logLine.getFormattedLine());
+    /**
+     * Formats the message of a logging call, builds its log line and writes it.
+     *
+     * @param logTime
+     *          - The time the call was made, or -1 if it is being made now.
+     * @param threadName
+     *          - The thread which made the call, or null for the current one.
+     * @param probe
+     *          - The probe begun as the call was made, or null if the call is
+     *          not being profiled.
+     */
+    private void render(Level level, LogMessageEnum logCode, LogFields fields, MdcOverride override,
+        Throwable ex, long startTime, long elapsedTime, long logTime, String threadName, String[] arguments,
+        StageProfiler.Probe probe) {
+        String identifier = "";
+        String message;
+        if (logCode == null) {
+            if (probe != null) {
+                probe.mark(Stage.VALIDATE);
             }
+            message = arguments[0];
         } else {
-            eelfLogger.error(BAD_ENUM_MSG + logCode);
+            identifier = EELFResourceManager.getIdentifier(logCode);
+            if (probe != null) {
+                probe.mark(Stage.VALIDATE);
+            }
+            message = EELFResourceManager.format(logCode, arguments);
+        }
+        if (probe != null) {
+            probe.mark(Stage.FORMAT);
+        }
+
+        // Initialize the log line
+        LogLine logLine = getLogLine();
+        if (logLine != null) {
+            initLogLine(logLine, level.toString(), identifier, message,
+                fields == null ? new LogFields() : fields,
+                override == null ? new MdcOverride() : override);
+            if (startTime >= 0 && elapsedTime >= 0) {
+                logLine.setTiming(startTime, elapsedTime);
+            }
+            if (logTime >= 0) {
+                logLine.setOrigin(logTime, threadName);
+            }
+            if (probe != null) {
+                probe.mark(Stage.INIT);
+            }
+
+            // Pass our log string to the EELF logging framework and our sinks.
+            write(level, logLine, ex, probe);
         }
     }
 
-    @Override
-    public void error(Enum logCode, Throwable ex, String... arguments) {
-        error(logCode, new LogFields(), ex, arguments);
+    /**
+     * Converts the arguments of a logging call to the strings the EELF
+     * templates are populated with. Arguments which are already strings, as
+     * those of every level specific method are, are used as they are.
+     */
+    private static String[] toStrings(Object[] arguments) {
+        if (arguments == null || arguments instanceof String[]) {
+            return (String[]) arguments;
+        }
+        String[] strings = new String[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            strings[i] = arguments[i] == null ? null : arguments[i].toString();
+        }
+        return strings;
     }
 
-    @Override
-    public void error(Enum logCode, LogFields fields, Throwable ex, String... arguments) {
+    /**
+     * Begins profiling a logging call, if the pipeline has a profiler.
+     *
+     * @return - The probe to mark the stages of the call on, or null if the
+     *         call is not being profiled.
+     */
+    private StageProfiler.Probe beginProbe() {
+        StageProfiler profiler = pipeline.getStageProfiler();
+        return profiler == null ? null : profiler.begin();
+    }
 
-        // We expect our log code to be compatible with the templating
-        // functionality provided by the EELF framework, so make sure
-        // that this is the case before we try to decode it.
-        if (logCode instanceof LogMessageEnum) {
-            // Cast our error code enum to make the EELF framework happy.
-            LogMessageEnum eelfLogCode = (LogMessageEnum) logCode;
-
-            // Initialize the log line
-            LogLine logLine = getLogLine();
-            if (logLine != null) {
-                initLogLine(logLine, Level.ERROR.toString(), EELFResourceManager.getIdentifier(eelfLogCode),
-                    EELFResourceManager.format(eelfLogCode, arguments),
-                    fields == null ? new LogFields() : fields);
-
-                // Pass our log string to the EELF logging framework.
-                eelfLogger.error(logLine.getFormattedLine(), ex);
+    /**
+     * Formats the supplied log line exactly once and passes the result to the
+     * EELF logger and to every sink registered for our log line type. Metrics
+     * lines are first recorded into the pipeline's rollup, if there is one. The
+     * line is not formatted at all if neither the EELF logger nor any sink
+     * needs the text. The raw line is first kept by the pipeline's flight
+     * recorder, if there is one.
+     */
+    private void write(Level level, LogLine logLine, Throwable ex, StageProfiler.Probe probe) {
+        // The flight recorder sees every line, including those which are about
+        // to be suppressed, held back or dropped by the EELF logger's level.
+        LogFlightRecorder recorder = pipeline.getFlightRecorder();
+        if (recorder != null) {
+            recorder.record(logLineType, level, logLine, ex);
+        }
+
+        if (logLineType == LogLineType.METRICS) {
+            MetricsRollup rollup = pipeline.getMetricsRollup();
+            if (rollup != null) {
+                rollup.record(logLine.getFields(), ((MetricsLogLine) logLine).getElapsedTime());
+                if (!rollup.isPerCallLinesEnabled()) {
+                    pipeline.getStats().recordSuppressed(logLineType, logLine.getLevel(), logLine.getLogCode());
+                    if (probe != null) {
+                        probe.mark(Stage.DISPATCH);
+                        probe.end(logLine.getLogCode());
+                    }
+                    return;
+                }
+            }
+        }
+
+        // The recorder and the rollup take the line as it is, before it is
+        // rendered, so their time is part of handing the line on.
+        if (probe != null) {
+            probe.mark(Stage.DISPATCH);
+        }
+
+        // If text output is disabled and no sink needs the text either, then
+        // the line is not worth rendering.
+        if (!pipeline.hasOutput(logLineType)) {
+            pipeline.getStats().recordSuppressed(logLineType, logLine.getLevel(), logLine.getLogCode());
+            if (probe != null) {
+                probe.end(logLine.getLogCode());
+            }
+            return;
+        }
+        String formattedLine = pipeline.needsFormattedLine(logLineType) ? logLine.getFormattedLine() : null;
+        if (probe != null) {
+            probe.mark(Stage.RENDER);
+        }
+
+        // While request debug buffering is on, debug and trace lines are held
+        // back, and only written if the same request goes on to log an error.
+        RequestDebugBuffer debugBuffer = pipeline.getRequestDebugBuffer();
+        if (debugBuffer != null) {
+            String requestId = logLine.getMdcValue(MdcContext.MDC_REQUEST_ID);
+            if (!requestId.isEmpty()) {
+                if (RequestDebugBuffer.isBuffered(level)) {
+                    debugBuffer.add(requestId, eelfLogger, logLineType, level, logLine, formattedLine);
+                    if (probe != null) {
+                        probe.mark(Stage.DISPATCH);
+                        probe.end(logLine.getLogCode());
+                    }
+                    return;
+                }
+                if (level == Level.ERROR) {
+                    for (RequestDebugBuffer.BufferedLine held : debugBuffer.drain(requestId)) {
+                        emit(pipeline, held.logger, held.type, level, held.logLine, held.formattedLine,
+                            null);
+                    }
+                }
             }
+        }
+
+        emit(pipeline, eelfLogger, logLineType, level, logLine, formattedLine, ex);
+        if (probe != null) {
+            probe.mark(Stage.DISPATCH);
+            probe.end(logLine.getLogCode());
+        }
+    }
+
+    /**
+     * Writes a rendered line to an EELF logger, if text output is enabled for
+     * its type, and to the sinks of the pipeline. The line is only rendered
+     * here if the caller has not already done so and the text is needed.
+     */
+    static void emit(LogPipeline pipeline, EELFLogger logger, LogLineType type, Level level,
+        LogLine logLine, String formattedLine, Throwable ex) {
+        if (formattedLine == null && pipeline.needsFormattedLine(type)) {
+            formattedLine = logLine.getFormattedLine();
+        }
+        boolean textOutput = pipeline.isTextOutputEnabled(type);
+        if (textOutput) {
+            writeText(logger, level, formattedLine, ex);
+        }
+        pipeline.dispatch(type, logLine, formattedLine);
+
+        // A line which the EELF logger's own level discards, and which no sink
+        // receives either, has been suppressed rather than written.
+        if ((textOutput && isLevelEnabled(logger, level)) || pipeline.hasSinks(type)) {
+            pipeline.getStats().recordLine(type, logLine.getLevel(), logLine.getLogCode(), formattedLine,
+                ex != null);
         } else {
-            eelfLogger.error(BAD_ENUM_MSG + logCode);
+            pipeline.getStats().recordSuppressed(type, logLine.getLevel(), logLine.getLogCode());
         }
     }
 
-    @Override
-    public String formatMsg(Enum logCode, String... arguments) {
-        return EELFResourceManager.getMessage((EELFResolvableResourceEnum) logCode, arguments);
+    /** Indicates whether an EELF logger writes lines at the specified level. */
+    private static boolean isLevelEnabled(EELFLogger logger, Level level) {
+        switch (level) {
+            case TRACE:
+                return logger.isTraceEnabled();
+            case DEBUG:
+                return logger.isDebugEnabled();
+            case INFO:
+                return logger.isInfoEnabled();
+            case WARN:
+                return logger.isWarnEnabled();
+            default:
+                return logger.isErrorEnabled();
+        }
+    }
+
+    /** Passes a formatted line to an EELF logger at the specified level. */
+    private static void writeText(EELFLogger logger, Level level, String formattedLine, Throwable ex) {
+        switch (level) {
+            case TRACE:
+                logger.trace(formattedLine);
+                break;
+            case DEBUG:
+                logger.debug(formattedLine);
+                break;
+            case INFO:
+                logger.info(formattedLine);
+                break;
+            case WARN:
+                logger.warn(formattedLine);
+                break;
+            default:
+                if (ex == null) {
+                    logger.error(formattedLine);
+                } else {
+                    logger.error(formattedLine, ex);
+                }
+                break;
+        }
     }
 
     private LogLine getLogLine() {
@@ -355,4 +623,15 @@ public class AaiLoggerAdapter implements Logger {
         eelfLogger.warn("Unsupported LogLineType: " + logLineType);
         return null;
     }
+
+    /** The runtime level of our component under a particular level control snapshot. */
+    private static final class ResolvedLevel {
+        private final LevelControl.Snapshot snapshot;
+        private final Level level;
+
+        ResolvedLevel(LevelControl.Snapshot snapshot, Level level) {
+            this.snapshot = snapshot;
+            this.level = level;
+        }
+    }
 }
@@ -20,62 +20,111 @@
  */
 package org.onap.aai.cl.eelf;
 
+import org.onap.aai.cl.api.LogFields;
 import org.onap.aai.cl.api.LogLine;
 import org.onap.aai.cl.mdc.MdcContext;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import org.onap.aai.cl.mdc.MdcOverride;
 
 /** This class is used to help standardize how log lines are written and provide
  * profiling info. */
 public class AuditLogLine extends LogLine {
 
-  /** (non-Javadoc)
-   *  @see org.onap.aai.cl.api.LogLine#getFormattedLine()
+  /** The column values, once rendered, so that every output of the line agrees. */
+  private String[] columnValues;
+
+  @Override
+  public void init(String component, String logCode, String level, String msg, LogFields fields,
+      MdcOverride override) {
+    super.init(component, logCode, level, msg, fields, override);
+    columnValues = null;
+  }
+
+  @Override
+  public void setTiming(long startTime, long elapsedTime) {
+    super.setTiming(startTime, elapsedTime);
+    columnValues = null;
+  }
+
+  @Override
+  public void setOrigin(long logTime, String threadName) {
+    super.setOrigin(logTime, threadName);
+    columnValues = null;
+  }
+
+  /**
+   * Calculates the time, in milliseconds, which has elapsed between the start
+   * time held in the MDC (or its override) and now, unless precise timings have
+   * been supplied for the line.
+   *
+   * @return - The elapsed time, or 0 if no valid start time is available.
    */
-  public String getFormattedLine() {
+  public long getElapsedTime() {
+    if (hasTiming()) {
+      return elapsedTime;
+    }
+    return LogColumns.elapsedSince(getMdcValue(MdcContext.MDC_START_TIME), getLogTime());
+  }
+
+  /**
+   * Renders the values of the columns of the line. The values are rendered
+   * once, the first time this method is called after the line is initialized.
+   *
+   * @return - The column values, indexed by {@link AuditColumn#ordinal()}.
+   */
+  public String[] getColumnValues() {
+    if (columnValues != null) {
+      return columnValues;
+    }
 
     // calculate start/end/elapsed times
-    Date currentDateTime = new Date();
-    SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
-    String startTimeString = getMdcValue(MdcContext.MDC_START_TIME);
-    String endTimeString = formatter.format(currentDateTime);
-    long elapsedTime = 0;
-    Date startDateTime;
-    try {
-      startDateTime = formatter.parse(startTimeString);
-      elapsedTime = currentDateTime.getTime() - startDateTime.getTime();
-    } catch (ParseException e) {
-      // Leave an elapsed time of 0 if the start time was not properly formatted
+    long logTime = getLogTime();
+    String startTimeString;
+    long elapsedTime;
+    if (hasTiming()) {
+      startTimeString = LogColumns.formatTimestamp(startTime);
+      elapsedTime = this.elapsedTime;
+    } else {
+      startTimeString = getMdcValue(MdcContext.MDC_START_TIME);
+      elapsedTime = LogColumns.elapsedSince(startTimeString, logTime);
     }
+    String endTimeString = LogColumns.formatTimestamp(logTime);
     String elapsedTimeString = Long.toString(elapsedTime);
 
-    return startTimeString + "|" +                              // 1 start time
-        endTimeString + "|" +                                   // 2 end time
-        getMdcValue(MdcContext.MDC_REQUEST_ID) + "|" +          // 3 transaction id
-        getMdcValue(MdcContext.MDC_SERVICE_INSTANCE_ID) + "|" + // 4 service instance
-        Thread.currentThread().getName() + "|" +                // 5 thread id
-        getMdcValue(MdcContext.MDC_SERVER_FQDN) + "|" +         // 6 physical/virtual server name
-        getMdcValue(MdcContext.MDC_SERVICE_NAME) + "|" +        // 7 service name
-        getMdcValue(MdcContext.MDC_PARTNER_NAME) + "|" +        // 8 partner name
-        fieldValue(DefinedFields.STATUS_CODE) + "|" +           // 9 status code
-        fieldValue(DefinedFields.RESPONSE_CODE) + "|" +         // 10 response code
-        fieldValue(DefinedFields.RESPONSE_DESCRIPTION) + "|" +  // 11 response description
-        fieldValue(DefinedFields.INSTANCE_UUID) + "|" +         // 12 instance UUID
-        level + "|" +                                           // 13 log level
-        fieldValue(DefinedFields.SEVERITY) + "|" +              // 14 log severity
-        fieldValue(DefinedFields.SERVER_IP) + "|" +             // 15 server ip
-        elapsedTimeString + "|" +                               // 16 elapsed time
-        getMdcValue(MdcContext.MDC_SERVER_FQDN) + "|" +         // 17 server name
-        getMdcValue(MdcContext.MDC_CLIENT_ADDRESS) + "|" +      // 18 client ip address
-        fieldValue(DefinedFields.CLASS_NAME) + "|" +            // 19 class name
-        "" + "|" +                                              // 20 deprecated
-        fieldValue(DefinedFields.PROCESS_KEY) + "|" +           // 21 process key
-        fieldValue(DefinedFields.CUSTOM_1) + "|" +              // 22 custom 1
-        fieldValue(DefinedFields.CUSTOM_2) + "|" +              // 23 custom 2
-        fieldValue(DefinedFields.CUSTOM_3) + "|" +              // 24 custom 3
-        fieldValue(DefinedFields.CUSTOM_4) + "|" +              // 25 custom 4
-        message;                                                // 26 details
+    String[] values = new String[AuditColumn.values().length];
+    values[AuditColumn.START_TIME.ordinal()] = startTimeString;
+    values[AuditColumn.END_TIME.ordinal()] = endTimeString;
+    values[AuditColumn.REQUEST_ID.ordinal()] = getMdcValue(MdcContext.MDC_REQUEST_ID);
+    values[AuditColumn.SERVICE_INSTANCE_ID.ordinal()] = getMdcValue(MdcContext.MDC_SERVICE_INSTANCE_ID);
+    values[AuditColumn.THREAD.ordinal()] = getThreadName();
+    values[AuditColumn.SERVER_FQDN.ordinal()] = getMdcValue(MdcContext.MDC_SERVER_FQDN);
+    values[AuditColumn.SERVICE_NAME.ordinal()] = getMdcValue(MdcContext.MDC_SERVICE_NAME);
+    values[AuditColumn.PARTNER_NAME.ordinal()] = getMdcValue(MdcContext.MDC_PARTNER_NAME);
+    values[AuditColumn.STATUS_CODE.ordinal()] = fieldValue(DefinedFields.STATUS_CODE);
+    values[AuditColumn.RESPONSE_CODE.ordinal()] = fieldValue(DefinedFields.RESPONSE_CODE);
+    values[AuditColumn.RESPONSE_DESCRIPTION.ordinal()] = fieldValue(DefinedFields.RESPONSE_DESCRIPTION);
+    values[AuditColumn.INSTANCE_UUID.ordinal()] = fieldValue(DefinedFields.INSTANCE_UUID);
+    values[AuditColumn.LEVEL.ordinal()] = level;
+    values[AuditColumn.SEVERITY.ordinal()] = fieldValue(DefinedFields.SEVERITY);
+    values[AuditColumn.SERVER_IP.ordinal()] = fieldValue(DefinedFields.SERVER_IP);
+    values[AuditColumn.ELAPSED_TIME.ordinal()] = elapsedTimeString;
+    values[AuditColumn.SERVER_NAME.ordinal()] = values[AuditColumn.SERVER_FQDN.ordinal()];
+    values[AuditColumn.CLIENT_ADDRESS.ordinal()] = getMdcValue(MdcContext.MDC_CLIENT_ADDRESS);
+    values[AuditColumn.CLASS_NAME.ordinal()] = fieldValue(DefinedFields.CLASS_NAME);
+    values[AuditColumn.DEPRECATED.ordinal()] = "";
+    values[AuditColumn.PROCESS_KEY.ordinal()] = fieldValue(DefinedFields.PROCESS_KEY);
+    values[AuditColumn.CUSTOM_1.ordinal()] = fieldValue(DefinedFields.CUSTOM_1);
+    values[AuditColumn.CUSTOM_2.ordinal()] = fieldValue(DefinedFields.CUSTOM_2);
+    values[AuditColumn.CUSTOM_3.ordinal()] = fieldValue(DefinedFields.CUSTOM_3);
+    values[AuditColumn.CUSTOM_4.ordinal()] = fieldValue(DefinedFields.CUSTOM_4);
+    values[AuditColumn.DETAILS.ordinal()] = message;
+    columnValues = values;
+    return values;
+  }
+
+  /** (non-Javadoc)
+   *  @see org.onap.aai.cl.api.LogLine#getFormattedLine()
+   */
+  public String getFormattedLine() {
+    return LogColumns.join(getColumnValues());
   }
 }
@@ -0,0 +1,228 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import com.att.eelf.configuration.EELFLogger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Watches a logging configuration file with a {@link WatchService}, and hands
+ * a new {@link LoggingConfig} to a listener whenever the file changes.
+ * <p>
+ * The configuration currently in force is published through a volatile
+ * reference, so readers never lock. The file is only read once it has been
+ * left alone briefly after a change, and is best replaced atomically, by
+ * renaming a new file over it. A file which cannot be read, parsed or applied
+ * is reported and leaves the previous configuration as the one in force until
+ * the next change.
+ */
+public class ConfigWatcher {
+
+  /** How long the file must be left alone after a change before it is read. */
+  private static final long SETTLE_MS = 100;
+
+  private final EELFLogger logger;
+  private final Path file;
+  private final Consumer<LoggingConfig> listener;
+
+  /** Serializes reloads, so the listener sees configurations in order. */
+  private final Object reloadLock = new Object();
+
+  private volatile LoggingConfig config;
+  private final AtomicLong reloadCount = new AtomicLong();
+  private final AtomicLong failedReloadCount = new AtomicLong();
+
+  private WatchService watchService;
+  private Thread thread;
+
+  /**
+   * Creates a new watcher, which does nothing until it is started.
+   *
+   * @param logger
+   *          - The logger to report unusable configuration files to.
+   * @param file
+   *          - The configuration file to watch.
+   * @param listener
+   *          - Applies each new configuration.
+   */
+  public ConfigWatcher(EELFLogger logger, Path file, Consumer<LoggingConfig> listener) {
+    this.logger = logger;
+    this.file = file.toAbsolutePath();
+    this.listener = listener;
+  }
+
+  /**
+   * Reads and applies the configuration file, then starts watching it for
+   * changes on a background thread.
+   *
+   * @throws IOException
+   *           - If the file cannot be read, or its directory cannot be watched.
+   * @throws IllegalArgumentException
+   *           - If the file contains a value which cannot be used.
+   */
+  public synchronized void start() throws IOException {
+    if (thread != null) {
+      return;
+    }
+    LoggingConfig initial = LoggingConfig.load(file);
+    synchronized (reloadLock) {
+      listener.accept(initial);
+      config = initial;
+    }
+
+    final WatchService service = FileSystems.getDefault().newWatchService();
+    file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    watchService = service;
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        watch(service);
+      }
+    }, "ConfigWatcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops watching the configuration file. The configuration in force is left
+   * as it is.
+   */
+  public synchronized void stop() {
+    if (thread != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        // The watch thread is interrupted below in any case.
+      }
+      thread.interrupt();
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      watchService = null;
+      thread = null;
+    }
+  }
+
+  /**
+   * Reads the configuration file and applies it, if it differs from the
+   * configuration in force.
+   *
+   * @return - true if a new configuration was applied.
+   */
+  public boolean reload() {
+    synchronized (reloadLock) {
+      LoggingConfig loaded;
+      try {
+        loaded = LoggingConfig.load(file);
+      } catch (IOException | IllegalArgumentException e) {
+        failedReloadCount.incrementAndGet();
+        logger.error("Unable to reload logging configuration " + file + ": " + e.getMessage());
+        return false;
+      }
+      if (loaded.equals(config)) {
+        return false;
+      }
+      try {
+        listener.accept(loaded);
+      } catch (RuntimeException e) {
+        // The watch thread must survive a configuration which cannot be
+        // applied, or no later change would be picked up.
+        failedReloadCount.incrementAndGet();
+        logger.error("Unable to apply logging configuration " + file + ": " + e.getMessage());
+        return false;
+      }
+      config = loaded;
+      reloadCount.incrementAndGet();
+      return true;
+    }
+  }
+
+  /** @return - The configuration in force, or null if the watcher has not been started. */
+  public LoggingConfig getConfig() {
+    return config;
+  }
+
+  /** @return - The configuration file being watched. */
+  public Path getFile() {
+    return file;
+  }
+
+  /** @return - The number of changed configurations applied since the watcher started. */
+  public long getReloadCount() {
+    return reloadCount.get();
+  }
+
+  /** @return - The number of times the file could not be read, parsed or applied. */
+  public long getFailedReloadCount() {
+    return failedReloadCount.get();
+  }
+
+  private void watch(WatchService service) {
+    while (true) {
+      try {
+        WatchKey key = service.take();
+        boolean changed = false;
+        while (key != null) {
+          changed |= isChange(key);
+          if (!key.reset()) {
+            logger.error("Stopped watching logging configuration " + file
+                + ": its directory is no longer accessible");
+            return;
+          }
+
+          // Files are often written in several steps, the first of which
+          // empties them; wait for the file to settle so that a half written
+          // file is not applied.
+          key = changed ? service.poll(SETTLE_MS, TimeUnit.MILLISECONDS) : null;
+        }
+        if (changed) {
+          reload();
+        }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Indicates whether a set of events may have changed the file. Any event in
+   * its directory counts: a file mounted from a Kubernetes ConfigMap changes
+   * when the <code>..data</code> symbolic link it resolves through is swapped,
+   * which raises no event naming the file itself. Reloading a file which has
+   * not changed applies nothing.
+   */
+  private static boolean isChange(WatchKey key) {
+    return !key.pollEvents().isEmpty();
+  }
+}
@@ -0,0 +1,252 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.async.CapturedEvent;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer;
+import org.onap.aai.cl.mdc.MdcOverride;
+import org.slf4j.MDC;
+
+/**
+ * Moves the rendering of log lines off the threads which log them. A logging
+ * call captures its raw values into a {@link StripedEventBuffer}: the log
+ * code, source and exception by reference, and the arguments, the fields
+ * which are set, the MDC attributes, the component and the thread name
+ * encoded as UTF-8 into the buffer's off-heap slot, along with the time. That
+ * copying is the cost left on the calling thread; a single background thread
+ * then formats the message, renders the line and writes it exactly as the
+ * calling thread would have. A line which fails to render is counted and
+ * skipped.
+ * <p>
+ * The rendered columns are those of the original call, since the line is
+ * rendered from the captured time, thread name and MDC attributes. The
+ * captured attributes are also put in the background thread's MDC while the
+ * line is written, so that MDC values in the EELF logger's own pattern come
+ * out right; the pattern's own timestamp and thread name, however, are those
+ * of the background thread. A call which finds its stripe of the buffer full
+ * is rendered on the calling thread instead, so nothing is lost, but it may
+ * then be written ahead of calls captured before it. So is a call whose line
+ * goes to a sink which needs the calling thread, such as the
+ * {@link org.onap.aai.cl.eelf.jfr.JfrLogSink} while its events are enabled.
+ */
+public class DeferredRenderer {
+
+  /** The default number of events each stripe of the buffer holds. */
+  public static final int DEFAULT_CAPACITY_PER_STRIPE = 4096;
+
+  /** The most events rendered between checks for new ones. */
+  private static final int BATCH_SIZE = 1024;
+
+  /** How long the background thread sleeps when there is nothing to render. */
+  private static final long IDLE_PARK_NANOS = 1000000;
+
+  private final StripedEventBuffer buffer;
+  private final Set<LogLineType> types;
+  private final String[] mdcKeys = CapturedEvent.mdcKeys();
+
+  /**
+   * The number of callers between checking that the renderer is running and
+   * finishing their capture, which stopping waits for. Striped, like the
+   * buffer, so that it is not a point of contention itself.
+   */
+  private final LongAdder capturing = new LongAdder();
+
+  private final LongAdder captured = new LongAdder();
+  private final AtomicLong rendered = new AtomicLong();
+  private final LongAdder synchronous = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private volatile boolean running;
+  private Thread thread;
+
+  /**
+   * Creates a renderer. Calls are only deferred once {@link #start()} has
+   * been called.
+   *
+   * @param buffer
+   *          - The buffer calls are captured into.
+   * @param types
+   *          - The types of line whose rendering is deferred.
+   */
+  public DeferredRenderer(StripedEventBuffer buffer, Set<LogLineType> types) {
+    this.buffer = buffer;
+    this.types = types.isEmpty() ? EnumSet.noneOf(LogLineType.class) : EnumSet.copyOf(types);
+  }
+
+  /** Starts the background thread and begins deferring calls. */
+  public synchronized void start() {
+    if (thread == null) {
+      running = true;
+      thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          renderLoop();
+        }
+      }, "DeferredRenderer");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Stops deferring calls, and waits for every call captured so far to be
+   * rendered before returning.
+   */
+  public synchronized void stop() {
+    if (thread != null) {
+      running = false;
+
+      // A caller which saw the renderer running may still be capturing; its
+      // event must be in the buffer before the background thread drains it.
+      while (capturing.sum() != 0) {
+        Thread.yield();
+      }
+      LockSupport.unpark(thread);
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      thread = null;
+    }
+  }
+
+  /**
+   * Waits until every call captured so far has been rendered.
+   *
+   * @param timeoutMs
+   *          - The longest time to wait.
+   *
+   * @return - true if every call was rendered, false if the wait timed out.
+   */
+  public boolean flush(long timeoutMs) throws InterruptedException {
+    long target = captured.sum();
+    long deadline = System.currentTimeMillis() + timeoutMs;
+    while (rendered.get() < target) {
+      if (System.currentTimeMillis() >= deadline) {
+        return false;
+      }
+      Thread.sleep(1);
+    }
+    return true;
+  }
+
+  /**
+   * Indicates whether the rendering of a type of line is deferred.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - true if lines of the type are rendered in the background.
+   */
+  public boolean isDeferred(LogLineType type) {
+    return running && types.contains(type);
+  }
+
+  /**
+   * Captures a logging call for rendering in the background.
+   *
+   * @return - true if the call was captured, false if it must be rendered by
+   *         the caller, because the renderer is stopped, the type of line is
+   *         not deferred or the buffer is full.
+   */
+  boolean capture(AaiLoggerAdapter source, LogLineType type, Level level, Enum logCode,
+      String component, LogFields fields, MdcOverride override, Throwable ex, long startTime,
+      long elapsedTime, String... arguments) {
+    if (!types.contains(type)) {
+      return false;
+    }
+    capturing.increment();
+    try {
+      if (!running) {
+        return false;
+      }
+      if (buffer.offer(source, type, level, logCode, component, fields, override, ex, startTime,
+          elapsedTime, arguments)) {
+        captured.increment();
+        return true;
+      }
+      synchronous.increment();
+      return false;
+    } finally {
+      capturing.decrement();
+    }
+  }
+
+  private void renderLoop() {
+    while (running || !buffer.isEmpty()) {
+      if (buffer.drain(this::render, BATCH_SIZE) == 0) {
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      }
+    }
+  }
+
+  /** Renders and writes a single captured call with its MDC attributes in place. */
+  private void render(CapturedEvent event) {
+    MdcOverride mdc = event.getMdc();
+    for (String key : mdcKeys) {
+      String value = mdc.getAttributeValue(key);
+      if (value == null || value.isEmpty()) {
+        MDC.remove(key);
+      } else {
+        MDC.put(key, value);
+      }
+    }
+    try {
+      ((AaiLoggerAdapter) event.getSource()).render(event);
+    } catch (RuntimeException e) {
+      // A line which fails to render must not stop the lines after it.
+      failed.increment();
+    } finally {
+      MDC.clear();
+      rendered.incrementAndGet();
+    }
+  }
+
+  /** @return - The buffer calls are captured into. */
+  public StripedEventBuffer getBuffer() {
+    return buffer;
+  }
+
+  /** @return - The number of calls rendered in the background. */
+  public long getRenderedCount() {
+    return rendered.get();
+  }
+
+  /** @return - The number of calls rendered by the caller because the buffer was full. */
+  public long getSynchronousCount() {
+    return synchronous.sum();
+  }
+
+  /** @return - The number of calls lost because rendering them in the background failed. */
+  public long getFailedCount() {
+    return failed.sum();
+  }
+}
@@ -33,10 +33,13 @@ public class ErrorLogLine extends LogLine {
   public String getFormattedLine() {
 
     // The error logger fields should be defined in logback.xml using the following pattern:
-    //   %d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX}|%mdc{RequestId}|%thread|<AppName>|%mdc{PartnerName}|%logger||%.-5level|%msg%n"     
+    //   %d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX}|%mdc{RequestId}|%thread|<AppName>|%mdc{PartnerName}|%logger||%.-5level|%msg%n"
+    // Every error logger shares the EELF error logger, so %logger is the same
+    // on every line, and the name the logger was obtained with is carried in
+    // the extra details instead.
     return logCode + "|" +                                    // 9  error code
            message + "|" +                                    // 10 log message
-           "";                                                // 11 extra details
+           component;                                         // 11 extra details
 
   }
 }
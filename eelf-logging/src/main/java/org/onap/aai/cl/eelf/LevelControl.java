@@ -0,0 +1,237 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+import com.att.eelf.i18n.EELFResolvableResourceEnum;
+import com.att.eelf.i18n.EELFResourceManager;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds levels for individual components, and a set of disabled log codes,
+ * which can be changed while the process is running, on top of the levels
+ * configured for the EELF loggers.
+ * <p>
+ * The settings are published as an immutable {@link Snapshot} through a
+ * volatile reference, so checking a line against them never takes a lock.
+ * Every change builds and publishes a new snapshot.
+ */
+public class LevelControl implements LevelControlMXBean {
+
+  private volatile Snapshot snapshot = new Snapshot(Collections.<String, Level>emptyMap(),
+      Collections.<String>emptySet());
+
+  /** @return - The settings currently in force. */
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Sets the level below which the lines of a component, and of every
+   * component whose name it is a dotted prefix of, are suppressed.
+   *
+   * @param component
+   *          - The component, or logger, name.
+   * @param level
+   *          - The level, or null to remove the component's level.
+   */
+  public synchronized void setLevel(String component, Level level) {
+    Map<String, Level> levels = new HashMap<String, Level>(snapshot.levels);
+    if (level == null) {
+      levels.remove(component);
+    } else {
+      levels.put(component, level);
+    }
+    snapshot = new Snapshot(levels, snapshot.disabledCodes);
+  }
+
+  @Override
+  public void setLevel(String component, String level) {
+    setLevel(component, level == null || level.isEmpty() ? null
+        : Level.valueOf(level.trim().toUpperCase(Locale.ROOT)));
+  }
+
+  @Override
+  public void clearLevel(String component) {
+    setLevel(component, (Level) null);
+  }
+
+  @Override
+  public Map<String, String> getLevels() {
+    Map<String, String> levels = new TreeMap<String, String>();
+    for (Map.Entry<String, Level> entry : snapshot.levels.entrySet()) {
+      levels.put(entry.getKey(), entry.getValue().name());
+    }
+    return levels;
+  }
+
+  /**
+   * Enables or disables every line with a log code.
+   *
+   * @param logCode
+   *          - The log code.
+   * @param enabled
+   *          - false to suppress the code's lines, true to write them again.
+   */
+  public void setLogCodeEnabled(LogMessageEnum logCode, boolean enabled) {
+    setLogCodeEnabled(EELFResourceManager.getIdentifier(logCode), enabled);
+  }
+
+  @Override
+  public synchronized void setLogCodeEnabled(String logCode, boolean enabled) {
+    Set<String> disabledCodes = new HashSet<String>(snapshot.disabledCodes);
+    if (enabled) {
+      disabledCodes.remove(logCode);
+    } else {
+      disabledCodes.add(logCode);
+    }
+    snapshot = new Snapshot(snapshot.levels, disabledCodes);
+  }
+
+  @Override
+  public String[] getDisabledLogCodes() {
+    return snapshot.disabledCodes.toArray(new String[0]);
+  }
+
+  /**
+   * Replaces every runtime level and disabled log code at once, so that no
+   * line is checked against a mixture of the old and new settings.
+   *
+   * @param levels
+   *          - The level of each component which has one.
+   * @param disabledCodes
+   *          - The identifiers of the log codes to disable.
+   */
+  public synchronized void apply(Map<String, Level> levels, Set<String> disabledCodes) {
+    snapshot = new Snapshot(new HashMap<String, Level>(levels), new HashSet<String>(disabledCodes));
+  }
+
+  @Override
+  public synchronized void reset() {
+    snapshot = new Snapshot(Collections.<String, Level>emptyMap(), Collections.<String>emptySet());
+  }
+
+  /** An immutable set of runtime levels and disabled log codes. */
+  public static final class Snapshot {
+
+    private final Map<String, Level> levels;
+    private final Set<String> disabledCodes;
+
+    /**
+     * The disabled codes of each log code enum, by ordinal, worked out the
+     * first time a code of the enum is checked against this snapshot.
+     */
+    private final ConcurrentMap<Class<?>, BitSet> disabledOrdinals = new ConcurrentHashMap<Class<?>, BitSet>();
+
+    private Snapshot(Map<String, Level> levels, Set<String> disabledCodes) {
+      this.levels = Collections.unmodifiableMap(levels);
+      this.disabledCodes = Collections.unmodifiableSet(disabledCodes);
+    }
+
+    /** @return - true if this snapshot neither sets levels nor disables codes. */
+    public boolean isEmpty() {
+      return levels.isEmpty() && disabledCodes.isEmpty();
+    }
+
+    /**
+     * Looks up the runtime level of a component: its own, or else that of the
+     * longest dotted prefix of its name which has one.
+     *
+     * @param component
+     *          - The component, or logger, name.
+     *
+     * @return - The level, or null if the component is left to its configured
+     *         level.
+     */
+    public Level getLevel(String component) {
+      if (levels.isEmpty() || component == null) {
+        return null;
+      }
+      String name = component;
+      while (true) {
+        Level level = levels.get(name);
+        if (level != null) {
+          return level;
+        }
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+          return null;
+        }
+        name = name.substring(0, dot);
+      }
+    }
+
+    /**
+     * Checks whether the lines of a log code are enabled.
+     *
+     * @param logCode
+     *          - The log code, or null for lines which do not have one.
+     *
+     * @return - false if the code has been disabled.
+     */
+    public boolean isLogCodeEnabled(Enum<?> logCode) {
+      if (disabledCodes.isEmpty() || logCode == null) {
+        return true;
+      }
+      Class<?> codes = logCode.getDeclaringClass();
+      BitSet disabled = disabledOrdinals.get(codes);
+      if (disabled == null) {
+        disabled = new BitSet();
+        for (Object code : codes.getEnumConstants()) {
+          if (code instanceof EELFResolvableResourceEnum && disabledCodes.contains(
+              EELFResourceManager.getIdentifier((EELFResolvableResourceEnum) code))) {
+            disabled.set(((Enum<?>) code).ordinal());
+          }
+        }
+        disabledOrdinals.putIfAbsent(codes, disabled);
+      }
+      return !disabled.get(logCode.ordinal());
+    }
+
+    /**
+     * Checks whether a line passes the runtime settings.
+     *
+     * @param level
+     *          - The level of the line.
+     * @param componentLevel
+     *          - The runtime level of the line's component, as returned by
+     *          {@link #getLevel(String)}, or null if it has none.
+     * @param logCode
+     *          - The log code of the line, or null if it has none.
+     *
+     * @return - true if the line may be written.
+     */
+    public boolean isEnabled(Level level, Level componentLevel, Enum<?> logCode) {
+      return (componentLevel == null || level.ordinal() >= componentLevel.ordinal())
+          && isLogCodeEnabled(logCode);
+    }
+  }
+}
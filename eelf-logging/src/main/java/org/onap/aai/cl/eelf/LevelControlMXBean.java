@@ -0,0 +1,70 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import java.util.Map;
+
+/**
+ * JMX management interface for the {@link LevelControl}, allowing the levels
+ * of components and individual log codes to be changed while the process is
+ * running.
+ */
+public interface LevelControlMXBean {
+
+  /** @return - The runtime level of each component which has one. */
+  public Map<String, String> getLevels();
+
+  /**
+   * Sets the level below which the lines of a component, and of every
+   * component whose name it is a dotted prefix of, are suppressed.
+   *
+   * @param component
+   *          - The component, or logger, name.
+   * @param level
+   *          - TRACE, DEBUG, INFO, WARN, ERROR or OFF.
+   */
+  public void setLevel(String component, String level);
+
+  /**
+   * Removes the runtime level of a component, leaving its lines to the
+   * configured level again.
+   *
+   * @param component
+   *          - The component, or logger, name.
+   */
+  public void clearLevel(String component);
+
+  /** @return - The identifiers of the log codes which are disabled. */
+  public String[] getDisabledLogCodes();
+
+  /**
+   * Enables or disables every line with a log code.
+   *
+   * @param logCode
+   *          - The identifier of the log code, such as AAI0001E.
+   * @param enabled
+   *          - false to suppress the code's lines, true to write them again.
+   */
+  public void setLogCodeEnabled(String logCode, boolean enabled);
+
+  /** Removes every runtime level and re-enables every log code. */
+  public void reset();
+}
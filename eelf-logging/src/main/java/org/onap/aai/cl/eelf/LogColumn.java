@@ -0,0 +1,67 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+/**
+ * Describes one of the pipe-delimited columns of a standardized log line. The
+ * columns of each type of line are enumerated by {@link AuditColumn} and
+ * {@link MetricsColumn}, and are shared by the code which writes the lines and
+ * the code which reads them back, so that the two cannot drift apart.
+ */
+public interface LogColumn {
+
+  /** Describes the kind of value held by a column. */
+  public enum Kind {
+
+    /** A timestamp in yyyy-MM-dd'T'HH:mm:ss.SSSXXX format. */
+    TIMESTAMP,
+
+    /** A non-negative whole number, such as an elapsed time. */
+    NUMBER,
+
+    /** A value drawn from a small set which repeats from line to line. */
+    REPEATED,
+
+    /** Free text which is likely to differ from line to line. */
+    TEXT
+  }
+
+  /**
+   * Returns the name of the column.
+   *
+   * @return - The column name.
+   */
+  public String name();
+
+  /**
+   * Returns the zero-based position of the column within the line.
+   *
+   * @return - The column index.
+   */
+  public int ordinal();
+
+  /**
+   * Returns the kind of value held by the column.
+   *
+   * @return - The kind of the column.
+   */
+  public Kind getKind();
+}
@@ -0,0 +1,127 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+
+/** Helpers for working with the columns of standardized log lines. */
+public final class LogColumns {
+
+  /** The character which separates the columns of a log line. */
+  public static final char SEPARATOR = '|';
+
+  /** Format of the timestamp columns. */
+  public static final String TIMESTAMP_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+
+  /** The largest number of columns of any type of log line. */
+  public static final int MAX_COLUMN_COUNT =
+      Math.max(AuditColumn.values().length, MetricsColumn.values().length);
+
+  /** A formatter for the timestamp columns for each thread, as they are not thread safe. */
+  private static final ThreadLocal<SimpleDateFormat> TIMESTAMP_FORMATTER =
+      new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+          return new SimpleDateFormat(TIMESTAMP_FORMAT);
+        }
+      };
+
+  private LogColumns() {
+  }
+
+  /**
+   * Returns the columns of a type of log line.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - The columns in the order they are written, or null if lines of
+   *         the type are not written as columns.
+   */
+  public static LogColumn[] of(LogLineType type) {
+    switch (type) {
+      case AUDIT:
+        return AuditColumn.values();
+      case METRICS:
+        return MetricsColumn.values();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Formats the value of a timestamp column.
+   *
+   * @param millis
+   *          - The time, in milliseconds since the epoch.
+   *
+   * @return - The time in {@link #TIMESTAMP_FORMAT}.
+   */
+  static String formatTimestamp(long millis) {
+    return TIMESTAMP_FORMATTER.get().format(new Date(millis));
+  }
+
+  /**
+   * Calculates the time, in milliseconds, which has elapsed between the value
+   * of a timestamp column and a later time.
+   *
+   * @param startTimeString
+   *          - The start time, in {@link #TIMESTAMP_FORMAT}.
+   * @param endTime
+   *          - The end time, in milliseconds since the epoch.
+   *
+   * @return - The elapsed time, or 0 if the start time was not properly formatted.
+   */
+  static long elapsedSince(String startTimeString, long endTime) {
+    try {
+      return endTime - TIMESTAMP_FORMATTER.get().parse(startTimeString).getTime();
+    } catch (ParseException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Joins column values into a log line.
+   *
+   * @param values
+   *          - The values of the columns, in order.
+   *
+   * @return - The values separated by {@link #SEPARATOR}.
+   */
+  public static String join(String[] values) {
+    int length = values.length;
+    for (String value : values) {
+      length += value == null ? 4 : value.length();
+    }
+    StringBuilder line = new StringBuilder(length);
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        line.append(SEPARATOR);
+      }
+      line.append(values[i]);
+    }
+    return line.toString();
+  }
+}
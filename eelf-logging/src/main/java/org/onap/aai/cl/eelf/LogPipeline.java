@@ -0,0 +1,378 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.recorder.LogFlightRecorder;
+import org.onap.aai.cl.eelf.sink.LogSink;
+import org.onap.aai.cl.eelf.stats.LoggingStats;
+import org.onap.aai.cl.eelf.stats.StageProfiler;
+
+/**
+ * Holds the state which is shared by all of the loggers produced by a single
+ * {@link LoggerFactory}, such as the additional {@link LogSink}s that each
+ * formatted log line is handed to.
+ */
+public class LogPipeline {
+
+  /** The sinks registered for each type of log line. */
+  private final Map<LogLineType, List<LogSink>> sinks =
+      new EnumMap<LogLineType, List<LogSink>>(LogLineType.class);
+
+  /** The types of log line which are written as text to the EELF loggers. */
+  private volatile EnumSet<LogLineType> textOutput = EnumSet.allOf(LogLineType.class);
+
+  /** When set, aggregates the elapsed times of metrics lines into periodic summaries. */
+  private volatile MetricsRollup metricsRollup;
+
+  /** Counts the lines written and suppressed by the loggers sharing this pipeline. */
+  private final LoggingStats stats = new LoggingStats();
+
+  /** Levels and log codes which have been changed while the process is running. */
+  private final LevelControl levelControl = new LevelControl();
+
+  /** When set, times the stages of every logging call. */
+  private volatile StageProfiler stageProfiler;
+
+  /** When set, holds back the debug and trace lines of each request until it logs an error. */
+  private volatile RequestDebugBuffer requestDebugBuffer;
+
+  /** When set, keeps the most recent events of every type, whether written or not. */
+  private volatile LogFlightRecorder flightRecorder;
+
+  /** When set, renders lines on a background thread rather than the caller's. */
+  private volatile DeferredRenderer deferredRenderer;
+
+  /** Instantiates a new, empty, {@link LogPipeline}. */
+  public LogPipeline() {
+    for (LogLineType type : LogLineType.values()) {
+      sinks.put(type, new CopyOnWriteArrayList<LogSink>());
+    }
+  }
+
+  /**
+   * Registers a sink which will receive every line of the specified type.
+   *
+   * @param type
+   *          - The type of log line the sink is interested in.
+   * @param sink
+   *          - The sink to register.
+   */
+  public void addSink(LogLineType type, LogSink sink) {
+    sinks.get(type).add(sink);
+  }
+
+  /**
+   * Unregisters a sink. The sink is not closed.
+   *
+   * @param type
+   *          - The type of log line the sink was registered for.
+   * @param sink
+   *          - The sink to unregister.
+   *
+   * @return - true if the sink was registered, false otherwise.
+   */
+  public boolean removeSink(LogLineType type, LogSink sink) {
+    return sinks.get(type).remove(sink);
+  }
+
+  /**
+   * Returns the sinks currently registered for a type of log line.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - An unmodifiable view of the registered sinks.
+   */
+  public List<LogSink> getSinks(LogLineType type) {
+    return Collections.unmodifiableList(sinks.get(type));
+  }
+
+  /**
+   * Indicates whether lines of a type are written as text to the EELF loggers.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - true if text output is enabled for the type.
+   */
+  public boolean isTextOutputEnabled(LogLineType type) {
+    return textOutput.contains(type);
+  }
+
+  /**
+   * Enables or disables writing lines of a type as text to the EELF loggers.
+   * Lines are still handed to the pipeline's sinks, so text output may be
+   * disabled in favour of a sink which records lines in another form.
+   *
+   * @param type
+   *          - The type of log line.
+   * @param enabled
+   *          - true to write lines of the type as text, false otherwise.
+   */
+  public synchronized void setTextOutputEnabled(LogLineType type, boolean enabled) {
+    EnumSet<LogLineType> updated = EnumSet.copyOf(textOutput);
+    if (enabled) {
+      updated.add(type);
+    } else {
+      updated.remove(type);
+    }
+    textOutput = updated;
+  }
+
+  /**
+   * Indicates whether lines of a type need to be formatted at all: either
+   * they are written as text, or one of the sinks registered for the type
+   * uses the formatted line.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - true if lines of the type should be formatted.
+   */
+  public boolean needsFormattedLine(LogLineType type) {
+    if (isTextOutputEnabled(type)) {
+      return true;
+    }
+    for (LogSink sink : sinks.get(type)) {
+      if (sink.needsFormattedLine()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Indicates whether lines of a type go anywhere at all.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - true if lines of the type are written as text or have sinks.
+   */
+  boolean hasOutput(LogLineType type) {
+    return isTextOutputEnabled(type) || !sinks.get(type).isEmpty();
+  }
+
+  /**
+   * Indicates whether lines of a type must be written on the thread which
+   * logged them, because one of the sinks registered for the type needs it.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - true if lines of the type must not be deferred.
+   */
+  boolean needsCallingThread(LogLineType type) {
+    for (LogSink sink : sinks.get(type)) {
+      if (sink.needsCallingThread(type)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Indicates whether any sinks are registered for lines of a type.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - true if lines of the type are passed to at least one sink.
+   */
+  boolean hasSinks(LogLineType type) {
+    return !sinks.get(type).isEmpty();
+  }
+
+  /**
+   * Returns the counters for the lines written through this pipeline.
+   *
+   * @return - The pipeline's {@link LoggingStats}.
+   */
+  public LoggingStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Returns the runtime levels and disabled log codes which every line is
+   * checked against before it is rendered.
+   *
+   * @return - The pipeline's {@link LevelControl}.
+   */
+  public LevelControl getLevelControl() {
+    return levelControl;
+  }
+
+  /**
+   * Returns the rollup which metrics lines are currently aggregated into.
+   *
+   * @return - The active {@link MetricsRollup}, or null if aggregation is off.
+   */
+  public MetricsRollup getMetricsRollup() {
+    return metricsRollup;
+  }
+
+  /**
+   * Sets the rollup which metrics lines are aggregated into. The rollup is
+   * not started or stopped by the pipeline.
+   *
+   * @param rollup
+   *          - The rollup to use, or null to turn aggregation off.
+   *
+   * @return - The previously active rollup, or null if there was none.
+   */
+  public MetricsRollup setMetricsRollup(MetricsRollup rollup) {
+    MetricsRollup previous = metricsRollup;
+    metricsRollup = rollup;
+    return previous;
+  }
+
+  /**
+   * Returns the profiler which the stages of logging calls are timed by.
+   *
+   * @return - The active {@link StageProfiler}, or null if profiling is off.
+   */
+  public StageProfiler getStageProfiler() {
+    return stageProfiler;
+  }
+
+  /**
+   * Sets the profiler which the stages of logging calls are timed by. The
+   * profiler is not started or stopped by the pipeline.
+   *
+   * @param profiler
+   *          - The profiler to use, or null to turn profiling off.
+   *
+   * @return - The previously active profiler, or null if there was none.
+   */
+  public StageProfiler setStageProfiler(StageProfiler profiler) {
+    StageProfiler previous = stageProfiler;
+    stageProfiler = profiler;
+    return previous;
+  }
+
+  /**
+   * Returns the buffer which debug and trace lines are held back in.
+   *
+   * @return - The active {@link RequestDebugBuffer}, or null if debug and
+   *         trace lines are written as they are logged.
+   */
+  public RequestDebugBuffer getRequestDebugBuffer() {
+    return requestDebugBuffer;
+  }
+
+  /**
+   * Sets the buffer which debug and trace lines are held back in.
+   *
+   * @param buffer
+   *          - The buffer to use, or null to write debug and trace lines as
+   *          they are logged.
+   *
+   * @return - The previously active buffer, or null if there was none.
+   */
+  public RequestDebugBuffer setRequestDebugBuffer(RequestDebugBuffer buffer) {
+    RequestDebugBuffer previous = requestDebugBuffer;
+    requestDebugBuffer = buffer;
+    return previous;
+  }
+
+  /**
+   * Returns the recorder which recent log events are kept in.
+   *
+   * @return - The active {@link LogFlightRecorder}, or null if recent events
+   *         are not kept.
+   */
+  public LogFlightRecorder getFlightRecorder() {
+    return flightRecorder;
+  }
+
+  /**
+   * Sets the recorder which recent log events are kept in.
+   *
+   * @param recorder
+   *          - The recorder to use, or null to stop keeping recent events.
+   *
+   * @return - The previously active recorder, or null if there was none.
+   */
+  public LogFlightRecorder setFlightRecorder(LogFlightRecorder recorder) {
+    LogFlightRecorder previous = flightRecorder;
+    flightRecorder = recorder;
+    return previous;
+  }
+
+  /**
+   * Returns the renderer which lines are rendered in the background by.
+   *
+   * @return - The active {@link DeferredRenderer}, or null if lines are
+   *         rendered by the threads which log them.
+   */
+  public DeferredRenderer getDeferredRenderer() {
+    return deferredRenderer;
+  }
+
+  /**
+   * Sets the renderer which lines are rendered in the background by. The
+   * renderer is not started or stopped by the pipeline.
+   *
+   * @param renderer
+   *          - The renderer to use, or null to render lines on the threads
+   *          which log them.
+   *
+   * @return - The previously active renderer, or null if there was none.
+   */
+  public DeferredRenderer setDeferredRenderer(DeferredRenderer renderer) {
+    DeferredRenderer previous = deferredRenderer;
+    deferredRenderer = renderer;
+    return previous;
+  }
+
+  /** Closes and unregisters every sink in the pipeline. */
+  public void close() {
+    for (List<LogSink> typeSinks : sinks.values()) {
+      for (LogSink sink : typeSinks) {
+        sink.close();
+      }
+      typeSinks.clear();
+    }
+  }
+
+  /**
+   * Hands a formatted log line to each of the sinks registered for its type.
+   * A failing sink never prevents the line from reaching the other sinks.
+   */
+  void dispatch(LogLineType type, LogLine logLine, String formattedLine) {
+    for (LogSink sink : sinks.get(type)) {
+      try {
+        sink.write(type, logLine, formattedLine);
+      } catch (RuntimeException e) {
+        // A misbehaving sink must not break the application's logging call.
+      }
+    }
+  }
+}
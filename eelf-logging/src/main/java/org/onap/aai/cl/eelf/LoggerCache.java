@@ -0,0 +1,162 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.onap.aai.cl.api.Logger;
+
+/**
+ * A bounded cache of loggers by name, which evicts the least recently used
+ * logger once it is full, so that components which build logger names
+ * dynamically cannot grow it without limit. An evicted logger keeps working
+ * for any caller which still holds it; a later lookup of its name simply
+ * creates a new one.
+ * <p>
+ * Only this cache is bounded. The EELF logger behind each error logger is
+ * kept by EELF and its backend for as long as the process runs, as described
+ * on {@link LoggerFactory#getLogger(String)}.
+ */
+public class LoggerCache implements LoggerCacheMXBean {
+
+  /** The number of loggers of each type kept by default. */
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private final Map<String, Logger> loggers = new LinkedHashMap<String, Logger>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Logger> eldest) {
+      if (size() > maxSize) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  };
+
+  private int maxSize;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a new, empty, cache.
+   *
+   * @param maxSize
+   *          - The number of loggers to keep, which must be at least 1.
+   */
+  public LoggerCache(int maxSize) {
+    checkMaxSize(maxSize);
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Looks up a logger, counting the lookup as a hit or a miss.
+   *
+   * @param name
+   *          - The name of the logger.
+   *
+   * @return - The cached logger, or null if there is none.
+   */
+  public synchronized Logger get(String name) {
+    Logger logger = loggers.get(name);
+    if (logger == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return logger;
+  }
+
+  /**
+   * Caches a logger, unless another thread has cached one with the same name
+   * in the meantime.
+   *
+   * @param name
+   *          - The name of the logger.
+   * @param logger
+   *          - The logger to cache.
+   *
+   * @return - The logger which is now cached under the name.
+   */
+  public synchronized Logger putIfAbsent(String name, Logger logger) {
+    Logger cached = loggers.get(name);
+    if (cached != null) {
+      return cached;
+    }
+    loggers.put(name, logger);
+    return logger;
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return loggers.size();
+  }
+
+  @Override
+  public synchronized int getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public synchronized void setMaxSize(int maxSize) {
+    checkMaxSize(maxSize);
+    this.maxSize = maxSize;
+    Iterator<String> names = loggers.keySet().iterator();
+    while (loggers.size() > maxSize && names.hasNext()) {
+      names.next();
+      names.remove();
+      evictions.increment();
+    }
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public double getHitRate() {
+    long hitCount = hits.sum();
+    long lookups = hitCount + misses.sum();
+    return lookups == 0 ? 0 : (double) hitCount / lookups;
+  }
+
+  private static void checkMaxSize(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Logger cache size must be at least 1: " + maxSize);
+    }
+  }
+}
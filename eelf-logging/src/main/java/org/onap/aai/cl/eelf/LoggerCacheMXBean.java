@@ -0,0 +1,55 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+/**
+ * JMX management interface for a {@link LoggerCache}, exposing how large it
+ * is and how well it works.
+ */
+public interface LoggerCacheMXBean {
+
+  /** @return - The number of loggers currently cached. */
+  public int getSize();
+
+  /** @return - The number of loggers kept before the least recently used is evicted. */
+  public int getMaxSize();
+
+  /**
+   * Changes the number of loggers kept, evicting the least recently used
+   * loggers if there are now too many.
+   *
+   * @param maxSize
+   *          - The new maximum, which must be at least 1.
+   */
+  public void setMaxSize(int maxSize);
+
+  /** @return - The number of lookups which found a cached logger. */
+  public long getHitCount();
+
+  /** @return - The number of lookups which had to create a logger. */
+  public long getMissCount();
+
+  /** @return - The number of loggers evicted to make room for others. */
+  public long getEvictionCount();
+
+  /** @return - The fraction of lookups which found a cached logger, or 0 if there were none. */
+  public double getHitRate();
+}
@@ -22,35 +22,75 @@ package org.onap.aai.cl.eelf;
 
 import com.att.eelf.configuration.EELFManager;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.onap.aai.cl.api.LogFields;
 import org.onap.aai.cl.api.Logger;
 import org.onap.aai.cl.api.LoggerFactoryInterface;
 import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.async.OffHeapEventQueue;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer;
+import org.onap.aai.cl.eelf.jfr.JfrLogSink;
+import org.onap.aai.cl.eelf.recorder.LogFlightRecorder;
+import org.onap.aai.cl.eelf.stats.StageProfiler;
 
 /** This is an implementation of the {@link LoggerFactoryInterface} which
  * constructs a {@link Logger} implementation which is compatible with the EELF
  * framework. */
 public class LoggerFactory implements LoggerFactoryInterface {
 
+  /** The JMX object name under which the logging counters are published. */
+  public static final String STATS_MBEAN_NAME = "org.onap.aai.cl:type=LoggingStats";
+
+  /** The JMX object name under which the logger cache of each log line type is
+   * published, followed by the type. */
+  public static final String LOGGER_CACHE_MBEAN_NAME = "org.onap.aai.cl:type=LoggerCache,name=";
+
+  /** The JMX object name under which the runtime level control is published. */
+  public static final String LEVEL_CONTROL_MBEAN_NAME = "org.onap.aai.cl:type=LevelControl";
+
+  /** The JMX object name under which the flight recorder is published, when enabled. */
+  public static final String FLIGHT_RECORDER_MBEAN_NAME = "org.onap.aai.cl:type=LogFlightRecorder";
+
   /** The instance for our factory singleton. */
   private static LoggerFactory instance;
 
   /** This cache maintains a mapping of logger names to instances so that if a
    * logger with the same name is requested multiple times we can return the
-   * same instance each time. */
-  private Map<String, Logger> errorLoggerCache = new HashMap<String, Logger>();
+   * same instance each time. It is bounded, so that dynamically built names
+   * cannot grow it without limit. */
+  private final LoggerCache errorLoggerCache = new LoggerCache(LoggerCache.DEFAULT_MAX_SIZE);
 
   /** This cache maintains a mapping of metric logger names to instances so that
    * if a logger with the same name is requested multiple times we can return
    * the same instance each time. */
-  private Map<String, Logger> metricLoggerCache = new HashMap<String, Logger>();
+  private final LoggerCache metricLoggerCache = new LoggerCache(LoggerCache.DEFAULT_MAX_SIZE);
 
   /** This cache maintains a mapping of audit logger names to instances so that
    * if a logger with the same name is requested multiple times we can return
    * the same instance each time. */
-  private Map<String, Logger> auditLoggerCache = new HashMap<String, Logger>();
+  private final LoggerCache auditLoggerCache = new LoggerCache(LoggerCache.DEFAULT_MAX_SIZE);
+
+  /** State shared by every logger produced by this factory, such as the
+   * additional sinks that formatted log lines are handed to. */
+  private final LogPipeline pipeline = new LogPipeline();
+
+  /** The sink which emits flight recorder events, when enabled. */
+  private JfrLogSink jfrSink;
+
+  /** Watches the configuration file, when one has been given. */
+  private ConfigWatcher configWatcher;
+
+  /** The configuration most recently applied, which later ones are compared with. */
+  private LoggingConfig appliedConfig = LoggingConfig.EMPTY;
 
   /** Returns the single instance of our factory singleton.
    * 
@@ -70,11 +110,338 @@ public class LoggerFactory implements LoggerFactoryInterface {
    * Instantiates a new {@link LoggerFactory}. 
    */
   protected LoggerFactory() {
+    registerMBean(pipeline.getStats(), STATS_MBEAN_NAME);
+    registerMBean(pipeline.getLevelControl(), LEVEL_CONTROL_MBEAN_NAME);
+    for (LogLineType type : LogLineType.values()) {
+      registerMBean(getLoggerCache(type), LOGGER_CACHE_MBEAN_NAME + type);
+    }
+  }
+
+  /** Publishes part of the pipeline through the platform MBean server. If the
+   * same part of another factory is already registered, it is left in place. */
+  private void registerMBean(Object mbean, String name) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(name));
+    } catch (JMException | SecurityException e) {
+      // The counters and controls are still available through getPipeline(); we
+      // just cannot publish them, which should not prevent logging.
+    }
+  }
+
+  /** Returns the pipeline shared by all of the loggers produced by this factory.
+   * Sinks registered with the pipeline receive the lines of every logger, including
+   * loggers which were obtained before the sink was registered.
+   * 
+   * @return - The factory's {@link LogPipeline} */
+  public LogPipeline getPipeline() {
+    return pipeline;
+  }
+
+  /** Returns the runtime levels and disabled log codes applied to the lines of
+   * every logger produced by this factory, on top of the configured levels. The
+   * same settings can be changed through the
+   * <i>org.onap.aai.cl:type=LevelControl</i> MBean.
+   * 
+   * @return - The factory's {@link LevelControl} */
+  public LevelControl getLevelControl() {
+    return pipeline.getLevelControl();
+  }
+
+  /** Returns the cache of the loggers of a log line type, whose size and hit
+   * rate are also published as the
+   * <i>org.onap.aai.cl:type=LoggerCache,name=&lt;type&gt;</i> MBeans.
+   * 
+   * @param type - The type of line the cached loggers write.
+   * @return - The cache. */
+  public LoggerCache getLoggerCache(LogLineType type) {
+    switch (type) {
+      case AUDIT:
+        return auditLoggerCache;
+      case METRICS:
+        return metricLoggerCache;
+      default:
+        return errorLoggerCache;
+    }
+  }
+
+  /** Starts aggregating the elapsed times of all metrics lines into per-interval
+   * summary lines, keyed by target entity, target service and status code. Any
+   * rollup which was already active is stopped first.
+   * 
+   * @param intervalMs   - The length of each aggregation interval.
+   * @param perCallLines - true to keep writing the individual metrics lines as
+   *                       well as the summaries, false to write summaries only. */
+  public synchronized void enableMetricsRollup(long intervalMs, boolean perCallLines) {
+    MetricsRollup rollup = new MetricsRollup(EELFManager.getMetricsLogger(), pipeline,
+        MetricsRollup.class.getSimpleName(), intervalMs, perCallLines);
+    rollup.start();
+    MetricsRollup previous = pipeline.setMetricsRollup(rollup);
+    if (previous != null) {
+      previous.stop();
+    }
+  }
+
+  /** Stops aggregating metrics lines, emitting the summary of the current
+   * interval. */
+  public synchronized void disableMetricsRollup() {
+    MetricsRollup previous = pipeline.setMetricsRollup(null);
+    if (previous != null) {
+      previous.stop();
+    }
+  }
+
+  /** Starts timing each stage of every logging call, attributing the cost to
+   * the log code being logged. A report is written to the error log of the
+   * {@link StageProfiler} class at the end of every interval, and may also be
+   * produced on demand from {@link LogPipeline#getStageProfiler()}. Any profiler
+   * which was already active is stopped first.
+   * 
+   * @param reportIntervalMs - The interval between reports.
+   * @return - The new profiler. */
+  public synchronized StageProfiler enableStageProfiling(long reportIntervalMs) {
+    StageProfiler profiler =
+        new StageProfiler(EELFManager.getLogger(StageProfiler.class.getName()), reportIntervalMs);
+    profiler.start();
+    StageProfiler previous = pipeline.setStageProfiler(profiler);
+    if (previous != null) {
+      previous.stop();
+    }
+    return profiler;
+  }
+
+  /** Stops timing the stages of logging calls. */
+  public synchronized void disableStageProfiling() {
+    StageProfiler previous = pipeline.setStageProfiler(null);
+    if (previous != null) {
+      previous.stop();
+    }
+  }
+
+  /** Starts holding back the debug and trace lines of each request, keyed by
+   * the MDC request id, instead of writing them. The lines of a request are
+   * written if it later logs an error, and discarded otherwise. Any lines held
+   * by a buffer which was already active are discarded.
+   * 
+   * @param linesPerRequest - The number of lines held for each request.
+   * @param maxRequests     - The number of requests tracked at once.
+   * @return - The new buffer. */
+  public synchronized RequestDebugBuffer enableRequestDebugBuffering(int linesPerRequest,
+      int maxRequests) {
+    RequestDebugBuffer buffer =
+        new RequestDebugBuffer(linesPerRequest, maxRequests, pipeline.getStats());
+    RequestDebugBuffer previous = pipeline.setRequestDebugBuffer(buffer);
+    if (previous != null) {
+      previous.clear();
+    }
+    return buffer;
+  }
+
+  /** Stops holding back debug and trace lines, discarding any which are held. */
+  public synchronized void disableRequestDebugBuffering() {
+    RequestDebugBuffer previous = pipeline.setRequestDebugBuffer(null);
+    if (previous != null) {
+      previous.clear();
+    }
+  }
+
+  /** Starts rendering lines on a background thread. Logging calls only capture
+   * their raw values into an off-heap buffer with a stripe per processor, and
+   * all string work happens on the background thread. Any renderer which was
+   * already active is stopped first, once the lines it captured are written.
+   * 
+   * @param capacityPerStripe - The number of calls each stripe of the buffer holds.
+   * @param ordering          - The order captured calls are guaranteed to be
+   *                            rendered in.
+   * @param types             - The types of line whose rendering is deferred.
+   * @return - The new renderer. */
+  public synchronized DeferredRenderer enableDeferredRendering(int capacityPerStripe,
+      StripedEventBuffer.Ordering ordering, Set<LogLineType> types) {
+    StripedEventBuffer buffer = new StripedEventBuffer(capacityPerStripe,
+        OffHeapEventQueue.DEFAULT_SLOT_SIZE, ordering);
+    DeferredRenderer renderer = new DeferredRenderer(buffer, types);
+    renderer.start();
+    DeferredRenderer previous = pipeline.setDeferredRenderer(renderer);
+    if (previous != null) {
+      previous.stop();
+    }
+    return renderer;
+  }
+
+  /** Stops rendering lines in the background, once the lines already captured
+   * are written. */
+  public synchronized void disableDeferredRendering() {
+    DeferredRenderer previous = pipeline.setDeferredRenderer(null);
+    if (previous != null) {
+      previous.stop();
+    }
+  }
+
+  /** Starts keeping the most recent log events of every type, including lines
+   * which are suppressed or below the configured level, in an off-heap ring.
+   * The events can be dumped to a file through the returned recorder or the
+   * <i>dump</i> operation of its MBean, for example when a health check fails.
+   * Any recorder which was already active is replaced, and its events are lost.
+   * 
+   * @param capacity - The number of events to keep.
+   * @param slotSize - The number of bytes each event is kept in.
+   * @return - The new recorder. */
+  public synchronized LogFlightRecorder enableFlightRecorder(int capacity, int slotSize) {
+    LogFlightRecorder recorder = new LogFlightRecorder(capacity, slotSize);
+    pipeline.setFlightRecorder(recorder);
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(FLIGHT_RECORDER_MBEAN_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+      server.registerMBean(recorder, name);
+    } catch (JMException | SecurityException e) {
+      // The recorder can still be dumped through the returned instance.
+    }
+    return recorder;
+  }
+
+  /** Stops keeping recent log events, discarding those which are held. */
+  public synchronized void disableFlightRecorder() {
+    if (pipeline.setFlightRecorder(null) != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer()
+            .unregisterMBean(new ObjectName(FLIGHT_RECORDER_MBEAN_NAME));
+      } catch (JMException | SecurityException e) {
+        // Nothing was published, or it has already been removed.
+      }
+    }
+  }
+
+  /** Starts emitting a Java Flight Recorder event for every audit, metrics and
+   * error line, in addition to any text output. Text output for a type of line
+   * may be switched off with {@link LogPipeline#setTextOutputEnabled}, leaving
+   * the flight recorder events as the only record of those lines.
+   * 
+   * @return - true if events are being emitted, false if the running JVM does
+   *         not support the flight recorder. */
+  public synchronized boolean enableJfrEvents() {
+    if (jfrSink == null) {
+      if (!JfrLogSink.isSupported()) {
+        return false;
+      }
+      jfrSink = new JfrLogSink();
+      for (LogLineType type : LogLineType.values()) {
+        pipeline.addSink(type, jfrSink);
+      }
+    }
+    return true;
+  }
+
+  /** Stops emitting Java Flight Recorder events. */
+  public synchronized void disableJfrEvents() {
+    if (jfrSink != null) {
+      for (LogLineType type : LogLineType.values()) {
+        pipeline.removeSink(type, jfrSink);
+      }
+      jfrSink = null;
+    }
+  }
+
+  /** Applies a logging configuration file, and applies it again whenever it
+   * changes, until {@link #stopWatchingConfig()} is called. Any file which was
+   * already being watched is no longer watched.
+   * 
+   * @param file - The configuration file, as described by {@link LoggingConfig}.
+   * @return - The watcher of the file.
+   * @throws IOException - If the file cannot be read or watched. */
+  public ConfigWatcher watchConfig(Path file) throws IOException {
+    stopWatchingConfig();
+    ConfigWatcher watcher = new ConfigWatcher(EELFManager.getLogger(ConfigWatcher.class.getName()), file,
+        new Consumer<LoggingConfig>() {
+          @Override
+          public void accept(LoggingConfig config) {
+            applyConfig(config);
+          }
+        });
+    watcher.start();
+    synchronized (this) {
+      configWatcher = watcher;
+    }
+    return watcher;
+  }
+
+  /** Stops watching the configuration file. The configuration last applied
+   * stays in force. */
+  public void stopWatchingConfig() {
+    ConfigWatcher watcher;
+    synchronized (this) {
+      watcher = configWatcher;
+      configWatcher = null;
+    }
 
+    // The watcher may be applying a configuration, which needs our lock.
+    if (watcher != null) {
+      watcher.stop();
+    }
+  }
+
+  /** Applies a logging configuration. Only the settings which differ from the
+   * configuration applied before are changed, so features enabled through
+   * this factory's methods are left alone unless the configuration changes
+   * them. Runtime levels are replaced in a single step, and features which
+   * buffer lines hand those lines on before they are replaced. If a setting
+   * cannot be applied, the settings before it stay applied, and every setting
+   * of the next configuration is applied, since what is in force is then only
+   * partly known.
+   * 
+   * @param config - The configuration to apply. */
+  public synchronized void applyConfig(LoggingConfig config) {
+    LoggingConfig previous = appliedConfig;
+    appliedConfig = null;
+    if (previous == null || config.levelsDiffer(previous)) {
+      pipeline.getLevelControl().apply(config.getLevels(), config.getDisabledLogCodes());
+    }
+    if (previous == null || !config.getTextOutput().equals(previous.getTextOutput())) {
+      for (LogLineType type : LogLineType.values()) {
+        pipeline.setTextOutputEnabled(type, config.getTextOutput().contains(type));
+      }
+    }
+    if (previous == null || config.rollupDiffers(previous)) {
+      if (config.getRollupIntervalMs() > 0) {
+        enableMetricsRollup(config.getRollupIntervalMs(), config.isRollupPerCallLines());
+      } else {
+        disableMetricsRollup();
+      }
+    }
+    if (previous == null || config.requestDebugDiffers(previous)) {
+      if (config.getDebugLinesPerRequest() > 0) {
+        enableRequestDebugBuffering(config.getDebugLinesPerRequest(), config.getDebugMaxRequests());
+      } else {
+        disableRequestDebugBuffering();
+      }
+    }
+    if (previous == null || config.recorderDiffers(previous)) {
+      if (config.getRecorderCapacity() > 0) {
+        enableFlightRecorder(config.getRecorderCapacity(), config.getRecorderSlotSize());
+      } else {
+        disableFlightRecorder();
+      }
+    }
+    if (previous == null || config.deferredDiffers(previous)) {
+      if (config.getDeferredCapacityPerStripe() > 0) {
+        enableDeferredRendering(config.getDeferredCapacityPerStripe(), config.getDeferredOrdering(),
+            config.getDeferredTypes());
+      } else {
+        disableDeferredRendering();
+      }
+    }
+    appliedConfig = config;
   }
 
   /**
-   * (non-Javadoc)
+   * Returns the error logger with the given name.
+   * <p>
+   * Like the audit and metrics loggers, every error logger writes through the
+   * single EELF error logger and carries its name in the line, so that names
+   * built at runtime do not each leave an EELF logger behind for the life of
+   * the process. Levels for individual loggers are therefore set through the
+   * {@link LevelControl}, whose components are the logger names.
    * 
    * @see org.ecomp.cl.api.LoggerFactoryInterface#getLogger(java.lang.String)
    */
@@ -82,15 +449,30 @@ public class LoggerFactory implements LoggerFactoryInterface {
 
     // Check the cache to see if we have already instantiated a logger
     // with the supplied name.
-    if (!errorLoggerCache.containsKey(name)) {
+    Logger logger = errorLoggerCache.get(name);
+    if (logger == null) {
 
       // Nothing in the cache, so let's instantiate a logger now.
-      Logger logger = new AaiLoggerAdapter(EELFManager.getLogger(name), LogLineType.ERROR, name);
-      errorLoggerCache.put(name, logger);
+      Logger created = new AaiLoggerAdapter(EELFManager.getErrorLogger(), LogLineType.ERROR, name,
+          pipeline);
+      logger = errorLoggerCache.putIfAbsent(name, created);
     }
 
     // Return the requested logger instance.
-    return errorLoggerCache.get(name);
+    return logger;
+  }
+
+  /** Returns a logger which writes the same lines as {@link #getLogger(String)}, with
+   * the fields of a template filled in on every line. Calls through the logger
+   * only need to pass the fields which differ from the template. The logger is
+   * not cached, so it is best created once and kept.
+   * 
+   * @param name   - The name of the logger.
+   * @param fields - The fields every line shares, of which an immutable copy is
+   *                 taken unless they are already a template.
+   * @return - The logger. */
+  public Logger getLogger(String name, LogFields fields) {
+    return ((AaiLoggerAdapter) getLogger(name)).withFields(fields);
   }
 
   /** 
@@ -112,15 +494,30 @@ public class LoggerFactory implements LoggerFactoryInterface {
 
     // Check the cache to see if we have already instantiated a logger
     // with the supplied name.
-    if (!auditLoggerCache.containsKey(name)) {
+    Logger logger = auditLoggerCache.get(name);
+    if (logger == null) {
 
       // Nothing in the cache, so let's instantiate a logger now.
-      Logger logger = new AaiLoggerAdapter(EELFManager.getAuditLogger(), LogLineType.AUDIT, name);
-      auditLoggerCache.put(name, logger);
+      Logger created = new AaiLoggerAdapter(EELFManager.getAuditLogger(), LogLineType.AUDIT, name,
+          pipeline);
+      logger = auditLoggerCache.putIfAbsent(name, created);
     }
 
     // Return the requested logger instance.
-    return auditLoggerCache.get(name);
+    return logger;
+  }
+
+  /** Returns a logger which writes the same lines as {@link #getAuditLogger(String)}, with
+   * the fields of a template filled in on every line. Calls through the logger
+   * only need to pass the fields which differ from the template. The logger is
+   * not cached, so it is best created once and kept.
+   * 
+   * @param name   - The name of the logger.
+   * @param fields - The fields every line shares, of which an immutable copy is
+   *                 taken unless they are already a template.
+   * @return - The logger. */
+  public Logger getAuditLogger(String name, LogFields fields) {
+    return ((AaiLoggerAdapter) getAuditLogger(name)).withFields(fields);
   }
 
   /** 
@@ -142,16 +539,30 @@ public class LoggerFactory implements LoggerFactoryInterface {
 
     // Check the cache to see if we have already instantiated a logger
     // with the supplied name.
-    if (!metricLoggerCache.containsKey(name)) {
+    Logger logger = metricLoggerCache.get(name);
+    if (logger == null) {
 
       // Nothing in the cache, so let's instantiate a logger now.
-      Logger logger = new AaiLoggerAdapter(EELFManager.getMetricsLogger(), LogLineType.METRICS,
-          name);
-      metricLoggerCache.put(name, logger);
+      Logger created = new AaiLoggerAdapter(EELFManager.getMetricsLogger(), LogLineType.METRICS,
+          name, pipeline);
+      logger = metricLoggerCache.putIfAbsent(name, created);
     }
 
     // Return the requested logger instance.
-    return metricLoggerCache.get(name);
+    return logger;
+  }
+
+  /** Returns a logger which writes the same lines as {@link #getMetricsLogger(String)}, with
+   * the fields of a template filled in on every line. Calls through the logger
+   * only need to pass the fields which differ from the template. The logger is
+   * not cached, so it is best created once and kept.
+   * 
+   * @param name   - The name of the logger.
+   * @param fields - The fields every line shares, of which an immutable copy is
+   *                 taken unless they are already a template.
+   * @return - The logger. */
+  public Logger getMetricsLogger(String name, LogFields fields) {
+    return ((AaiLoggerAdapter) getMetricsLogger(name)).withFields(fields);
   }
 
   /** 
@@ -0,0 +1,337 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.async.OffHeapEventQueue;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer.Ordering;
+import org.onap.aai.cl.eelf.recorder.LogFlightRecorder;
+
+/**
+ * An immutable snapshot of the runtime configuration of the logging library,
+ * read from a properties file such as:
+ *
+ * <pre>
+ * level.org.onap.aai.noisy=WARN
+ * disabledLogCodes=AAI0001I,AAI0002I
+ * textOutput.METRICS=false
+ * metricsRollup.enabled=true
+ * metricsRollup.intervalMs=60000
+ * metricsRollup.perCallLines=false
+ * requestDebug.enabled=true
+ * requestDebug.linesPerRequest=256
+ * requestDebug.maxRequests=1024
+ * flightRecorder.enabled=true
+ * flightRecorder.capacity=4096
+ * flightRecorder.slotSize=512
+ * deferredRendering.enabled=true
+ * deferredRendering.capacityPerStripe=4096
+ * deferredRendering.ordering=PER_REQUEST
+ * deferredRendering.types=AUDIT,METRICS
+ * </pre>
+ *
+ * Every property is optional. Features which are not enabled are switched
+ * off, and sizes which are not given take their usual defaults. Sizes are
+ * checked against the same limits as the features they configure, so a
+ * configuration which parses can be applied.
+ */
+public final class LoggingConfig {
+
+  /** A configuration which sets no levels and enables no optional features. */
+  public static final LoggingConfig EMPTY = new LoggingConfig(new Properties());
+
+  private static final String LEVEL_PREFIX = "level.";
+  private static final String TEXT_OUTPUT_PREFIX = "textOutput.";
+
+  private final Map<String, Level> levels;
+  private final Set<String> disabledLogCodes;
+  private final Set<LogLineType> textOutput;
+  private final long rollupIntervalMs;
+  private final boolean rollupPerCallLines;
+  private final int debugLinesPerRequest;
+  private final int debugMaxRequests;
+  private final int recorderCapacity;
+  private final int recorderSlotSize;
+  private final int deferredCapacityPerStripe;
+  private final Ordering deferredOrdering;
+  private final Set<LogLineType> deferredTypes;
+
+  private LoggingConfig(Properties properties) {
+    Map<String, Level> parsedLevels = new HashMap<String, Level>();
+    EnumSet<LogLineType> parsedTextOutput = EnumSet.allOf(LogLineType.class);
+    for (String key : properties.stringPropertyNames()) {
+      if (key.startsWith(LEVEL_PREFIX)) {
+        parsedLevels.put(key.substring(LEVEL_PREFIX.length()),
+            parseEnum(Level.class, key, properties.getProperty(key)));
+      } else if (key.startsWith(TEXT_OUTPUT_PREFIX)) {
+        LogLineType type = parseEnum(LogLineType.class, key, key.substring(TEXT_OUTPUT_PREFIX.length()));
+        if (!Boolean.parseBoolean(properties.getProperty(key).trim())) {
+          parsedTextOutput.remove(type);
+        }
+      }
+    }
+    levels = Collections.unmodifiableMap(parsedLevels);
+    textOutput = Collections.unmodifiableSet(parsedTextOutput);
+
+    Set<String> parsedCodes = new HashSet<String>();
+    for (String code : split(properties.getProperty("disabledLogCodes"))) {
+      parsedCodes.add(code);
+    }
+    disabledLogCodes = Collections.unmodifiableSet(parsedCodes);
+
+    boolean rollup = isEnabled(properties, "metricsRollup");
+    rollupIntervalMs = rollup ? parseLong(properties, "metricsRollup.intervalMs", 60000) : 0;
+    rollupPerCallLines = rollup
+        && Boolean.parseBoolean(properties.getProperty("metricsRollup.perCallLines", "true").trim());
+
+    boolean debug = isEnabled(properties, "requestDebug");
+    debugLinesPerRequest = debug ? parseInt(properties, "requestDebug.linesPerRequest",
+        RequestDebugBuffer.DEFAULT_LINES_PER_REQUEST) : 0;
+    debugMaxRequests = debug ? parseInt(properties, "requestDebug.maxRequests",
+        RequestDebugBuffer.DEFAULT_MAX_REQUESTS) : 0;
+
+    boolean recorder = isEnabled(properties, "flightRecorder");
+    recorderCapacity = recorder ? parseInt(properties, "flightRecorder.capacity",
+        LogFlightRecorder.DEFAULT_CAPACITY) : 0;
+    recorderSlotSize = recorder ? parseInt(properties, "flightRecorder.slotSize",
+        LogFlightRecorder.DEFAULT_SLOT_SIZE) : 0;
+    if (recorder) {
+      // Reject sizes the recorder itself would, so that a file which cannot
+      // be applied is turned away before any of it is.
+      try {
+        LogFlightRecorder.checkSize(recorderCapacity, recorderSlotSize);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid flightRecorder settings: " + e.getMessage(), e);
+      }
+    }
+
+    boolean deferred = isEnabled(properties, "deferredRendering");
+    deferredCapacityPerStripe = deferred ? parseInt(properties, "deferredRendering.capacityPerStripe",
+        DeferredRenderer.DEFAULT_CAPACITY_PER_STRIPE) : 0;
+    if (deferred) {
+      try {
+        OffHeapEventQueue.checkCapacity(deferredCapacityPerStripe, OffHeapEventQueue.DEFAULT_SLOT_SIZE);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid deferredRendering settings: " + e.getMessage(), e);
+      }
+    }
+    String ordering = properties.getProperty("deferredRendering.ordering");
+    deferredOrdering = !deferred ? null
+        : ordering == null ? Ordering.PER_REQUEST : parseEnum(Ordering.class, "deferredRendering.ordering", ordering);
+    EnumSet<LogLineType> parsedTypes = EnumSet.noneOf(LogLineType.class);
+    if (deferred) {
+      for (String type : split(properties.getProperty("deferredRendering.types", "AUDIT,METRICS"))) {
+        parsedTypes.add(parseEnum(LogLineType.class, "deferredRendering.types", type));
+      }
+    }
+    deferredTypes = Collections.unmodifiableSet(parsedTypes);
+  }
+
+  /**
+   * Builds a configuration from a set of properties.
+   *
+   * @param properties
+   *          - The properties, as described above.
+   *
+   * @return - The configuration.
+   *
+   * @throws IllegalArgumentException
+   *           - If a property has a value which cannot be used.
+   */
+  public static LoggingConfig parse(Properties properties) {
+    return new LoggingConfig(properties);
+  }
+
+  /**
+   * Reads a configuration from a properties file.
+   *
+   * @param file
+   *          - The file to read.
+   *
+   * @return - The configuration.
+   *
+   * @throws IOException
+   *           - If the file cannot be read.
+   * @throws IllegalArgumentException
+   *           - If a property has a value which cannot be used.
+   */
+  public static LoggingConfig load(Path file) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      properties.load(in);
+    }
+    return parse(properties);
+  }
+
+  /** @return - The runtime level of each component which has one. */
+  public Map<String, Level> getLevels() {
+    return levels;
+  }
+
+  /** @return - The identifiers of the log codes which are disabled. */
+  public Set<String> getDisabledLogCodes() {
+    return disabledLogCodes;
+  }
+
+  /** @return - The types of line which are written as text. */
+  public Set<LogLineType> getTextOutput() {
+    return textOutput;
+  }
+
+  /** @return - The metrics rollup interval, or 0 if metrics lines are not rolled up. */
+  public long getRollupIntervalMs() {
+    return rollupIntervalMs;
+  }
+
+  /** @return - true if the rollup keeps the individual metrics lines as well. */
+  public boolean isRollupPerCallLines() {
+    return rollupPerCallLines;
+  }
+
+  /** @return - The lines held per request, or 0 if debug lines are not held back. */
+  public int getDebugLinesPerRequest() {
+    return debugLinesPerRequest;
+  }
+
+  /** @return - The number of requests whose debug lines are held. */
+  public int getDebugMaxRequests() {
+    return debugMaxRequests;
+  }
+
+  /** @return - The number of events kept, or 0 if the flight recorder is off. */
+  public int getRecorderCapacity() {
+    return recorderCapacity;
+  }
+
+  /** @return - The number of bytes each event is kept in. */
+  public int getRecorderSlotSize() {
+    return recorderSlotSize;
+  }
+
+  /** @return - The capacity of each stripe, or 0 if lines are rendered by the caller. */
+  public int getDeferredCapacityPerStripe() {
+    return deferredCapacityPerStripe;
+  }
+
+  /** @return - The ordering of deferred lines, or null if rendering is not deferred. */
+  public Ordering getDeferredOrdering() {
+    return deferredOrdering;
+  }
+
+  /** @return - The types of line whose rendering is deferred. */
+  public Set<LogLineType> getDeferredTypes() {
+    return deferredTypes;
+  }
+
+  /** @return - true if the runtime levels and disabled codes of the two configurations differ. */
+  boolean levelsDiffer(LoggingConfig other) {
+    return !levels.equals(other.levels) || !disabledLogCodes.equals(other.disabledLogCodes);
+  }
+
+  /** @return - true if the metrics rollup settings of the two configurations differ. */
+  boolean rollupDiffers(LoggingConfig other) {
+    return rollupIntervalMs != other.rollupIntervalMs || rollupPerCallLines != other.rollupPerCallLines;
+  }
+
+  /** @return - true if the request debug buffering settings of the two configurations differ. */
+  boolean requestDebugDiffers(LoggingConfig other) {
+    return debugLinesPerRequest != other.debugLinesPerRequest || debugMaxRequests != other.debugMaxRequests;
+  }
+
+  /** @return - true if the flight recorder settings of the two configurations differ. */
+  boolean recorderDiffers(LoggingConfig other) {
+    return recorderCapacity != other.recorderCapacity || recorderSlotSize != other.recorderSlotSize;
+  }
+
+  /** @return - true if the deferred rendering settings of the two configurations differ. */
+  boolean deferredDiffers(LoggingConfig other) {
+    return deferredCapacityPerStripe != other.deferredCapacityPerStripe
+        || deferredOrdering != other.deferredOrdering || !deferredTypes.equals(other.deferredTypes);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof LoggingConfig)) {
+      return false;
+    }
+    LoggingConfig other = (LoggingConfig) obj;
+    return !levelsDiffer(other) && textOutput.equals(other.textOutput) && !rollupDiffers(other)
+        && !requestDebugDiffers(other) && !recorderDiffers(other) && !deferredDiffers(other);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(levels, disabledLogCodes, textOutput, rollupIntervalMs, debugLinesPerRequest,
+        recorderCapacity, deferredCapacityPerStripe);
+  }
+
+  private static boolean isEnabled(Properties properties, String feature) {
+    return Boolean.parseBoolean(properties.getProperty(feature + ".enabled", "false").trim());
+  }
+
+  private static String[] split(String value) {
+    return value == null || value.trim().isEmpty() ? new String[0] : value.trim().split("\\s*,\\s*");
+  }
+
+  private static int parseInt(Properties properties, String key, int defaultValue) {
+    return (int) parseLong(properties, key, defaultValue);
+  }
+
+  private static long parseLong(Properties properties, String key, long defaultValue) {
+    String value = properties.getProperty(key);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      long parsed = Long.parseLong(value.trim());
+      if (parsed <= 0 || parsed > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Out of range value for " + key + ": " + value);
+      }
+      return parsed;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+    }
+  }
+
+  private static <E extends Enum<E>> E parseEnum(Class<E> type, String key, String value) {
+    try {
+      return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid value for " + key + ": " + value, e);
+    }
+  }
+}
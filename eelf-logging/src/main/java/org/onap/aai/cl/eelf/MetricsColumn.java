@@ -0,0 +1,66 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+/** The columns of a {@link MetricsLogLine}, in the order they are written. */
+public enum MetricsColumn implements LogColumn {
+
+  START_TIME(Kind.TIMESTAMP),
+  END_TIME(Kind.TIMESTAMP),
+  REQUEST_ID(Kind.TEXT),
+  SERVICE_INSTANCE_ID(Kind.REPEATED),
+  THREAD(Kind.REPEATED),
+  SERVER_FQDN(Kind.REPEATED),
+  SERVICE_NAME(Kind.REPEATED),
+  PARTNER_NAME(Kind.REPEATED),
+  TARGET_ENTITY(Kind.REPEATED),
+  TARGET_SERVICE_NAME(Kind.REPEATED),
+  STATUS_CODE(Kind.REPEATED),
+  RESPONSE_CODE(Kind.REPEATED),
+  RESPONSE_DESCRIPTION(Kind.REPEATED),
+  INSTANCE_UUID(Kind.REPEATED),
+  LEVEL(Kind.REPEATED),
+  SEVERITY(Kind.REPEATED),
+  SERVER_IP(Kind.REPEATED),
+  ELAPSED_TIME(Kind.NUMBER),
+  SERVER_NAME(Kind.REPEATED),
+  CLIENT_IP(Kind.REPEATED),
+  CLASS_NAME(Kind.REPEATED),
+  DEPRECATED(Kind.REPEATED),
+  PROCESS_KEY(Kind.REPEATED),
+  TARGET_VIRTUAL_ENTITY(Kind.REPEATED),
+  CUSTOM_1(Kind.REPEATED),
+  CUSTOM_2(Kind.REPEATED),
+  CUSTOM_3(Kind.REPEATED),
+  CUSTOM_4(Kind.REPEATED),
+  DETAILS(Kind.TEXT);
+
+  private final Kind kind;
+
+  private MetricsColumn(Kind kind) {
+    this.kind = kind;
+  }
+
+  @Override
+  public Kind getKind() {
+    return kind;
+  }
+}
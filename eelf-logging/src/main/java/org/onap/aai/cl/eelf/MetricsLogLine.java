@@ -20,64 +20,114 @@
  */
 package org.onap.aai.cl.eelf;
 
+import org.onap.aai.cl.api.LogFields;
 import org.onap.aai.cl.api.LogLine;
 import org.onap.aai.cl.mdc.MdcContext;
-
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import org.onap.aai.cl.mdc.MdcOverride;
 
 /** This class is used to help standardize how log lines are written and provide
  * profiling info. */
 public class MetricsLogLine extends LogLine {
 
-  /** Return the log line based on what we have so far. */
-  public String getFormattedLine() {
+  /** The column values, once rendered, so that every output of the line agrees. */
+  private String[] columnValues;
+
+  @Override
+  public void init(String component, String logCode, String level, String msg, LogFields fields,
+      MdcOverride override) {
+    super.init(component, logCode, level, msg, fields, override);
+    columnValues = null;
+  }
+
+  @Override
+  public void setTiming(long startTime, long elapsedTime) {
+    super.setTiming(startTime, elapsedTime);
+    columnValues = null;
+  }
+
+  @Override
+  public void setOrigin(long logTime, String threadName) {
+    super.setOrigin(logTime, threadName);
+    columnValues = null;
+  }
 
-    // Calculate start/end/elapsed times
-    Date currentDateTime = new Date();
-    SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
-    String startTimeString = getMdcValue(MdcContext.MDC_START_TIME);
-    String endTimeString = formatter.format(currentDateTime);
-    long elapsedTime = 0;
-    Date startDateTime;
-    try {
-      startDateTime = formatter.parse(startTimeString);
-      elapsedTime = currentDateTime.getTime() - startDateTime.getTime();
-    } catch (ParseException e) {
-      // Leave an elapsed time of 0 if the start time was not properly formatted
+  /**
+   * Calculates the time, in milliseconds, which has elapsed between the start
+   * time held in the MDC (or its override) and now, unless precise timings have
+   * been supplied for the line.
+   *
+   * @return - The elapsed time, or 0 if no valid start time is available.
+   */
+  public long getElapsedTime() {
+    if (hasTiming()) {
+      return elapsedTime;
     }
+    return LogColumns.elapsedSince(getMdcValue(MdcContext.MDC_START_TIME), getLogTime());
+  }
+
+  /**
+   * Renders the values of the columns of the line. The values are rendered
+   * once, the first time this method is called after the line is initialized.
+   *
+   * @return - The column values, indexed by {@link MetricsColumn#ordinal()}.
+   */
+  public String[] getColumnValues() {
+    if (columnValues != null) {
+      return columnValues;
+    }
+
+    // calculate start/end/elapsed times
+    long logTime = getLogTime();
+    String startTimeString;
+    long elapsedTime;
+    if (hasTiming()) {
+      startTimeString = LogColumns.formatTimestamp(startTime);
+      elapsedTime = this.elapsedTime;
+    } else {
+      startTimeString = getMdcValue(MdcContext.MDC_START_TIME);
+      elapsedTime = LogColumns.elapsedSince(startTimeString, logTime);
+    }
+    String endTimeString = LogColumns.formatTimestamp(logTime);
     String elapsedTimeString = Long.toString(elapsedTime);
 
-    return startTimeString + "|" +                              // 1 start time
-        endTimeString + "|" +                                   // 2 end time
-        getMdcValue(MdcContext.MDC_REQUEST_ID) + "|" +          // 3 transaction id
-        getMdcValue(MdcContext.MDC_SERVICE_INSTANCE_ID) + "|" + // 4 service instance
-        Thread.currentThread().getName() + "|" +                // 5 thread id
-        getMdcValue(MdcContext.MDC_SERVER_FQDN) + "|" +         // 6 physical/virtual server name
-        getMdcValue(MdcContext.MDC_SERVICE_NAME) + "|" +        // 7 service name
-        getMdcValue(MdcContext.MDC_PARTNER_NAME) + "|" +        // 8 partner name
-        fieldValue(DefinedFields.TARGET_ENTITY) + "|" +         // 9 target entity
-        fieldValue(DefinedFields.TARGET_SVC_NAME) + "|" +       // 10 target service
-        fieldValue(DefinedFields.STATUS_CODE) + "|" +           // 11 status code
-        fieldValue(DefinedFields.RESPONSE_CODE) + "|" +         // 12 response code
-        fieldValue(DefinedFields.RESPONSE_DESCRIPTION) + "|" +  // 13 response description
-        fieldValue(DefinedFields.INSTANCE_UUID) + "|" +         // 14 instance UUID
-        level + "|" +                                           // 15 log level
-        fieldValue(DefinedFields.SEVERITY) + "|" +              // 16 log severity
-        fieldValue(DefinedFields.SERVER_IP) + "|" +             // 17 server ip
-        elapsedTimeString + "|" +                               // 18 elapsed time
-        getMdcValue(MdcContext.MDC_SERVER_FQDN) + "|" +         // 19 server name
-        fieldValue(DefinedFields.CLIENT_IP) + "|" +             // 20 client ip address
-        fieldValue(DefinedFields.CLASS_NAME) + "|" +            // 21 class name
-        "" + "|" +                                              // 22 deprecated
-        fieldValue(DefinedFields.PROCESS_KEY) + "|" +           // 23 process key
-        fieldValue(DefinedFields.TARGET_ENTITY) + "|" +         // 24 target virtual entity
-        fieldValue(DefinedFields.CUSTOM_1) + "|" +              // 25 custom 1
-        fieldValue(DefinedFields.CUSTOM_2) + "|" +              // 26 custom 2
-        fieldValue(DefinedFields.CUSTOM_3) + "|" +              // 27 custom 3
-        fieldValue(DefinedFields.CUSTOM_4) + "|" +              // 28 custom 4
-        message;                                                // 29 detail message
+    String[] values = new String[MetricsColumn.values().length];
+    values[MetricsColumn.START_TIME.ordinal()] = startTimeString;
+    values[MetricsColumn.END_TIME.ordinal()] = endTimeString;
+    values[MetricsColumn.REQUEST_ID.ordinal()] = getMdcValue(MdcContext.MDC_REQUEST_ID);
+    values[MetricsColumn.SERVICE_INSTANCE_ID.ordinal()] = getMdcValue(MdcContext.MDC_SERVICE_INSTANCE_ID);
+    values[MetricsColumn.THREAD.ordinal()] = getThreadName();
+    values[MetricsColumn.SERVER_FQDN.ordinal()] = getMdcValue(MdcContext.MDC_SERVER_FQDN);
+    values[MetricsColumn.SERVICE_NAME.ordinal()] = getMdcValue(MdcContext.MDC_SERVICE_NAME);
+    values[MetricsColumn.PARTNER_NAME.ordinal()] = getMdcValue(MdcContext.MDC_PARTNER_NAME);
+    values[MetricsColumn.TARGET_ENTITY.ordinal()] = fieldValue(DefinedFields.TARGET_ENTITY);
+    values[MetricsColumn.TARGET_SERVICE_NAME.ordinal()] = fieldValue(DefinedFields.TARGET_SVC_NAME);
+    values[MetricsColumn.STATUS_CODE.ordinal()] = fieldValue(DefinedFields.STATUS_CODE);
+    values[MetricsColumn.RESPONSE_CODE.ordinal()] = fieldValue(DefinedFields.RESPONSE_CODE);
+    values[MetricsColumn.RESPONSE_DESCRIPTION.ordinal()] = fieldValue(DefinedFields.RESPONSE_DESCRIPTION);
+    values[MetricsColumn.INSTANCE_UUID.ordinal()] = fieldValue(DefinedFields.INSTANCE_UUID);
+    values[MetricsColumn.LEVEL.ordinal()] = level;
+    values[MetricsColumn.SEVERITY.ordinal()] = fieldValue(DefinedFields.SEVERITY);
+    values[MetricsColumn.SERVER_IP.ordinal()] = fieldValue(DefinedFields.SERVER_IP);
+    values[MetricsColumn.ELAPSED_TIME.ordinal()] = elapsedTimeString;
+    values[MetricsColumn.SERVER_NAME.ordinal()] = values[MetricsColumn.SERVER_FQDN.ordinal()];
+    values[MetricsColumn.CLIENT_IP.ordinal()] = fieldValue(DefinedFields.CLIENT_IP);
+    values[MetricsColumn.CLASS_NAME.ordinal()] = fieldValue(DefinedFields.CLASS_NAME);
+    values[MetricsColumn.DEPRECATED.ordinal()] = "";
+    values[MetricsColumn.PROCESS_KEY.ordinal()] = fieldValue(DefinedFields.PROCESS_KEY);
+    values[MetricsColumn.TARGET_VIRTUAL_ENTITY.ordinal()] = fieldValue(DefinedFields.TARGET_ENTITY);
+    values[MetricsColumn.CUSTOM_1.ordinal()] = fieldValue(DefinedFields.CUSTOM_1);
+    values[MetricsColumn.CUSTOM_2.ordinal()] = fieldValue(DefinedFields.CUSTOM_2);
+    values[MetricsColumn.CUSTOM_3.ordinal()] = fieldValue(DefinedFields.CUSTOM_3);
+    values[MetricsColumn.CUSTOM_4.ordinal()] = fieldValue(DefinedFields.CUSTOM_4);
+    values[MetricsColumn.DETAILS.ordinal()] = message;
+    columnValues = values;
+    return values;
   }
 
+  /** (non-Javadoc)
+   *  @see org.onap.aai.cl.api.LogLine#getFormattedLine()
+   */
+  public String getFormattedLine() {
+    return LogColumns.join(getColumnValues());
+  }
 }
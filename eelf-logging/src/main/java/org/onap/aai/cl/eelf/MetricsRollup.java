@@ -0,0 +1,251 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import com.att.eelf.configuration.EELFLogger;
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.stats.LatencyHistogram;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+
+/**
+ * Aggregates the elapsed times of metrics log lines into histograms keyed by
+ * target entity, target service and status code, and periodically emits one
+ * summary metrics line per key with the count, min, max, p50 and p99 of the
+ * interval.
+ * <p>
+ * Depending on configuration, the individual per-call metrics lines are either
+ * still written alongside the summaries, or suppressed entirely.
+ */
+public class MetricsRollup {
+
+  /** Prefix of the detail message of every summary line. */
+  public static final String SUMMARY_PREFIX = "Latency summary:";
+
+  private final EELFLogger metricsLogger;
+  private final LogPipeline pipeline;
+  private final String component;
+  private final long intervalMs;
+  private final boolean perCallLines;
+
+  /** The interval currently being recorded into. */
+  private volatile Interval current = new Interval();
+
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Creates a new rollup. Summaries are only emitted periodically once
+   * {@link #start()} has been called, but may be emitted on demand at any time
+   * using {@link #flush()}.
+   *
+   * @param metricsLogger
+   *          - The EELF logger that summary lines are written to.
+   * @param pipeline
+   *          - The pipeline whose text output setting, metrics sinks and
+   *          statistics apply to summary lines, as to any other metrics line.
+   * @param component
+   *          - The component name to put on summary lines.
+   * @param intervalMs
+   *          - The length of each aggregation interval.
+   * @param perCallLines
+   *          - true to keep writing the individual metrics lines as well as the
+   *          summaries, false to write summaries only.
+   */
+  public MetricsRollup(EELFLogger metricsLogger, LogPipeline pipeline, String component,
+      long intervalMs, boolean perCallLines) {
+    if (intervalMs <= 0) {
+      throw new IllegalArgumentException("Interval must be positive: " + intervalMs);
+    }
+    this.metricsLogger = metricsLogger;
+    this.pipeline = pipeline;
+    this.component = component;
+    this.intervalMs = intervalMs;
+    this.perCallLines = perCallLines;
+  }
+
+  /**
+   * Indicates whether the individual metrics lines should still be written.
+   *
+   * @return - true if per-call lines are written alongside the summaries.
+   */
+  public boolean isPerCallLinesEnabled() {
+    return perCallLines;
+  }
+
+  /** Starts emitting summaries at the end of every interval. */
+  public synchronized void start() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "MetricsRollup-" + component);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      scheduler.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          flush();
+        }
+      }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Stops the periodic summaries and emits the summary of the current interval. */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    flush();
+  }
+
+  /**
+   * Records the elapsed time of a single metrics line.
+   *
+   * @param fields
+   *          - The fields of the metrics line, which provide the rollup key.
+   * @param elapsedTimeMs
+   *          - The elapsed time of the call the line describes.
+   */
+  public void record(LogFields fields, long elapsedTimeMs) {
+    Key key = new Key(fields);
+    while (true) {
+      Interval interval = current;
+      interval.writers.incrementAndGet();
+      try {
+        // If the interval was swapped out from under us then it may already
+        // have been summarized, so record into its replacement instead.
+        if (interval == current) {
+          interval.histogramFor(key).record(elapsedTimeMs);
+          return;
+        }
+      } finally {
+        interval.writers.decrementAndGet();
+      }
+    }
+  }
+
+  /** Ends the current interval and emits a summary line for each of its keys. */
+  public synchronized void flush() {
+    Interval finished = current;
+    current = new Interval();
+
+    // Wait for any writers which picked up the old interval before the swap.
+    while (finished.writers.get() != 0) {
+      Thread.yield();
+    }
+
+    String startTime =
+        LogColumns.formatTimestamp(finished.startTime);
+    for (Map.Entry<Key, LatencyHistogram> entry : finished.histograms.entrySet()) {
+      emit(entry.getKey(), entry.getValue(), startTime);
+    }
+  }
+
+  private void emit(Key key, LatencyHistogram histogram, String startTime) {
+    LogFields fields = new LogFields()
+        .setField(DefinedFields.TARGET_ENTITY, key.targetEntity)
+        .setField(DefinedFields.TARGET_SVC_NAME, key.targetService)
+        .setField(DefinedFields.STATUS_CODE, key.statusCode);
+
+    // The summary covers the whole interval, so it starts when the interval did.
+    MdcOverride override = new MdcOverride();
+    override.addAttribute(MdcContext.MDC_START_TIME, startTime);
+
+    MetricsLogLine logLine = new MetricsLogLine();
+    logLine.init(component, "", Level.INFO.toString(),
+        SUMMARY_PREFIX + " " + histogram.summary(), fields, override);
+
+    // Summaries go out the same way as any other metrics line, so they honour
+    // the pipeline's text output setting and are counted in its statistics.
+    AaiLoggerAdapter.emit(pipeline, metricsLogger, LogLineType.METRICS, Level.INFO, logLine, null,
+        null);
+  }
+
+  /** The histograms recorded during a single interval. */
+  private static class Interval {
+    private final long startTime = System.currentTimeMillis();
+    private final Map<Key, LatencyHistogram> histograms =
+        new ConcurrentHashMap<Key, LatencyHistogram>();
+    private final AtomicInteger writers = new AtomicInteger();
+
+    LatencyHistogram histogramFor(Key key) {
+      LatencyHistogram histogram = histograms.get(key);
+      if (histogram == null) {
+        LatencyHistogram created = new LatencyHistogram();
+        histogram = histograms.putIfAbsent(key, created);
+        if (histogram == null) {
+          histogram = created;
+        }
+      }
+      return histogram;
+    }
+  }
+
+  /** The (target entity, target service, status code) triple histograms are keyed by. */
+  private static final class Key {
+    private final String targetEntity;
+    private final String targetService;
+    private final String statusCode;
+    private final int hash;
+
+    Key(LogFields fields) {
+      targetEntity = valueOf(fields, DefinedFields.TARGET_ENTITY);
+      targetService = valueOf(fields, DefinedFields.TARGET_SVC_NAME);
+      statusCode = valueOf(fields, DefinedFields.STATUS_CODE);
+      hash = (targetEntity.hashCode() * 31 + targetService.hashCode()) * 31
+          + statusCode.hashCode();
+    }
+
+    private static String valueOf(LogFields fields, DefinedFields field) {
+      return fields.fieldIsSet(field) ? fields.getField(field) : "";
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return targetEntity.equals(other.targetEntity) && targetService.equals(other.targetService)
+          && statusCode.equals(other.statusCode);
+    }
+  }
+}
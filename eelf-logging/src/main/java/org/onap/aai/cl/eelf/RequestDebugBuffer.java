@@ -0,0 +1,302 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf;
+
+import com.att.eelf.configuration.EELFLogger;
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.stats.LoggingStats;
+
+/**
+ * Holds back the debug and trace lines of each request, keyed by the MDC
+ * request id, instead of writing them. If the request later logs an error, its
+ * held lines are written just before the error, giving the full debug context
+ * of the failure; otherwise they are discarded, so debug context costs almost
+ * no I/O for the requests which succeed.
+ * <p>
+ * Each request keeps only its most recent lines, and only the requests which
+ * started most recently are tracked, so memory is bounded. Callers which know
+ * when a request has finished can release its lines early with
+ * {@link #discard(String)}.
+ * <p>
+ * Held lines are written at the level of the error which releases them, so
+ * that they are not filtered out by a logger configured to drop debug output.
+ */
+public class RequestDebugBuffer {
+
+  /** The default number of lines held for each request. */
+  public static final int DEFAULT_LINES_PER_REQUEST = 256;
+
+  /** The default number of requests tracked at once. */
+  public static final int DEFAULT_MAX_REQUESTS = 1024;
+
+  private final int linesPerRequest;
+  private final int maxRequests;
+  private final LoggingStats stats;
+  private final ConcurrentMap<String, Ring> rings = new ConcurrentHashMap<String, Ring>();
+  private final Queue<Ring> started = new ConcurrentLinkedQueue<Ring>();
+  private final AtomicInteger startedCount = new AtomicInteger();
+  private final AtomicLong flushed = new AtomicLong();
+  private final AtomicLong discarded = new AtomicLong();
+
+  /**
+   * Creates a buffer.
+   *
+   * @param linesPerRequest
+   *          - The number of lines held for each request; older lines are
+   *          discarded to make room for newer ones.
+   * @param maxRequests
+   *          - The number of requests tracked at once; the lines of the
+   *          oldest request are discarded to make room for a new one.
+   * @param stats
+   *          - The counters to record discarded lines as suppressed in.
+   */
+  public RequestDebugBuffer(int linesPerRequest, int maxRequests, LoggingStats stats) {
+    if (linesPerRequest <= 0 || maxRequests <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid lines per request " + linesPerRequest + " or requests " + maxRequests);
+    }
+    this.linesPerRequest = linesPerRequest;
+    this.maxRequests = maxRequests;
+    this.stats = stats;
+  }
+
+  /**
+   * Indicates whether lines of a level are held back.
+   *
+   * @param level
+   *          - The level of a line.
+   *
+   * @return - true for debug and trace lines.
+   */
+  static boolean isBuffered(Level level) {
+    return level == Level.DEBUG || level == Level.TRACE;
+  }
+
+  /**
+   * Holds a line for a request.
+   *
+   * @param requestId
+   *          - The request id of the line.
+   * @param logger
+   *          - The EELF logger the line is to be written to.
+   * @param type
+   *          - The type of the line.
+   * @param level
+   *          - The level of the line.
+   * @param logLine
+   *          - The line.
+   * @param formattedLine
+   *          - The line as it is to be written, or null if it is not written
+   *          as text.
+   */
+  void add(String requestId, EELFLogger logger, LogLineType type, Level level, LogLine logLine,
+      String formattedLine) {
+    BufferedLine line = new BufferedLine(logger, type, level, logLine, formattedLine);
+    BufferedLine overwritten;
+    do {
+      Ring ring = rings.get(requestId);
+      if (ring == null) {
+        Ring created = new Ring(requestId, linesPerRequest);
+        ring = rings.putIfAbsent(requestId, created);
+        if (ring == null) {
+          ring = created;
+          started.add(created);
+          if (startedCount.incrementAndGet() > maxRequests) {
+            evictOldest();
+          }
+        }
+      }
+      // A ring which was drained or discarded while we were looking it up
+      // turns the line away, and we start the request afresh.
+      overwritten = ring.add(line);
+    } while (overwritten == line);
+    if (overwritten != null) {
+      discarded(overwritten);
+    }
+  }
+
+  /**
+   * Discards the lines of the request which started longest ago, unless they
+   * have already been drained or discarded.
+   */
+  private void evictOldest() {
+    Ring oldest = started.poll();
+    if (oldest != null) {
+      startedCount.decrementAndGet();
+      if (rings.remove(oldest.requestId, oldest)) {
+        for (BufferedLine line : oldest.drain()) {
+          discarded(line);
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes and returns the lines held for a request, in the order they were
+   * logged.
+   *
+   * @param requestId
+   *          - The request id.
+   *
+   * @return - The held lines, which may be empty.
+   */
+  List<BufferedLine> drain(String requestId) {
+    Ring ring = rings.remove(requestId);
+    if (ring == null) {
+      return Collections.emptyList();
+    }
+    List<BufferedLine> lines = release(ring);
+    flushed.addAndGet(lines.size());
+    return lines;
+  }
+
+  /**
+   * Discards the lines held for a request, typically because it has completed
+   * without error.
+   *
+   * @param requestId
+   *          - The request id.
+   */
+  public void discard(String requestId) {
+    Ring ring = rings.remove(requestId);
+    if (ring != null) {
+      for (BufferedLine line : release(ring)) {
+        discarded(line);
+      }
+    }
+  }
+
+  /**
+   * Stops tracking a ring which has been removed from the map of requests, so
+   * that it no longer counts towards the number of requests tracked, and
+   * closes it.
+   *
+   * @return - The lines the ring held.
+   */
+  private List<BufferedLine> release(Ring ring) {
+    if (started.remove(ring)) {
+      startedCount.decrementAndGet();
+    }
+    return ring.drain();
+  }
+
+  /** Discards the lines held for every request. */
+  public void clear() {
+    while (!started.isEmpty()) {
+      evictOldest();
+    }
+  }
+
+  /** @return - The number of requests with lines currently held. */
+  public int getRequestCount() {
+    return rings.size();
+  }
+
+  /** @return - The number of held lines which have been written because of an error. */
+  public long getFlushedCount() {
+    return flushed.get();
+  }
+
+  /** @return - The number of held lines which have been discarded. */
+  public long getDiscardedCount() {
+    return discarded.get();
+  }
+
+  private void discarded(BufferedLine line) {
+    discarded.incrementAndGet();
+    stats.recordSuppressed(line.type, line.logLine.getLevel(), line.logLine.getLogCode());
+  }
+
+  /** A line which is being held back. */
+  static class BufferedLine {
+    final EELFLogger logger;
+    final LogLineType type;
+    final Level level;
+    final LogLine logLine;
+    final String formattedLine;
+
+    BufferedLine(EELFLogger logger, LogLineType type, Level level, LogLine logLine,
+        String formattedLine) {
+      this.logger = logger;
+      this.type = type;
+      this.level = level;
+      this.logLine = logLine;
+      this.formattedLine = formattedLine;
+    }
+  }
+
+  /** The most recent lines of one request. */
+  private static class Ring {
+    private final String requestId;
+    private final BufferedLine[] lines;
+    private int next;
+    private int count;
+    private boolean closed;
+
+    Ring(String requestId, int capacity) {
+      this.requestId = requestId;
+      lines = new BufferedLine[capacity];
+    }
+
+    /**
+     * Adds a line, overwriting the oldest once the ring is full.
+     *
+     * @return - The line which was overwritten, if any, or the line itself if
+     *         the ring has been closed by {@link #drain()}.
+     */
+    synchronized BufferedLine add(BufferedLine line) {
+      if (closed) {
+        return line;
+      }
+      BufferedLine overwritten = lines[next];
+      lines[next] = line;
+      next = (next + 1) % lines.length;
+      count = Math.min(count + 1, lines.length);
+      return overwritten;
+    }
+
+    /** Removes the lines held, oldest first, and closes the ring to new lines. */
+    synchronized List<BufferedLine> drain() {
+      closed = true;
+      List<BufferedLine> drained = new ArrayList<BufferedLine>(count);
+      for (int i = 0; i < count; i++) {
+        int index = (next - count + i + lines.length) % lines.length;
+        drained.add(lines[index]);
+        lines[index] = null;
+      }
+      count = 0;
+      return drained;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.nio.charset.StandardCharsets;
+
+import org.onap.aai.cl.eelf.LogColumn;
+
+/**
+ * Converts column values to strings, returning the same instance every time a
+ * value is seen so that values which repeat from line to line are only
+ * allocated once. Instances are not thread safe.
+ */
+class ColumnInterner {
+
+  private int[] hashes = new int[64];
+  private byte[][] bytes = new byte[64][];
+  private String[] values = new String[64];
+  private int size;
+
+  /**
+   * Returns the value of a column of a record as a string.
+   *
+   * @param record
+   *          - The record.
+   * @param column
+   *          - The column.
+   *
+   * @return - The canonical string for the value.
+   */
+  String intern(LogRecord record, LogColumn column) {
+    int hash = record.hash(column);
+    int mask = values.length - 1;
+    int slot = mix(hash) & mask;
+    while (values[slot] != null) {
+      if (hashes[slot] == hash && record.matches(column, bytes[slot])) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    String value = record.getString(column);
+    hashes[slot] = hash;
+    bytes[slot] = value.getBytes(StandardCharsets.UTF_8);
+    values[slot] = value;
+    if (++size * 2 > values.length) {
+      grow();
+    }
+    return value;
+  }
+
+  private void grow() {
+    int[] oldHashes = hashes;
+    byte[][] oldBytes = bytes;
+    String[] oldValues = values;
+    hashes = new int[oldValues.length * 2];
+    bytes = new byte[oldValues.length * 2][];
+    values = new String[oldValues.length * 2];
+    int mask = values.length - 1;
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int slot = mix(oldHashes[i]) & mask;
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = oldHashes[i];
+        bytes[slot] = oldBytes[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
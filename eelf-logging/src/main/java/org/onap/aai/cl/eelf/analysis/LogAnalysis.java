@@ -0,0 +1,255 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.onap.aai.cl.eelf.stats.LatencyHistogram;
+
+/**
+ * The results of analyzing audit or metrics log lines: latency percentiles by
+ * service, partner and (for metrics lines) target, counts of error codes, and
+ * the number of lines completed in each interval of time.
+ * <p>
+ * Results computed over different parts of the logs are combined with
+ * {@link #merge(LogAnalysis)}.
+ */
+public class LogAnalysis {
+
+  /** Separates the target entity from the target service in target keys. */
+  public static final String TARGET_SEPARATOR = "|";
+
+  private final long bucketMillis;
+  private final Map<String, LatencyHistogram> byService = new HashMap<String, LatencyHistogram>();
+  private final Map<String, LatencyHistogram> byPartner = new HashMap<String, LatencyHistogram>();
+  private final Map<String, LatencyHistogram> byTarget = new HashMap<String, LatencyHistogram>();
+  private final Map<String, long[]> errorCounts = new HashMap<String, long[]>();
+  private final Map<Long, long[]> throughput = new HashMap<Long, long[]>();
+  private long lineCount;
+  private long skippedCount;
+
+  /**
+   * Creates an empty analysis.
+   *
+   * @param bucketMillis
+   *          - The length of the intervals which throughput is counted over.
+   */
+  public LogAnalysis(long bucketMillis) {
+    if (bucketMillis <= 0) {
+      throw new IllegalArgumentException("Bucket length must be positive: " + bucketMillis);
+    }
+    this.bucketMillis = bucketMillis;
+  }
+
+  /**
+   * Records a single line.
+   *
+   * @param service
+   *          - The service name of the line.
+   * @param partner
+   *          - The partner name of the line.
+   * @param target
+   *          - The target key of the line, or null for audit lines.
+   * @param elapsedMs
+   *          - The elapsed time of the line, or a negative value if unknown.
+   * @param errorCode
+   *          - The error code of the line, or null if it did not fail.
+   * @param endTime
+   *          - The end time of the line, or {@link Long#MIN_VALUE} if unknown.
+   */
+  void record(String service, String partner, String target, long elapsedMs, String errorCode,
+      long endTime) {
+    lineCount++;
+    if (elapsedMs >= 0) {
+      histogram(byService, service).record(elapsedMs);
+      histogram(byPartner, partner).record(elapsedMs);
+      if (target != null) {
+        histogram(byTarget, target).record(elapsedMs);
+      }
+    }
+    if (errorCode != null) {
+      counter(errorCounts, errorCode)[0]++;
+    }
+    if (endTime != Long.MIN_VALUE) {
+      counter(throughput, Math.floorDiv(endTime, bucketMillis) * bucketMillis)[0]++;
+    }
+  }
+
+  /** Records a line which could not be analyzed. */
+  void skip() {
+    skippedCount++;
+  }
+
+  /**
+   * Adds the results of another analysis to this one.
+   *
+   * @param other
+   *          - An analysis of other lines, with the same bucket length.
+   *
+   * @return - This analysis.
+   */
+  public LogAnalysis merge(LogAnalysis other) {
+    mergeHistograms(byService, other.byService);
+    mergeHistograms(byPartner, other.byPartner);
+    mergeHistograms(byTarget, other.byTarget);
+    mergeCounters(errorCounts, other.errorCounts);
+    mergeCounters(throughput, other.throughput);
+    lineCount += other.lineCount;
+    skippedCount += other.skippedCount;
+    return this;
+  }
+
+  /** @return - The number of lines analyzed. */
+  public long getLineCount() {
+    return lineCount;
+  }
+
+  /** @return - The number of lines which were skipped because they were not complete. */
+  public long getSkippedCount() {
+    return skippedCount;
+  }
+
+  /** @return - Elapsed time histograms, in milliseconds, keyed by service name. */
+  public SortedMap<String, LatencyHistogram> getLatencyByService() {
+    return new TreeMap<String, LatencyHistogram>(byService);
+  }
+
+  /** @return - Elapsed time histograms, in milliseconds, keyed by partner name. */
+  public SortedMap<String, LatencyHistogram> getLatencyByPartner() {
+    return new TreeMap<String, LatencyHistogram>(byPartner);
+  }
+
+  /**
+   * @return - Elapsed time histograms, in milliseconds, keyed by target entity
+   *         and target service separated by {@link #TARGET_SEPARATOR}. Empty
+   *         for audit lines.
+   */
+  public SortedMap<String, LatencyHistogram> getLatencyByTarget() {
+    return new TreeMap<String, LatencyHistogram>(byTarget);
+  }
+
+  /** @return - The number of failed lines, keyed by response code. */
+  public SortedMap<String, Long> getErrorCounts() {
+    SortedMap<String, Long> counts = new TreeMap<String, Long>();
+    for (Map.Entry<String, long[]> entry : errorCounts.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue()[0]);
+    }
+    return counts;
+  }
+
+  /**
+   * @return - The number of lines which ended in each interval, keyed by the
+   *         start of the interval in milliseconds since the epoch.
+   */
+  public SortedMap<Long, Long> getThroughput() {
+    SortedMap<Long, Long> counts = new TreeMap<Long, Long>();
+    for (Map.Entry<Long, long[]> entry : throughput.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue()[0]);
+    }
+    return counts;
+  }
+
+  /**
+   * Produces a human readable report of the results.
+   *
+   * @param formatter
+   *          - Formats the start of each throughput interval.
+   *
+   * @return - The lines of the report.
+   */
+  public List<String> report(DateFormat formatter) {
+    List<String> lines = new ArrayList<String>();
+    lines.add("Lines analyzed: " + lineCount + ", skipped: " + skippedCount);
+    reportLatency(lines, "service", getLatencyByService());
+    reportLatency(lines, "partner", getLatencyByPartner());
+    if (!byTarget.isEmpty()) {
+      reportLatency(lines, "target", getLatencyByTarget());
+    }
+    lines.add("");
+    lines.add("Errors by response code:");
+    for (Map.Entry<String, Long> entry : getErrorCounts().entrySet()) {
+      lines.add("  " + entry.getKey() + " count=" + entry.getValue());
+    }
+    lines.add("");
+    lines.add("Throughput per " + bucketMillis + "ms:");
+    for (Map.Entry<Long, Long> entry : getThroughput().entrySet()) {
+      lines.add("  " + formatter.format(new Date(entry.getKey())) + " count="
+          + entry.getValue());
+    }
+    return lines;
+  }
+
+  private static void reportLatency(List<String> lines, String title,
+      Map<String, LatencyHistogram> histograms) {
+    lines.add("");
+    lines.add("Latency by " + title + " (ms):");
+    for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+      LatencyHistogram histogram = entry.getValue();
+      lines.add("  " + entry.getKey() + " count=" + histogram.getCount() + " min="
+          + histogram.getMin() + " p50=" + histogram.getValueAtPercentile(50) + " p90="
+          + histogram.getValueAtPercentile(90) + " p99=" + histogram.getValueAtPercentile(99)
+          + " max=" + histogram.getMax());
+    }
+  }
+
+  private static LatencyHistogram histogram(Map<String, LatencyHistogram> histograms, String key) {
+    LatencyHistogram histogram = histograms.get(key);
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+      histograms.put(key, histogram);
+    }
+    return histogram;
+  }
+
+  private static <K> long[] counter(Map<K, long[]> counters, K key) {
+    long[] counter = counters.get(key);
+    if (counter == null) {
+      counter = new long[1];
+      counters.put(key, counter);
+    }
+    return counter;
+  }
+
+  private static void mergeHistograms(Map<String, LatencyHistogram> into,
+      Map<String, LatencyHistogram> from) {
+    for (Map.Entry<String, LatencyHistogram> entry : from.entrySet()) {
+      LatencyHistogram existing = into.get(entry.getKey());
+      if (existing == null) {
+        into.put(entry.getKey(), entry.getValue());
+      } else {
+        existing.merge(entry.getValue());
+      }
+    }
+  }
+
+  private static <K> void mergeCounters(Map<K, long[]> into, Map<K, long[]> from) {
+    for (Map.Entry<K, long[]> entry : from.entrySet()) {
+      counter(into, entry.getKey())[0] += entry.getValue()[0];
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AuditColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.MetricsColumn;
+
+/**
+ * Analyzes audit or metrics log files in parallel. Each file is divided into
+ * chunks which are analyzed by the tasks of a {@link ForkJoinPool}, and the
+ * partial {@link LogAnalysis} results of the chunks are merged as the tasks
+ * complete.
+ * <p>
+ * This class can also be run from the command line:
+ *
+ * <pre>
+ * java org.onap.aai.cl.eelf.analysis.LogAnalyzer [options] file...
+ *
+ *   --type audit|metrics   the type of the log files (default metrics)
+ *   --bucket seconds       the throughput interval (default 60)
+ *   --threads count        the number of threads (default one per core)
+ * </pre>
+ */
+public class LogAnalyzer {
+
+  /** The default size of the chunks files are divided into. */
+  public static final long DEFAULT_CHUNK_SIZE = 16L * 1024 * 1024;
+
+  /** The status code of lines which record a failure. */
+  private static final byte[] ERROR_STATUS_BYTES = "ERROR".getBytes(StandardCharsets.UTF_8);
+
+  private final LogLineType type;
+  private final long bucketMillis;
+  private final long chunkSize;
+
+  /**
+   * Creates an analyzer.
+   *
+   * @param type
+   *          - The type of the log files, either AUDIT or METRICS.
+   * @param bucketMillis
+   *          - The length of the intervals which throughput is counted over.
+   * @param chunkSize
+   *          - The size of the chunks files are divided into.
+   */
+  public LogAnalyzer(LogLineType type, long bucketMillis, long chunkSize) {
+    if (LogColumns.of(type) == null) {
+      throw new IllegalArgumentException("Unsupported log line type: " + type);
+    }
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    this.type = type;
+    this.bucketMillis = bucketMillis;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Analyzes a set of files.
+   *
+   * @param files
+   *          - The files to analyze.
+   * @param pool
+   *          - The pool to run the analysis in.
+   *
+   * @return - The combined results for every line of every file.
+   */
+  public LogAnalysis analyze(List<Path> files, ForkJoinPool pool) throws IOException {
+    List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+    for (Path file : files) {
+      tasks.add(new ChunkTask(file, 0, Files.size(file)));
+    }
+    try {
+      return pool.invoke(new RecursiveTask<LogAnalysis>() {
+        @Override
+        protected LogAnalysis compute() {
+          invokeAll(tasks);
+          LogAnalysis result = new LogAnalysis(bucketMillis);
+          for (ChunkTask task : tasks) {
+            result.merge(task.join());
+          }
+          return result;
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Analyzes the lines of a single chunk of a file.
+   *
+   * @param file
+   *          - The file.
+   * @param start
+   *          - The offset of the start of the chunk.
+   * @param end
+   *          - The offset of the end of the chunk, exclusive.
+   *
+   * @return - The results for the lines which start within the chunk.
+   */
+  LogAnalysis analyzeChunk(Path file, long start, long end) throws IOException {
+    LogAnalysis analysis = new LogAnalysis(bucketMillis);
+    ColumnInterner interner = new ColumnInterner();
+    boolean metrics = type == LogLineType.METRICS;
+    LogFileReader reader = new LogFileReader(file, type, start, end);
+    try {
+      while (reader.next()) {
+        LogRecord record = reader.getRecord();
+        if (!record.isComplete()) {
+          analysis.skip();
+          continue;
+        }
+        if (metrics) {
+          analyzeMetrics(record, interner, analysis);
+        } else {
+          analyzeAudit(record, interner, analysis);
+        }
+      }
+    } finally {
+      reader.close();
+    }
+    return analysis;
+  }
+
+  private static void analyzeAudit(LogRecord record, ColumnInterner interner,
+      LogAnalysis analysis) {
+    String errorCode = null;
+    if (record.matches(AuditColumn.STATUS_CODE, ERROR_STATUS_BYTES)) {
+      errorCode = interner.intern(record, AuditColumn.RESPONSE_CODE);
+    }
+    analysis.record(interner.intern(record, AuditColumn.SERVICE_NAME),
+        interner.intern(record, AuditColumn.PARTNER_NAME), null,
+        record.getLong(AuditColumn.ELAPSED_TIME), errorCode,
+        record.getTimestamp(AuditColumn.END_TIME));
+  }
+
+  private static void analyzeMetrics(LogRecord record, ColumnInterner interner,
+      LogAnalysis analysis) {
+    String errorCode = null;
+    if (record.matches(MetricsColumn.STATUS_CODE, ERROR_STATUS_BYTES)) {
+      errorCode = interner.intern(record, MetricsColumn.RESPONSE_CODE);
+    }
+    String target = interner.intern(record, MetricsColumn.TARGET_ENTITY)
+        + LogAnalysis.TARGET_SEPARATOR + interner.intern(record, MetricsColumn.TARGET_SERVICE_NAME);
+    analysis.record(interner.intern(record, MetricsColumn.SERVICE_NAME),
+        interner.intern(record, MetricsColumn.PARTNER_NAME), target,
+        record.getLong(MetricsColumn.ELAPSED_TIME), errorCode,
+        record.getTimestamp(MetricsColumn.END_TIME));
+  }
+
+  /** Analyzes a range of a file, dividing it in two until it is no larger than a chunk. */
+  private class ChunkTask extends RecursiveTask<LogAnalysis> {
+    private final Path file;
+    private final long start;
+    private final long end;
+
+    ChunkTask(Path file, long start, long end) {
+      this.file = file;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected LogAnalysis compute() {
+      if (end - start <= chunkSize) {
+        try {
+          return analyzeChunk(file, start, end);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+
+      // The readers of the two halves sort out which of them owns the line
+      // which straddles the split, so any split point will do.
+      long middle = start + (end - start) / 2;
+      ChunkTask second = new ChunkTask(file, middle, end);
+      second.fork();
+      LogAnalysis result = new ChunkTask(file, start, middle).compute();
+      return result.merge(second.join());
+    }
+  }
+
+  /**
+   * Runs the analyzer from the command line, writing the report to standard
+   * output.
+   *
+   * @param args
+   *          - The options and files, as described in the class documentation.
+   */
+  public static void main(String[] args) throws IOException {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  static int run(String[] args, PrintStream out, PrintStream err) throws IOException {
+    LogLineType type = LogLineType.METRICS;
+    long bucketSeconds = 60;
+    int threads = Runtime.getRuntime().availableProcessors();
+    List<Path> files = new ArrayList<Path>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        if ("--type".equals(args[i])) {
+          type = LogLineType.valueOf(args[++i].toUpperCase());
+        } else if ("--bucket".equals(args[i])) {
+          bucketSeconds = Long.parseLong(args[++i]);
+        } else if ("--threads".equals(args[i])) {
+          threads = Integer.parseInt(args[++i]);
+        } else {
+          files.add(Paths.get(args[i]));
+        }
+      }
+      if (files.isEmpty() || LogColumns.of(type) == null || bucketSeconds <= 0 || threads <= 0) {
+        throw new IllegalArgumentException();
+      }
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      err.println("Usage: LogAnalyzer [--type audit|metrics] [--bucket seconds] [--threads count] file...");
+      return 2;
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      LogAnalysis analysis =
+          new LogAnalyzer(type, bucketSeconds * 1000, DEFAULT_CHUNK_SIZE).analyze(files, pool);
+      for (String line : analysis.report(new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT))) {
+        out.println(line);
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,254 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * Streams the lines of an audit or metrics log file through a single
+ * {@link LogRecord} view, memory-mapping the file a window at a time so that
+ * files of any size can be read without copying them onto the heap.
+ * <p>
+ * A reader may be restricted to a byte range of the file, in which case it
+ * reads every line which starts within the range; a set of readers over
+ * adjacent ranges therefore reads every line of the file exactly once, which
+ * allows a file to be processed in parallel. Only lines which were complete
+ * when the reader was opened are read, so a file which is still being written
+ * may be read safely.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class LogFileReader implements Iterable<LogRecord>, Closeable {
+
+  /** The default amount of the file mapped at once. */
+  static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final long rangeEnd;
+  private final LogRecord record;
+  private int windowSize;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long position;
+
+  /**
+   * Opens a reader over a whole file.
+   *
+   * @param file
+   *          - The log file.
+   * @param type
+   *          - The type of lines in the file, either AUDIT or METRICS.
+   */
+  public LogFileReader(Path file, LogLineType type) throws IOException {
+    this(file, columnsOf(type), 0, Long.MAX_VALUE, DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Opens a reader over the lines which start within a range of a file.
+   *
+   * @param file
+   *          - The log file.
+   * @param type
+   *          - The type of lines in the file, either AUDIT or METRICS.
+   * @param start
+   *          - The offset of the start of the range.
+   * @param end
+   *          - The offset of the end of the range, exclusive.
+   */
+  public LogFileReader(Path file, LogLineType type, long start, long end) throws IOException {
+    this(file, columnsOf(type), start, end, DEFAULT_WINDOW_SIZE);
+  }
+
+  LogFileReader(Path file, LogColumn[] columns, long start, long end, int windowSize)
+      throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    fileSize = channel.size();
+    rangeEnd = Math.min(end, fileSize);
+    record = new LogRecord(columns);
+    this.windowSize = windowSize;
+
+    // Unless the range starts a line, skip to the first line which starts after it.
+    position = Math.max(0, start);
+    if (position > 0 && position < fileSize) {
+      long newline = findNewline(position - 1);
+      position = newline < 0 ? fileSize : newline + 1;
+    }
+  }
+
+  private static LogColumn[] columnsOf(LogLineType type) {
+    LogColumn[] columns = LogColumns.of(type);
+    if (columns == null) {
+      throw new IllegalArgumentException("Unsupported log line type: " + type);
+    }
+    return columns;
+  }
+
+  /**
+   * Returns the size of the file when the reader was opened.
+   *
+   * @return - The size in bytes.
+   */
+  public long getFileSize() {
+    return fileSize;
+  }
+
+  /**
+   * Returns the position the reader has reached.
+   *
+   * @return - The offset following the terminator of the current line, or the
+   *         offset of the first line of the range if none has been read yet.
+   *         Once all the complete lines have been read, this is where the
+   *         next line will start.
+   */
+  long getPosition() {
+    return position;
+  }
+
+  /**
+   * Advances to the next line.
+   *
+   * @return - true if {@link #getRecord()} is now positioned over the next
+   *         line, false if there are no more lines in the range.
+   */
+  public boolean next() throws IOException {
+    if (position >= rangeEnd) {
+      return false;
+    }
+    long newline = findNewline(position);
+    if (newline < 0) {
+      // The last line is incomplete, so it is still being written. Stay at
+      // its start, so that a later reader can carry on from there.
+      return false;
+    }
+    int lineStart = (int) (position - windowStart);
+    int lineEnd = (int) (newline - windowStart);
+    if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') {
+      lineEnd--;
+    }
+    record.reset(window, position, lineStart, lineEnd);
+    position = newline + 1;
+    return true;
+  }
+
+  /**
+   * Returns the view of the current line. The same instance is returned for
+   * every line.
+   *
+   * @return - The current record.
+   */
+  public LogRecord getRecord() {
+    return record;
+  }
+
+  /**
+   * Returns an iterator over the remaining lines. Every call to
+   * {@link Iterator#next()} returns the same {@link LogRecord}, repositioned
+   * over the next line.
+   */
+  @Override
+  public Iterator<LogRecord> iterator() {
+    return new Iterator<LogRecord>() {
+      private boolean advanced;
+      private boolean hasNext;
+
+      @Override
+      public boolean hasNext() {
+        if (!advanced) {
+          try {
+            hasNext = LogFileReader.this.next();
+          } catch (IOException e) {
+            throw new IllegalStateException("Failed to read log file", e);
+          }
+          advanced = true;
+        }
+        return hasNext;
+      }
+
+      @Override
+      public LogRecord next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        advanced = false;
+        return record;
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    window = null;
+    channel.close();
+  }
+
+  /**
+   * Finds the first newline at or after a position, mapping the file as
+   * needed. On return, the window covers both the position and the newline.
+   *
+   * @return - The offset of the newline, or -1 if there is none before the end
+   *         of the file.
+   */
+  private long findNewline(long from) throws IOException {
+    if (window == null || from < windowStart || from >= windowStart + window.limit()) {
+      map(from);
+    }
+    long scanned = from;
+    while (true) {
+      int limit = window.limit();
+      for (int i = (int) (scanned - windowStart); i < limit; i++) {
+        if (window.get(i) == '\n') {
+          return windowStart + i;
+        }
+      }
+      long windowEnd = windowStart + limit;
+      if (windowEnd >= fileSize) {
+        return -1;
+      }
+
+      // Remap so that the window starts at the position being searched from,
+      // growing it if a single line does not fit.
+      if (windowStart == from) {
+        windowSize = (int) Math.min(Integer.MAX_VALUE, windowSize * 2L);
+      }
+      map(from);
+      scanned = windowEnd;
+    }
+  }
+
+  private void map(long offset) throws IOException {
+    windowStart = offset;
+    window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+        Math.min(windowSize, fileSize - offset));
+  }
+}
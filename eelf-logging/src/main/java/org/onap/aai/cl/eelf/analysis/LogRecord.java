@@ -0,0 +1,330 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * A view of a single line of a log file, positioned over the bytes of the file
+ * rather than holding a copy of them. The same instance is repositioned over
+ * each line in turn as a {@link LogFileReader} advances, so a record must not
+ * be kept once the reader has moved on; use {@link #getString(LogColumn)} to
+ * copy out any values which are needed later.
+ * <p>
+ * Apart from {@link #getString(LogColumn)}, none of the accessors allocate.
+ */
+public class LogRecord {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final LogColumn[] columns;
+  private final int[] starts;
+  private final int[] ends;
+  private ByteBuffer buffer;
+  private long lineOffset;
+  private int lineStart;
+  private int lineEnd;
+  private int columnCount;
+
+  LogRecord(LogColumn[] columns) {
+    this.columns = columns;
+    starts = new int[columns.length];
+    ends = new int[columns.length];
+  }
+
+  /**
+   * Positions the record over a line and finds its columns. The last column
+   * runs to the end of the line, so it may itself contain separators.
+   */
+  void reset(ByteBuffer buffer, long lineOffset, int lineStart, int lineEnd) {
+    this.buffer = buffer;
+    this.lineOffset = lineOffset;
+    this.lineStart = lineStart;
+    this.lineEnd = lineEnd;
+
+    int last = columns.length - 1;
+    int column = 0;
+    int start = lineStart;
+    for (int i = lineStart; i < lineEnd && column < last; i++) {
+      if (buffer.get(i) == LogColumns.SEPARATOR) {
+        starts[column] = start;
+        ends[column] = i;
+        column++;
+        start = i + 1;
+      }
+    }
+    starts[column] = start;
+    ends[column] = lineEnd;
+    columnCount = column + 1;
+  }
+
+  /**
+   * Returns the columns which records of this type are expected to have.
+   *
+   * @return - The columns, in order.
+   */
+  public LogColumn[] getColumns() {
+    return columns;
+  }
+
+  /**
+   * Indicates whether the line has every expected column. Lines which do not,
+   * such as blank lines or lines of another format, should usually be skipped.
+   *
+   * @return - true if the line has every column.
+   */
+  public boolean isComplete() {
+    return columnCount == columns.length;
+  }
+
+  /**
+   * Returns the number of columns actually found in the line.
+   *
+   * @return - The number of columns.
+   */
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  /**
+   * Returns the position of the line within the file.
+   *
+   * @return - The byte offset of the start of the line.
+   */
+  public long getLineOffset() {
+    return lineOffset;
+  }
+
+  /**
+   * Returns the length of the line, excluding its line terminator.
+   *
+   * @return - The length in bytes.
+   */
+  public int getLineLength() {
+    return lineEnd - lineStart;
+  }
+
+  /**
+   * Returns the length of the value of a column.
+   *
+   * @param column
+   *          - The column.
+   *
+   * @return - The length in bytes, or 0 if the line does not have the column.
+   */
+  public int length(LogColumn column) {
+    int index = column.ordinal();
+    return index < columnCount ? ends[index] - starts[index] : 0;
+  }
+
+  /**
+   * Indicates whether the value of a column is empty.
+   *
+   * @param column
+   *          - The column.
+   *
+   * @return - true if the column is empty or missing.
+   */
+  public boolean isEmpty(LogColumn column) {
+    return length(column) == 0;
+  }
+
+  /**
+   * Compares the value of a column with the UTF-8 encoding of a string.
+   *
+   * @param column
+   *          - The column.
+   * @param utf8
+   *          - The encoded value to compare with.
+   *
+   * @return - true if the column holds exactly the given bytes.
+   */
+  public boolean matches(LogColumn column, byte[] utf8) {
+    int index = column.ordinal();
+    if (index >= columnCount || ends[index] - starts[index] != utf8.length) {
+      return false;
+    }
+    int start = starts[index];
+    for (int i = 0; i < utf8.length; i++) {
+      if (buffer.get(start + i) != utf8[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes a hash of the value of a column, without copying it. Two columns
+   * with the same bytes always have the same hash.
+   *
+   * @param column
+   *          - The column.
+   *
+   * @return - The hash of the column's bytes.
+   */
+  public int hash(LogColumn column) {
+    int index = column.ordinal();
+    if (index >= columnCount) {
+      return 0;
+    }
+    int hash = 1;
+    for (int i = starts[index]; i < ends[index]; i++) {
+      hash = 31 * hash + buffer.get(i);
+    }
+    return hash;
+  }
+
+  /**
+   * Computes a 64 bit hash of the value of a column, without copying it. This
+   * is well enough distributed to identify values in indexes, where the
+   * 32 bit {@link #hash(LogColumn)} would collide too often.
+   *
+   * @param column
+   *          - The column.
+   *
+   * @return - The same value as {@link #fingerprint(byte[])} would return for
+   *         the column's bytes.
+   */
+  public long fingerprint(LogColumn column) {
+    int index = column.ordinal();
+    long hash = FNV_OFFSET_BASIS;
+    if (index < columnCount) {
+      for (int i = starts[index]; i < ends[index]; i++) {
+        hash = (hash ^ (buffer.get(i) & 0xff)) * FNV_PRIME;
+      }
+    }
+    return mix(hash);
+  }
+
+  /**
+   * Computes the 64 bit hash of a value, as {@link #fingerprint(LogColumn)}
+   * does for a column.
+   *
+   * @param utf8
+   *          - The UTF-8 encoding of the value.
+   *
+   * @return - The hash of the value.
+   */
+  static long fingerprint(byte[] utf8) {
+    long hash = FNV_OFFSET_BASIS;
+    for (byte b : utf8) {
+      hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+    }
+    return mix(hash);
+  }
+
+  /** Spreads the bits of an FNV-1a hash, whose low bits are weak, over the whole value. */
+  private static long mix(long hash) {
+    hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+    hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  /**
+   * Parses the value of a column as a non-negative whole number.
+   *
+   * @param column
+   *          - The column.
+   *
+   * @return - The number, or -1 if the column does not hold one.
+   */
+  public long getLong(LogColumn column) {
+    int index = column.ordinal();
+    if (index >= columnCount) {
+      return -1;
+    }
+    int start = starts[index];
+    int end = ends[index];
+    if (start == end || end - start > 18) {
+      return -1;
+    }
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /**
+   * Parses the value of a timestamp column.
+   *
+   * @param column
+   *          - The column.
+   *
+   * @return - The timestamp in milliseconds since the epoch, or
+   *         {@link Long#MIN_VALUE} if the column does not hold a timestamp in
+   *         {@link LogColumns#TIMESTAMP_FORMAT} format.
+   */
+  public long getTimestamp(LogColumn column) {
+    int index = column.ordinal();
+    if (index >= columnCount) {
+      return Long.MIN_VALUE;
+    }
+    return TimestampParser.parse(buffer, starts[index], ends[index]);
+  }
+
+  /**
+   * Copies the value of a column into a new string.
+   *
+   * @param column
+   *          - The column.
+   *
+   * @return - The value, or an empty string if the line does not have the column.
+   */
+  public String getString(LogColumn column) {
+    int index = column.ordinal();
+    if (index >= columnCount) {
+      return "";
+    }
+    return decode(starts[index], ends[index]);
+  }
+
+  /**
+   * Copies the whole line into a new string.
+   *
+   * @return - The text of the line.
+   */
+  public String getLine() {
+    return decode(lineStart, lineEnd);
+  }
+
+  private String decode(int start, int end) {
+    byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String toString() {
+    return getLine();
+  }
+}
@@ -0,0 +1,400 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * An index of the request ids of a log file segment, held in a file alongside
+ * the segment. The index consists of a Bloom filter of the request ids, which
+ * allows segments which do not contain a request to be skipped after checking
+ * a few bits, followed by a table of (request id hash, line offset) entries
+ * sorted by hash, which is binary searched to find the lines of a request.
+ * <p>
+ * The index file is memory-mapped rather than read, so only the pages which
+ * are actually probed are loaded. Since entries hold hashes rather than the
+ * ids themselves, a matching entry only identifies a candidate line, which
+ * must be checked against the requested id.
+ * <p>
+ * An index records how much of the segment it covers, so a segment which is
+ * still being appended to can be indexed and the lines written since then
+ * scanned separately. It also records the identity of the segment, so that
+ * an index left beside a new file which has taken the segment's name, as
+ * happens when logs are rolled by renaming, is recognized as stale.
+ */
+public class RequestIdIndex implements Closeable {
+
+  /** The suffix added to the name of a segment to name its index. */
+  public static final String SUFFIX = ".rid";
+
+  /** The false positive rate the Bloom filter is sized for. */
+  static final double FALSE_POSITIVE_RATE = 0.01;
+
+  private static final int MAGIC = 0x41414952; // "AAIR"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 17 + SegmentIdentity.SIZE + 12;
+  private static final int ENTRY_SIZE = 16;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final LogLineType type;
+  private final long segmentSize;
+  private final SegmentIdentity identity;
+  private final int hashCount;
+  private final long bloomBits;
+  private final int entryCount;
+  private final int entriesStart;
+
+  private RequestIdIndex(Path indexFile) throws IOException {
+    channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IOException("Truncated request id index " + indexFile);
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+        throw new IOException("Not a request id index: " + indexFile);
+      }
+      type = LogLineType.values()[buffer.get(8)];
+      segmentSize = buffer.getLong(9);
+      identity = SegmentIdentity.read(buffer, 17);
+      hashCount = buffer.getInt(17 + SegmentIdentity.SIZE);
+      int bloomWords = buffer.getInt(21 + SegmentIdentity.SIZE);
+      entryCount = buffer.getInt(25 + SegmentIdentity.SIZE);
+      bloomBits = bloomWords * 64L;
+      entriesStart = HEADER_SIZE + bloomWords * 8;
+      if (size != entriesStart + (long) entryCount * ENTRY_SIZE) {
+        throw new IOException("Truncated request id index " + indexFile);
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the name of the index of a segment.
+   *
+   * @param segment
+   *          - The log file segment.
+   *
+   * @return - The path of the segment's index.
+   */
+  public static Path indexFileFor(Path segment) {
+    return segment.resolveSibling(segment.getFileName() + SUFFIX);
+  }
+
+  /**
+   * Opens an existing index.
+   *
+   * @param indexFile
+   *          - The index file.
+   *
+   * @return - The index, which must be closed after use.
+   *
+   * @throws IOException
+   *           if the file cannot be read or is not an index.
+   */
+  public static RequestIdIndex open(Path indexFile) throws IOException {
+    return new RequestIdIndex(indexFile);
+  }
+
+  /**
+   * Indexes the complete lines of a segment, replacing any existing index.
+   * The index is written to a temporary file and then moved into place, so a
+   * concurrent reader never sees a partial index.
+   *
+   * @param segment
+   *          - The log file segment.
+   * @param type
+   *          - The type of lines in the segment, either AUDIT or METRICS.
+   *
+   * @return - The new index, which must be closed after use.
+   */
+  public static RequestIdIndex build(Path segment, LogLineType type) throws IOException {
+    LogColumn requestId = requestIdColumn(type);
+    long[] hashes = new long[1024];
+    long[] offsets = new long[1024];
+    int count = 0;
+    long indexedSize = 0;
+
+    LogFileReader reader = new LogFileReader(segment, type);
+    try {
+      while (reader.next()) {
+        LogRecord record = reader.getRecord();
+        indexedSize = reader.getPosition();
+        if (record.isEmpty(requestId)) {
+          continue;
+        }
+        if (count == hashes.length) {
+          hashes = Arrays.copyOf(hashes, count * 2);
+          offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        hashes[count] = record.fingerprint(requestId);
+        offsets[count] = record.getLineOffset();
+        count++;
+      }
+    } finally {
+      reader.close();
+    }
+    sort(hashes, offsets, count);
+
+    // Size the filter for the number of distinct ids, which is known now the
+    // entries are sorted.
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (i == 0 || hashes[i] != hashes[i - 1]) {
+        distinct++;
+      }
+    }
+    double ln2 = Math.log(2);
+    long bits = (long) Math.ceil(-Math.max(distinct, 1) * Math.log(FALSE_POSITIVE_RATE) / (ln2 * ln2));
+    int bloomWords = (int) Math.max(1, (bits + 63) / 64);
+    int hashCount = (int) Math.max(1, Math.round((bloomWords * 64.0 / Math.max(distinct, 1)) * ln2));
+    long[] bloom = new long[bloomWords];
+    for (int i = 0; i < count; i++) {
+      for (int k = 0; k < hashCount; k++) {
+        long bit = bit(hashes[i], k, bloomWords * 64L);
+        bloom[(int) (bit >>> 6)] |= 1L << bit;
+      }
+    }
+
+    ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + bloomWords * 8 + count * ENTRY_SIZE);
+    out.putInt(MAGIC).putInt(VERSION).put((byte) type.ordinal()).putLong(indexedSize);
+    SegmentIdentity.of(segment, indexedSize).write(out);
+    out.putInt(hashCount).putInt(bloomWords).putInt(count);
+    for (long word : bloom) {
+      out.putLong(word);
+    }
+    for (int i = 0; i < count; i++) {
+      out.putLong(hashes[i]).putLong(offsets[i]);
+    }
+    out.flip();
+
+    Path indexFile = indexFileFor(segment);
+    Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      while (out.hasRemaining()) {
+        channel.write(out);
+      }
+    } finally {
+      channel.close();
+    }
+    Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return new RequestIdIndex(indexFile);
+  }
+
+  /**
+   * Returns the type of lines in the indexed segment.
+   *
+   * @return - AUDIT or METRICS.
+   */
+  public LogLineType getType() {
+    return type;
+  }
+
+  /**
+   * Returns how much of the segment the index covers. Lines written to the
+   * segment after it was indexed start at this offset.
+   *
+   * @return - The offset following the last complete line when the segment
+   *         was indexed.
+   */
+  public long getSegmentSize() {
+    return segmentSize;
+  }
+
+  /**
+   * Indicates whether the index was built from a segment, rather than from
+   * another file which had the segment's name before it.
+   *
+   * @param segment
+   *          - The segment.
+   *
+   * @return - true if the segment is the indexed file, and is at least as
+   *         large as when it was indexed.
+   */
+  public boolean isIndexOf(Path segment) throws IOException {
+    return segmentSize <= Files.size(segment) && identity.matches(segment);
+  }
+
+  /**
+   * Returns the number of lines in the index.
+   *
+   * @return - The number of indexed lines with a request id.
+   */
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * Checks the Bloom filter for a request id.
+   *
+   * @param requestId
+   *          - The request id.
+   *
+   * @return - false if the segment definitely has no lines for the request,
+   *         true if it may have.
+   */
+  public boolean mightContain(String requestId) {
+    return mightContain(LogRecord.fingerprint(requestId.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  boolean mightContain(long hash) {
+    for (int k = 0; k < hashCount; k++) {
+      long bit = bit(hash, k, bloomBits);
+      if ((buffer.getLong(HEADER_SIZE + (int) (bit >>> 6) * 8) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Finds the offsets of the lines which may belong to a request. Lines of
+   * other requests whose ids have the same hash may also be returned.
+   *
+   * @param requestId
+   *          - The request id.
+   *
+   * @return - The offsets of the candidate lines, in ascending order.
+   */
+  public long[] getOffsets(String requestId) {
+    return getOffsets(LogRecord.fingerprint(requestId.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  long[] getOffsets(long hash) {
+    if (!mightContain(hash)) {
+      return new long[0];
+    }
+
+    // Find the first entry with the hash.
+    int low = 0;
+    int high = entryCount;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (buffer.getLong(entriesStart + middle * ENTRY_SIZE) < hash) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    int end = low;
+    while (end < entryCount && buffer.getLong(entriesStart + end * ENTRY_SIZE) == hash) {
+      end++;
+    }
+    long[] offsets = new long[end - low];
+    for (int i = low; i < end; i++) {
+      offsets[i - low] = buffer.getLong(entriesStart + i * ENTRY_SIZE + 8);
+    }
+    return offsets;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Returns the request id column of a type of line.
+   *
+   * @param type
+   *          - AUDIT or METRICS.
+   *
+   * @return - The column.
+   */
+  static LogColumn requestIdColumn(LogLineType type) {
+    LogColumn[] columns = LogColumns.of(type);
+    if (columns == null) {
+      throw new IllegalArgumentException("Unsupported log line type: " + type);
+    }
+    for (LogColumn column : columns) {
+      if ("REQUEST_ID".equals(column.name())) {
+        return column;
+      }
+    }
+    throw new IllegalArgumentException("No request id column in " + type + " lines");
+  }
+
+  /**
+   * Computes the k'th bit of the filter for a hash, deriving the bits from the
+   * two halves of the hash as described by Kirsch and Mitzenmacher.
+   */
+  private static long bit(long hash, int k, long bits) {
+    long combined = (hash & 0xffffffffL) + k * (hash >>> 32);
+    return (combined & Long.MAX_VALUE) % bits;
+  }
+
+  /**
+   * Sorts the entries by hash. The sort is stable, so the offsets of each hash
+   * stay in ascending order.
+   */
+  private static void sort(long[] hashes, long[] offsets, int count) {
+    long[] hashesFrom = hashes;
+    long[] offsetsFrom = offsets;
+    long[] hashesTo = new long[count];
+    long[] offsetsTo = new long[count];
+    for (int width = 1; width < count; width *= 2) {
+      for (int low = 0; low < count; low += 2 * width) {
+        int middle = Math.min(low + width, count);
+        int high = Math.min(low + 2 * width, count);
+        int left = low;
+        int right = middle;
+        for (int i = low; i < high; i++) {
+          if (left < middle && (right >= high || hashesFrom[left] <= hashesFrom[right])) {
+            hashesTo[i] = hashesFrom[left];
+            offsetsTo[i] = offsetsFrom[left++];
+          } else {
+            hashesTo[i] = hashesFrom[right];
+            offsetsTo[i] = offsetsFrom[right++];
+          }
+        }
+      }
+      long[] swap = hashesFrom;
+      hashesFrom = hashesTo;
+      hashesTo = swap;
+      swap = offsetsFrom;
+      offsetsFrom = offsetsTo;
+      offsetsTo = swap;
+    }
+    if (hashesFrom != hashes) {
+      System.arraycopy(hashesFrom, 0, hashes, 0, count);
+      System.arraycopy(offsetsFrom, 0, offsets, 0, count);
+    }
+  }
+}
@@ -0,0 +1,278 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * Finds the lines of a request across a set of log file segments, using the
+ * {@link RequestIdIndex} of each segment to skip the segments which do not
+ * contain the request and to seek straight to the lines of those which do.
+ * <p>
+ * This library does not roll log files itself, so nothing indexes a segment
+ * when it is rolled unless the rotation is set up to: calling
+ * {@link #index(Path)}, or running this class with <code>--index</code> from
+ * a log rotation script, indexes the rolled segment ahead of time. Otherwise
+ * a segment without an index, or whose index is for a file which has since
+ * been replaced, is indexed when it is first searched. Lines appended to a
+ * segment since it was indexed, such as those of the live log file, are
+ * scanned.
+ * <p>
+ * This class can also be run from the command line:
+ *
+ * <pre>
+ * java org.onap.aai.cl.eelf.analysis.RequestIdLookup [--type audit|metrics] requestId segment...
+ * java org.onap.aai.cl.eelf.analysis.RequestIdLookup [--type audit|metrics] --index segment...
+ * </pre>
+ */
+public class RequestIdLookup {
+
+  private final LogLineType type;
+  private final LogColumn requestIdColumn;
+  private final LogRecord record;
+  private ByteBuffer lineBuffer = ByteBuffer.allocate(4096);
+  private long segmentsSkipped;
+  private long segmentsSearched;
+
+  /**
+   * Creates a lookup over segments of one type.
+   *
+   * @param type
+   *          - The type of lines in the segments, either AUDIT or METRICS.
+   */
+  public RequestIdLookup(LogLineType type) {
+    this.type = type;
+    requestIdColumn = RequestIdIndex.requestIdColumn(type);
+    record = new LogRecord(LogColumns.of(type));
+  }
+
+  /**
+   * Builds or rebuilds the index of a segment.
+   *
+   * @param segment
+   *          - The segment, typically one which has just been rolled.
+   */
+  public void index(Path segment) throws IOException {
+    RequestIdIndex.build(segment, type).close();
+  }
+
+  /**
+   * Finds the lines of a request.
+   *
+   * @param requestId
+   *          - The request id.
+   * @param segments
+   *          - The segments to search, in the order their lines should be
+   *          returned.
+   *
+   * @return - The lines of the request, in segment and then file order.
+   */
+  public List<String> find(String requestId, List<Path> segments) throws IOException {
+    byte[] id = requestId.getBytes(StandardCharsets.UTF_8);
+    long hash = LogRecord.fingerprint(id);
+    List<String> lines = new ArrayList<String>();
+    for (Path segment : segments) {
+      RequestIdIndex index = openIndex(segment);
+      try {
+        if (index.mightContain(hash)) {
+          segmentsSearched++;
+          readLines(segment, index.getOffsets(hash), id, lines);
+        } else {
+          segmentsSkipped++;
+        }
+        scanTail(segment, index.getSegmentSize(), id, lines);
+      } finally {
+        index.close();
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Returns the number of segments which the Bloom filters showed did not
+   * contain the requests looked up.
+   *
+   * @return - The number of segments skipped.
+   */
+  public long getSegmentsSkipped() {
+    return segmentsSkipped;
+  }
+
+  /**
+   * Returns the number of segments whose index tables were searched.
+   *
+   * @return - The number of segments searched.
+   */
+  public long getSegmentsSearched() {
+    return segmentsSearched;
+  }
+
+  /** Opens the index of a segment, building it if it is missing or out of date. */
+  private RequestIdIndex openIndex(Path segment) throws IOException {
+    Path indexFile = RequestIdIndex.indexFileFor(segment);
+    if (Files.exists(indexFile)) {
+      try {
+        RequestIdIndex index = RequestIdIndex.open(indexFile);
+        boolean current = false;
+        try {
+          current = index.getType() == type && index.isIndexOf(segment);
+        } finally {
+          if (!current) {
+            index.close();
+          }
+        }
+        if (current) {
+          return index;
+        }
+      } catch (IOException e) {
+        // Removed since we checked, or not a usable index, so rebuild it.
+      }
+    }
+    return RequestIdIndex.build(segment, type);
+  }
+
+  /** Reads the candidate lines at a set of offsets, keeping those of the request. */
+  private void readLines(Path segment, long[] offsets, byte[] id, List<String> lines)
+      throws IOException {
+    if (offsets.length == 0) {
+      return;
+    }
+    FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ);
+    try {
+      for (long offset : offsets) {
+        if (readLine(channel, offset) && record.matches(requestIdColumn, id)) {
+          lines.add(record.getLine());
+        }
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  /** Reads the line at an offset into the line buffer and positions the record over it. */
+  private boolean readLine(FileChannel channel, long offset) throws IOException {
+    lineBuffer.clear();
+    int scanned = 0;
+    while (true) {
+      int read = channel.read(lineBuffer, offset + lineBuffer.position());
+      for (int i = scanned; i < lineBuffer.position(); i++) {
+        if (lineBuffer.get(i) == '\n') {
+          int end = i > 0 && lineBuffer.get(i - 1) == '\r' ? i - 1 : i;
+          record.reset(lineBuffer, offset, 0, end);
+          return true;
+        }
+      }
+      if (read < 0) {
+        return false;
+      }
+      scanned = lineBuffer.position();
+      if (!lineBuffer.hasRemaining()) {
+        ByteBuffer larger = ByteBuffer.allocate(lineBuffer.capacity() * 2);
+        lineBuffer.flip();
+        larger.put(lineBuffer);
+        lineBuffer = larger;
+      }
+    }
+  }
+
+  /** Scans the lines written to a segment after it was indexed. */
+  private void scanTail(Path segment, long from, byte[] id, List<String> lines)
+      throws IOException {
+    if (Files.size(segment) <= from) {
+      return;
+    }
+    LogFileReader reader = new LogFileReader(segment, type, from, Long.MAX_VALUE);
+    try {
+      while (reader.next()) {
+        if (reader.getRecord().matches(requestIdColumn, id)) {
+          lines.add(reader.getRecord().getLine());
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Runs the lookup from the command line, writing the lines found to
+   * standard output.
+   *
+   * @param args
+   *          - The options, request id and segments, as described in the class
+   *          documentation.
+   */
+  public static void main(String[] args) throws IOException {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  static int run(String[] args, PrintStream out, PrintStream err) throws IOException {
+    LogLineType type = LogLineType.AUDIT;
+    boolean index = false;
+    String requestId = null;
+    List<Path> segments = new ArrayList<Path>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        if ("--type".equals(args[i])) {
+          type = LogLineType.valueOf(args[++i].toUpperCase());
+        } else if ("--index".equals(args[i])) {
+          index = true;
+        } else if (!index && requestId == null) {
+          requestId = args[i];
+        } else {
+          segments.add(Paths.get(args[i]));
+        }
+      }
+      if (segments.isEmpty() || LogColumns.of(type) == null) {
+        throw new IllegalArgumentException();
+      }
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      err.println("Usage: RequestIdLookup [--type audit|metrics] requestId segment...");
+      err.println("       RequestIdLookup [--type audit|metrics] --index segment...");
+      return 2;
+    }
+
+    RequestIdLookup lookup = new RequestIdLookup(type);
+    if (index) {
+      for (Path segment : segments) {
+        lookup.index(segment);
+      }
+    } else {
+      for (String line : lookup.find(requestId, segments)) {
+        out.println(line);
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,169 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Identifies the log file an index was built from. An index is named after
+ * its file, so when logs are rolled by renaming, the index of the old file is
+ * left beside the new file that takes its name; comparing identities tells
+ * the two apart before the new file has grown past the old one's size.
+ * <p>
+ * The identity combines the file key, which on most systems is the device and
+ * inode of the file, with a fingerprint of the start of its content, which
+ * also catches a file which has been truncated and rewritten in place.
+ */
+final class SegmentIdentity {
+
+  /** The number of bytes an identity occupies in an index header. */
+  static final int SIZE = 20;
+
+  /** The most of the start of a file that is fingerprinted. */
+  static final int PREFIX_SIZE = 4096;
+
+  private final long fileKey;
+  private final int prefixLength;
+  private final long prefix;
+
+  private SegmentIdentity(long fileKey, int prefixLength, long prefix) {
+    this.fileKey = fileKey;
+    this.prefixLength = prefixLength;
+    this.prefix = prefix;
+  }
+
+  /**
+   * Computes the identity of a file from its key and the start of its
+   * content.
+   *
+   * @param file
+   *          - The file.
+   * @param coveredSize
+   *          - How much of the file has been indexed; no more than this is
+   *          fingerprinted.
+   *
+   * @return - The identity.
+   */
+  static SegmentIdentity of(Path file, long coveredSize) throws IOException {
+    return of(fileKey(file), file, coveredSize);
+  }
+
+  /**
+   * Computes the identity of a file whose key was taken earlier, such as when
+   * the file was opened for writing; if another file has taken its name
+   * since, the identity matches neither of them.
+   *
+   * @param fileKey
+   *          - The key of the file, as returned by {@link #fileKey(Path)}.
+   * @param file
+   *          - The file.
+   * @param coveredSize
+   *          - How much of the file has been indexed; no more than this is
+   *          fingerprinted.
+   *
+   * @return - The identity.
+   */
+  static SegmentIdentity of(long fileKey, Path file, long coveredSize) throws IOException {
+    SegmentIdentity identity = compute(fileKey, file, (int) Math.min(coveredSize, PREFIX_SIZE));
+    if (identity == null) {
+      throw new IOException("Log file " + file + " was truncated while it was indexed");
+    }
+    return identity;
+  }
+
+  /** Computes an identity, or returns null if the file is shorter than the prefix. */
+  private static SegmentIdentity compute(long fileKey, Path file, int prefixLength)
+      throws IOException {
+    byte[] bytes = new byte[prefixLength];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+        // Keep reading until the prefix is complete or the file ends.
+      }
+    } finally {
+      channel.close();
+    }
+    if (buffer.hasRemaining()) {
+      return null;
+    }
+    return new SegmentIdentity(fileKey, prefixLength, LogRecord.fingerprint(bytes));
+  }
+
+  /**
+   * Returns a hash of the key of a file.
+   *
+   * @param file
+   *          - The file.
+   *
+   * @return - The hash, or 0 if the file system does not give files keys.
+   */
+  static long fileKey(Path file) throws IOException {
+    Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    return key == null ? 0 : LogRecord.fingerprint(key.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads an identity from an index header.
+   *
+   * @param buffer
+   *          - The header.
+   * @param offset
+   *          - The offset of the identity within the header.
+   *
+   * @return - The identity.
+   */
+  static SegmentIdentity read(ByteBuffer buffer, int offset) {
+    return new SegmentIdentity(buffer.getLong(offset), buffer.getInt(offset + 8),
+        buffer.getLong(offset + 12));
+  }
+
+  /**
+   * Writes the identity to an index header at the buffer's position.
+   *
+   * @param buffer
+   *          - The header.
+   */
+  void write(ByteBuffer buffer) {
+    buffer.putLong(fileKey).putInt(prefixLength).putLong(prefix);
+  }
+
+  /**
+   * Indicates whether a file is the one this identity was computed from.
+   *
+   * @param file
+   *          - The file.
+   *
+   * @return - true if the file has the same key and starts with the same
+   *         content.
+   */
+  boolean matches(Path file) throws IOException {
+    SegmentIdentity current = compute(fileKey(file), file, prefixLength);
+    return current != null && current.fileKey == fileKey && current.prefix == prefix;
+  }
+}
@@ -0,0 +1,273 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+
+/**
+ * A sparse index of the start times of the lines of an audit or metrics log
+ * file, held in a file alongside it. The log file is divided into blocks of
+ * whole lines, and the index holds the extent of each block along with the
+ * earliest and latest start time of its lines. Since lines are written when
+ * they end rather than when they start, start times are only roughly in file
+ * order, which is why each block records its range of times rather than a
+ * single time.
+ * <p>
+ * The index is append only, so it can be maintained by a
+ * {@link TimeIndexWriter} while the log file is written and read at the same
+ * time. Its header, which is written along with the first block, records the
+ * identity of the log file, so that an index left beside a new file which has
+ * taken the log file's name, as happens when logs are rolled by renaming, is
+ * recognized as stale.
+ */
+public class TimeIndex {
+
+  /** The suffix added to the name of a log file to name its index. */
+  public static final String SUFFIX = ".tix";
+
+  /** The default minimum size of the blocks of a file. */
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+  static final int MAGIC = 0x41414954; // "AAIT"
+  static final int VERSION = 2;
+  static final int HEADER_SIZE = 8 + SegmentIdentity.SIZE;
+  static final int ENTRY_SIZE = 32;
+
+  private final long[] starts;
+  private final long[] ends;
+  private final long[] mins;
+  private final long[] maxes;
+  private final long[] maxUpTo;
+  private final long[] minFrom;
+  private final SegmentIdentity identity;
+
+  private TimeIndex(SegmentIdentity identity, long[] starts, long[] ends, long[] mins,
+      long[] maxes) {
+    this.identity = identity;
+    this.starts = starts;
+    this.ends = ends;
+    this.mins = mins;
+    this.maxes = maxes;
+
+    // The latest time in each block and all those before it, and the earliest
+    // time in each block and all those after it, are both ascending, so they
+    // can be binary searched for the first and last blocks of a range.
+    int count = starts.length;
+    maxUpTo = new long[count];
+    minFrom = new long[count];
+    for (int i = 0; i < count; i++) {
+      maxUpTo[i] = i == 0 ? maxes[i] : Math.max(maxUpTo[i - 1], maxes[i]);
+    }
+    for (int i = count - 1; i >= 0; i--) {
+      minFrom[i] = i == count - 1 ? mins[i] : Math.min(minFrom[i + 1], mins[i]);
+    }
+  }
+
+  /**
+   * Returns the name of the index of a log file.
+   *
+   * @param logFile
+   *          - The log file.
+   *
+   * @return - The path of the file's index.
+   */
+  public static Path indexFileFor(Path logFile) {
+    return logFile.resolveSibling(logFile.getFileName() + SUFFIX);
+  }
+
+  /**
+   * Reads an index. An entry which is still being written is ignored, and an
+   * empty file is an index of no blocks.
+   *
+   * @param indexFile
+   *          - The index file.
+   *
+   * @return - The index.
+   *
+   * @throws IOException
+   *           if the file cannot be read or is not an index.
+   */
+  public static TimeIndex open(Path indexFile) throws IOException {
+    byte[] bytes = Files.readAllBytes(indexFile);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    if (bytes.length == 0) {
+      // The writer has not yet finished a block.
+      return new TimeIndex(null, new long[0], new long[0], new long[0], new long[0]);
+    }
+    if (bytes.length < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Not a time index: " + indexFile);
+    }
+    int count = (bytes.length - HEADER_SIZE) / ENTRY_SIZE;
+    long[] starts = new long[count];
+    long[] ends = new long[count];
+    long[] mins = new long[count];
+    long[] maxes = new long[count];
+    buffer.position(HEADER_SIZE);
+    for (int i = 0; i < count; i++) {
+      starts[i] = buffer.getLong();
+      ends[i] = buffer.getLong();
+      mins[i] = buffer.getLong();
+      maxes[i] = buffer.getLong();
+    }
+    return new TimeIndex(SegmentIdentity.read(buffer, 8), starts, ends, mins, maxes);
+  }
+
+  /**
+   * Indexes the complete lines of a log file, replacing any existing index.
+   * The index is written to a temporary file and then moved into place, so a
+   * concurrent reader never sees a partial index.
+   *
+   * @param logFile
+   *          - The log file.
+   * @param type
+   *          - The type of lines in the file, either AUDIT or METRICS.
+   * @param blockSize
+   *          - The minimum size of each block.
+   *
+   * @return - The new index.
+   */
+  public static TimeIndex build(Path logFile, LogLineType type, int blockSize) throws IOException {
+    Path indexFile = indexFileFor(logFile);
+    Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    Files.deleteIfExists(temp);
+    TimeIndexWriter writer = new TimeIndexWriter(temp, logFile, blockSize);
+    try {
+      LogFileReader reader = new LogFileReader(logFile, type);
+      try {
+        while (reader.next()) {
+          LogRecord record = reader.getRecord();
+          writer.add(record.getLineOffset(), reader.getPosition(),
+              record.getTimestamp(record.getColumns()[0]));
+        }
+      } finally {
+        reader.close();
+      }
+    } finally {
+      writer.close();
+    }
+    Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return open(indexFile);
+  }
+
+  /**
+   * Returns the number of blocks in the index.
+   *
+   * @return - The number of blocks.
+   */
+  public int getBlockCount() {
+    return starts.length;
+  }
+
+  /**
+   * Returns how much of the log file the index covers. Lines which were
+   * written after the last block of the index start at or after this offset.
+   *
+   * @return - The end of the last block, or 0 if there are none.
+   */
+  public long getCoveredSize() {
+    return ends.length == 0 ? 0 : ends[ends.length - 1];
+  }
+
+  /**
+   * Indicates whether the index was built from a log file, rather than from
+   * another file which had the log file's name before it.
+   *
+   * @param logFile
+   *          - The log file.
+   *
+   * @return - true if the log file is the indexed file, and is at least as
+   *         large as the part of it the index covers.
+   */
+  public boolean isIndexOf(Path logFile) throws IOException {
+    // An index of no blocks covers nothing, so is right for any file.
+    return getCoveredSize() <= Files.size(logFile)
+        && (identity == null || identity.matches(logFile));
+  }
+
+  /**
+   * Finds the parts of the log file which may hold lines that started within
+   * a time range. Adjacent blocks are combined.
+   *
+   * @param from
+   *          - The start of the time range, in milliseconds since the epoch.
+   * @param to
+   *          - The end of the time range, exclusive.
+   *
+   * @return - The start and end offsets of each part, in pairs.
+   */
+  public long[] find(long from, long to) {
+    int first = firstIndex(maxUpTo, from);
+    int last = firstIndex(minFrom, to);
+    long[] ranges = new long[8];
+    int count = 0;
+    for (int i = first; i < last; i++) {
+      if (maxes[i] < from || mins[i] >= to) {
+        continue;
+      }
+      if (count > 0 && ranges[count - 1] == starts[i]) {
+        ranges[count - 1] = ends[i];
+      } else {
+        if (count == ranges.length) {
+          ranges = Arrays.copyOf(ranges, count * 2);
+        }
+        ranges[count++] = starts[i];
+        ranges[count++] = ends[i];
+      }
+    }
+    return Arrays.copyOf(ranges, count);
+  }
+
+  /** Returns the index of the first of a sorted set of values which is at least a value. */
+  private static int firstIndex(long[] sorted, long value) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sorted[middle] < value) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /** Puts the header of a new index file, identifying its log file, into a buffer. */
+  static void putHeader(ByteBuffer buffer, SegmentIdentity identity) {
+    buffer.putInt(MAGIC).putInt(VERSION);
+    identity.write(buffer);
+  }
+
+  /** Opens an index file for appending, creating it if necessary. */
+  static FileChannel openForAppend(Path indexFile) throws IOException {
+    return FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+  }
+}
@@ -0,0 +1,200 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * Maintains the {@link TimeIndex} of a log file as lines are appended to it.
+ * Lines are gathered into a block until the block reaches the block size, at
+ * which point an entry for it is appended to the index.
+ * <p>
+ * The header of a new index is written along with its first block, since it
+ * identifies the log file by the start of its content as well as by its key.
+ * <p>
+ * Instances are not thread safe; they are meant to be driven by the single
+ * thread which appends to the log file.
+ */
+public class TimeIndexWriter implements Closeable {
+
+  private final FileChannel channel;
+  private final Path logFile;
+  private final int blockSize;
+  private final ByteBuffer entry =
+      ByteBuffer.allocate(TimeIndex.HEADER_SIZE + TimeIndex.ENTRY_SIZE);
+  private long fileKey;
+  private boolean headerWritten;
+  private boolean inBlock;
+  private long blockStart;
+  private long blockEnd;
+  private long blockMin;
+  private long blockMax;
+
+  TimeIndexWriter(Path indexFile, Path logFile, int blockSize) throws IOException {
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+    }
+    this.logFile = logFile;
+    this.blockSize = blockSize;
+
+    // Take the key of the file now, so that if another file has taken its
+    // name by the time the header is written, the index matches neither.
+    if (Files.exists(logFile)) {
+      fileKey = SegmentIdentity.fileKey(logFile);
+    }
+    this.channel = TimeIndex.openForAppend(indexFile);
+    try {
+      headerWritten = channel.size() > 0;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens the writer for the index of a log file which is about to be
+   * appended to. If the file has no index, or its index does not cover the
+   * whole file, the index is first rebuilt from the file.
+   *
+   * @param logFile
+   *          - The log file.
+   * @param type
+   *          - The type of lines in the file, either AUDIT or METRICS.
+   * @param blockSize
+   *          - The minimum size of each block.
+   *
+   * @return - The writer.
+   */
+  public static TimeIndexWriter open(Path logFile, LogLineType type, int blockSize)
+      throws IOException {
+    Path indexFile = TimeIndex.indexFileFor(logFile);
+    long size = Files.exists(logFile) ? Files.size(logFile) : 0;
+    boolean current = false;
+    if (Files.exists(indexFile)) {
+      try {
+        TimeIndex index = TimeIndex.open(indexFile);
+        current = index.getCoveredSize() == size && (size == 0 || index.isIndexOf(logFile));
+      } catch (IOException e) {
+        // Not a usable index, so rebuild it.
+      }
+    }
+    if (!current) {
+      if (size > 0) {
+        TimeIndex.build(logFile, type, blockSize);
+      } else {
+        Files.deleteIfExists(indexFile);
+      }
+    }
+    return new TimeIndexWriter(indexFile, logFile, blockSize);
+  }
+
+  /**
+   * Records a line which has been appended to the log file. The start time is
+   * taken from the first column of the line.
+   *
+   * @param offset
+   *          - The offset the line was written at.
+   * @param line
+   *          - The bytes of the line, including its terminator, from its
+   *          position to its limit. The buffer's position is not changed.
+   */
+  public void lineWritten(long offset, ByteBuffer line) throws IOException {
+    int start = line.position();
+    int end = line.limit();
+    int separator = start;
+    while (separator < end && line.get(separator) != LogColumns.SEPARATOR) {
+      separator++;
+    }
+    add(offset, offset + end - start, TimestampParser.parse(line, start, separator));
+  }
+
+  /**
+   * Records a line.
+   *
+   * @param offset
+   *          - The offset of the start of the line.
+   * @param end
+   *          - The offset following the line's terminator.
+   * @param time
+   *          - The start time of the line, or {@link Long#MIN_VALUE} if it has
+   *          none.
+   */
+  void add(long offset, long end, long time) throws IOException {
+    if (inBlock && offset != blockEnd) {
+      // Something other than a line was written, so start a new block.
+      flush();
+    }
+    if (!inBlock) {
+      inBlock = true;
+      blockStart = offset;
+      blockMin = Long.MAX_VALUE;
+      blockMax = Long.MIN_VALUE;
+    }
+    blockEnd = end;
+    if (time != Long.MIN_VALUE) {
+      blockMin = Math.min(blockMin, time);
+      blockMax = Math.max(blockMax, time);
+    }
+    if (blockEnd - blockStart >= blockSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Appends an entry for the lines recorded since the last entry, even if
+   * they do not yet fill a block.
+   */
+  public void flush() throws IOException {
+    if (!inBlock) {
+      return;
+    }
+    entry.clear();
+    if (!headerWritten) {
+      if (fileKey == 0) {
+        fileKey = SegmentIdentity.fileKey(logFile);
+      }
+      TimeIndex.putHeader(entry, SegmentIdentity.of(fileKey, logFile, blockEnd));
+    }
+    entry.putLong(blockStart).putLong(blockEnd).putLong(blockMin).putLong(blockMax).flip();
+    while (entry.hasRemaining()) {
+      channel.write(entry);
+    }
+    headerWritten = true;
+    inBlock = false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,203 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * Streams the lines of an audit or metrics log file which started within a
+ * time range. The {@link TimeIndex} of the file is searched for the blocks
+ * which may hold such lines, and only those parts of the file are mapped and
+ * read. Lines written after the last block of the index, as happens while a
+ * file is still being written, are read as well.
+ * <p>
+ * If the file has no index, or its index is for a file which has since been
+ * replaced, whether by truncating it or by renaming it away when logs are
+ * rolled, the index is built first.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class TimeRangeReader implements Iterable<LogRecord>, Closeable {
+
+  private final Path file;
+  private final LogLineType type;
+  private final LogColumn startTime;
+  private final long from;
+  private final long to;
+  private final long[] ranges;
+  private int nextRange;
+  private LogFileReader reader;
+  private long bytesRead;
+
+  /**
+   * Opens a reader over the lines of a file which started within a time range.
+   *
+   * @param file
+   *          - The log file.
+   * @param type
+   *          - The type of lines in the file, either AUDIT or METRICS.
+   * @param from
+   *          - The start of the time range, in milliseconds since the epoch.
+   * @param to
+   *          - The end of the time range, exclusive.
+   */
+  public TimeRangeReader(Path file, LogLineType type, long from, long to) throws IOException {
+    LogColumn[] columns = LogColumns.of(type);
+    if (columns == null) {
+      throw new IllegalArgumentException("Unsupported log line type: " + type);
+    }
+    this.file = file;
+    this.type = type;
+    this.startTime = columns[0];
+    this.from = from;
+    this.to = to;
+
+    TimeIndex index = openIndex(file, type);
+    long[] found = index.find(from, to);
+    long covered = index.getCoveredSize();
+    if (Files.size(file) > covered) {
+      found = Arrays.copyOf(found, found.length + 2);
+      found[found.length - 2] = covered;
+      found[found.length - 1] = Long.MAX_VALUE;
+    }
+    ranges = found;
+    reader = nextReader();
+  }
+
+  private static TimeIndex openIndex(Path file, LogLineType type) throws IOException {
+    Path indexFile = TimeIndex.indexFileFor(file);
+    if (Files.exists(indexFile)) {
+      try {
+        TimeIndex index = TimeIndex.open(indexFile);
+        if (index.isIndexOf(file)) {
+          return index;
+        }
+      } catch (IOException e) {
+        // Not a usable index, so rebuild it.
+      }
+    }
+    return TimeIndex.build(file, type, TimeIndex.DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Advances to the next line which started within the time range.
+   *
+   * @return - true if {@link #getRecord()} is now positioned over the next
+   *         line, false if there are no more.
+   */
+  public boolean next() throws IOException {
+    while (reader != null) {
+      while (reader.next()) {
+        LogRecord record = reader.getRecord();
+        bytesRead += record.getLineLength() + 1;
+        long time = record.getTimestamp(startTime);
+        if (time >= from && time < to) {
+          return true;
+        }
+      }
+      reader.close();
+      reader = nextReader();
+    }
+    return false;
+  }
+
+  /**
+   * Returns the view of the current line. The same instance is returned for
+   * every line.
+   *
+   * @return - The current record.
+   */
+  public LogRecord getRecord() {
+    return reader.getRecord();
+  }
+
+  /**
+   * Returns the amount of the file read so far, including lines outside the
+   * time range which share blocks with lines inside it.
+   *
+   * @return - The number of bytes read.
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Returns an iterator over the remaining lines. Every call to
+   * {@link Iterator#next()} returns the same {@link LogRecord}, repositioned
+   * over the next line.
+   */
+  @Override
+  public Iterator<LogRecord> iterator() {
+    return new Iterator<LogRecord>() {
+      private boolean advanced;
+      private boolean hasNext;
+
+      @Override
+      public boolean hasNext() {
+        if (!advanced) {
+          try {
+            hasNext = TimeRangeReader.this.next();
+          } catch (IOException e) {
+            throw new IllegalStateException("Failed to read log file", e);
+          }
+          advanced = true;
+        }
+        return hasNext;
+      }
+
+      @Override
+      public LogRecord next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        advanced = false;
+        return getRecord();
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+      reader = null;
+    }
+  }
+
+  private LogFileReader nextReader() throws IOException {
+    if (nextRange == ranges.length) {
+      return null;
+    }
+    LogFileReader next = new LogFileReader(file, type, ranges[nextRange], ranges[nextRange + 1]);
+    nextRange += 2;
+    return next;
+  }
+}
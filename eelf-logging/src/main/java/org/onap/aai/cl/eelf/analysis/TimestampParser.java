@@ -0,0 +1,113 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses timestamps in yyyy-MM-dd'T'HH:mm:ss.SSSXXX format directly from
+ * bytes, without allocating.
+ */
+final class TimestampParser {
+
+  /** Length of a timestamp in UTC, ending in Z. */
+  private static final int UTC_LENGTH = "yyyy-MM-ddTHH:mm:ss.SSSZ".length();
+
+  /** Length of a timestamp with an explicit zone offset. */
+  private static final int OFFSET_LENGTH = "yyyy-MM-ddTHH:mm:ss.SSS+hh:mm".length();
+
+  private TimestampParser() {
+  }
+
+  /**
+   * Parses a timestamp.
+   *
+   * @return - Milliseconds since the epoch, or {@link Long#MIN_VALUE} if the
+   *         bytes are not a valid timestamp.
+   */
+  static long parse(ByteBuffer buffer, int start, int end) {
+    int length = end - start;
+    if (length != UTC_LENGTH && length != OFFSET_LENGTH) {
+      return Long.MIN_VALUE;
+    }
+    if (buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-'
+        || buffer.get(start + 10) != 'T' || buffer.get(start + 13) != ':'
+        || buffer.get(start + 16) != ':' || buffer.get(start + 19) != '.') {
+      return Long.MIN_VALUE;
+    }
+    int year = digits(buffer, start, 4);
+    int month = digits(buffer, start + 5, 2);
+    int day = digits(buffer, start + 8, 2);
+    int hour = digits(buffer, start + 11, 2);
+    int minute = digits(buffer, start + 14, 2);
+    int second = digits(buffer, start + 17, 2);
+    int millis = digits(buffer, start + 20, 3);
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+        || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+      return Long.MIN_VALUE;
+    }
+
+    int offsetMinutes = 0;
+    byte zone = buffer.get(start + 23);
+    if (length == UTC_LENGTH) {
+      if (zone != 'Z') {
+        return Long.MIN_VALUE;
+      }
+    } else {
+      int offsetHours = digits(buffer, start + 24, 2);
+      int offsetMins = digits(buffer, start + 27, 2);
+      if ((zone != '+' && zone != '-') || buffer.get(start + 26) != ':' || offsetHours < 0
+          || offsetMins < 0) {
+        return Long.MIN_VALUE;
+      }
+      offsetMinutes = offsetHours * 60 + offsetMins;
+      if (zone == '-') {
+        offsetMinutes = -offsetMinutes;
+      }
+    }
+
+    long days = daysFromCivil(year, month, day);
+    return (((days * 24 + hour) * 60 + minute - offsetMinutes) * 60 + second) * 1000 + millis;
+  }
+
+  /** Reads a run of decimal digits, returning -1 if any byte is not a digit. */
+  private static int digits(ByteBuffer buffer, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  /** Returns the number of days from 1970-01-01 to a date in the proleptic Gregorian calendar. */
+  static long daysFromCivil(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+}
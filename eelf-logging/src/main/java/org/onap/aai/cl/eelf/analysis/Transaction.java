@@ -0,0 +1,191 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The summary of a single request, joined together by
+ * {@link TransactionStitcher} from the audit line of the request and the
+ * metrics lines of the calls it made downstream.
+ */
+public class Transaction {
+
+  private final String requestId;
+  private String serviceName;
+  private String partnerName;
+  private boolean audited;
+  private long startTime = Long.MIN_VALUE;
+  private long endTime = Long.MIN_VALUE;
+  private long totalTime = -1;
+  private long downstreamTime;
+  private int callCount;
+  private final Map<String, long[]> byTarget = new HashMap<String, long[]>();
+  private final List<String> errorCodes = new ArrayList<String>(0);
+  long lastActivity = Long.MIN_VALUE;
+
+  Transaction(String requestId) {
+    this.requestId = requestId;
+  }
+
+  /** Records the audit line of the request. */
+  void audit(String serviceName, String partnerName, long startTime, long endTime,
+      long elapsedMs, String errorCode) {
+    this.audited = true;
+    this.serviceName = serviceName;
+    this.partnerName = partnerName;
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.totalTime = elapsedMs;
+    if (errorCode != null) {
+      errorCodes.add(errorCode);
+    }
+    touch(endTime);
+  }
+
+  /** Records the metrics line of a downstream call. */
+  void call(String target, long endTime, long elapsedMs, String errorCode) {
+    callCount++;
+    long[] totals = byTarget.get(target);
+    if (totals == null) {
+      totals = new long[2];
+      byTarget.put(target, totals);
+    }
+    totals[0]++;
+    if (elapsedMs >= 0) {
+      totals[1] += elapsedMs;
+      downstreamTime += elapsedMs;
+    }
+    if (errorCode != null) {
+      errorCodes.add(errorCode);
+    }
+    touch(endTime);
+  }
+
+  private void touch(long time) {
+    if (time != Long.MIN_VALUE) {
+      lastActivity = Math.max(lastActivity, time);
+    }
+  }
+
+  /** @return - The request id shared by the lines of the transaction. */
+  public String getRequestId() {
+    return requestId;
+  }
+
+  /**
+   * Indicates whether the audit line of the request was seen. Transactions
+   * without one were only seen through their downstream calls, so have no
+   * service, partner or total time.
+   *
+   * @return - true if the audit line was seen.
+   */
+  public boolean isAudited() {
+    return audited;
+  }
+
+  /** @return - The service name from the audit line, or null if there was none. */
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  /** @return - The partner name from the audit line, or null if there was none. */
+  public String getPartnerName() {
+    return partnerName;
+  }
+
+  /** @return - The start time from the audit line, or {@link Long#MIN_VALUE} if unknown. */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /** @return - The end time from the audit line, or {@link Long#MIN_VALUE} if unknown. */
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /** @return - The elapsed time of the request in milliseconds, or -1 if unknown. */
+  public long getTotalTime() {
+    return totalTime;
+  }
+
+  /** @return - The sum of the elapsed times of the downstream calls. */
+  public long getDownstreamTime() {
+    return downstreamTime;
+  }
+
+  /** @return - The number of downstream calls. */
+  public int getCallCount() {
+    return callCount;
+  }
+
+  /**
+   * Returns the time spent in downstream calls, broken down by target.
+   *
+   * @return - The sum of the elapsed times of the calls to each target, keyed
+   *         by target entity and target service separated by
+   *         {@link LogAnalysis#TARGET_SEPARATOR}.
+   */
+  public SortedMap<String, Long> getDownstreamTimeByTarget() {
+    SortedMap<String, Long> times = new TreeMap<String, Long>();
+    for (Map.Entry<String, long[]> entry : byTarget.entrySet()) {
+      times.put(entry.getKey(), entry.getValue()[1]);
+    }
+    return times;
+  }
+
+  /**
+   * Returns the response codes of the lines of the transaction which failed,
+   * in the order the lines were seen.
+   *
+   * @return - The error codes.
+   */
+  public List<String> getErrorCodes() {
+    return Collections.unmodifiableList(errorCodes);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    text.append(requestId);
+    if (audited) {
+      text.append(" service=").append(serviceName).append(" partner=").append(partnerName)
+          .append(" total=").append(totalTime).append("ms");
+    } else {
+      text.append(" (no audit line)");
+    }
+    text.append(" calls=").append(callCount).append(" downstream=").append(downstreamTime)
+        .append("ms");
+    for (Map.Entry<String, Long> entry : getDownstreamTimeByTarget().entrySet()) {
+      text.append(' ').append(entry.getKey()).append('=').append(entry.getValue()).append("ms");
+    }
+    if (!errorCodes.isEmpty()) {
+      text.append(" errors=").append(errorCodes);
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,318 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.analysis;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AuditColumn;
+import org.onap.aai.cl.eelf.MetricsColumn;
+
+/**
+ * Joins the audit lines of requests with the metrics lines of the downstream
+ * calls they made, using the request id the lines share, and emits a
+ * {@link Transaction} summarizing each request.
+ * <p>
+ * Lines are fed in from the audit and metrics streams in the order they were
+ * written, which is roughly end time order. The watermark is the earliest of
+ * the latest end times seen on each stream, so no line which ended much
+ * before it is still to come. A transaction is emitted once the watermark has
+ * passed its latest line by the join window; lines of a request which are
+ * further apart than the window are not joined. The transactions held are
+ * therefore those of about one window, and at most a fixed number, so the
+ * stitcher can run indefinitely over live files.
+ * <p>
+ * This class can also be run from the command line:
+ *
+ * <pre>
+ * java org.onap.aai.cl.eelf.analysis.TransactionStitcher [--window seconds] [--follow] auditFile metricsFile
+ * </pre>
+ * <p>
+ * Instances are not thread safe.
+ */
+public class TransactionStitcher {
+
+  /** The default number of transactions which may be held at once. */
+  public static final int DEFAULT_MAX_OPEN = 100000;
+
+  private static final byte[] ERROR_STATUS_BYTES = "ERROR".getBytes(StandardCharsets.UTF_8);
+
+  private final long windowMillis;
+  private final int maxOpen;
+  private final Consumer<Transaction> output;
+  private final ColumnInterner interner = new ColumnInterner();
+
+  // In order of latest activity, since each transaction is moved to the end
+  // whenever one of its lines arrives.
+  private final LinkedHashMap<String, Transaction> open =
+      new LinkedHashMap<String, Transaction>(16, 0.75f, true);
+  private long latestAudit = Long.MIN_VALUE;
+  private long latestMetrics = Long.MIN_VALUE;
+  private long evictedCount;
+
+  /**
+   * Creates a stitcher.
+   *
+   * @param windowMillis
+   *          - The longest time between the lines of a transaction.
+   * @param maxOpen
+   *          - The most transactions which may be held at once. When more
+   *          are started, the least recently active is emitted early.
+   * @param output
+   *          - Receives each transaction as it is completed.
+   */
+  public TransactionStitcher(long windowMillis, int maxOpen, Consumer<Transaction> output) {
+    if (windowMillis < 0 || maxOpen <= 0) {
+      throw new IllegalArgumentException("Invalid window " + windowMillis + " or limit " + maxOpen);
+    }
+    this.windowMillis = windowMillis;
+    this.maxOpen = maxOpen;
+    this.output = output;
+  }
+
+  /**
+   * Adds a line from the audit stream.
+   *
+   * @param record
+   *          - The line, which is not kept.
+   */
+  public void addAudit(LogRecord record) {
+    if (!record.isComplete() || record.isEmpty(AuditColumn.REQUEST_ID)) {
+      return;
+    }
+    long endTime = record.getTimestamp(AuditColumn.END_TIME);
+    String errorCode = null;
+    if (record.matches(AuditColumn.STATUS_CODE, ERROR_STATUS_BYTES)) {
+      errorCode = interner.intern(record, AuditColumn.RESPONSE_CODE);
+    }
+    transaction(record.getString(AuditColumn.REQUEST_ID)).audit(
+        interner.intern(record, AuditColumn.SERVICE_NAME),
+        interner.intern(record, AuditColumn.PARTNER_NAME),
+        record.getTimestamp(AuditColumn.START_TIME), endTime,
+        record.getLong(AuditColumn.ELAPSED_TIME), errorCode);
+    latestAudit = Math.max(latestAudit, endTime);
+    evict();
+  }
+
+  /**
+   * Adds a line from the metrics stream.
+   *
+   * @param record
+   *          - The line, which is not kept.
+   */
+  public void addMetrics(LogRecord record) {
+    if (!record.isComplete() || record.isEmpty(MetricsColumn.REQUEST_ID)) {
+      return;
+    }
+    long endTime = record.getTimestamp(MetricsColumn.END_TIME);
+    String errorCode = null;
+    if (record.matches(MetricsColumn.STATUS_CODE, ERROR_STATUS_BYTES)) {
+      errorCode = interner.intern(record, MetricsColumn.RESPONSE_CODE);
+    }
+    String target = interner.intern(record, MetricsColumn.TARGET_ENTITY)
+        + LogAnalysis.TARGET_SEPARATOR + interner.intern(record, MetricsColumn.TARGET_SERVICE_NAME);
+    transaction(record.getString(MetricsColumn.REQUEST_ID)).call(target, endTime,
+        record.getLong(MetricsColumn.ELAPSED_TIME), errorCode);
+    latestMetrics = Math.max(latestMetrics, endTime);
+    evict();
+  }
+
+  /**
+   * Returns the watermark: the earliest of the latest end times seen on the
+   * two streams.
+   *
+   * @return - The watermark, or {@link Long#MIN_VALUE} until both streams have
+   *         produced a line.
+   */
+  public long getWatermark() {
+    return Math.min(latestAudit, latestMetrics);
+  }
+
+  /**
+   * Advances the watermark of a stream which has had no lines for a while,
+   * such as a live file which is idle, so that the transactions held for it
+   * can complete.
+   *
+   * @param type
+   *          - The stream, AUDIT or METRICS.
+   * @param time
+   *          - The time up to which the stream is known to be complete.
+   */
+  public void advance(LogLineType type, long time) {
+    if (type == LogLineType.AUDIT) {
+      latestAudit = Math.max(latestAudit, time);
+    } else if (type == LogLineType.METRICS) {
+      latestMetrics = Math.max(latestMetrics, time);
+    }
+    evict();
+  }
+
+  /** Emits every transaction still held, as at the end of the streams. */
+  public void flush() {
+    for (Transaction transaction : open.values()) {
+      output.accept(transaction);
+    }
+    open.clear();
+  }
+
+  /** @return - The number of transactions currently held. */
+  public int getOpenCount() {
+    return open.size();
+  }
+
+  /** @return - The number of transactions emitted early because too many were held. */
+  public long getEvictedCount() {
+    return evictedCount;
+  }
+
+  private Transaction transaction(String requestId) {
+    Transaction transaction = open.get(requestId);
+    if (transaction == null) {
+      if (open.size() >= maxOpen) {
+        Iterator<Transaction> oldest = open.values().iterator();
+        output.accept(oldest.next());
+        oldest.remove();
+        evictedCount++;
+      }
+      transaction = new Transaction(requestId);
+      open.put(requestId, transaction);
+    }
+    return transaction;
+  }
+
+  /** Emits the transactions whose latest line is more than a window behind the watermark. */
+  private void evict() {
+    long watermark = getWatermark();
+    if (watermark == Long.MIN_VALUE) {
+      return;
+    }
+    Iterator<Transaction> oldest = open.values().iterator();
+    while (oldest.hasNext()) {
+      Transaction transaction = oldest.next();
+      if (transaction.lastActivity > watermark - windowMillis) {
+        break;
+      }
+      output.accept(transaction);
+      oldest.remove();
+    }
+  }
+
+  /**
+   * Runs the stitcher from the command line, writing a line for each
+   * transaction to standard output.
+   *
+   * @param args
+   *          - The options and files, as described in the class documentation.
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  static int run(String[] args, PrintStream out, PrintStream err)
+      throws IOException, InterruptedException {
+    long windowSeconds = 60;
+    boolean follow = false;
+    Path audit = null;
+    Path metrics = null;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        if ("--window".equals(args[i])) {
+          windowSeconds = Long.parseLong(args[++i]);
+        } else if ("--follow".equals(args[i])) {
+          follow = true;
+        } else if (audit == null) {
+          audit = Paths.get(args[i]);
+        } else if (metrics == null) {
+          metrics = Paths.get(args[i]);
+        } else {
+          throw new IllegalArgumentException();
+        }
+      }
+      if (metrics == null || windowSeconds < 0) {
+        throw new IllegalArgumentException();
+      }
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      err.println("Usage: TransactionStitcher [--window seconds] [--follow] auditFile metricsFile");
+      return 2;
+    }
+
+    TransactionStitcher stitcher =
+        new TransactionStitcher(windowSeconds * 1000, DEFAULT_MAX_OPEN, out::println);
+    long auditPosition = 0;
+    long metricsPosition = 0;
+    do {
+      long lastAuditPosition = auditPosition;
+      long lastMetricsPosition = metricsPosition;
+      LogFileReader auditReader = new LogFileReader(audit, LogLineType.AUDIT, auditPosition,
+          Long.MAX_VALUE);
+      LogFileReader metricsReader = new LogFileReader(metrics, LogLineType.METRICS,
+          metricsPosition, Long.MAX_VALUE);
+      try {
+        stitch(stitcher, auditReader, metricsReader);
+        auditPosition = auditReader.getPosition();
+        metricsPosition = metricsReader.getPosition();
+      } finally {
+        auditReader.close();
+        metricsReader.close();
+      }
+      if (follow) {
+        // Whatever has not been written by now is too late to join.
+        long now = System.currentTimeMillis();
+        stitcher.advance(LogLineType.AUDIT, now - stitcher.windowMillis);
+        stitcher.advance(LogLineType.METRICS, now - stitcher.windowMillis);
+        out.flush();
+
+        // Only go straight back for more while the files are still growing.
+        if (auditPosition == lastAuditPosition && metricsPosition == lastMetricsPosition) {
+          Thread.sleep(1000);
+        }
+      }
+    } while (follow && Files.exists(audit) && Files.exists(metrics));
+    stitcher.flush();
+    return 0;
+  }
+
+  /** Feeds the lines of two readers to a stitcher, merging them in end time order. */
+  static void stitch(TransactionStitcher stitcher, LogFileReader audit, LogFileReader metrics)
+      throws IOException {
+    boolean moreAudit = audit.next();
+    boolean moreMetrics = metrics.next();
+    while (moreAudit || moreMetrics) {
+      if (moreAudit && (!moreMetrics || audit.getRecord().getTimestamp(AuditColumn.END_TIME)
+          <= metrics.getRecord().getTimestamp(MetricsColumn.END_TIME))) {
+        stitcher.addAudit(audit.getRecord());
+        moreAudit = audit.next();
+      } else {
+        stitcher.addMetrics(metrics.getRecord());
+        moreMetrics = metrics.next();
+      }
+    }
+  }
+}
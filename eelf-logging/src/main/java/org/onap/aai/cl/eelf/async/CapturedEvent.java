@@ -0,0 +1,161 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.async;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+
+/**
+ * The raw values of a logging call, as captured on the calling thread and
+ * decoded on the consumer side of an {@link OffHeapEventQueue}. Nothing in an
+ * event has been formatted: the message is still a log code and its
+ * arguments, and the MDC attributes are the values which were current when
+ * the call was made.
+ * <p>
+ * Consumers typically reuse a single instance, which each poll of a queue
+ * overwrites.
+ */
+public class CapturedEvent {
+
+  Object source;
+  LogLineType type;
+  Level level;
+  Enum logCode;
+  String component;
+  String threadName;
+  long timestamp;
+  long startTime;
+  long elapsedTime;
+  String[] arguments;
+  LogFields fields;
+  MdcOverride mdc;
+  Throwable throwable;
+
+  /**
+   * Returns the MDC attributes which are captured with every event.
+   *
+   * @return - The names of the {@link MdcContext} attributes.
+   */
+  public static String[] mdcKeys() {
+    return new String[] {MdcContext.MDC_REQUEST_ID, MdcContext.MDC_SERVER_FQDN,
+        MdcContext.MDC_SERVICE_NAME, MdcContext.MDC_PARTNER_NAME, MdcContext.MDC_START_TIME,
+        MdcContext.MDC_REMOTE_HOST, MdcContext.MDC_SERVICE_INSTANCE_ID,
+        MdcContext.MDC_CLIENT_ADDRESS};
+  }
+
+  /** @return - The object which captured the event, such as the logger it was logged through. */
+  public Object getSource() {
+    return source;
+  }
+
+  /** @return - The type of line the event is for. */
+  public LogLineType getType() {
+    return type;
+  }
+
+  /** @return - The level the event was logged at. */
+  public Level getLevel() {
+    return level;
+  }
+
+  /**
+   * @return - The log code of the event, or null for a plain message, whose
+   *         text is then the single argument.
+   */
+  public Enum getLogCode() {
+    return logCode;
+  }
+
+  /** @return - The component which logged the event. */
+  public String getComponent() {
+    return component;
+  }
+
+  /** @return - The name of the thread which logged the event. */
+  public String getThreadName() {
+    return threadName;
+  }
+
+  /** @return - The time the event was logged, in milliseconds since the epoch. */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /** @return - The precise start time supplied for the event, or -1 if none was. */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /** @return - The precise elapsed time supplied for the event, or -1 if none was. */
+  public long getElapsedTime() {
+    return elapsedTime;
+  }
+
+  /** @return - The arguments of the log code, which may contain nulls. */
+  public String[] getArguments() {
+    return arguments;
+  }
+
+  /** @return - The predefined field values of the event. */
+  public LogFields getFields() {
+    return fields;
+  }
+
+  /**
+   * Returns the MDC attributes which were current when the event was logged,
+   * with any override supplied by the caller already applied. Every attribute
+   * of {@link MdcContext} is present, with an empty value
+   * if it was not set, so a line initialized with this override never reads
+   * the MDC of the thread which renders it. The attributes are those listed
+   * by {@link #mdcKeys()}.
+   *
+   * @return - The captured MDC attributes.
+   */
+  public MdcOverride getMdc() {
+    return mdc;
+  }
+
+  /** @return - The exception logged with the event, or null if there was none. */
+  public Throwable getThrowable() {
+    return throwable;
+  }
+
+  /** Copies the values of another event into this one. */
+  void copy(CapturedEvent other) {
+    source = other.source;
+    type = other.type;
+    level = other.level;
+    logCode = other.logCode;
+    component = other.component;
+    threadName = other.threadName;
+    timestamp = other.timestamp;
+    startTime = other.startTime;
+    elapsedTime = other.elapsedTime;
+    arguments = other.arguments;
+    fields = other.fields;
+    mdc = other.mdc;
+    throwable = other.throwable;
+  }
+}
@@ -0,0 +1,499 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.async;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.binary.DirectStrings;
+import org.onap.aai.cl.mdc.MdcOverride;
+import org.slf4j.MDC;
+
+/**
+ * A bounded queue of captured logging calls, held in the fixed-size slots of a
+ * single direct buffer rather than as objects on the heap, so that buffering
+ * events under load does not add to the garbage the young generation has to
+ * collect.
+ * <p>
+ * Each slot starts with fixed fields: the time the call was made, any precise
+ * start and elapsed times, the line type and level, the number of arguments,
+ * and then a two byte offset for the value of each {@link DefinedFields}
+ * field, each MDC attribute listed by {@link CapturedEvent#mdcKeys()}, the
+ * component and the thread name. A variable-length area follows, holding the arguments and then the
+ * values the offsets point at, as length-prefixed UTF-8. An offset of zero
+ * means the value is not set. The source, log code and exception, which are
+ * objects the caller already holds, are kept by reference alongside the slot.
+ * An event whose strings do not fit in its slot is kept on the heap instead,
+ * and counted as spilled, so nothing is ever truncated.
+ * <p>
+ * Producers claim slots in order with a compare-and-set on the tail sequence,
+ * and publish a slot by advancing its own sequence, so any number of threads
+ * may offer events at once without locking. Events are decoded back into
+ * objects only when they are polled, which only a single consumer thread may
+ * do.
+ */
+public class OffHeapEventQueue {
+
+  /** The default number of events the queue holds. */
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  /** The default size of the slot each event is held in, in bytes. */
+  public static final int DEFAULT_SLOT_SIZE = 512;
+
+  /** The largest slot whose offsets fit in two bytes. */
+  static final int MAX_SLOT_SIZE = 65535;
+
+  private static final DefinedFields[] FIELDS = DefinedFields.values();
+  private static final LogLineType[] TYPES = LogLineType.values();
+  private static final Level[] LEVELS = Level.values();
+
+  /** Offsets of the fixed fields of a slot. */
+  private static final int TIMESTAMP_OFFSET = 0;
+  private static final int START_TIME_OFFSET = 8;
+  private static final int ELAPSED_TIME_OFFSET = 16;
+  private static final int TYPE_OFFSET = 24;
+  private static final int LEVEL_OFFSET = 25;
+  private static final int ARGUMENT_COUNT_OFFSET = 26;
+  private static final int FIELD_OFFSETS = 28;
+
+  /** Length written in place of a string's length when the string is null. */
+  private static final char NULL_STRING = 0xFFFF;
+
+  /** Argument count written when there is no argument array at all. */
+  private static final char NO_ARGUMENTS = 0xFFFF;
+
+  /** The references kept alongside each slot. */
+  private static final int LOG_CODE_REF = 0;
+  private static final int THROWABLE_REF = 1;
+  private static final int SPILLED_REF = 2;
+  private static final int SOURCE_REF = 3;
+  private static final int REF_COUNT = 4;
+
+  /** The MDC attributes captured with each event. */
+  private final String[] mdcKeys = CapturedEvent.mdcKeys();
+
+  private final int mdcOffsets = FIELD_OFFSETS + 2 * FIELDS.length;
+  private final int componentOffset = mdcOffsets + 2 * mdcKeys.length;
+  private final int threadOffset = componentOffset + 2;
+  private final int variableOffset = threadOffset + 2;
+
+  private final int capacity;
+  private final int slotSize;
+  private final int mask;
+  private final ByteBuffer slots;
+  private final Object[] refs;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private volatile long head;
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder spilled = new LongAdder();
+
+  /** Creates a queue of the default capacity and slot size. */
+  public OffHeapEventQueue() {
+    this(DEFAULT_CAPACITY, DEFAULT_SLOT_SIZE);
+  }
+
+  /**
+   * Checks that a queue can be created with a capacity and slot size. A slot
+   * must also be large enough for the fixed part of an event, which depends
+   * on the MDC attributes captured.
+   *
+   * @param capacity
+   *          - The number of events the queue holds.
+   * @param slotSize
+   *          - The number of bytes each event is held in.
+   *
+   * @return - The capacity, rounded up to a power of two of at least two.
+   *
+   * @throws IllegalArgumentException
+   *           - If either is out of range, or the slots would not fit in one
+   *           buffer.
+   */
+  public static int checkCapacity(int capacity, int slotSize) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    if (slotSize <= 0 || slotSize > MAX_SLOT_SIZE) {
+      throw new IllegalArgumentException("Slot size must be at most " + MAX_SLOT_SIZE + ": "
+          + slotSize);
+    }
+    // A slot's sequence tells a full slot from a free one only if the ring
+    // has at least two slots.
+    int rounded = Integer.highestOneBit(capacity);
+    rounded = Math.max(2, rounded == capacity ? capacity : rounded << 1);
+    if ((long) rounded * slotSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "Capacity " + capacity + " of " + slotSize + " byte slots is too large");
+    }
+    return rounded;
+  }
+
+  /**
+   * Creates a queue.
+   *
+   * @param capacity
+   *          - The number of events the queue holds, which is rounded up to a
+   *          power of two of at least two.
+   * @param slotSize
+   *          - The number of bytes each event is held in. Events which do not
+   *          fit are held on the heap instead.
+   */
+  public OffHeapEventQueue(int capacity, int slotSize) {
+    if (slotSize < variableOffset) {
+      throw new IllegalArgumentException("Slot size must be between " + variableOffset + " and "
+          + MAX_SLOT_SIZE + ": " + slotSize);
+    }
+    this.capacity = checkCapacity(capacity, slotSize);
+    this.slotSize = slotSize;
+    mask = this.capacity - 1;
+    slots = ByteBuffer.allocateDirect(this.capacity * slotSize);
+    refs = new Object[this.capacity * REF_COUNT];
+    sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Captures a logging call. The current MDC attributes are read, with any
+   * override applied, and copied into the event along with the strings of the
+   * call, so the caller may reuse its objects as soon as this method returns.
+   *
+   * @param source
+   *          - The object capturing the call, such as the logger it was made
+   *          through, which is kept by reference.
+   * @param type
+   *          - The type of line the call is for.
+   * @param level
+   *          - The level of the call.
+   * @param logCode
+   *          - The log code, or null for a plain message held as the single
+   *          argument.
+   * @param component
+   *          - The component making the call.
+   * @param fields
+   *          - The predefined field values, or null for none.
+   * @param override
+   *          - Overrides of the MDC attributes, or null for none.
+   * @param ex
+   *          - The exception logged with the call, or null for none.
+   * @param startTime
+   *          - A precise start time in milliseconds since the epoch, or -1.
+   * @param elapsedTime
+   *          - A precise elapsed time in milliseconds, or -1.
+   * @param arguments
+   *          - The arguments of the log code.
+   *
+   * @return - true if the event was queued, false if the queue was full.
+   */
+  public boolean offer(Object source, LogLineType type, Level level, Enum logCode,
+      String component, LogFields fields, MdcOverride override, Throwable ex, long startTime,
+      long elapsedTime, String... arguments) {
+    long timestamp = System.currentTimeMillis();
+    long position;
+    int slot;
+    while (true) {
+      position = tail.get();
+      slot = (int) (position & mask);
+      long available = sequences.get(slot) - position;
+      if (available == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          break;
+        }
+      } else if (available < 0) {
+        rejected.increment();
+        return false;
+      }
+    }
+
+    int refBase = slot * REF_COUNT;
+    refs[refBase + SOURCE_REF] = source;
+    refs[refBase + LOG_CODE_REF] = logCode;
+    refs[refBase + THROWABLE_REF] = ex;
+    if (!encode(slot * slotSize, type, level, component, fields, override, timestamp, startTime,
+        elapsedTime, arguments)) {
+      refs[refBase + SPILLED_REF] = capture(type, level, component, fields, override, timestamp,
+          startTime, elapsedTime, arguments);
+      spilled.increment();
+    }
+    sequences.set(slot, position + 1);
+    return true;
+  }
+
+  /**
+   * Writes the values of a call into a slot.
+   *
+   * @return - false if the strings of the call do not fit in the slot.
+   */
+  private boolean encode(int base, LogLineType type, Level level, String component,
+      LogFields fields, MdcOverride override, long timestamp, long startTime, long elapsedTime,
+      String[] arguments) {
+    int end = base + slotSize;
+    slots.putLong(base + TIMESTAMP_OFFSET, timestamp);
+    slots.putLong(base + START_TIME_OFFSET, startTime);
+    slots.putLong(base + ELAPSED_TIME_OFFSET, elapsedTime);
+    slots.put(base + TYPE_OFFSET, (byte) type.ordinal());
+    slots.put(base + LEVEL_OFFSET, (byte) level.ordinal());
+
+    int position = base + variableOffset;
+    if (arguments == null) {
+      slots.putChar(base + ARGUMENT_COUNT_OFFSET, NO_ARGUMENTS);
+    } else {
+      if (arguments.length >= NO_ARGUMENTS) {
+        return false;
+      }
+      slots.putChar(base + ARGUMENT_COUNT_OFFSET, (char) arguments.length);
+      for (String argument : arguments) {
+        position = putString(position, end, argument);
+        if (position < 0) {
+          return false;
+        }
+      }
+    }
+
+    for (int i = 0; i < FIELDS.length; i++) {
+      String value = fields == null ? null : fields.getField(FIELDS[i]);
+      position = putOptional(base, base + FIELD_OFFSETS + 2 * i, position, end, value);
+      if (position < 0) {
+        return false;
+      }
+    }
+    for (int i = 0; i < mdcKeys.length; i++) {
+      position = putOptional(base, base + mdcOffsets + 2 * i, position, end,
+          mdcValue(override, mdcKeys[i]));
+      if (position < 0) {
+        return false;
+      }
+    }
+    position = putOptional(base, base + componentOffset, position, end, component);
+    if (position < 0) {
+      return false;
+    }
+    position = putOptional(base, base + threadOffset, position, end,
+        Thread.currentThread().getName());
+    return position >= 0;
+  }
+
+  /**
+   * Writes a string which may be null at the next position of the variable
+   * area.
+   *
+   * @return - The position after the string, or -1 if it does not fit.
+   */
+  private int putString(int position, int end, String value) {
+    if (value != null) {
+      return DirectStrings.put(slots, position, end, value, false);
+    }
+    if (position + 2 > end) {
+      return -1;
+    }
+    slots.putChar(position, NULL_STRING);
+    return position + 2;
+  }
+
+  /**
+   * Writes an optional value at the next position of the variable area, and
+   * points its fixed offset at it; unset values take no space at all.
+   *
+   * @return - The position after the value, or -1 if it does not fit.
+   */
+  private int putOptional(int base, int offsetPosition, int position, int end, String value) {
+    if (value == null) {
+      slots.putChar(offsetPosition, (char) 0);
+      return position;
+    }
+    slots.putChar(offsetPosition, (char) (position - base));
+    return DirectStrings.put(slots, position, end, value, false);
+  }
+
+  /** Returns the value of an MDC attribute for a call, with its override applied. */
+  private static String mdcValue(MdcOverride override, String key) {
+    if (override != null && override.hasOverride(key)) {
+      return override.getAttributeValue(key);
+    }
+    return MDC.get(key);
+  }
+
+  /** Captures a call which does not fit in its slot as an object. */
+  private CapturedEvent capture(LogLineType type, Level level, String component,
+      LogFields fields, MdcOverride override, long timestamp, long startTime, long elapsedTime,
+      String[] arguments) {
+    CapturedEvent event = new CapturedEvent();
+    event.type = type;
+    event.level = level;
+    event.component = component;
+    event.threadName = Thread.currentThread().getName();
+    event.timestamp = timestamp;
+    event.startTime = startTime;
+    event.elapsedTime = elapsedTime;
+    event.arguments = arguments == null ? null : arguments.clone();
+    event.fields = new LogFields();
+    if (fields != null) {
+      for (DefinedFields field : FIELDS) {
+        String value = fields.getField(field);
+        if (value != null) {
+          event.fields.setField(field, value);
+        }
+      }
+    }
+    event.mdc = new MdcOverride();
+    for (String key : mdcKeys) {
+      String value = mdcValue(override, key);
+      event.mdc.addAttribute(key, value == null ? "" : value);
+    }
+    return event;
+  }
+
+  /**
+   * Removes the oldest event from the queue and decodes it. Only a single
+   * thread may poll a queue.
+   *
+   * @param event
+   *          - The event to decode into, whose previous values are replaced.
+   *
+   * @return - true if an event was removed, false if the queue was empty.
+   */
+  public boolean poll(CapturedEvent event) {
+    long position = head;
+    int slot = (int) (position & mask);
+    if (sequences.get(slot) != position + 1) {
+      return false;
+    }
+
+    int refBase = slot * REF_COUNT;
+    CapturedEvent spilledEvent = (CapturedEvent) refs[refBase + SPILLED_REF];
+    if (spilledEvent != null) {
+      event.copy(spilledEvent);
+    } else {
+      decode(slot * slotSize, event);
+    }
+    event.source = refs[refBase + SOURCE_REF];
+    event.logCode = (Enum) refs[refBase + LOG_CODE_REF];
+    event.throwable = (Throwable) refs[refBase + THROWABLE_REF];
+    refs[refBase + LOG_CODE_REF] = null;
+    refs[refBase + THROWABLE_REF] = null;
+    refs[refBase + SPILLED_REF] = null;
+    refs[refBase + SOURCE_REF] = null;
+
+    sequences.set(slot, position + capacity);
+    head = position + 1;
+    return true;
+  }
+
+  /** Reads the values of a slot back into an event. */
+  private void decode(int base, CapturedEvent event) {
+    event.timestamp = slots.getLong(base + TIMESTAMP_OFFSET);
+    event.startTime = slots.getLong(base + START_TIME_OFFSET);
+    event.elapsedTime = slots.getLong(base + ELAPSED_TIME_OFFSET);
+    event.type = TYPES[slots.get(base + TYPE_OFFSET)];
+    event.level = LEVELS[slots.get(base + LEVEL_OFFSET)];
+
+    char count = slots.getChar(base + ARGUMENT_COUNT_OFFSET);
+    if (count == NO_ARGUMENTS) {
+      event.arguments = null;
+    } else {
+      String[] arguments = new String[count];
+      int position = base + variableOffset;
+      for (int i = 0; i < count; i++) {
+        char length = slots.getChar(position);
+        if (length == NULL_STRING) {
+          position += 2;
+        } else {
+          arguments[i] = DirectStrings.get(slots, position);
+          position += 2 + length;
+        }
+      }
+      event.arguments = arguments;
+    }
+
+    event.fields = new LogFields();
+    for (int i = 0; i < FIELDS.length; i++) {
+      String value = getOptional(base, base + FIELD_OFFSETS + 2 * i);
+      if (value != null) {
+        event.fields.setField(FIELDS[i], value);
+      }
+    }
+    event.mdc = new MdcOverride();
+    for (int i = 0; i < mdcKeys.length; i++) {
+      String value = getOptional(base, base + mdcOffsets + 2 * i);
+      event.mdc.addAttribute(mdcKeys[i], value == null ? "" : value);
+    }
+    event.component = getOptional(base, base + componentOffset);
+    event.threadName = getOptional(base, base + threadOffset);
+  }
+
+  private String getOptional(int base, int offsetPosition) {
+    char offset = slots.getChar(offsetPosition);
+    return offset == 0 ? null : DirectStrings.get(slots, base + offset);
+  }
+
+  /**
+   * Returns the time the oldest event in the queue was logged, without
+   * removing it. Only the thread which polls the queue may call this method.
+   *
+   * @return - The timestamp of the oldest event, or -1 if the queue is empty.
+   */
+  long peekTimestamp() {
+    long position = head;
+    int slot = (int) (position & mask);
+    if (sequences.get(slot) != position + 1) {
+      return -1;
+    }
+    CapturedEvent spilledEvent = (CapturedEvent) refs[slot * REF_COUNT + SPILLED_REF];
+    if (spilledEvent != null) {
+      return spilledEvent.timestamp;
+    }
+    return slots.getLong(slot * slotSize + TIMESTAMP_OFFSET);
+  }
+
+  /** @return - true if there is no event to poll. */
+  public boolean isEmpty() {
+    long position = head;
+    return sequences.get((int) (position & mask)) != position + 1;
+  }
+
+  /** @return - The approximate number of events in the queue. */
+  public int size() {
+    return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+  }
+
+  /** @return - The number of events the queue holds. */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** @return - The number of events which were not queued because the queue was full. */
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /** @return - The number of events which did not fit in a slot and were held on the heap. */
+  public long getSpilledCount() {
+    return spilled.sum();
+  }
+}
@@ -0,0 +1,223 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.async;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.util.function.Consumer;
+
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+import org.slf4j.MDC;
+
+/**
+ * Spreads captured logging calls over several {@link OffHeapEventQueue}
+ * stripes, so that producers on different cores rarely contend for the same
+ * queue, and merges the stripes back into a single stream in timestamp order
+ * on the consumer side.
+ * <p>
+ * How a producer picks its stripe decides what order events are guaranteed
+ * to come out in:
+ * <ul>
+ * <li>{@link Ordering#PER_REQUEST} - events which carry an MDC request id go
+ * to the stripe chosen by the id, so every event of a request is queued, and
+ * comes out, in exactly the order it was logged, whichever threads logged it.
+ * Events without a request id are striped by thread.</li>
+ * <li>{@link Ordering#BEST_EFFORT} - events are striped by thread, so the
+ * events of each thread keep their order, and the events of different threads
+ * are ordered by their millisecond timestamps only as far as the merge sees
+ * them; an event which reaches its stripe late may come out after a later
+ * event of another stripe.</li>
+ * </ul>
+ * The merge repeatedly takes the oldest head of all the stripes, so output is
+ * in timestamp order whenever the stripes are drained faster than they fill.
+ * Only a single consumer thread may drain the buffer.
+ */
+public class StripedEventBuffer {
+
+  /** The order events are guaranteed to be drained in. */
+  public enum Ordering {
+    /** Every event of a request is drained in the order it was logged. */
+    PER_REQUEST,
+    /** Events are merged by timestamp, without a strict guarantee. */
+    BEST_EFFORT
+  }
+
+  private final OffHeapEventQueue[] stripes;
+  private final int mask;
+  private final Ordering ordering;
+
+  /**
+   * Creates a buffer with a stripe for each available processor.
+   *
+   * @param capacityPerStripe
+   *          - The number of events each stripe holds.
+   * @param slotSize
+   *          - The number of bytes each event is held in.
+   * @param ordering
+   *          - The order events are guaranteed to be drained in.
+   */
+  public StripedEventBuffer(int capacityPerStripe, int slotSize, Ordering ordering) {
+    this(Runtime.getRuntime().availableProcessors(), capacityPerStripe, slotSize, ordering);
+  }
+
+  /**
+   * Creates a buffer.
+   *
+   * @param stripeCount
+   *          - The number of stripes, which is rounded up to a power of two.
+   * @param capacityPerStripe
+   *          - The number of events each stripe holds.
+   * @param slotSize
+   *          - The number of bytes each event is held in.
+   * @param ordering
+   *          - The order events are guaranteed to be drained in.
+   */
+  public StripedEventBuffer(int stripeCount, int capacityPerStripe, int slotSize,
+      Ordering ordering) {
+    if (stripeCount <= 0 || stripeCount > 1024) {
+      throw new IllegalArgumentException("Invalid stripe count: " + stripeCount);
+    }
+    int rounded = Integer.highestOneBit(stripeCount);
+    stripes = new OffHeapEventQueue[rounded == stripeCount ? stripeCount : rounded << 1];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new OffHeapEventQueue(capacityPerStripe, slotSize);
+    }
+    mask = stripes.length - 1;
+    this.ordering = ordering;
+  }
+
+  /**
+   * Captures a logging call into the stripe chosen for it by the buffer's
+   * {@link Ordering}. The parameters are those of
+   * {@link OffHeapEventQueue#offer}.
+   *
+   * @return - true if the event was queued, false if its stripe was full.
+   */
+  public boolean offer(Object source, LogLineType type, Level level, Enum logCode,
+      String component, LogFields fields, MdcOverride override, Throwable ex, long startTime,
+      long elapsedTime, String... arguments) {
+    return stripes[stripeFor(override)].offer(source, type, level, logCode, component, fields,
+        override, ex, startTime, elapsedTime, arguments);
+  }
+
+  /** Picks the stripe for a call made on the current thread. */
+  private int stripeFor(MdcOverride override) {
+    if (ordering == Ordering.PER_REQUEST) {
+      String requestId = override != null && override.hasOverride(MdcContext.MDC_REQUEST_ID)
+          ? override.getAttributeValue(MdcContext.MDC_REQUEST_ID)
+          : MDC.get(MdcContext.MDC_REQUEST_ID);
+      if (requestId != null && !requestId.isEmpty()) {
+        return spread(requestId.hashCode()) & mask;
+      }
+    }
+    return spread((int) Thread.currentThread().getId()) & mask;
+  }
+
+  /** Mixes the bits of a hash so that neighbouring values land on different stripes. */
+  private static int spread(int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Removes events from the stripes, oldest first, and hands each to a
+   * consumer. The event passed to the consumer is reused for the next event,
+   * so the consumer must not keep it. Only a single thread may drain a buffer.
+   *
+   * @param consumer
+   *          - Receives each event.
+   * @param maxEvents
+   *          - The most events to remove.
+   *
+   * @return - The number of events removed.
+   */
+  public int drain(Consumer<CapturedEvent> consumer, int maxEvents) {
+    CapturedEvent event = new CapturedEvent();
+    int drained = 0;
+    while (drained < maxEvents) {
+      int oldest = -1;
+      long oldestTimestamp = Long.MAX_VALUE;
+      for (int i = 0; i < stripes.length; i++) {
+        long timestamp = stripes[i].peekTimestamp();
+        if (timestamp >= 0 && timestamp < oldestTimestamp) {
+          oldest = i;
+          oldestTimestamp = timestamp;
+        }
+      }
+      if (oldest < 0 || !stripes[oldest].poll(event)) {
+        break;
+      }
+      consumer.accept(event);
+      drained++;
+    }
+    return drained;
+  }
+
+  /** @return - true if no stripe has an event to drain. */
+  public boolean isEmpty() {
+    for (OffHeapEventQueue stripe : stripes) {
+      if (!stripe.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return - The approximate number of events in the buffer. */
+  public int size() {
+    int size = 0;
+    for (OffHeapEventQueue stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  /** @return - The number of stripes. */
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  /** @return - The order events are guaranteed to be drained in. */
+  public Ordering getOrdering() {
+    return ordering;
+  }
+
+  /** @return - The number of events which were not queued because their stripe was full. */
+  public long getRejectedCount() {
+    long rejected = 0;
+    for (OffHeapEventQueue stripe : stripes) {
+      rejected += stripe.getRejectedCount();
+    }
+    return rejected;
+  }
+
+  /** @return - The number of events which did not fit in a slot and were held on the heap. */
+  public long getSpilledCount() {
+    long spilled = 0;
+    for (OffHeapEventQueue stripe : stripes) {
+      spilled += stripe.getSpilledCount();
+    }
+    return spilled;
+  }
+}
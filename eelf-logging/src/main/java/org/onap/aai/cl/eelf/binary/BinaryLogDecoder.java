@@ -0,0 +1,282 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * Reads a binary log written by {@link BinaryLogEncoder}, one record at a
+ * time, regenerating the exact text of each line.
+ * <p>
+ * This class can also be run from the command line to convert binary logs
+ * back to text:
+ *
+ * <pre>
+ * java org.onap.aai.cl.eelf.binary.BinaryLogDecoder [file...]
+ * </pre>
+ *
+ * The decoded lines of each file, or of standard input if no files are given,
+ * are written to standard output.
+ */
+public class BinaryLogDecoder implements Closeable {
+
+  private final InputStream in;
+  private String[] entries;
+  private int nextEntry;
+  private final Timestamps timestamps = new Timestamps();
+  private final long[] lastTimestamps = new long[LogColumns.MAX_COLUMN_COUNT];
+
+  private LogLineType type;
+  private String[] values;
+
+  /**
+   * Creates a decoder, reading and checking the header of the log.
+   *
+   * @param in
+   *          - The stream to read the log from. It is buffered by the decoder.
+   *
+   * @throws IOException
+   *           - If the stream is not a binary log of a supported version.
+   */
+  public BinaryLogDecoder(InputStream in) throws IOException {
+    this.in = new BufferedInputStream(in, 65536);
+    byte[] header = new byte[BinaryLogEncoder.MAGIC.length + 1];
+    int read = 0;
+    while (read < header.length) {
+      int n = this.in.read(header, read, header.length - read);
+      if (n < 0) {
+        throw new IOException("Not a binary log: too short");
+      }
+      read += n;
+    }
+    for (int i = 0; i < BinaryLogEncoder.MAGIC.length; i++) {
+      if (header[i] != BinaryLogEncoder.MAGIC[i]) {
+        throw new IOException("Not a binary log: bad header");
+      }
+    }
+    if (header[BinaryLogEncoder.MAGIC.length] != BinaryLogEncoder.VERSION) {
+      throw new IOException("Unsupported binary log version " + header[BinaryLogEncoder.MAGIC.length]);
+    }
+  }
+
+  /**
+   * Advances to the next line of the log. A record which was only partially
+   * written, such as the last record of a log whose writer crashed, is
+   * treated as the end of the log.
+   *
+   * @return - true if a line was read, false at the end of the log.
+   *
+   * @throws IOException
+   *           - If the log cannot be read or is corrupt.
+   */
+  public boolean next() throws IOException {
+    while (true) {
+      byte[] body;
+      try {
+        body = new byte[(int) Varints.readUnsigned(in)];
+        int read = 0;
+        while (read < body.length) {
+          int n = in.read(body, read, body.length - read);
+          if (n < 0) {
+            throw new EOFException();
+          }
+          read += n;
+        }
+      } catch (EOFException e) {
+        type = null;
+        values = null;
+        return false;
+      }
+
+      ByteArrayInputStream record = new ByteArrayInputStream(body);
+      int recordType = record.read();
+      switch (recordType) {
+        case BinaryLogEncoder.RECORD_RESET:
+          long size = Varints.readUnsigned(record);
+          if (size <= 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("Invalid dictionary size " + size);
+          }
+          entries = new String[(int) size];
+          nextEntry = 0;
+          Arrays.fill(lastTimestamps, 0);
+          break;
+        case BinaryLogEncoder.RECORD_AUDIT:
+          checkReset();
+          decode(LogLineType.AUDIT, record);
+          return true;
+        case BinaryLogEncoder.RECORD_METRICS:
+          checkReset();
+          decode(LogLineType.METRICS, record);
+          return true;
+        default:
+          throw new IOException("Unsupported record type " + recordType);
+      }
+    }
+  }
+
+  /**
+   * Returns the type of the current line.
+   *
+   * @return - AUDIT or METRICS.
+   */
+  public LogLineType getType() {
+    return type;
+  }
+
+  /**
+   * Returns the column values of the current line.
+   *
+   * @return - The values, in {@link LogColumns} order.
+   */
+  public String[] getColumnValues() {
+    return values;
+  }
+
+  /**
+   * Returns the text of the current line, exactly as it was originally
+   * formatted.
+   *
+   * @return - The pipe-delimited line.
+   */
+  public String getLine() {
+    return LogColumns.join(values);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private void checkReset() throws IOException {
+    if (entries == null) {
+      throw new IOException("Binary log does not start with a reset record");
+    }
+  }
+
+  private void decode(LogLineType lineType, InputStream record) throws IOException {
+    LogColumn[] columns = LogColumns.of(lineType);
+    String[] decoded = new String[columns.length];
+    for (LogColumn column : columns) {
+      String value;
+      switch (column.getKind()) {
+        case TIMESTAMP:
+          value = readTimestamp(column.ordinal(), record);
+          break;
+        case NUMBER:
+          long number = Varints.readUnsigned(record);
+          value = number == 0 ? Varints.readString(record) : Long.toString(number - 1);
+          break;
+        default:
+          value = readString(record);
+          break;
+      }
+      decoded[column.ordinal()] = value;
+    }
+    type = lineType;
+    values = decoded;
+  }
+
+  private String readTimestamp(int column, InputStream record) throws IOException {
+    int tag = record.read();
+    int offsetMinutes;
+    switch (tag) {
+      case BinaryLogEncoder.TIMESTAMP_LITERAL:
+        return Varints.readString(record);
+      case BinaryLogEncoder.TIMESTAMP_UTC:
+        offsetMinutes = 0;
+        break;
+      case BinaryLogEncoder.TIMESTAMP_OFFSET:
+        offsetMinutes = (int) Varints.readSigned(record);
+        break;
+      default:
+        throw new IOException("Unsupported timestamp tag " + tag);
+    }
+    lastTimestamps[column] += Varints.readSigned(record);
+    return timestamps.format(lastTimestamps[column], offsetMinutes);
+  }
+
+  private String readString(InputStream record) throws IOException {
+    long ref = Varints.readUnsigned(record);
+    if (ref == BinaryLogEncoder.STRING_LITERAL) {
+      return Varints.readString(record);
+    }
+    if (ref == BinaryLogEncoder.STRING_NEW_ENTRY) {
+      String value = Varints.readString(record);
+      entries[nextEntry] = value;
+      nextEntry = (nextEntry + 1) % entries.length;
+      return value;
+    }
+    long slot = ref - 2;
+    if (slot >= entries.length || entries[(int) slot] == null) {
+      throw new IOException("Reference to unknown dictionary entry " + slot);
+    }
+    return entries[(int) slot];
+  }
+
+  /**
+   * Converts binary logs back to text.
+   *
+   * @param args
+   *          - The binary log files to convert, in order. Standard input is
+   *          converted if there are none.
+   */
+  public static void main(String[] args) throws IOException {
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    try {
+      if (args.length == 0) {
+        decodeTo(System.in, out);
+      }
+      for (String file : args) {
+        InputStream in = new FileInputStream(file);
+        try {
+          decodeTo(in, out);
+        } finally {
+          in.close();
+        }
+      }
+    } finally {
+      out.flush();
+    }
+  }
+
+  private static void decodeTo(InputStream in, Writer out) throws IOException {
+    BinaryLogDecoder decoder = new BinaryLogDecoder(in);
+    while (decoder.next()) {
+      out.write(decoder.getLine());
+      out.write('\n');
+    }
+  }
+}
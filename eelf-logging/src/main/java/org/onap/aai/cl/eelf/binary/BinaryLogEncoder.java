@@ -0,0 +1,284 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * Encodes audit and metrics log lines into a compact binary form, from which
+ * {@link BinaryLogDecoder} regenerates the exact pipe-delimited text.
+ * <p>
+ * A binary log starts with the bytes <i>AAIB</i> and a version byte, followed
+ * by records, the first of which is always a reset record. Each record is a
+ * varint length followed by that many bytes: a record type, then one value per
+ * column of the line type in {@link LogColumns} order, encoded according to
+ * the column's {@link LogColumn.Kind}:
+ * <ul>
+ * <li>TIMESTAMP - a tag byte, then the difference in milliseconds from the
+ * same column of the previous line as a signed varint, preceded by the zone
+ * offset in minutes if it is not UTC. Text which does not round trip exactly
+ * is written as a literal string instead.</li>
+ * <li>NUMBER - a varint of the value plus one, or zero followed by a literal
+ * string if the text is not a plain non-negative number.</li>
+ * <li>REPEATED and TEXT - a reference into the log's string dictionary, or a
+ * literal string which is also added to the dictionary unless it is very
+ * long.</li>
+ * </ul>
+ * Literal strings are a varint byte count followed by UTF-8 bytes. The
+ * dictionary is a fixed-size ring whose size is stored in the reset record
+ * that follows the header: each new entry takes the next slot, replacing the
+ * oldest entry once the ring is full. Values which are still in use simply
+ * re-enter the ring the next time they are written, so the ring stays small
+ * without the encoder having to track how often each value is used.
+ * <p>
+ * The dictionary is built as the log is written and is never stored
+ * separately, so a log must be decoded from the start. An encoder which starts
+ * appending to an existing log writes a new reset record, which clears the
+ * dictionary and timestamp state. So does an encoder which failed to write a
+ * line, before its next line, as the line may have changed its dictionary.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class BinaryLogEncoder {
+
+  /** The bytes every binary log starts with. */
+  static final byte[] MAGIC = {'A', 'A', 'I', 'B'};
+
+  /** The version of the format written by this encoder. */
+  static final int VERSION = 1;
+
+  /** Record type which clears the dictionary and timestamp state, and sets the dictionary size. */
+  static final int RECORD_RESET = 0;
+  static final int RECORD_AUDIT = 1;
+  static final int RECORD_METRICS = 2;
+
+  /** Tags which precede the value of a timestamp column. */
+  static final int TIMESTAMP_LITERAL = 0;
+  static final int TIMESTAMP_UTC = 1;
+  static final int TIMESTAMP_OFFSET = 2;
+
+  /** Values which precede a string which is not a dictionary reference. */
+  static final int STRING_LITERAL = 0;
+  static final int STRING_NEW_ENTRY = 1;
+
+  /** The default number of entries in a log's string dictionary. */
+  public static final int DEFAULT_DICTIONARY_SIZE = 16384;
+
+  /** Strings longer than this are never added to the dictionary. */
+  static final int MAX_DICTIONARY_STRING_LENGTH = 256;
+
+  private final OutputStream out;
+  private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+  private final String[] entries;
+  private int nextEntry;
+  private final Timestamps timestamps = new Timestamps();
+  private final long[] lastTimestamps = new long[LogColumns.MAX_COLUMN_COUNT];
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream(512);
+  private final ByteArrayOutputStream length = new ByteArrayOutputStream(10);
+  private boolean resetNeeded = true;
+
+  /**
+   * Creates an encoder with the default dictionary size.
+   *
+   * @param out
+   *          - The stream to write the log to.
+   * @param append
+   *          - true if the stream is positioned at the end of an existing
+   *          binary log, false if it is positioned at the start of a new one.
+   */
+  public BinaryLogEncoder(OutputStream out, boolean append) throws IOException {
+    this(out, append, DEFAULT_DICTIONARY_SIZE);
+  }
+
+  /**
+   * Creates an encoder.
+   *
+   * @param out
+   *          - The stream to write the log to.
+   * @param append
+   *          - true if the stream is positioned at the end of an existing
+   *          binary log, false if it is positioned at the start of a new one.
+   * @param dictionarySize
+   *          - The number of entries in the string dictionary. Once it is full,
+   *          each new entry replaces the oldest.
+   */
+  public BinaryLogEncoder(OutputStream out, boolean append, int dictionarySize)
+      throws IOException {
+    if (dictionarySize <= 0) {
+      throw new IllegalArgumentException("Dictionary size must be positive: " + dictionarySize);
+    }
+    this.out = out;
+    entries = new String[dictionarySize];
+    if (!append) {
+      out.write(MAGIC);
+      out.write(VERSION);
+    }
+    reset();
+  }
+
+  /** Clears the dictionary and timestamp state, and writes a reset record to say so. */
+  private void reset() throws IOException {
+    dictionary.clear();
+    Arrays.fill(entries, null);
+    nextEntry = 0;
+    Arrays.fill(lastTimestamps, 0);
+    record.write(RECORD_RESET);
+    Varints.writeUnsigned(record, entries.length);
+    writeRecord();
+    resetNeeded = false;
+  }
+
+  /**
+   * Encodes a single line.
+   *
+   * @param type
+   *          - The type of the line, either AUDIT or METRICS.
+   * @param values
+   *          - The values of the line's columns, in {@link LogColumns} order.
+   */
+  public void encode(LogLineType type, String[] values) throws IOException {
+    LogColumn[] columns = LogColumns.of(type);
+    if (columns == null) {
+      throw new IllegalArgumentException("Unsupported log line type: " + type);
+    }
+    if (values.length != columns.length) {
+      throw new IllegalArgumentException(
+          "Expected " + columns.length + " columns but got " + values.length);
+    }
+
+    if (resetNeeded) {
+      reset();
+    }
+    resetNeeded = true;
+    record.write(type == LogLineType.AUDIT ? RECORD_AUDIT : RECORD_METRICS);
+    for (LogColumn column : columns) {
+      String value = String.valueOf(values[column.ordinal()]);
+      switch (column.getKind()) {
+        case TIMESTAMP:
+          writeTimestamp(column.ordinal(), value);
+          break;
+        case NUMBER:
+          writeNumber(value);
+          break;
+        default:
+          writeString(value);
+          break;
+      }
+    }
+    writeRecord();
+    resetNeeded = false;
+  }
+
+  private void writeTimestamp(int column, String value) {
+    if (!timestamps.parse(value)) {
+      record.write(TIMESTAMP_LITERAL);
+      Varints.writeString(record, value);
+      return;
+    }
+    if (timestamps.getOffsetMinutes() == 0) {
+      record.write(TIMESTAMP_UTC);
+    } else {
+      record.write(TIMESTAMP_OFFSET);
+      Varints.writeSigned(record, timestamps.getOffsetMinutes());
+    }
+    Varints.writeSigned(record, timestamps.getMillis() - lastTimestamps[column]);
+    lastTimestamps[column] = timestamps.getMillis();
+  }
+
+  private void writeNumber(String value) {
+    long number = parseNumber(value);
+    if (number < 0) {
+      Varints.writeUnsigned(record, 0);
+      Varints.writeString(record, value);
+    } else {
+      Varints.writeUnsigned(record, number + 1);
+    }
+  }
+
+  private void writeString(String value) {
+    Integer id = dictionary.get(value);
+    if (id != null) {
+      Varints.writeUnsigned(record, id + 2L);
+    } else if (value.length() <= MAX_DICTIONARY_STRING_LENGTH) {
+      addEntry(value);
+      Varints.writeUnsigned(record, STRING_NEW_ENTRY);
+      Varints.writeString(record, value);
+    } else {
+      Varints.writeUnsigned(record, STRING_LITERAL);
+      Varints.writeString(record, value);
+    }
+  }
+
+  /** Adds a value to the next slot of the dictionary ring, replacing its previous entry. */
+  private void addEntry(String value) {
+    int slot = nextEntry;
+    nextEntry = (nextEntry + 1) % entries.length;
+    if (entries[slot] != null) {
+      dictionary.remove(entries[slot]);
+    }
+    entries[slot] = value;
+    dictionary.put(value, slot);
+  }
+
+  private void writeRecord() throws IOException {
+    try {
+      Varints.writeUnsigned(length, record.size());
+      length.writeTo(out);
+      record.writeTo(out);
+    } finally {
+      // A record which could not be written is abandoned, rather than left
+      // to prefix the next one.
+      length.reset();
+      record.reset();
+    }
+  }
+
+  /**
+   * Parses the text of a number column, if it is written exactly as
+   * {@link Long#toString(long)} would write a non-negative value.
+   *
+   * @return - The value, or -1 if the text is not such a number.
+   */
+  static long parseNumber(String value) {
+    int length = value.length();
+    if (length == 0 || length > 18 || (length > 1 && value.charAt(0) == '0')) {
+      return -1;
+    }
+    long number = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      number = number * 10 + (c - '0');
+    }
+    return number;
+  }
+}
@@ -0,0 +1,354 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AuditLogLine;
+import org.onap.aai.cl.eelf.MetricsLogLine;
+import org.onap.aai.cl.eelf.sink.FanOutSink;
+import org.onap.aai.cl.eelf.sink.LogSink;
+
+/**
+ * A {@link LogSink} which appends audit and metrics lines to a file in the
+ * compact format written by {@link BinaryLogEncoder}. Lines of other types are
+ * ignored.
+ * <p>
+ * The sink encodes the column values of each line directly, so it does not
+ * need the line to be formatted as text. The logging thread only queues the
+ * values; a writer thread encodes them and writes them to the file, flushing
+ * whenever it has emptied the queue. As with {@link FanOutSink}, lines which
+ * arrive while the queue is full are dropped and counted rather than stalling
+ * the logging thread.
+ * <p>
+ * A sink which opens an existing log first truncates it after its last
+ * complete record, so that a record torn by a crash does not swallow the lines
+ * which are appended after it.
+ */
+public class BinaryLogSink implements LogSink {
+
+  /** Default number of lines which may be queued for the writer thread. */
+  public static final int DEFAULT_QUEUE_CAPACITY = FanOutSink.DEFAULT_QUEUE_CAPACITY;
+
+  /** Size of the buffer encoded lines are collected in before being written. */
+  private static final int BUFFER_SIZE = 65536;
+
+  /** Maximum number of lines the writer thread will encode before flushing. */
+  private static final int MAX_BATCH_SIZE = 256;
+
+  /** How long {@link #close()} waits for the queue to drain. */
+  private static final long CLOSE_TIMEOUT_MS = 5000;
+
+  /** Sentinel used to tell the writer thread to drain its queue and exit. */
+  private static final Line END_OF_STREAM = new Line(null, null);
+
+  private final OutputStream out;
+  private final BinaryLogEncoder encoder;
+  private final BlockingQueue<Line> queue;
+  private final Thread writer;
+  private final AtomicLong droppedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private volatile boolean closing;
+  private volatile boolean finished;
+
+  /**
+   * Creates a sink which appends to a binary log file, creating it if it does
+   * not exist, using the default queue capacity.
+   *
+   * @param file
+   *          - The binary log file.
+   *
+   * @throws IOException
+   *           - If the file cannot be opened, or is not a binary log.
+   */
+  public BinaryLogSink(Path file) throws IOException {
+    this(file, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Creates a sink which appends to a binary log file, creating it if it does
+   * not exist.
+   *
+   * @param file
+   *          - The binary log file.
+   * @param queueCapacity
+   *          - The maximum number of lines which may be queued for the writer
+   *          thread before lines start being dropped.
+   *
+   * @throws IOException
+   *           - If the file cannot be opened, or is not a binary log.
+   */
+  public BinaryLogSink(Path file, int queueCapacity) throws IOException {
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+    }
+    boolean append = false;
+    if (Files.exists(file)) {
+      long complete = completeLength(file);
+      if (complete < Files.size(file)) {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        try {
+          channel.truncate(complete);
+        } finally {
+          channel.close();
+        }
+      }
+      append = complete > 0;
+    }
+    out = new BufferedOutputStream(new FileOutputStream(file.toFile(), true), BUFFER_SIZE);
+    encoder = new BinaryLogEncoder(out, append);
+    queue = new ArrayBlockingQueue<Line>(queueCapacity);
+    writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeLines();
+      }
+    }, "BinaryLogSink-" + file.getFileName());
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Finds the end of the last complete record of a binary log.
+   *
+   * @param file
+   *          - The binary log file.
+   *
+   * @return - The length of the log up to and including its last complete
+   *         record, or 0 if not even its header is complete.
+   *
+   * @throws IOException
+   *           - If the file cannot be read, or is not a binary log.
+   */
+  static long completeLength(Path file) throws IOException {
+    InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+    try {
+      byte[] header = new byte[BinaryLogEncoder.MAGIC.length + 1];
+      for (int i = 0; i < header.length; i++) {
+        int b = in.read();
+        if (b < 0) {
+          return 0;
+        }
+        header[i] = (byte) b;
+      }
+      for (int i = 0; i < BinaryLogEncoder.MAGIC.length; i++) {
+        if (header[i] != BinaryLogEncoder.MAGIC[i]) {
+          throw new IOException("Not a binary log: " + file);
+        }
+      }
+
+      long complete = header.length;
+      while (true) {
+        // The length prefix of the record, read a byte at a time so that its
+        // size is known.
+        long length = 0;
+        int prefix = 0;
+        int b;
+        do {
+          b = in.read();
+          if (b < 0 || prefix == 10) {
+            return complete;
+          }
+          length |= (long) (b & 0x7F) << (7 * prefix++);
+        } while ((b & 0x80) != 0);
+
+        for (long remaining = length; remaining > 0; ) {
+          long skipped = in.skip(remaining);
+          if (skipped <= 0) {
+            if (in.read() < 0) {
+              return complete;
+            }
+            skipped = 1;
+          }
+          remaining -= skipped;
+        }
+        complete += prefix + length;
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  @Override
+  public void write(LogLineType type, LogLine logLine, String formattedLine) {
+    String[] values;
+    if (logLine instanceof AuditLogLine) {
+      values = ((AuditLogLine) logLine).getColumnValues();
+    } else if (logLine instanceof MetricsLogLine) {
+      values = ((MetricsLogLine) logLine).getColumnValues();
+    } else {
+      return;
+    }
+
+    Line line = new Line(type, values);
+    if (closing || !queue.offer(line)) {
+      droppedCount.incrementAndGet();
+    } else if (finished && queue.remove(line)) {
+      // We raced with close and our line landed after the writer had already
+      // taken its last look at the queue.
+      droppedCount.incrementAndGet();
+    }
+  }
+
+  @Override
+  public boolean needsFormattedLine() {
+    return false;
+  }
+
+  /**
+   * Returns the number of lines which were dropped because the queue was
+   * full, or because they arrived after the sink was closed.
+   *
+   * @return - The dropped line count.
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Returns the number of lines which could not be written.
+   *
+   * @return - The number of write failures.
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /**
+   * Writes the lines already queued, then closes the file. Waits up to
+   * {@link #CLOSE_TIMEOUT_MS} for the queue to drain.
+   */
+  @Override
+  public void close() {
+    if (closing) {
+      return;
+    }
+    closing = true;
+    try {
+      // Give the writer a chance to make room for the end of the stream; if
+      // it cannot, the lines still queued are discarded instead.
+      if (!queue.offer(END_OF_STREAM, CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        while (!queue.offer(END_OF_STREAM)) {
+          droppedCount.addAndGet(discard());
+        }
+      }
+      writer.join(CLOSE_TIMEOUT_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Body of the writer thread: encodes queued lines until the end of the stream. */
+  private void writeLines() {
+    List<Line> batch = new ArrayList<Line>(MAX_BATCH_SIZE);
+    boolean done = false;
+    try {
+      while (!done) {
+        batch.add(queue.take());
+        queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+        for (Line line : batch) {
+          if (line == END_OF_STREAM) {
+            done = true;
+          } else {
+            encode(line);
+          }
+        }
+        batch.clear();
+        if (queue.isEmpty()) {
+          flush();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      // Lines offered while we were closing are never written.
+      finished = true;
+      droppedCount.addAndGet(discard());
+      try {
+        out.close();
+      } catch (IOException e) {
+        failedCount.incrementAndGet();
+      }
+    }
+  }
+
+  private void encode(Line line) {
+    try {
+      encoder.encode(line.type, line.values);
+    } catch (IOException | RuntimeException e) {
+      failedCount.incrementAndGet();
+    }
+  }
+
+  private void flush() {
+    try {
+      out.flush();
+    } catch (IOException e) {
+      failedCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Empties the queue.
+   *
+   * @return - The number of lines which were discarded.
+   */
+  private int discard() {
+    List<Line> discarded = new ArrayList<Line>();
+    queue.drainTo(discarded);
+    int count = 0;
+    for (Line line : discarded) {
+      if (line != END_OF_STREAM) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** The column values of a line waiting to be encoded. */
+  private static class Line {
+
+    private final LogLineType type;
+    private final String[] values;
+
+    Line(LogLineType type, String[] values) {
+      this.type = type;
+      this.values = values;
+    }
+  }
+}
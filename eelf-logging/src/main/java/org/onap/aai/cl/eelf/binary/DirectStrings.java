@@ -0,0 +1,157 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.binary;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes strings at absolute positions of a {@link ByteBuffer}, as a
+ * two byte unsigned length followed by that many bytes of UTF-8. Strings are
+ * encoded a character at a time straight into the buffer, so writing one
+ * neither allocates nor moves the buffer's position, and several threads may
+ * write to separate regions of the same buffer at once.
+ */
+public final class DirectStrings {
+
+  /**
+   * The largest number of bytes a string may be encoded in. Larger lengths are
+   * never written, so callers may use them as markers.
+   */
+  public static final int MAX_LENGTH = 0xFFF0;
+
+  private DirectStrings() {
+  }
+
+  /**
+   * Writes a string.
+   *
+   * @param buffer
+   *          - The buffer to write to.
+   * @param position
+   *          - The offset to write the length at; the encoded string follows
+   *          it.
+   * @param limit
+   *          - The offset the encoded string must end at or before.
+   * @param value
+   *          - The string to write; null is written as an empty string.
+   * @param truncate
+   *          - true to write as much of the string as fits, never splitting a
+   *          character; false to write nothing if it does not all fit.
+   *
+   * @return - The offset just past the string, or -1 if it did not fit and
+   *         truncate was false.
+   */
+  public static int put(ByteBuffer buffer, int position, int limit, String value,
+      boolean truncate) {
+    int start = position + 2;
+    limit = Math.min(limit, start + MAX_LENGTH);
+    if (start > limit) {
+      return -1;
+    }
+    int p = start;
+    int length = value == null ? 0 : value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      int needed;
+      if (c < 0x80) {
+        needed = 1;
+      } else if (c < 0x800) {
+        needed = 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        needed = 4;
+      } else if (Character.isSurrogate(c)) {
+        // An unpaired surrogate is replaced, as String.getBytes would.
+        needed = 1;
+        c = '?';
+      } else {
+        needed = 3;
+      }
+      if (p + needed > limit) {
+        if (!truncate) {
+          return -1;
+        }
+        break;
+      }
+      switch (needed) {
+        case 1:
+          buffer.put(p++, (byte) c);
+          break;
+        case 2:
+          buffer.put(p++, (byte) (0xc0 | (c >> 6)));
+          buffer.put(p++, (byte) (0x80 | (c & 0x3f)));
+          break;
+        case 3:
+          buffer.put(p++, (byte) (0xe0 | (c >> 12)));
+          buffer.put(p++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+          buffer.put(p++, (byte) (0x80 | (c & 0x3f)));
+          break;
+        default:
+          int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          buffer.put(p++, (byte) (0xf0 | (codePoint >> 18)));
+          buffer.put(p++, (byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+          buffer.put(p++, (byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+          buffer.put(p++, (byte) (0x80 | (codePoint & 0x3f)));
+          break;
+      }
+    }
+    buffer.putChar(position, (char) (p - start));
+    return p;
+  }
+
+  /**
+   * Returns the encoded length of the string written at a position.
+   *
+   * @param buffer
+   *          - The buffer to read from.
+   * @param position
+   *          - The offset the string was written at.
+   *
+   * @return - The number of bytes following the length.
+   */
+  public static int length(ByteBuffer buffer, int position) {
+    return buffer.getChar(position);
+  }
+
+  /**
+   * Reads a string.
+   *
+   * @param buffer
+   *          - The buffer to read from.
+   * @param position
+   *          - The offset the string was written at.
+   *
+   * @return - The string.
+   */
+  public static String get(ByteBuffer buffer, int position) {
+    int length = length(buffer, position);
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + position + 2, length,
+          StandardCharsets.UTF_8);
+    }
+    byte[] bytes = new byte[length];
+    ByteBuffer source = buffer.duplicate();
+    source.position(position + 2);
+    source.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
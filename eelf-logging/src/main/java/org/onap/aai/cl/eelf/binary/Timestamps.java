@@ -0,0 +1,115 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.binary;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SimpleTimeZone;
+
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * Converts between the text of timestamp columns and their numeric form. A
+ * timestamp is only converted if formatting it again reproduces the original
+ * text exactly, so decoding never changes a line. Instances are not thread
+ * safe.
+ */
+final class Timestamps {
+
+  /** Length of a timestamp up to, but excluding, its zone offset. */
+  private static final int OFFSET_POSITION = "yyyy-MM-ddTHH:mm:ss.SSS".length();
+
+  /** Formatters for each zone offset seen, keyed by offset in minutes. */
+  private final Map<Integer, SimpleDateFormat> formatters = new HashMap<Integer, SimpleDateFormat>();
+
+  private final SimpleDateFormat parser = new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT);
+
+  private long millis;
+  private int offsetMinutes;
+
+  Timestamps() {
+    parser.setLenient(false);
+  }
+
+  /**
+   * Parses a timestamp column. On success, the result is available from
+   * {@link #getMillis()} and {@link #getOffsetMinutes()}.
+   *
+   * @return - true if the text is a timestamp which can be reproduced exactly.
+   */
+  boolean parse(String text) {
+    if (text.length() <= OFFSET_POSITION) {
+      return false;
+    }
+    int offset;
+    String zone = text.substring(OFFSET_POSITION);
+    if ("Z".equals(zone)) {
+      offset = 0;
+    } else if (zone.length() == 6 && (zone.charAt(0) == '+' || zone.charAt(0) == '-')
+        && zone.charAt(3) == ':') {
+      try {
+        offset = Integer.parseInt(zone.substring(1, 3)) * 60 + Integer.parseInt(zone.substring(4));
+      } catch (NumberFormatException e) {
+        return false;
+      }
+      if (zone.charAt(0) == '-') {
+        offset = -offset;
+      }
+    } else {
+      return false;
+    }
+
+    long parsed;
+    try {
+      parsed = parser.parse(text).getTime();
+    } catch (ParseException e) {
+      return false;
+    }
+    if (!format(parsed, offset).equals(text)) {
+      return false;
+    }
+    millis = parsed;
+    offsetMinutes = offset;
+    return true;
+  }
+
+  long getMillis() {
+    return millis;
+  }
+
+  int getOffsetMinutes() {
+    return offsetMinutes;
+  }
+
+  /** Formats a timestamp in the given zone offset. */
+  String format(long millis, int offsetMinutes) {
+    SimpleDateFormat formatter = formatters.get(offsetMinutes);
+    if (formatter == null) {
+      formatter = new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT);
+      formatter.setTimeZone(new SimpleTimeZone(offsetMinutes * 60000, "UTC" + offsetMinutes));
+      formatters.put(offsetMinutes, formatter);
+    }
+    return formatter.format(new Date(millis));
+  }
+}
@@ -0,0 +1,209 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.binary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Variable-length encodings of integers and strings used by the binary log
+ * and columnar formats. Integers are written seven bits at a time, least significant first,
+ * with the top bit of each byte set if more bytes follow. Signed values are
+ * zig-zag encoded first so that small negative values stay short.
+ * <p>
+ * Strings are a byte count followed by their UTF-8 bytes, except that an
+ * unpaired surrogate, which UTF-8 cannot represent, is written as the three
+ * byte form of its code unit so that every string reads back exactly as it
+ * was written.
+ */
+public final class Varints {
+
+  private Varints() {
+  }
+
+  /**
+   * Writes an unsigned value.
+   *
+   * @param out
+   *          - The buffer to write to.
+   * @param value
+   *          - The value, treated as unsigned.
+   */
+  public static void writeUnsigned(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  /**
+   * Writes a signed value, zig-zag encoded.
+   *
+   * @param out
+   *          - The buffer to write to.
+   * @param value
+   *          - The value.
+   */
+  public static void writeSigned(ByteArrayOutputStream out, long value) {
+    writeUnsigned(out, (value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Writes a string as its byte count followed by its bytes.
+   *
+   * @param out
+   *          - The buffer to write to.
+   * @param value
+   *          - The string, which may contain unpaired surrogates.
+   */
+  public static void writeString(ByteArrayOutputStream out, String value) {
+    byte[] bytes = encode(value);
+    writeUnsigned(out, bytes.length);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  /** Encodes a string as UTF-8, keeping any unpaired surrogates. */
+  private static byte[] encode(String value) {
+    ByteArrayOutputStream bytes = null;
+    int start = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (!Character.isSurrogate(c)) {
+        continue;
+      }
+      if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        i++;
+        continue;
+      }
+      if (bytes == null) {
+        bytes = new ByteArrayOutputStream(value.length() + 8);
+      }
+      byte[] run = value.substring(start, i).getBytes(StandardCharsets.UTF_8);
+      bytes.write(run, 0, run.length);
+      bytes.write(0xE0 | (c >> 12));
+      bytes.write(0x80 | ((c >> 6) & 0x3F));
+      bytes.write(0x80 | (c & 0x3F));
+      start = i + 1;
+    }
+    if (bytes == null) {
+      return value.getBytes(StandardCharsets.UTF_8);
+    }
+    byte[] run = value.substring(start).getBytes(StandardCharsets.UTF_8);
+    bytes.write(run, 0, run.length);
+    return bytes.toByteArray();
+  }
+
+  /** Decodes bytes written by {@link #encode(String)}. */
+  private static String decode(byte[] bytes) {
+    StringBuilder value = null;
+    int start = 0;
+    for (int i = 0; i + 2 < bytes.length; i++) {
+      // 0xED followed by 0xA0 or above is the start of an encoded surrogate;
+      // the other characters which start with 0xED stop below 0xA0.
+      if ((bytes[i] & 0xFF) != 0xED || (bytes[i + 1] & 0xFF) < 0xA0) {
+        continue;
+      }
+      if (value == null) {
+        value = new StringBuilder(bytes.length);
+      }
+      value.append(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+      value.append((char) (0xD000 | ((bytes[i + 1] & 0x3F) << 6) | (bytes[i + 2] & 0x3F)));
+      i += 2;
+      start = i + 1;
+    }
+    if (value == null) {
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+    return value.append(new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8)).toString();
+  }
+
+  /**
+   * Reads an unsigned value from a stream.
+   *
+   * @param in
+   *          - The stream to read from.
+   *
+   * @return - The value, which may be negative if it does not fit a signed long.
+   *
+   * @throws EOFException
+   *           - If the stream ends before the value does.
+   */
+  public static long readUnsigned(InputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  /**
+   * Reads a signed value written by {@link #writeSigned(ByteArrayOutputStream, long)}.
+   *
+   * @param in
+   *          - The stream to read from.
+   *
+   * @return - The value.
+   *
+   * @throws EOFException
+   *           - If the stream ends before the value does.
+   */
+  public static long readSigned(InputStream in) throws IOException {
+    long encoded = readUnsigned(in);
+    return (encoded >>> 1) ^ -(encoded & 1);
+  }
+
+  /**
+   * Reads a string written by {@link #writeString(ByteArrayOutputStream, String)}.
+   *
+   * @param in
+   *          - The stream to read from.
+   *
+   * @return - The string, exactly as it was written.
+   *
+   * @throws EOFException
+   *           - If the stream ends before the string does.
+   */
+  public static String readString(InputStream in) throws IOException {
+    int length = (int) readUnsigned(in);
+    byte[] bytes = new byte[length];
+    int read = 0;
+    while (read < length) {
+      int n = in.read(bytes, read, length - read);
+      if (n < 0) {
+        throw new EOFException();
+      }
+      read += n;
+    }
+    return decode(bytes);
+  }
+}
@@ -0,0 +1,268 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.binary.Varints;
+
+/**
+ * Steps through the rows of a columnar file, reading only the columns it was
+ * created for. A scan may be filtered on the range of a timestamp or number
+ * column, in which case row groups which cannot hold a matching row are not
+ * read at all.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class ColumnScanner {
+
+  private final ColumnarReader reader;
+  private final LogColumn[] columns;
+  private final Chunk[] chunks;
+  private LogColumn filterColumn;
+  private long filterMin;
+  private long filterMax;
+  private SimpleDateFormat timestampFormat;
+
+  private int rowGroup = -1;
+  private int rows;
+  private int row;
+
+  ColumnScanner(ColumnarReader reader, LogColumn[] columns) {
+    this.reader = reader;
+    this.columns = columns.clone();
+    this.chunks = new Chunk[reader.getColumns().length];
+  }
+
+  /**
+   * Restricts the scan to rows whose value of a timestamp or number column
+   * lies within a range. Must be called before the first row is read.
+   *
+   * @param column
+   *          - The column, which need not be one of the scanned columns.
+   * @param min
+   *          - The smallest value to include.
+   * @param max
+   *          - The largest value to include.
+   *
+   * @return - This scanner.
+   */
+  public ColumnScanner where(LogColumn column, long min, long max) {
+    reader.checkColumn(column);
+    if (column.getKind() != LogColumn.Kind.TIMESTAMP && column.getKind() != LogColumn.Kind.NUMBER) {
+      throw new IllegalArgumentException("Only timestamp and number columns can be filtered: " + column);
+    }
+    if (rowGroup >= 0) {
+      throw new IllegalStateException("The scan has already started");
+    }
+    filterColumn = column;
+    filterMin = min;
+    filterMax = max;
+    return this;
+  }
+
+  /**
+   * Advances to the next row.
+   *
+   * @return - true if the scanner is now positioned over the next row, false
+   *         if there are no more.
+   */
+  public boolean next() throws IOException {
+    while (true) {
+      if (++row >= rows) {
+        if (!nextRowGroup()) {
+          return false;
+        }
+      }
+      if (filterColumn == null) {
+        return true;
+      }
+      long value = chunks[filterColumn.ordinal()].longs[row];
+      if (value >= filterMin && value <= filterMax && value != missing(filterColumn)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Returns the value of a timestamp or number column of the current row.
+   *
+   * @param column
+   *          - One of the scanned columns.
+   *
+   * @return - The timestamp in milliseconds since the epoch or
+   *         {@link Long#MIN_VALUE} if it is missing, or the number or -1 if
+   *         it is missing.
+   */
+  public long getLong(LogColumn column) {
+    Chunk chunk = chunk(column);
+    if (chunk.longs == null) {
+      throw new IllegalArgumentException(column + " is not a timestamp or number column");
+    }
+    return chunk.longs[row];
+  }
+
+  /**
+   * Returns the value of a column of the current row as a string. Timestamps
+   * are formatted in UTC.
+   *
+   * @param column
+   *          - One of the scanned columns.
+   *
+   * @return - The value, or an empty string if it is missing.
+   */
+  public String getString(LogColumn column) {
+    Chunk chunk = chunk(column);
+    if (chunk.indexes != null) {
+      return chunk.strings[chunk.indexes[row]];
+    }
+    if (chunk.strings != null) {
+      return chunk.strings[row];
+    }
+    long value = chunk.longs[row];
+    if (value == missing(column)) {
+      return "";
+    }
+    if (column.getKind() == LogColumn.Kind.NUMBER) {
+      return Long.toString(value);
+    }
+    if (timestampFormat == null) {
+      timestampFormat = new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT);
+      timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+    return timestampFormat.format(new Date(value));
+  }
+
+  private Chunk chunk(LogColumn column) {
+    Chunk chunk = chunks[reader.checkColumn(column)];
+    if (chunk == null || rowGroup < 0 || row >= rows) {
+      throw new IllegalStateException(column + " is not being scanned or there is no current row");
+    }
+    return chunk;
+  }
+
+  private static long missing(LogColumn column) {
+    return column.getKind() == LogColumn.Kind.TIMESTAMP ? Long.MIN_VALUE : -1;
+  }
+
+  private boolean nextRowGroup() throws IOException {
+    while (++rowGroup < reader.getRowGroupCount()) {
+      if (filterColumn != null) {
+        ColumnStats stats = reader.getStats(rowGroup, filterColumn);
+        if (!stats.hasValues() || stats.getMax() < filterMin || stats.getMin() > filterMax) {
+          continue;
+        }
+      }
+      rows = reader.getRowCount(rowGroup);
+      row = 0;
+      for (int i = 0; i < chunks.length; i++) {
+        chunks[i] = null;
+      }
+      for (LogColumn column : columns) {
+        load(column);
+      }
+      if (filterColumn != null) {
+        load(filterColumn);
+      }
+      return true;
+    }
+    rows = 0;
+    row = 0;
+    return false;
+  }
+
+  private void load(LogColumn column) throws IOException {
+    int index = column.ordinal();
+    if (chunks[index] == null) {
+      chunks[index] = decode(reader.readChunk(rowGroup, index), rows);
+    }
+  }
+
+  private static Chunk decode(byte[] raw, int rows) throws IOException {
+    ByteArrayInputStream in = new ByteArrayInputStream(raw);
+    Chunk chunk = new Chunk();
+    int encoding = in.read();
+    switch (encoding) {
+      case ColumnarFormat.DELTA:
+        chunk.longs = new long[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+          long encoded = Varints.readUnsigned(in);
+          if (encoded == 0) {
+            chunk.longs[i] = Long.MIN_VALUE;
+          } else {
+            encoded--;
+            previous += (encoded >>> 1) ^ -(encoded & 1);
+            chunk.longs[i] = previous;
+          }
+        }
+        break;
+      case ColumnarFormat.NUMBER:
+        chunk.longs = new long[rows];
+        for (int i = 0; i < rows; i++) {
+          chunk.longs[i] = Varints.readUnsigned(in) - 1;
+        }
+        break;
+      case ColumnarFormat.DICTIONARY:
+        chunk.strings = new String[(int) Varints.readUnsigned(in)];
+        for (int i = 0; i < chunk.strings.length; i++) {
+          chunk.strings[i] = Varints.readString(in);
+        }
+        int width = in.read();
+        chunk.indexes = new int[rows];
+        long bits = 0;
+        int count = 0;
+        long mask = (1L << width) - 1;
+        for (int i = 0; i < rows; i++) {
+          while (count < width) {
+            bits |= (long) in.read() << count;
+            count += 8;
+          }
+          chunk.indexes[i] = (int) (bits & mask);
+          bits >>>= width;
+          count -= width;
+        }
+        break;
+      case ColumnarFormat.PLAIN:
+        chunk.strings = new String[rows];
+        for (int i = 0; i < rows; i++) {
+          chunk.strings[i] = Varints.readString(in);
+        }
+        break;
+      default:
+        throw new IOException("Unknown column encoding " + encoding);
+    }
+    return chunk;
+  }
+
+  /** The decoded values of one column of the current row group. */
+  private static class Chunk {
+    private long[] longs;
+    private String[] strings;
+    private int[] indexes;
+  }
+}
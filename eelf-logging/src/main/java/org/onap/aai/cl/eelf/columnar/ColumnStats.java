@@ -0,0 +1,80 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.columnar;
+
+/**
+ * The minimum and maximum of the values of one column within one row group of
+ * a columnar file. Timestamp and number columns have numeric bounds; columns
+ * of repeated values have string bounds; free text columns have none.
+ */
+public class ColumnStats {
+
+  private final boolean hasValues;
+  private final long min;
+  private final long max;
+  private final String minString;
+  private final String maxString;
+
+  ColumnStats(boolean hasValues, long min, long max, String minString, String maxString) {
+    this.hasValues = hasValues;
+    this.min = min;
+    this.max = max;
+    this.minString = minString;
+    this.maxString = maxString;
+  }
+
+  /**
+   * Indicates whether the bounds are known.
+   *
+   * @return - false if every value was missing or the column has no bounds.
+   */
+  public boolean hasValues() {
+    return hasValues;
+  }
+
+  /** @return - The smallest timestamp or number, or 0 if there is none. */
+  public long getMin() {
+    return min;
+  }
+
+  /** @return - The largest timestamp or number, or 0 if there is none. */
+  public long getMax() {
+    return max;
+  }
+
+  /** @return - The smallest repeated value, or null if there is none. */
+  public String getMinString() {
+    return minString;
+  }
+
+  /** @return - The largest repeated value, or null if there is none. */
+  public String getMaxString() {
+    return maxString;
+  }
+
+  @Override
+  public String toString() {
+    if (!hasValues) {
+      return "[]";
+    }
+    return minString == null ? "[" + min + ", " + max + "]" : "[" + minString + ", " + maxString + "]";
+  }
+}
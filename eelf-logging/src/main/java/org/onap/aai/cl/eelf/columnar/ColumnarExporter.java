@@ -0,0 +1,526 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.columnar;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.analysis.LogFileReader;
+import org.onap.aai.cl.eelf.analysis.LogRecord;
+import org.onap.aai.cl.eelf.binary.Varints;
+
+/**
+ * Converts an audit or metrics log file into a columnar file, which stores
+ * the values of each column together so that a query only reads the columns
+ * it uses. The layout is described by {@link ColumnarFormat}; timestamps are
+ * stored as deltas, repeated values such as status codes are dictionary
+ * encoded with bit-packed indexes, and every column chunk is compressed and
+ * carries the minimum and maximum of its values. Use {@link ColumnarReader}
+ * to read the file.
+ * <p>
+ * Timestamps are stored as milliseconds since the epoch, so their original
+ * time zone offset is not kept. Lines which do not have every column are
+ * skipped.
+ * <p>
+ * This class can also be run from the command line:
+ *
+ * <pre>
+ * java org.onap.aai.cl.eelf.columnar.ColumnarExporter [--type audit|metrics] [--rows count] logFile columnarFile
+ * </pre>
+ */
+public class ColumnarExporter {
+
+  /** The default number of rows in each row group. */
+  public static final int DEFAULT_ROW_GROUP_SIZE = 64 * 1024;
+
+  /** Repeated values are stored plainly once more than this fraction of a chunk is distinct. */
+  private static final int MAX_DISTINCT_RATIO = 2;
+
+  /** Repeated values longer than this are not used as bounds. */
+  private static final int MAX_BOUND_LENGTH = 1024;
+
+  private final LogLineType type;
+  private final LogColumn[] columns;
+  private final int rowGroupSize;
+
+  /**
+   * Creates an exporter.
+   *
+   * @param type
+   *          - The type of lines to export, either AUDIT or METRICS.
+   * @param rowGroupSize
+   *          - The number of rows in each row group.
+   */
+  public ColumnarExporter(LogLineType type, int rowGroupSize) {
+    columns = LogColumns.of(type);
+    if (columns == null) {
+      throw new IllegalArgumentException("Unsupported log line type: " + type);
+    }
+    if (rowGroupSize <= 0) {
+      throw new IllegalArgumentException("Row group size must be positive: " + rowGroupSize);
+    }
+    this.type = type;
+    this.rowGroupSize = rowGroupSize;
+  }
+
+  /**
+   * Exports a log file.
+   *
+   * @param logFile
+   *          - The log file to read.
+   * @param columnarFile
+   *          - The columnar file to write, which is replaced if it exists.
+   *
+   * @return - The number of rows exported.
+   */
+  public long export(Path logFile, Path columnarFile) throws IOException {
+    List<long[]> chunkPositions = new ArrayList<long[]>();
+    List<ColumnStats[]> chunkStats = new ArrayList<ColumnStats[]>();
+    List<Integer> groupRows = new ArrayList<Integer>();
+    long rows = 0;
+
+    PositionedOutputStream out = new PositionedOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(columnarFile), 64 * 1024));
+    Deflater deflater = new Deflater();
+    LogFileReader reader = new LogFileReader(logFile, type);
+    try {
+      DataOutputStream data = new DataOutputStream(out);
+      data.writeInt(ColumnarFormat.MAGIC);
+      data.writeInt(ColumnarFormat.VERSION);
+      data.writeByte(type.ordinal());
+      data.writeByte(columns.length);
+
+      ColumnBuilder[] builders = new ColumnBuilder[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        builders[i] = builder(columns[i]);
+      }
+      int groupSize = 0;
+      boolean more = true;
+      while (more) {
+        more = reader.next();
+        if (more) {
+          LogRecord record = reader.getRecord();
+          if (!record.isComplete()) {
+            continue;
+          }
+          for (ColumnBuilder builder : builders) {
+            builder.add(record);
+          }
+          groupSize++;
+          rows++;
+        }
+        if (groupSize == rowGroupSize || (!more && groupSize > 0)) {
+          long[] positions = new long[columns.length * 3];
+          ColumnStats[] stats = new ColumnStats[columns.length];
+          for (int i = 0; i < columns.length; i++) {
+            byte[] raw = builders[i].encode(groupSize);
+            byte[] compressed = compress(deflater, raw);
+            positions[i * 3] = out.position;
+            positions[i * 3 + 1] = compressed.length;
+            positions[i * 3 + 2] = raw.length;
+            stats[i] = builders[i].stats();
+            out.write(compressed);
+            builders[i].clear();
+          }
+          chunkPositions.add(positions);
+          chunkStats.add(stats);
+          groupRows.add(groupSize);
+          groupSize = 0;
+        }
+      }
+
+      long footer = out.position;
+      data.writeInt(groupRows.size());
+      for (int g = 0; g < groupRows.size(); g++) {
+        data.writeInt(groupRows.get(g));
+        for (int i = 0; i < columns.length; i++) {
+          long[] positions = chunkPositions.get(g);
+          data.writeLong(positions[i * 3]);
+          data.writeInt((int) positions[i * 3 + 1]);
+          data.writeInt((int) positions[i * 3 + 2]);
+          writeStats(data, columns[i], chunkStats.get(g)[i]);
+        }
+      }
+      data.writeLong(footer);
+      data.writeInt(ColumnarFormat.MAGIC);
+      data.flush();
+    } finally {
+      reader.close();
+      deflater.end();
+      out.close();
+    }
+    return rows;
+  }
+
+  private static byte[] compress(Deflater deflater, byte[] raw) {
+    deflater.reset();
+    deflater.setInput(raw);
+    deflater.finish();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+    byte[] buffer = new byte[8192];
+    while (!deflater.finished()) {
+      int length = deflater.deflate(buffer);
+      compressed.write(buffer, 0, length);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static void writeStats(DataOutputStream data, LogColumn column, ColumnStats stats)
+      throws IOException {
+    data.writeBoolean(stats.hasValues());
+    if (!stats.hasValues()) {
+      return;
+    }
+    if (column.getKind() == LogColumn.Kind.REPEATED) {
+      data.writeUTF(stats.getMinString());
+      data.writeUTF(stats.getMaxString());
+    } else {
+      data.writeLong(stats.getMin());
+      data.writeLong(stats.getMax());
+    }
+  }
+
+  private static ColumnBuilder builder(LogColumn column) {
+    switch (column.getKind()) {
+      case TIMESTAMP:
+        return new TimestampBuilder(column);
+      case NUMBER:
+        return new NumberBuilder(column);
+      case REPEATED:
+        return new RepeatedBuilder(column);
+      default:
+        return new TextBuilder(column);
+    }
+  }
+
+  /** Accumulates the values of one column for a row group. */
+  private abstract static class ColumnBuilder {
+    final LogColumn column;
+
+    ColumnBuilder(LogColumn column) {
+      this.column = column;
+    }
+
+    abstract void add(LogRecord record);
+
+    abstract byte[] encode(int rows);
+
+    abstract ColumnStats stats();
+
+    abstract void clear();
+  }
+
+  /** Builds timestamp chunks, stored as deltas. */
+  private static class TimestampBuilder extends ColumnBuilder {
+    private long[] values = new long[1024];
+    private int size;
+
+    TimestampBuilder(LogColumn column) {
+      super(column);
+    }
+
+    @Override
+    void add(LogRecord record) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = record.getTimestamp(column);
+    }
+
+    @Override
+    byte[] encode(int rows) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(size * 2 + 1);
+      out.write(ColumnarFormat.DELTA);
+      long previous = 0;
+      for (int i = 0; i < size; i++) {
+        if (values[i] == Long.MIN_VALUE) {
+          Varints.writeUnsigned(out, 0);
+        } else {
+          long delta = values[i] - previous;
+          Varints.writeUnsigned(out, ((delta << 1) ^ (delta >> 63)) + 1);
+          previous = values[i];
+        }
+      }
+      return out.toByteArray();
+    }
+
+    @Override
+    ColumnStats stats() {
+      long min = Long.MAX_VALUE;
+      long max = Long.MIN_VALUE;
+      for (int i = 0; i < size; i++) {
+        if (values[i] != Long.MIN_VALUE) {
+          min = Math.min(min, values[i]);
+          max = Math.max(max, values[i]);
+        }
+      }
+      return min > max ? new ColumnStats(false, 0, 0, null, null)
+          : new ColumnStats(true, min, max, null, null);
+    }
+
+    @Override
+    void clear() {
+      size = 0;
+    }
+  }
+
+  /** Builds number chunks. */
+  private static class NumberBuilder extends ColumnBuilder {
+    private long[] values = new long[1024];
+    private int size;
+
+    NumberBuilder(LogColumn column) {
+      super(column);
+    }
+
+    @Override
+    void add(LogRecord record) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = record.getLong(column);
+    }
+
+    @Override
+    byte[] encode(int rows) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(size * 2 + 1);
+      out.write(ColumnarFormat.NUMBER);
+      for (int i = 0; i < size; i++) {
+        Varints.writeUnsigned(out, values[i] + 1);
+      }
+      return out.toByteArray();
+    }
+
+    @Override
+    ColumnStats stats() {
+      long min = Long.MAX_VALUE;
+      long max = Long.MIN_VALUE;
+      for (int i = 0; i < size; i++) {
+        if (values[i] >= 0) {
+          min = Math.min(min, values[i]);
+          max = Math.max(max, values[i]);
+        }
+      }
+      return min > max ? new ColumnStats(false, 0, 0, null, null)
+          : new ColumnStats(true, min, max, null, null);
+    }
+
+    @Override
+    void clear() {
+      size = 0;
+    }
+  }
+
+  /** Builds chunks of repeated values, dictionary encoded unless too many are distinct. */
+  private static class RepeatedBuilder extends ColumnBuilder {
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private final List<String> values = new ArrayList<String>();
+    private int[] indexes = new int[1024];
+    private int size;
+
+    RepeatedBuilder(LogColumn column) {
+      super(column);
+    }
+
+    @Override
+    void add(LogRecord record) {
+      String value = record.getString(column);
+      Integer index = dictionary.get(value);
+      if (index == null) {
+        index = values.size();
+        dictionary.put(value, index);
+        values.add(value);
+      }
+      if (size == indexes.length) {
+        indexes = Arrays.copyOf(indexes, size * 2);
+      }
+      indexes[size++] = index;
+    }
+
+    @Override
+    byte[] encode(int rows) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(size + 64);
+      if (values.size() * MAX_DISTINCT_RATIO > size) {
+        out.write(ColumnarFormat.PLAIN);
+        for (int i = 0; i < size; i++) {
+          Varints.writeString(out, values.get(indexes[i]));
+        }
+        return out.toByteArray();
+      }
+
+      out.write(ColumnarFormat.DICTIONARY);
+      Varints.writeUnsigned(out, values.size());
+      for (String value : values) {
+        Varints.writeString(out, value);
+      }
+      int width = 32 - Integer.numberOfLeadingZeros(Math.max(values.size() - 1, 0));
+      out.write(width);
+      long bits = 0;
+      int count = 0;
+      for (int i = 0; i < size; i++) {
+        bits |= (long) indexes[i] << count;
+        count += width;
+        while (count >= 8) {
+          out.write((int) bits);
+          bits >>>= 8;
+          count -= 8;
+        }
+      }
+      if (count > 0) {
+        out.write((int) bits);
+      }
+      return out.toByteArray();
+    }
+
+    @Override
+    ColumnStats stats() {
+      String min = null;
+      String max = null;
+      for (String value : values) {
+        if (value.length() > MAX_BOUND_LENGTH) {
+          return new ColumnStats(false, 0, 0, null, null);
+        }
+        if (min == null || value.compareTo(min) < 0) {
+          min = value;
+        }
+        if (max == null || value.compareTo(max) > 0) {
+          max = value;
+        }
+      }
+      return min == null ? new ColumnStats(false, 0, 0, null, null)
+          : new ColumnStats(true, 0, 0, min, max);
+    }
+
+    @Override
+    void clear() {
+      dictionary.clear();
+      values.clear();
+      size = 0;
+    }
+  }
+
+  /** Builds chunks of free text. */
+  private static class TextBuilder extends ColumnBuilder {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    TextBuilder(LogColumn column) {
+      super(column);
+      out.write(ColumnarFormat.PLAIN);
+    }
+
+    @Override
+    void add(LogRecord record) {
+      Varints.writeString(out, record.getString(column));
+    }
+
+    @Override
+    byte[] encode(int rows) {
+      return out.toByteArray();
+    }
+
+    @Override
+    ColumnStats stats() {
+      return new ColumnStats(false, 0, 0, null, null);
+    }
+
+    @Override
+    void clear() {
+      out.reset();
+      out.write(ColumnarFormat.PLAIN);
+    }
+  }
+
+  /** Counts the bytes written through it. */
+  private static class PositionedOutputStream extends FilterOutputStream {
+    private long position;
+
+    PositionedOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      position += len;
+    }
+  }
+
+  /**
+   * Runs the exporter from the command line.
+   *
+   * @param args
+   *          - The options and files, as described in the class documentation.
+   */
+  public static void main(String[] args) throws IOException {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  static int run(String[] args, PrintStream out, PrintStream err) throws IOException {
+    LogLineType type = LogLineType.AUDIT;
+    int rowGroupSize = DEFAULT_ROW_GROUP_SIZE;
+    List<Path> files = new ArrayList<Path>();
+    try {
+      for (int i = 0; i < args.length; i++) {
+        if ("--type".equals(args[i])) {
+          type = LogLineType.valueOf(args[++i].toUpperCase());
+        } else if ("--rows".equals(args[i])) {
+          rowGroupSize = Integer.parseInt(args[++i]);
+        } else {
+          files.add(Paths.get(args[i]));
+        }
+      }
+      if (files.size() != 2 || LogColumns.of(type) == null || rowGroupSize <= 0) {
+        throw new IllegalArgumentException();
+      }
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      err.println("Usage: ColumnarExporter [--type audit|metrics] [--rows count] logFile columnarFile");
+      return 2;
+    }
+
+    long rows = new ColumnarExporter(type, rowGroupSize).export(files.get(0), files.get(1));
+    out.println("Exported " + rows + " rows: " + Files.size(files.get(0)) + " bytes to "
+        + Files.size(files.get(1)) + " bytes");
+    return 0;
+  }
+}
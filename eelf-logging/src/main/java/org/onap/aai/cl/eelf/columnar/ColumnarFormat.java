@@ -0,0 +1,61 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.columnar;
+
+/**
+ * Constants describing the columnar log file layout.
+ * <p>
+ * A file starts with a header holding {@link #MAGIC}, {@link #VERSION}, the
+ * ordinal of the log line type and the number of columns. The rows follow in
+ * row groups; each row group holds one chunk per column, each chunk being the
+ * Deflater-compressed encoding of the column's values for the group. The
+ * footer describes every chunk: its position, lengths and the minimum and
+ * maximum of its values. The file ends with the offset of the footer and
+ * {@link #MAGIC} again.
+ * <p>
+ * The first byte of an encoded chunk identifies its encoding:
+ * <ul>
+ * <li>{@link #DELTA}: each value is a varint of the zig-zag encoded
+ * difference from the previous value plus one, or zero for a missing value.
+ * Used for timestamps, as milliseconds since the epoch.</li>
+ * <li>{@link #NUMBER}: each value is a varint of the value plus one, or zero
+ * for a missing value.</li>
+ * <li>{@link #DICTIONARY}: the number of distinct values, the values as
+ * length-prefixed strings, the bit width of an index and then the index of
+ * each row's value, bit-packed least significant bit first.</li>
+ * <li>{@link #PLAIN}: each value as a length-prefixed string.</li>
+ * </ul>
+ */
+final class ColumnarFormat {
+
+  static final int MAGIC = 0x41414943; // "AAIC"
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 10;
+  static final int TRAILER_SIZE = 12;
+
+  static final int DELTA = 1;
+  static final int NUMBER = 2;
+  static final int DICTIONARY = 3;
+  static final int PLAIN = 4;
+
+  private ColumnarFormat() {
+  }
+}
@@ -0,0 +1,242 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+
+/**
+ * Reads a columnar file written by {@link ColumnarExporter}. Only the footer
+ * is read when the file is opened; a {@link ColumnScanner} then reads just the
+ * chunks of the columns it was asked for, and skips whole row groups whose
+ * statistics show they cannot match its filter.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class ColumnarReader implements Closeable {
+
+  private final FileChannel channel;
+  private final LogLineType type;
+  private final LogColumn[] columns;
+  private final int[] groupRows;
+  private final long[][] chunkOffsets;
+  private final int[][] compressedLengths;
+  private final int[][] rawLengths;
+  private final ColumnStats[][] stats;
+  private final Inflater inflater = new Inflater();
+  private long bytesRead;
+
+  /**
+   * Opens a columnar file.
+   *
+   * @param file
+   *          - The file.
+   *
+   * @throws IOException
+   *           if the file cannot be read or is not a columnar file.
+   */
+  public ColumnarReader(Path file) throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < ColumnarFormat.HEADER_SIZE + ColumnarFormat.TRAILER_SIZE) {
+        throw new IOException("Not a columnar file: " + file);
+      }
+      ByteBuffer header = read(0, ColumnarFormat.HEADER_SIZE);
+      ByteBuffer trailer = read(size - ColumnarFormat.TRAILER_SIZE, ColumnarFormat.TRAILER_SIZE);
+      if (header.getInt(0) != ColumnarFormat.MAGIC || header.getInt(4) != ColumnarFormat.VERSION
+          || trailer.getInt(8) != ColumnarFormat.MAGIC) {
+        throw new IOException("Not a columnar file: " + file);
+      }
+      type = LogLineType.values()[header.get(8)];
+      columns = LogColumns.of(type);
+      if (columns == null || columns.length != header.get(9)) {
+        throw new IOException("Unsupported columns in " + file);
+      }
+
+      long footer = trailer.getLong(0);
+      ByteBuffer footerBytes = read(footer, (int) (size - ColumnarFormat.TRAILER_SIZE - footer));
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(footerBytes.array()));
+      int groups = in.readInt();
+      groupRows = new int[groups];
+      chunkOffsets = new long[groups][columns.length];
+      compressedLengths = new int[groups][columns.length];
+      rawLengths = new int[groups][columns.length];
+      stats = new ColumnStats[groups][columns.length];
+      for (int g = 0; g < groups; g++) {
+        groupRows[g] = in.readInt();
+        for (int i = 0; i < columns.length; i++) {
+          chunkOffsets[g][i] = in.readLong();
+          compressedLengths[g][i] = in.readInt();
+          rawLengths[g][i] = in.readInt();
+          stats[g][i] = readStats(in, columns[i]);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static ColumnStats readStats(DataInputStream in, LogColumn column) throws IOException {
+    if (!in.readBoolean()) {
+      return new ColumnStats(false, 0, 0, null, null);
+    }
+    if (column.getKind() == LogColumn.Kind.REPEATED) {
+      return new ColumnStats(true, 0, 0, in.readUTF(), in.readUTF());
+    }
+    return new ColumnStats(true, in.readLong(), in.readLong(), null, null);
+  }
+
+  /** @return - The type of the lines the file was exported from. */
+  public LogLineType getType() {
+    return type;
+  }
+
+  /** @return - The columns of the file. */
+  public LogColumn[] getColumns() {
+    return columns.clone();
+  }
+
+  /** @return - The number of row groups. */
+  public int getRowGroupCount() {
+    return groupRows.length;
+  }
+
+  /** @return - The total number of rows. */
+  public long getRowCount() {
+    long rows = 0;
+    for (int count : groupRows) {
+      rows += count;
+    }
+    return rows;
+  }
+
+  /**
+   * Returns the number of rows in a row group.
+   *
+   * @param rowGroup
+   *          - The index of the row group.
+   *
+   * @return - The number of rows.
+   */
+  public int getRowCount(int rowGroup) {
+    return groupRows[rowGroup];
+  }
+
+  /**
+   * Returns the statistics of a column within a row group.
+   *
+   * @param rowGroup
+   *          - The index of the row group.
+   * @param column
+   *          - The column.
+   *
+   * @return - The bounds of the column's values within the row group.
+   */
+  public ColumnStats getStats(int rowGroup, LogColumn column) {
+    return stats[rowGroup][checkColumn(column)];
+  }
+
+  /**
+   * Returns the number of bytes of column data read so far, which shows how
+   * much of the file a scan has avoided.
+   *
+   * @return - The compressed size of the chunks read.
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Starts a scan of some of the columns.
+   *
+   * @param scanColumns
+   *          - The columns to read.
+   *
+   * @return - A scanner positioned before the first row.
+   */
+  public ColumnScanner scan(LogColumn... scanColumns) {
+    for (LogColumn column : scanColumns) {
+      checkColumn(column);
+    }
+    return new ColumnScanner(this, scanColumns);
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    channel.close();
+  }
+
+  int checkColumn(LogColumn column) {
+    int index = column.ordinal();
+    if (index >= columns.length || columns[index] != column) {
+      throw new IllegalArgumentException(column + " is not a column of " + type + " files");
+    }
+    return index;
+  }
+
+  /** Reads and inflates one column chunk. */
+  byte[] readChunk(int rowGroup, int column) throws IOException {
+    ByteBuffer compressed = read(chunkOffsets[rowGroup][column], compressedLengths[rowGroup][column]);
+    bytesRead += compressedLengths[rowGroup][column];
+    byte[] raw = new byte[rawLengths[rowGroup][column]];
+    inflater.reset();
+    inflater.setInput(compressed.array());
+    try {
+      int length = 0;
+      while (length < raw.length) {
+        int inflated = inflater.inflate(raw, length, raw.length - length);
+        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new EOFException("Truncated column chunk");
+        }
+        length += inflated;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt column chunk", e);
+    }
+    return raw;
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Truncated columnar file");
+      }
+    }
+    return buffer;
+  }
+}
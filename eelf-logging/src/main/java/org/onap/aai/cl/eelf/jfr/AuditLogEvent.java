@@ -0,0 +1,57 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+import org.onap.aai.cl.eelf.AuditLogLine;
+
+/** The flight recorder event for a {@link AuditLogLine}. */
+@Name("org.onap.aai.cl.Audit")
+@Label("Audit Log Line")
+@Description("An inbound request, as written to the audit log.")
+class AuditLogEvent extends LogEvent {
+
+  // The flight recorder reserves the name startTime for the time of the event itself.
+  @Label("Start Time")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  long startTimestamp;
+
+  @Label("Elapsed Time")
+  @Timespan(Timespan.MILLISECONDS)
+  long elapsedTime;
+
+  /**
+   * Copies the values of a log line, including its timings, into the event.
+   *
+   * @param logLine
+   *          - The initialized log line.
+   */
+  void populate(AuditLogLine logLine) {
+    super.populate(logLine);
+    elapsedTime = logLine.getElapsedTime();
+    startTimestamp = logLine.hasTiming() ? logLine.getStartTime() : logLine.getLogTime() - elapsedTime;
+  }
+}
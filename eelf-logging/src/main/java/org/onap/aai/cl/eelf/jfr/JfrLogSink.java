@@ -0,0 +1,118 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.jfr;
+
+import jdk.jfr.EventType;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AuditLogLine;
+import org.onap.aai.cl.eelf.MetricsLogLine;
+import org.onap.aai.cl.eelf.sink.LogSink;
+
+/**
+ * A {@link LogSink} which emits each log line as a Java Flight Recorder event,
+ * so that logging activity can be correlated with the GC, lock and I/O events
+ * of the same recording.
+ * <p>
+ * The events are named <i>org.onap.aai.cl.Audit</i>,
+ * <i>org.onap.aai.cl.Metrics</i> and <i>org.onap.aai.cl.Error</i>, and can be
+ * enabled or disabled in the recording settings like any other event. When an
+ * event type is not enabled in any recording, writing a line of that type
+ * costs a single check. The sink works from the fields of the log line rather
+ * than its text, so it does not require the line to be formatted.
+ * <p>
+ * An event records the thread which commits it, and its stack trace, so lines
+ * whose event type is enabled are never deferred to a background renderer.
+ * <p>
+ * Emitting events requires the <i>jdk.jfr</i> module, so check
+ * {@link #isSupported()} before registering the sink.
+ */
+public class JfrLogSink implements LogSink {
+
+  private final EventType auditType = EventType.getEventType(AuditLogEvent.class);
+  private final EventType metricsType = EventType.getEventType(MetricsLogEvent.class);
+  private final EventType errorType = EventType.getEventType(ErrorLogEvent.class);
+
+  /**
+   * Indicates whether the running JVM provides the flight recorder API. This
+   * method does not itself depend on the API, so it is safe to call on any JVM.
+   *
+   * @return - true if flight recorder events can be emitted.
+   */
+  public static boolean isSupported() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void write(LogLineType type, LogLine logLine, String formattedLine) {
+    switch (type) {
+      case AUDIT:
+        AuditLogEvent auditEvent = new AuditLogEvent();
+        if (auditEvent.isEnabled()) {
+          auditEvent.populate((AuditLogLine) logLine);
+          auditEvent.commit();
+        }
+        break;
+      case METRICS:
+        MetricsLogEvent metricsEvent = new MetricsLogEvent();
+        if (metricsEvent.isEnabled()) {
+          metricsEvent.populate((MetricsLogLine) logLine);
+          metricsEvent.commit();
+        }
+        break;
+      default:
+        ErrorLogEvent errorEvent = new ErrorLogEvent();
+        if (errorEvent.isEnabled()) {
+          errorEvent.populate(logLine);
+          errorEvent.commit();
+        }
+        break;
+    }
+  }
+
+  @Override
+  public boolean needsFormattedLine() {
+    return false;
+  }
+
+  @Override
+  public boolean needsCallingThread(LogLineType type) {
+    switch (type) {
+      case AUDIT:
+        return auditType.isEnabled();
+      case METRICS:
+        return metricsType.isEnabled();
+      default:
+        return errorType.isEnabled();
+    }
+  }
+
+  @Override
+  public void close() {
+    // Events are written by the flight recorder, so there is nothing to release.
+  }
+}
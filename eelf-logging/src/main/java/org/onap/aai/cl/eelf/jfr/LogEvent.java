@@ -0,0 +1,167 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.mdc.MdcContext;
+
+/**
+ * The fields shared by the flight recorder events of every type of log line:
+ * the common values of the line, the {@link MdcContext} columns and the
+ * {@link DefinedFields}. The time of each event is recorded by the flight
+ * recorder itself. The thread which logged the line is recorded as a field,
+ * since a line rendered in the background is committed by another thread.
+ */
+@Category({"ONAP", "Logging"})
+abstract class LogEvent extends Event {
+
+  @Label("Component")
+  String component;
+
+  @Label("Logging Thread")
+  String loggingThread;
+
+  @Label("Log Code")
+  String logCode;
+
+  @Label("Level")
+  String level;
+
+  @Label("Message")
+  String message;
+
+  @Label("Request Id")
+  String requestId;
+
+  @Label("Service Instance Id")
+  String serviceInstanceId;
+
+  @Label("Server FQDN")
+  String serverFqdn;
+
+  @Label("Service Name")
+  String serviceName;
+
+  @Label("Partner Name")
+  String partnerName;
+
+  @Label("Client Address")
+  String clientAddress;
+
+  @Label("Status Code")
+  String statusCode;
+
+  @Label("Response Code")
+  String responseCode;
+
+  @Label("Response Description")
+  String responseDescription;
+
+  @Label("Instance UUID")
+  String instanceUuid;
+
+  @Label("Severity")
+  String severity;
+
+  @Label("Server IP")
+  String serverIp;
+
+  @Label("Client IP")
+  String clientIp;
+
+  @Label("Class Name")
+  String className;
+
+  @Label("Process Key")
+  String processKey;
+
+  @Label("Target Service Name")
+  String targetServiceName;
+
+  @Label("Target Entity")
+  String targetEntity;
+
+  @Label("Error Code")
+  String errorCode;
+
+  @Label("Error Description")
+  String errorDescription;
+
+  @Label("Custom 1")
+  String custom1;
+
+  @Label("Custom 2")
+  String custom2;
+
+  @Label("Custom 3")
+  String custom3;
+
+  @Label("Custom 4")
+  String custom4;
+
+  /**
+   * Copies the values of a log line into the event.
+   *
+   * @param logLine
+   *          - The initialized log line.
+   */
+  void populate(LogLine logLine) {
+    component = logLine.getComponent();
+    logCode = logLine.getLogCode();
+    level = logLine.getLevel();
+    message = logLine.getMessage();
+    loggingThread = logLine.getThreadName();
+
+    requestId = logLine.getMdcValue(MdcContext.MDC_REQUEST_ID);
+    serviceInstanceId = logLine.getMdcValue(MdcContext.MDC_SERVICE_INSTANCE_ID);
+    serverFqdn = logLine.getMdcValue(MdcContext.MDC_SERVER_FQDN);
+    serviceName = logLine.getMdcValue(MdcContext.MDC_SERVICE_NAME);
+    partnerName = logLine.getMdcValue(MdcContext.MDC_PARTNER_NAME);
+    clientAddress = logLine.getMdcValue(MdcContext.MDC_CLIENT_ADDRESS);
+
+    statusCode = fieldValue(logLine, DefinedFields.STATUS_CODE);
+    responseCode = fieldValue(logLine, DefinedFields.RESPONSE_CODE);
+    responseDescription = fieldValue(logLine, DefinedFields.RESPONSE_DESCRIPTION);
+    instanceUuid = fieldValue(logLine, DefinedFields.INSTANCE_UUID);
+    severity = fieldValue(logLine, DefinedFields.SEVERITY);
+    serverIp = fieldValue(logLine, DefinedFields.SERVER_IP);
+    clientIp = fieldValue(logLine, DefinedFields.CLIENT_IP);
+    className = fieldValue(logLine, DefinedFields.CLASS_NAME);
+    processKey = fieldValue(logLine, DefinedFields.PROCESS_KEY);
+    targetServiceName = fieldValue(logLine, DefinedFields.TARGET_SVC_NAME);
+    targetEntity = fieldValue(logLine, DefinedFields.TARGET_ENTITY);
+    errorCode = fieldValue(logLine, DefinedFields.ERROR_CODE);
+    errorDescription = fieldValue(logLine, DefinedFields.ERROR_DESCRIPTION);
+    custom1 = fieldValue(logLine, DefinedFields.CUSTOM_1);
+    custom2 = fieldValue(logLine, DefinedFields.CUSTOM_2);
+    custom3 = fieldValue(logLine, DefinedFields.CUSTOM_3);
+    custom4 = fieldValue(logLine, DefinedFields.CUSTOM_4);
+  }
+
+  private static String fieldValue(LogLine logLine, DefinedFields field) {
+    return logLine.getFields().fieldIsSet(field) ? logLine.getFields().getField(field) : null;
+  }
+}
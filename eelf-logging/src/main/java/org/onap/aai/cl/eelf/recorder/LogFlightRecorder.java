@@ -0,0 +1,453 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.recorder;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+import com.att.eelf.i18n.EELFResolvableResourceEnum;
+import com.att.eelf.i18n.EELFResourceManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.binary.DirectStrings;
+import org.onap.aai.cl.mdc.MdcContext;
+
+/**
+ * Keeps the most recent log events of every type, including those which are
+ * never written, such as debug lines below the configured level, so that they
+ * can be dumped to a file for post-mortem analysis when something goes wrong.
+ * <p>
+ * Events are held in a fixed number of fixed-size slots of a single direct
+ * buffer, so recording neither allocates nor adds to the heap the garbage
+ * collector has to scan. Each slot holds the raw values of an event: the time
+ * it was recorded, its type and level, then the log code, request id,
+ * component, exception and message as length-prefixed UTF-8, each truncated
+ * to fit the slot.
+ * <p>
+ * Lines which are suppressed by the runtime levels are never rendered, so they
+ * are recorded by {@link #record(LogLineType, Level, EELFResolvableResourceEnum,
+ * String, String, Throwable, String[])} as their log code and arguments
+ * instead of their message. The log code is held as an index into a table of
+ * the codes seen so far, and the message is only formatted from it when the
+ * events are dumped.
+ * <p>
+ * Each slot has a stamp holding the sequence number of the event it contains.
+ * A writer claims a slot by swapping its stamp for a busy marker, and
+ * publishes the event by setting the stamp to the event's sequence number. A
+ * dump claims each slot in the same way while it copies it, so writers and
+ * dumps never see a partly written slot; an event whose slot is busy is
+ * dropped rather than waited for.
+ */
+public class LogFlightRecorder implements LogFlightRecorderMXBean {
+
+  /** The default number of events held. */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  /** The default size of the slot each event is held in, in bytes. */
+  public static final int DEFAULT_SLOT_SIZE = 512;
+
+  /** The smallest slot which can hold the fixed part of an event and a little text. */
+  static final int MIN_SLOT_SIZE = 64;
+
+  /** The largest slot whose string lengths fit in the two byte length prefix. */
+  static final int MAX_SLOT_SIZE = 65535;
+
+  /** Stamp of a slot which has never held an event. */
+  private static final long EMPTY = -1;
+
+  /** Stamp of a slot which is being written or copied. */
+  private static final long BUSY = -2;
+
+  /** Offsets of the fixed fields of a slot. */
+  private static final int TIMESTAMP_OFFSET = 0;
+  private static final int TYPE_OFFSET = 8;
+  private static final int LEVEL_OFFSET = 9;
+  private static final int CODE_OFFSET = 10;
+  private static final int STRINGS_OFFSET = 14;
+
+  /** Code index of an event whose message is held already formatted. */
+  private static final int FORMATTED = -1;
+
+  /** The number of strings which precede the message or arguments. */
+  private static final int STRING_COUNT = 4;
+
+  private static final LogLineType[] TYPES = LogLineType.values();
+  private static final Level[] LEVELS = Level.values();
+
+  private final int capacity;
+  private final int slotSize;
+  private final int mask;
+  private final ByteBuffer slots;
+  private final AtomicLongArray stamps;
+  private final AtomicLong nextSequence = new AtomicLong();
+  private final LongAdder dropped = new LongAdder();
+
+  /** The log codes of unformatted events, by the index held in their slots. */
+  private final List<EELFResolvableResourceEnum> codes =
+      new CopyOnWriteArrayList<EELFResolvableResourceEnum>();
+  private final Map<EELFResolvableResourceEnum, Integer> codeIndexes =
+      new ConcurrentHashMap<EELFResolvableResourceEnum, Integer>();
+
+  /** Creates a recorder holding the default number of events. */
+  public LogFlightRecorder() {
+    this(DEFAULT_CAPACITY, DEFAULT_SLOT_SIZE);
+  }
+
+  /**
+   * Checks that a recorder can be created with a capacity and slot size.
+   *
+   * @param capacity
+   *          - The number of events to hold.
+   * @param slotSize
+   *          - The number of bytes each event is held in.
+   *
+   * @return - The capacity, rounded up to a power of two.
+   *
+   * @throws IllegalArgumentException
+   *           - If either is out of range, or the slots would not fit in one
+   *           buffer.
+   */
+  public static int checkSize(int capacity, int slotSize) {
+    if (capacity <= 0 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    if (slotSize < MIN_SLOT_SIZE || slotSize > MAX_SLOT_SIZE) {
+      throw new IllegalArgumentException("Slot size must be between " + MIN_SLOT_SIZE + " and "
+          + MAX_SLOT_SIZE + ": " + slotSize);
+    }
+    int rounded = Integer.highestOneBit(capacity);
+    rounded = rounded == capacity ? capacity : rounded << 1;
+    if ((long) rounded * slotSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(
+          "Capacity " + capacity + " of " + slotSize + " byte slots is too large");
+    }
+    return rounded;
+  }
+
+  /**
+   * Creates a recorder.
+   *
+   * @param capacity
+   *          - The number of events to hold, which is rounded up to a power of
+   *          two.
+   * @param slotSize
+   *          - The number of bytes each event is held in. Text which does not
+   *          fit is truncated.
+   */
+  public LogFlightRecorder(int capacity, int slotSize) {
+    this.capacity = checkSize(capacity, slotSize);
+    this.slotSize = slotSize;
+    mask = this.capacity - 1;
+    slots = ByteBuffer.allocateDirect(this.capacity * slotSize);
+    stamps = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      stamps.set(i, EMPTY);
+    }
+  }
+
+  /**
+   * Records an event, overwriting the oldest event held.
+   *
+   * @param type
+   *          - The type of the line.
+   * @param level
+   *          - The level of the line.
+   * @param logLine
+   *          - The initialized line, which is not formatted.
+   * @param ex
+   *          - The exception logged with the line, or null for none.
+   */
+  public void record(LogLineType type, Level level, LogLine logLine, Throwable ex) {
+    record(logLine.getLogTime(), type, level, FORMATTED, logLine.getLogCode(),
+        logLine.getMdcValue(MdcContext.MDC_REQUEST_ID), logLine.getComponent(), ex,
+        logLine.getMessage(), null);
+  }
+
+  /**
+   * Records an event which has not been rendered, overwriting the oldest event
+   * held. Its message is formatted from the log code and arguments when the
+   * events are dumped.
+   *
+   * @param type
+   *          - The type of the line.
+   * @param level
+   *          - The level of the line.
+   * @param logCode
+   *          - The log code of the line, or null for a simple message held in
+   *          the first argument.
+   * @param requestId
+   *          - The request id of the line, or null for none.
+   * @param component
+   *          - The component which logged the line.
+   * @param ex
+   *          - The exception logged with the line, or null for none.
+   * @param arguments
+   *          - The arguments of the log code's message.
+   */
+  public void record(LogLineType type, Level level, EELFResolvableResourceEnum logCode,
+      String requestId, String component, Throwable ex, String[] arguments) {
+    long now = System.currentTimeMillis();
+    if (logCode == null) {
+      record(now, type, level, FORMATTED, "", requestId, component, ex,
+          arguments == null || arguments.length == 0 ? "" : arguments[0], null);
+    } else {
+      record(now, type, level, codeIndex(logCode), "", requestId, component, ex, null,
+          arguments == null ? new String[0] : arguments);
+    }
+  }
+
+  /** Returns the index of a log code in our table, adding it if it is new. */
+  private int codeIndex(EELFResolvableResourceEnum logCode) {
+    Integer index = codeIndexes.get(logCode);
+    if (index == null) {
+      synchronized (codes) {
+        index = codeIndexes.get(logCode);
+        if (index == null) {
+          codes.add(logCode);
+          index = codes.size() - 1;
+          codeIndexes.put(logCode, index);
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Writes an event into the next slot.
+   *
+   * @param code
+   *          - The index of the event's log code, or {@link #FORMATTED} if its
+   *          message is supplied instead of its arguments.
+   */
+  private void record(long timestamp, LogLineType type, Level level, int code, String logCode,
+      String requestId, String component, Throwable ex, String message, String[] arguments) {
+    long sequence = nextSequence.getAndIncrement();
+    int slot = (int) (sequence & mask);
+
+    // Never wait for a slot, and never let a writer which was delayed by a
+    // full lap of the ring replace a newer event with an older one.
+    long stamp = stamps.get(slot);
+    if (stamp == BUSY || stamp > sequence || !stamps.compareAndSet(slot, stamp, BUSY)) {
+      dropped.increment();
+      return;
+    }
+    try {
+      int base = slot * slotSize;
+      int end = base + slotSize;
+      slots.putLong(base + TIMESTAMP_OFFSET, timestamp);
+      slots.put(base + TYPE_OFFSET, (byte) type.ordinal());
+      slots.put(base + LEVEL_OFFSET, (byte) level.ordinal());
+      slots.putInt(base + CODE_OFFSET, code);
+
+      // Each of the short strings may use at most a quarter of the slot, so
+      // that the message always has some room.
+      int shortLimit = (slotSize - STRINGS_OFFSET) / 4;
+      int position = base + STRINGS_OFFSET;
+      position = putString(position, end, shortLimit, 4, logCode);
+      position = putString(position, end, shortLimit, 3, requestId);
+      position = putString(position, end, shortLimit, 2, component);
+      position = putString(position, end, shortLimit, 1, ex == null ? "" : ex.toString());
+      if (code == FORMATTED) {
+        putString(position, end, slotSize, 0, message);
+      } else {
+        // The argument count, then as many of the arguments as there is room
+        // for the length prefixes of.
+        int count = Math.min(arguments.length, (end - position - 2) / 2);
+        slots.putShort(position, (short) count);
+        position += 2;
+        for (int i = 0; i < count; i++) {
+          position = putString(position, end, slotSize, count - 1 - i, arguments[i]);
+        }
+      }
+    } finally {
+      stamps.set(slot, sequence);
+    }
+  }
+
+  /**
+   * Writes a string into a slot as a two byte length followed by as much of
+   * its UTF-8 encoding as fits, never splitting a character.
+   *
+   * @param position
+   *          - The offset in the buffer to write at.
+   * @param end
+   *          - The offset of the end of the slot.
+   * @param maxBytes
+   *          - The most bytes the encoded string may use.
+   * @param stringsAfter
+   *          - The number of strings still to be written after this one, whose
+   *          length prefixes must fit in the slot.
+   *
+   * @return - The offset just past the string.
+   */
+  private int putString(int position, int end, int maxBytes, int stringsAfter, String value) {
+    int limit = Math.min(end - 2 * stringsAfter, position + 2 + maxBytes);
+    return DirectStrings.put(slots, position, limit, value, true);
+  }
+
+  /**
+   * Formats the events currently held, oldest first. Each event is a pipe
+   * delimited line of its timestamp, type, level, log code, request id,
+   * component, message and exception.
+   *
+   * @return - The formatted events.
+   */
+  public List<String> getRecentEvents() {
+    List<Snapshot> events = new ArrayList<Snapshot>();
+    ByteBuffer source = slots.duplicate();
+    for (int slot = 0; slot < capacity; slot++) {
+      long stamp = stamps.get(slot);
+      if (stamp < 0 || !stamps.compareAndSet(slot, stamp, BUSY)) {
+        continue;
+      }
+      byte[] data = new byte[slotSize];
+      try {
+        source.position(slot * slotSize);
+        source.get(data);
+      } finally {
+        stamps.set(slot, stamp);
+      }
+      events.add(new Snapshot(stamp, data));
+    }
+    Collections.sort(events, new Comparator<Snapshot>() {
+      @Override
+      public int compare(Snapshot first, Snapshot second) {
+        return Long.compare(first.sequence, second.sequence);
+      }
+    });
+
+    SimpleDateFormat formatter = new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT);
+    List<String> lines = new ArrayList<String>(events.size());
+    for (Snapshot event : events) {
+      lines.add(event.format(formatter, codes));
+    }
+    return lines;
+  }
+
+  /**
+   * Writes the events currently held to a file, oldest first, one per line in
+   * the form produced by {@link #getRecentEvents()}.
+   *
+   * @param file
+   *          - The file to write, which is replaced if it exists.
+   *
+   * @return - The number of events written.
+   */
+  public int dump(Path file) throws IOException {
+    List<String> lines = getRecentEvents();
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.newLine();
+      }
+    }
+    return lines.size();
+  }
+
+  @Override
+  public int dump(String fileName) throws IOException {
+    return dump(Paths.get(fileName));
+  }
+
+  @Override
+  public int getCapacity() {
+    return capacity;
+  }
+
+  @Override
+  public long getRecordedCount() {
+    return nextSequence.get() - dropped.sum();
+  }
+
+  @Override
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /** A copy of the contents of a slot. */
+  private static class Snapshot {
+    private final long sequence;
+    private final byte[] data;
+
+    Snapshot(long sequence, byte[] data) {
+      this.sequence = sequence;
+      this.data = data;
+    }
+
+    String format(SimpleDateFormat formatter, List<EELFResolvableResourceEnum> codes) {
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      StringBuilder line = new StringBuilder(data.length + 64);
+      line.append(formatter.format(new Date(buffer.getLong(TIMESTAMP_OFFSET)))).append('|');
+      line.append(TYPES[buffer.get(TYPE_OFFSET)]).append('|');
+      line.append(LEVELS[buffer.get(LEVEL_OFFSET)]);
+
+      String[] strings = new String[STRING_COUNT];
+      int position = STRINGS_OFFSET;
+      for (int i = 0; i < STRING_COUNT; i++) {
+        strings[i] = DirectStrings.get(buffer, position);
+        position += 2 + DirectStrings.length(buffer, position);
+      }
+
+      String message;
+      int code = buffer.getInt(CODE_OFFSET);
+      if (code == FORMATTED) {
+        message = DirectStrings.get(buffer, position);
+      } else {
+        String[] arguments = new String[buffer.getShort(position)];
+        position += 2;
+        for (int i = 0; i < arguments.length; i++) {
+          arguments[i] = DirectStrings.get(buffer, position);
+          position += 2 + DirectStrings.length(buffer, position);
+        }
+        EELFResolvableResourceEnum logCode = codes.get(code);
+        strings[0] = EELFResourceManager.getIdentifier(logCode);
+        message = EELFResourceManager.format(logCode, arguments);
+      }
+
+      // Written as code, request id, component, exception, message, so that
+      // the message gets whatever room is left; shown with the message ahead
+      // of the exception.
+      line.append('|').append(strings[0]).append('|').append(strings[1]).append('|')
+          .append(strings[2]).append('|').append(message).append('|').append(strings[3]);
+      return line.toString();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.recorder;
+
+import java.io.IOException;
+
+/**
+ * JMX management interface for the {@link LogFlightRecorder}, allowing the
+ * recent log events it holds to be dumped to a file on demand.
+ */
+public interface LogFlightRecorderMXBean {
+
+  /** @return - The number of events the recorder holds. */
+  public int getCapacity();
+
+  /** @return - The number of events recorded since the recorder was created. */
+  public long getRecordedCount();
+
+  /** @return - The number of events dropped because their slot was busy. */
+  public long getDroppedCount();
+
+  /**
+   * Writes the events currently held to a file, oldest first.
+   *
+   * @param fileName
+   *          - The file to write, which is replaced if it exists.
+   *
+   * @return - The number of events written.
+   */
+  public int dump(String fileName) throws IOException;
+}
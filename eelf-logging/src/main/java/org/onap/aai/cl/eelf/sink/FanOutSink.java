@@ -0,0 +1,295 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.sink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+
+/**
+ * A {@link LogSink} which renders each log line once into an immutable byte
+ * buffer and then hands that same buffer to any number of
+ * {@link LogDestination}s.
+ * <p>
+ * Every destination is serviced by its own bounded queue and writer thread, so
+ * a slow destination only ever backs up its own queue. When a destination's
+ * queue is full, further records for that destination are dropped (and
+ * counted) rather than stalling the logging thread or the other destinations.
+ */
+public class FanOutSink implements LogSink {
+
+  /** Default number of records which may be queued for a single destination. */
+  public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+  /** Maximum number of records a writer thread will write before flushing. */
+  private static final int MAX_BATCH_SIZE = 256;
+
+  /** How long {@link #close()} waits for each destination to drain. */
+  private static final long CLOSE_TIMEOUT_MS = 5000;
+
+  /** Sentinel used to tell a writer thread to drain its queue and exit. */
+  private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+  /** The destinations we fan out to, keyed by name. */
+  private final Map<String, Outlet> outlets = new ConcurrentHashMap<String, Outlet>();
+
+  /** Capacity of the queue created for each destination. */
+  private final int queueCapacity;
+
+  /** Creates a fan-out sink using the default per-destination queue capacity. */
+  public FanOutSink() {
+    this(DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Creates a fan-out sink.
+   *
+   * @param queueCapacity
+   *          - The maximum number of records which may be queued for each
+   *          destination before records start being dropped.
+   */
+  public FanOutSink(int queueCapacity) {
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+    }
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Adds a destination and starts its writer thread.
+   *
+   * @param name
+   *          - A unique name identifying the destination.
+   * @param destination
+   *          - The destination to write records to.
+   */
+  public void addDestination(String name, LogDestination destination) {
+    Outlet outlet = new Outlet(name, destination, queueCapacity);
+    if (outlets.putIfAbsent(name, outlet) != null) {
+      throw new IllegalArgumentException("Duplicate destination name: " + name);
+    }
+    outlet.start();
+  }
+
+  /**
+   * Stops and closes a destination, after writing any records already queued
+   * for it.
+   *
+   * @param name
+   *          - The name the destination was registered with.
+   */
+  public void removeDestination(String name) {
+    Outlet outlet = outlets.remove(name);
+    if (outlet != null) {
+      outlet.shutdown();
+    }
+  }
+
+  /**
+   * Returns the number of records which were dropped for a destination because
+   * its queue was full.
+   *
+   * @param name
+   *          - The name the destination was registered with.
+   *
+   * @return - The dropped record count, or 0 for an unknown destination.
+   */
+  public long getDroppedCount(String name) {
+    Outlet outlet = outlets.get(name);
+    return outlet == null ? 0 : outlet.dropped.get();
+  }
+
+  /**
+   * Returns the number of records a destination failed to write.
+   *
+   * @param name
+   *          - The name the destination was registered with.
+   *
+   * @return - The failed record count, or 0 for an unknown destination.
+   */
+  public long getFailedCount(String name) {
+    Outlet outlet = outlets.get(name);
+    return outlet == null ? 0 : outlet.failed.get();
+  }
+
+  @Override
+  public void write(LogLineType type, LogLine logLine, String formattedLine) {
+    if (outlets.isEmpty()) {
+      return;
+    }
+
+    // Render the line exactly once; every destination gets its own view of
+    // the same read-only bytes.
+    ByteBuffer record = encode(formattedLine);
+    for (Outlet outlet : outlets.values()) {
+      outlet.offer(record.duplicate());
+    }
+  }
+
+  @Override
+  public void close() {
+    List<String> names = new ArrayList<String>(outlets.keySet());
+    for (String name : names) {
+      removeDestination(name);
+    }
+  }
+
+  /**
+   * Encodes a formatted line as a newline terminated UTF-8 record.
+   *
+   * @param formattedLine
+   *          - The line to encode.
+   *
+   * @return - A read-only buffer holding the encoded record.
+   */
+  static ByteBuffer encode(String formattedLine) {
+    byte[] line = formattedLine.getBytes(StandardCharsets.UTF_8);
+    byte[] bytes = new byte[line.length + 1];
+    System.arraycopy(line, 0, bytes, 0, line.length);
+    bytes[line.length] = '\n';
+    return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+  }
+
+  /** Couples a destination with its queue and writer thread. */
+  private static class Outlet implements Runnable {
+
+    private final LogDestination destination;
+    private final BlockingQueue<ByteBuffer> queue;
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean closing;
+    private volatile boolean finished;
+
+    Outlet(String name, LogDestination destination, int capacity) {
+      this.destination = destination;
+      this.queue = new ArrayBlockingQueue<ByteBuffer>(capacity);
+      this.writer = new Thread(this, "FanOutSink-" + name);
+      this.writer.setDaemon(true);
+    }
+
+    void start() {
+      writer.start();
+    }
+
+    void offer(ByteBuffer record) {
+      if (closing || !queue.offer(record)) {
+        dropped.incrementAndGet();
+      } else if (finished && queue.remove(record)) {
+        // We raced with shutdown and our record landed after the writer had
+        // already taken its last look at the queue.
+        dropped.incrementAndGet();
+      }
+    }
+
+    void shutdown() {
+      closing = true;
+      try {
+        // Give the writer a chance to make room for the end of the stream;
+        // if it cannot, the records still queued are discarded instead.
+        if (!queue.offer(END_OF_STREAM, CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+          while (!queue.offer(END_OF_STREAM)) {
+            dropped.addAndGet(discard());
+          }
+        }
+        writer.join(CLOSE_TIMEOUT_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Empties the queue.
+     *
+     * @return - The number of records which were discarded.
+     */
+    private int discard() {
+      List<ByteBuffer> discarded = new ArrayList<ByteBuffer>();
+      queue.drainTo(discarded);
+      int count = 0;
+      for (ByteBuffer record : discarded) {
+        if (record != END_OF_STREAM) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    public void run() {
+      List<ByteBuffer> batch = new ArrayList<ByteBuffer>(MAX_BATCH_SIZE);
+      boolean done = false;
+      try {
+        while (!done) {
+          batch.add(queue.take());
+          queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+          for (ByteBuffer record : batch) {
+            if (record == END_OF_STREAM) {
+              done = true;
+            } else {
+              writeRecord(record);
+            }
+          }
+          batch.clear();
+          flush();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        // Records offered while we were shutting down are never written.
+        finished = true;
+        dropped.addAndGet(discard());
+        try {
+          destination.close();
+        } catch (IOException e) {
+          // Nothing more we can do with a destination that will not close.
+        }
+      }
+    }
+
+    private void writeRecord(ByteBuffer record) {
+      try {
+        destination.write(record);
+      } catch (IOException | RuntimeException e) {
+        failed.incrementAndGet();
+      }
+    }
+
+    private void flush() {
+      try {
+        destination.flush();
+      } catch (IOException | RuntimeException e) {
+        failed.incrementAndGet();
+      }
+    }
+  }
+}
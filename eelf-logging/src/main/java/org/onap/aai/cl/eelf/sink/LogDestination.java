@@ -0,0 +1,62 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.sink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A single output of a {@link FanOutSink}, such as a local file, a socket or an
+ * in-process tap.
+ */
+public interface LogDestination {
+
+  /**
+   * Writes a single, already encoded, log record.
+   *
+   * @param record
+   *          - A read-only view of the encoded record. The buffer is shared with
+   *          the other destinations of the fan-out, so its contents must not be
+   *          retained beyond this call without copying.
+   *
+   * @throws IOException
+   *           if the record could not be written.
+   */
+  public void write(ByteBuffer record) throws IOException;
+
+  /**
+   * Invoked after each batch of records has been written.
+   *
+   * @throws IOException
+   *           if buffered records could not be flushed.
+   */
+  public default void flush() throws IOException {
+  }
+
+  /**
+   * Releases any resources held by the destination.
+   *
+   * @throws IOException
+   *           if the destination could not be closed cleanly.
+   */
+  public default void close() throws IOException {
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.sink;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+
+/**
+ * A destination for standardized log lines which is invoked in addition to the
+ * underlying EELF logger.
+ * <p>
+ * Sinks are invoked on the thread which generated the log statement, once the
+ * line has been formatted, so implementations which perform I/O should hand
+ * the line off to a background thread rather than blocking the caller.
+ */
+public interface LogSink {
+
+  /**
+   * Accepts a log line which has just been produced by a logger.
+   *
+   * @param type
+   *          - The type of log line (audit, metrics, error).
+   * @param logLine
+   *          - The initialized log line that produced the formatted string.
+   * @param formattedLine
+   *          - The fully formatted log string, or null if the line was not
+   *          formatted because nothing which needs it is enabled.
+   */
+  public void write(LogLineType type, LogLine logLine, String formattedLine);
+
+  /**
+   * Indicates whether the sink uses the formatted log string. Sinks which work
+   * from the fields of the {@link LogLine} instead should return false, so
+   * that lines need not be formatted at all when text output is disabled.
+   *
+   * @return - true if the sink needs the formatted log string.
+   */
+  public default boolean needsFormattedLine() {
+    return true;
+  }
+
+  /**
+   * Indicates whether the sink must be invoked on the thread which logged the
+   * line, because what it records depends on that thread. Lines of the type
+   * are then rendered on the calling thread even when deferred rendering is
+   * enabled for them.
+   *
+   * @param type
+   *          - The type of log line.
+   *
+   * @return - true if lines of the type must not be deferred.
+   */
+  public default boolean needsCallingThread(LogLineType type) {
+    return false;
+  }
+
+  /**
+   * Releases any resources held by the sink. Lines which have already been
+   * accepted should be written out before this method returns.
+   */
+  public void close();
+}
@@ -0,0 +1,467 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.sink;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+
+/**
+ * A {@link LogSink} which ships formatted log lines to a local collector using
+ * RFC 5424 syslog messages over UDP or TCP.
+ * <p>
+ * Lines are framed on the logging thread and placed on a bounded queue. A
+ * single background thread drains the queue and writes the records using
+ * non-blocking NIO, packing as many records as will fit into each TCP write
+ * (using RFC 6587 octet-counting framing). If the collector is unavailable
+ * the thread reconnects with exponential backoff; while it is disconnected
+ * records accumulate in the queue and, once the queue is full, new records
+ * are dropped and counted.
+ * <p>
+ * Delivery is at-least-once: a TCP batch which was only partially written
+ * when the connection failed is resent in full on the next connection.
+ * <p>
+ * The background thread is started by the first line written to the sink.
+ */
+public class SyslogSink implements LogSink {
+
+  /** The transports that a collector can be reached over. */
+  public enum Transport {
+    UDP, TCP
+  }
+
+  /** Default number of records which may be queued while awaiting delivery. */
+  public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+  /** Default facility (local0) used when computing the syslog priority. */
+  public static final int DEFAULT_FACILITY = 16;
+
+  /** Size of the buffer that TCP records are batched into. */
+  private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+
+  /** The largest message we will frame for TCP, leaving room for the length prefix. */
+  private static final int MAX_TCP_MESSAGE_SIZE = BATCH_BUFFER_SIZE - 16;
+
+  /** The largest UDP payload we will attempt to send. */
+  private static final int MAX_DATAGRAM_SIZE = 65507;
+
+  /** Delay before the first reconnection attempt. */
+  private static final long INITIAL_BACKOFF_MS = 100;
+
+  /** Upper bound on the delay between reconnection attempts. */
+  private static final long MAX_BACKOFF_MS = 30000;
+
+  /** How long we wait for a connection or a writable socket. */
+  private static final long IO_TIMEOUT_MS = 1000;
+
+  /** How long {@link #close()} waits for queued records to be delivered. */
+  private static final long CLOSE_TIMEOUT_MS = 5000;
+
+  /** RFC 5424 value for an unknown (nil) header field. */
+  private static final String NIL = "-";
+
+  /** Format of the RFC 5424 TIMESTAMP header field. */
+  private static final DateTimeFormatter TIMESTAMP_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneId.systemDefault());
+
+  private final Transport transport;
+  private final InetSocketAddress collector;
+  private final int facility;
+  private final String hostName;
+  private final String appName;
+  private final String procId;
+
+  private final BlockingQueue<byte[]> queue;
+  private final Thread shipper;
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final ByteBuffer batch;
+
+  private final AtomicLong sent = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong reconnects = new AtomicLong();
+
+  private volatile boolean running = true;
+
+  private Selector selector;
+  private ByteChannel channel;
+  private long backoffMs = INITIAL_BACKOFF_MS;
+  private boolean connectedBefore;
+  private int batchRecords;
+
+  /**
+   * Creates a sink which ships lines to a collector using the default facility
+   * and queue capacity.
+   *
+   * @param transport
+   *          - Whether to use UDP or TCP.
+   * @param collector
+   *          - The address of the syslog collector.
+   * @param appName
+   *          - The APP-NAME to put in the syslog header.
+   */
+  public SyslogSink(Transport transport, InetSocketAddress collector, String appName) {
+    this(transport, collector, appName, DEFAULT_FACILITY, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Creates a sink which ships lines to a collector.
+   *
+   * @param transport
+   *          - Whether to use UDP or TCP.
+   * @param collector
+   *          - The address of the syslog collector.
+   * @param appName
+   *          - The APP-NAME to put in the syslog header.
+   * @param facility
+   *          - The syslog facility (0-23) used when computing the priority.
+   * @param queueCapacity
+   *          - The maximum number of records buffered while awaiting delivery.
+   */
+  public SyslogSink(Transport transport, InetSocketAddress collector, String appName,
+      int facility, int queueCapacity) {
+    if (facility < 0 || facility > 23) {
+      throw new IllegalArgumentException("Invalid syslog facility: " + facility);
+    }
+    this.transport = transport;
+    this.collector = collector;
+    this.facility = facility;
+    this.appName = headerField(appName, 48);
+    this.hostName = headerField(localHostName(), 255);
+    this.procId = headerField(processId(), 128);
+    this.queue = new ArrayBlockingQueue<byte[]>(queueCapacity);
+    this.batch = ByteBuffer.allocateDirect(
+        transport == Transport.TCP ? BATCH_BUFFER_SIZE : MAX_DATAGRAM_SIZE);
+    this.batch.flip();
+
+    shipper = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        ship();
+      }
+    }, "SyslogSink-" + collector);
+    shipper.setDaemon(true);
+  }
+
+  /** @return - The number of records delivered to the collector. */
+  public long getSentCount() {
+    return sent.get();
+  }
+
+  /** @return - The number of records dropped because the queue was full. */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /** @return - The number of times the connection to the collector was re-established. */
+  public long getReconnectCount() {
+    return reconnects.get();
+  }
+
+  @Override
+  public void write(LogLineType type, LogLine logLine, String formattedLine) {
+    if (!running || !queue.offer(frame(type, logLine.getLevel(), formattedLine))) {
+      dropped.incrementAndGet();
+    } else if (!started.get() && started.compareAndSet(false, true)) {
+      // Started here rather than in the constructor, so that the thread never
+      // sees a partly constructed sink.
+      shipper.start();
+    }
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    try {
+      shipper.join(CLOSE_TIMEOUT_MS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (shipper.isAlive()) {
+      shipper.interrupt();
+    }
+  }
+
+  /**
+   * Builds the wire representation of a single record.
+   *
+   * @return - The RFC 5424 message, prefixed with its length for TCP.
+   */
+  byte[] frame(LogLineType type, String level, String formattedLine) {
+    String timestamp = TIMESTAMP_FORMAT.format(Instant.now());
+    String message = "<" + (facility * 8 + severity(level)) + ">1 " + timestamp + " "
+        + hostName + " " + appName + " " + procId + " " + type + " " + NIL + " "
+        + formattedLine;
+    byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+
+    if (transport == Transport.UDP) {
+      return truncate(bytes, MAX_DATAGRAM_SIZE);
+    }
+
+    // TCP uses octet counting, so that multi-line messages survive intact. The
+    // frame is capped so that it always fits in a single batch.
+    bytes = truncate(bytes, MAX_TCP_MESSAGE_SIZE);
+    byte[] prefix = (bytes.length + " ").getBytes(StandardCharsets.US_ASCII);
+    byte[] framed = new byte[prefix.length + bytes.length];
+    System.arraycopy(prefix, 0, framed, 0, prefix.length);
+    System.arraycopy(bytes, 0, framed, prefix.length, bytes.length);
+    return framed;
+  }
+
+  /** Truncates UTF-8 text to a maximum length, without splitting a character. */
+  static byte[] truncate(byte[] bytes, int maxLength) {
+    if (bytes.length <= maxLength) {
+      return bytes;
+    }
+    int length = maxLength;
+    while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+      length--;
+    }
+    byte[] truncated = new byte[length];
+    System.arraycopy(bytes, 0, truncated, 0, length);
+    return truncated;
+  }
+
+  /** Maps one of our log levels onto a syslog severity. */
+  static int severity(String level) {
+    if ("ERROR".equals(level)) {
+      return 3;
+    }
+    if ("WARN".equals(level)) {
+      return 4;
+    }
+    if ("INFO".equals(level)) {
+      return 6;
+    }
+    return 7;
+  }
+
+  /** Body of the shipper thread. */
+  private void ship() {
+    try {
+      selector = Selector.open();
+    } catch (IOException e) {
+      running = false;
+      return;
+    }
+
+    byte[] carried = null;
+    try {
+      while (running || !queue.isEmpty() || batch.hasRemaining() || carried != null) {
+        if (channel == null && !connect()) {
+          if (!running) {
+            // Do not hold up shutdown waiting on a collector that is not there.
+            break;
+          }
+          Thread.sleep(backoffMs);
+          backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+          continue;
+        }
+
+        if (!batch.hasRemaining()) {
+          carried = fillBatch(carried);
+          if (!batch.hasRemaining()) {
+            continue;
+          }
+        }
+
+        try {
+          flushBatch();
+        } catch (IOException e) {
+          // Resend the whole batch once we have reconnected.
+          batch.rewind();
+          disconnect();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      disconnect();
+      try {
+        selector.close();
+      } catch (IOException e) {
+        // Nothing more to do at this point.
+      }
+    }
+  }
+
+  /**
+   * Packs as many queued records as will fit into the batch buffer.
+   *
+   * @param carried
+   *          - A record which did not fit into the previous batch, or null.
+   *
+   * @return - A record which did not fit into this batch, or null.
+   */
+  private byte[] fillBatch(byte[] carried) throws InterruptedException {
+    batch.clear();
+    batchRecords = 0;
+    byte[] record = carried != null ? carried : queue.poll(IO_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    byte[] leftOver = null;
+
+    while (record != null) {
+      if (record.length > batch.remaining()) {
+        leftOver = record;
+        break;
+      }
+      batch.put(record);
+      batchRecords++;
+
+      // A datagram carries exactly one record.
+      if (transport == Transport.UDP) {
+        break;
+      }
+      record = queue.poll();
+    }
+    batch.flip();
+    return leftOver;
+  }
+
+  /** Writes the current batch, waiting for the socket to become writable as needed. */
+  private void flushBatch() throws IOException, InterruptedException {
+    while (batch.hasRemaining()) {
+      if (channel.write(batch) == 0) {
+        awaitReady(SelectionKey.OP_WRITE);
+      }
+    }
+    sent.addAndGet(batchRecords);
+    batchRecords = 0;
+  }
+
+  /**
+   * Opens a non-blocking channel to the collector.
+   *
+   * @return - true if the channel is ready for writing, false otherwise.
+   */
+  private boolean connect() throws InterruptedException {
+    SelectableChannel opened = null;
+    try {
+      if (transport == Transport.TCP) {
+        SocketChannel socket = SocketChannel.open();
+        opened = socket;
+        socket.configureBlocking(false);
+        channel = socket;
+        if (!socket.connect(collector)) {
+          awaitReady(SelectionKey.OP_CONNECT);
+          if (!socket.finishConnect()) {
+            throw new IOException("Timed out connecting to " + collector);
+          }
+        }
+      } else {
+        DatagramChannel datagram = DatagramChannel.open();
+        opened = datagram;
+        datagram.configureBlocking(false);
+        datagram.connect(collector);
+        channel = datagram;
+      }
+    } catch (IOException e) {
+      channel = null;
+      closeQuietly(opened);
+      return false;
+    }
+
+    if (connectedBefore) {
+      reconnects.incrementAndGet();
+    }
+    connectedBefore = true;
+    backoffMs = INITIAL_BACKOFF_MS;
+    return true;
+  }
+
+  /** Blocks until the channel is ready for the requested operation or we time out. */
+  private void awaitReady(int operation) throws IOException, InterruptedException {
+    SelectionKey key = ((SelectableChannel) channel).register(selector, operation);
+    try {
+      if (selector.select(IO_TIMEOUT_MS) == 0 && !running) {
+        throw new IOException("Collector " + collector + " not ready during shutdown");
+      }
+      selector.selectedKeys().clear();
+    } finally {
+      key.interestOps(0);
+    }
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+  }
+
+  private void disconnect() {
+    if (channel != null) {
+      closeQuietly((SelectableChannel) channel);
+      channel = null;
+    }
+  }
+
+  private static void closeQuietly(SelectableChannel selectable) {
+    if (selectable != null) {
+      try {
+        selectable.close();
+      } catch (IOException e) {
+        // Nothing more to do at this point.
+      }
+    }
+  }
+
+  /** Makes a value safe for use as an RFC 5424 header field. */
+  private static String headerField(String value, int maxLength) {
+    if (value == null || value.isEmpty()) {
+      return NIL;
+    }
+    StringBuilder sb = new StringBuilder(Math.min(value.length(), maxLength));
+    for (int i = 0; i < value.length() && sb.length() < maxLength; i++) {
+      char c = value.charAt(i);
+      sb.append(c > 32 && c < 127 ? c : '_');
+    }
+    return sb.toString();
+  }
+
+  private static String localHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (IOException e) {
+      return NIL;
+    }
+  }
+
+  private static String processId() {
+    String name = ManagementFactory.getRuntimeMXBean().getName();
+    int at = name.indexOf('@');
+    return at > 0 ? name.substring(0, at) : NIL;
+  }
+}
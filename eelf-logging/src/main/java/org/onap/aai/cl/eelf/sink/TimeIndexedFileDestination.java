@@ -0,0 +1,111 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.sink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.analysis.TimeIndex;
+import org.onap.aai.cl.eelf.analysis.TimeIndexWriter;
+
+/**
+ * A {@link LogDestination} which appends audit or metrics lines to a local
+ * file and maintains the file's {@link TimeIndex} as it goes, so that the
+ * lines of a time range can be found without scanning the file.
+ */
+public class TimeIndexedFileDestination implements LogDestination {
+
+  private final FileChannel channel;
+  private final TimeIndexWriter index;
+  private long position;
+
+  /**
+   * Opens (or creates) the supplied file for appending, using the default
+   * index block size.
+   *
+   * @param file
+   *          - The file to append log lines to.
+   * @param type
+   *          - The type of lines written to the file, either AUDIT or METRICS.
+   *
+   * @throws IOException
+   *           if the file or its index could not be opened.
+   */
+  public TimeIndexedFileDestination(Path file, LogLineType type) throws IOException {
+    this(file, type, TimeIndex.DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Opens (or creates) the supplied file for appending.
+   *
+   * @param file
+   *          - The file to append log lines to.
+   * @param type
+   *          - The type of lines written to the file, either AUDIT or METRICS.
+   * @param blockSize
+   *          - The minimum amount of the file covered by each index entry.
+   *
+   * @throws IOException
+   *           if the file or its index could not be opened.
+   */
+  public TimeIndexedFileDestination(Path file, LogLineType type, int blockSize)
+      throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    try {
+      index = TimeIndexWriter.open(file, type, blockSize);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    position = channel.size();
+  }
+
+  @Override
+  public void write(ByteBuffer record) throws IOException {
+    long offset = position;
+    ByteBuffer line = record.duplicate();
+    try {
+      while (record.hasRemaining()) {
+        channel.write(record);
+      }
+    } catch (IOException e) {
+      // Part of the record may have been written, so find out where we are.
+      position = channel.size();
+      throw e;
+    }
+    position = offset + line.remaining();
+    index.lineWritten(offset, line);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      index.close();
+    } finally {
+      channel.close();
+    }
+  }
+}
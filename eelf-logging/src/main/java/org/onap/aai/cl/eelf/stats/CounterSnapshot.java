@@ -0,0 +1,78 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.stats;
+
+import java.beans.ConstructorProperties;
+
+/** An immutable point-in-time copy of a set of logging counters. */
+public class CounterSnapshot {
+
+  private final long lines;
+  private final long bytes;
+  private final long suppressed;
+  private final long exceptions;
+
+  /**
+   * Creates a snapshot.
+   *
+   * @param lines
+   *          - Number of lines written.
+   * @param bytes
+   *          - Number of UTF-8 encoded bytes written.
+   * @param suppressed
+   *          - Number of lines suppressed rather than written.
+   * @param exceptions
+   *          - Number of lines written with an exception.
+   */
+  @ConstructorProperties({"lines", "bytes", "suppressed", "exceptions"})
+  public CounterSnapshot(long lines, long bytes, long suppressed, long exceptions) {
+    this.lines = lines;
+    this.bytes = bytes;
+    this.suppressed = suppressed;
+    this.exceptions = exceptions;
+  }
+
+  /** @return - Number of lines written. */
+  public long getLines() {
+    return lines;
+  }
+
+  /** @return - Number of UTF-8 encoded bytes written. */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /** @return - Number of lines suppressed rather than written. */
+  public long getSuppressed() {
+    return suppressed;
+  }
+
+  /** @return - Number of lines written with an exception. */
+  public long getExceptions() {
+    return exceptions;
+  }
+
+  @Override
+  public String toString() {
+    return "lines=" + lines + " bytes=" + bytes + " suppressed=" + suppressed + " exceptions="
+        + exceptions;
+  }
+}
@@ -0,0 +1,187 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative long values, such as latencies.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two is split into
+ * {@value #SUB_BUCKET_COUNT} equally sized buckets, which bounds the relative
+ * error of any reported percentile to roughly 3% while keeping the histogram a
+ * fixed size regardless of the range of values recorded. Recording a value is
+ * a handful of atomic operations and never blocks.
+ */
+public class LatencyHistogram {
+
+  /** Number of bits of precision kept below the leading bit of a value. */
+  private static final int SUB_BUCKET_BITS = 5;
+
+  /** Number of buckets each power of two is divided into. */
+  public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /** Total number of buckets needed to cover every non-negative long. */
+  private static final int BUCKET_COUNT =
+      SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+  /**
+   * Records a single value. Negative values are recorded as zero.
+   *
+   * @param value
+   *          - The value to record.
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    buckets.incrementAndGet(bucketIndex(v));
+    count.increment();
+    sum.add(v);
+    updateMin(v);
+    updateMax(v);
+  }
+
+  /**
+   * Adds every value recorded in another histogram to this one.
+   *
+   * @param other
+   *          - The histogram to merge into this one.
+   */
+  public void merge(LatencyHistogram other) {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      long n = other.buckets.get(i);
+      if (n != 0) {
+        buckets.addAndGet(i, n);
+      }
+    }
+    count.add(other.count.sum());
+    sum.add(other.sum.sum());
+    if (other.getCount() > 0) {
+      updateMin(other.min.get());
+      updateMax(other.max.get());
+    }
+  }
+
+  /** @return - The number of values recorded. */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /** @return - The sum of every value recorded. */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /** @return - The smallest value recorded, or 0 if the histogram is empty. */
+  public long getMin() {
+    return getCount() == 0 ? 0 : min.get();
+  }
+
+  /** @return - The largest value recorded, or 0 if the histogram is empty. */
+  public long getMax() {
+    return getCount() == 0 ? 0 : max.get();
+  }
+
+  /** @return - The arithmetic mean of the values recorded, or 0 if the histogram is empty. */
+  public double getMean() {
+    long n = getCount();
+    return n == 0 ? 0 : (double) getSum() / n;
+  }
+
+  /**
+   * Returns an estimate of the value at a given percentile.
+   *
+   * @param percentile
+   *          - The percentile, between 0 and 100.
+   *
+   * @return - The highest value of the bucket containing the percentile, capped
+   *         to the range of values actually recorded, or 0 if the histogram is
+   *         empty.
+   */
+  public long getValueAtPercentile(double percentile) {
+    long total = getCount();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total);
+    rank = Math.max(1, rank);
+
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += buckets.get(i);
+      if (seen >= rank) {
+        return Math.max(getMin(), Math.min(getMax(), bucketUpperBound(i)));
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Produces a one-line summary suitable for use as a log message.
+   *
+   * @return - count, min, max, p50 and p99 of the recorded values.
+   */
+  public String summary() {
+    return "count=" + getCount() + " min=" + getMin() + " max=" + getMax() + " p50="
+        + getValueAtPercentile(50) + " p99=" + getValueAtPercentile(99);
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int mantissa = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+    return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + mantissa;
+  }
+
+  static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+    long mantissa = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+    long lower = (1L << (shift + SUB_BUCKET_BITS)) | (mantissa << shift);
+    return lower + (1L << shift) - 1;
+  }
+
+  private void updateMin(long value) {
+    long current = min.get();
+    while (value < current && !min.compareAndSet(current, value)) {
+      current = min.get();
+    }
+  }
+
+  private void updateMax(long value) {
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+}
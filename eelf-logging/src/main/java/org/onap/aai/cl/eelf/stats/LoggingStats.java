@@ -0,0 +1,250 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.stats;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.onap.aai.cl.api.LogLine.LogLineType;
+
+/**
+ * Counts the lines, bytes, suppressed lines and exceptions produced by the
+ * logging library, by log line type, level and log code.
+ * <p>
+ * All counters are striped {@link LongAdder}s, so recording is contention
+ * free and cheap enough to leave on in production. The breakdown by log code
+ * is held in a concurrent map which only allocates the first time each code
+ * is seen.
+ */
+public class LoggingStats implements LoggingStatsMXBean {
+
+  /** Key used for lines which do not have a log code, such as simple debug messages. */
+  public static final String NO_LOG_CODE = "NONE";
+
+  /** The log levels we keep counters for. */
+  private static final String[] LEVELS = {"TRACE", "DEBUG", "INFO", "WARN", "ERROR"};
+
+  private final Counters[] byType = newCounters(LogLineType.values().length);
+  private final Counters[] byLevel = newCounters(LEVELS.length);
+  private final ConcurrentMap<String, Counters> byCode = new ConcurrentHashMap<String, Counters>();
+
+  /**
+   * Records a line which has been written.
+   *
+   * @param type
+   *          - The type of the line.
+   * @param level
+   *          - The level the line was written at.
+   * @param logCode
+   *          - The log code of the line, or an empty string if it has none.
+   * @param formattedLine
+   *          - The line as written, or null if it was not written as text.
+   * @param withException
+   *          - true if an exception was logged along with the line.
+   */
+  public void recordLine(LogLineType type, String level, String logCode, String formattedLine,
+      boolean withException) {
+    long bytes = formattedLine == null ? 0 : utf8Length(formattedLine);
+    byType[type.ordinal()].recordLine(bytes, withException);
+    Counters levelCounters = levelCounters(level);
+    if (levelCounters != null) {
+      levelCounters.recordLine(bytes, withException);
+    }
+    codeCounters(logCode).recordLine(bytes, withException);
+  }
+
+  /**
+   * Records a line which was suppressed rather than written.
+   *
+   * @param type
+   *          - The type of the line.
+   * @param level
+   *          - The level the line would have been written at.
+   * @param logCode
+   *          - The log code of the line, or an empty string if it has none.
+   */
+  public void recordSuppressed(LogLineType type, String level, String logCode) {
+    byType[type.ordinal()].suppressed.increment();
+    Counters levelCounters = levelCounters(level);
+    if (levelCounters != null) {
+      levelCounters.suppressed.increment();
+    }
+    codeCounters(logCode).suppressed.increment();
+  }
+
+  @Override
+  public Map<String, CounterSnapshot> getByLogLineType() {
+    Map<String, CounterSnapshot> snapshot = new TreeMap<String, CounterSnapshot>();
+    for (LogLineType type : LogLineType.values()) {
+      snapshot.put(type.name(), byType[type.ordinal()].snapshot());
+    }
+    return snapshot;
+  }
+
+  @Override
+  public Map<String, CounterSnapshot> getByLevel() {
+    Map<String, CounterSnapshot> snapshot = new TreeMap<String, CounterSnapshot>();
+    for (int i = 0; i < LEVELS.length; i++) {
+      snapshot.put(LEVELS[i], byLevel[i].snapshot());
+    }
+    return snapshot;
+  }
+
+  @Override
+  public Map<String, CounterSnapshot> getByLogCode() {
+    Map<String, CounterSnapshot> snapshot = new TreeMap<String, CounterSnapshot>();
+    for (Map.Entry<String, Counters> entry : byCode.entrySet()) {
+      snapshot.put(entry.getKey(), entry.getValue().snapshot());
+    }
+    return snapshot;
+  }
+
+  @Override
+  public long getTotalLines() {
+    long total = 0;
+    for (Counters counters : byType) {
+      total += counters.lines.sum();
+    }
+    return total;
+  }
+
+  @Override
+  public long getTotalBytes() {
+    long total = 0;
+    for (Counters counters : byType) {
+      total += counters.bytes.sum();
+    }
+    return total;
+  }
+
+  @Override
+  public long getTotalSuppressed() {
+    long total = 0;
+    for (Counters counters : byType) {
+      total += counters.suppressed.sum();
+    }
+    return total;
+  }
+
+  @Override
+  public void reset() {
+    for (Counters counters : byType) {
+      counters.reset();
+    }
+    for (Counters counters : byLevel) {
+      counters.reset();
+    }
+    byCode.clear();
+  }
+
+  private Counters levelCounters(String level) {
+    for (int i = 0; i < LEVELS.length; i++) {
+      if (LEVELS[i].equals(level)) {
+        return byLevel[i];
+      }
+    }
+    return null;
+  }
+
+  private Counters codeCounters(String logCode) {
+    String key = logCode == null || logCode.isEmpty() ? NO_LOG_CODE : logCode;
+    Counters counters = byCode.get(key);
+    if (counters == null) {
+      Counters created = new Counters();
+      counters = byCode.putIfAbsent(key, created);
+      if (counters == null) {
+        counters = created;
+      }
+    }
+    return counters;
+  }
+
+  /**
+   * Computes the number of bytes a string occupies when encoded as UTF-8,
+   * without actually encoding it.
+   *
+   * @param value
+   *          - The string to measure.
+   *
+   * @return - The encoded length in bytes.
+   */
+  static long utf8Length(String value) {
+    int length = value.length();
+    long bytes = length;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c >= 0x80) {
+        if (c < 0x800) {
+          bytes += 1;
+        } else if (Character.isHighSurrogate(c) && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          // A surrogate pair is two chars encoded as four bytes.
+          bytes += 2;
+          i++;
+        } else if (Character.isSurrogate(c)) {
+          // An unpaired surrogate is replaced by a single '?' when encoded.
+          continue;
+        } else {
+          bytes += 2;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  private static Counters[] newCounters(int size) {
+    Counters[] counters = new Counters[size];
+    for (int i = 0; i < size; i++) {
+      counters[i] = new Counters();
+    }
+    return counters;
+  }
+
+  /** The set of counters kept for each type, level and code. */
+  private static class Counters {
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+
+    void recordLine(long lineBytes, boolean withException) {
+      lines.increment();
+      bytes.add(lineBytes);
+      if (withException) {
+        exceptions.increment();
+      }
+    }
+
+    CounterSnapshot snapshot() {
+      return new CounterSnapshot(lines.sum(), bytes.sum(), suppressed.sum(), exceptions.sum());
+    }
+
+    void reset() {
+      lines.reset();
+      bytes.reset();
+      suppressed.reset();
+      exceptions.reset();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.stats;
+
+import java.util.Map;
+
+/**
+ * JMX management interface exposing the cost of the logging library: how many
+ * lines and bytes it produces, how many lines it suppresses and how many
+ * exceptions it logs, broken down by log line type, level and log code.
+ */
+public interface LoggingStatsMXBean {
+
+  /** @return - Counters for each log line type (AUDIT, METRICS, ERROR). */
+  public Map<String, CounterSnapshot> getByLogLineType();
+
+  /** @return - Counters for each log level. */
+  public Map<String, CounterSnapshot> getByLevel();
+
+  /** @return - Counters for each log message code. */
+  public Map<String, CounterSnapshot> getByLogCode();
+
+  /** @return - The total number of lines written. */
+  public long getTotalLines();
+
+  /** @return - The total number of UTF-8 encoded bytes written. */
+  public long getTotalBytes();
+
+  /** @return - The total number of lines suppressed rather than written. */
+  public long getTotalSuppressed();
+
+  /** Resets every counter to zero. */
+  public void reset();
+}
@@ -0,0 +1,288 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.eelf.stats;
+
+import com.att.eelf.configuration.EELFLogger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profiles the individual stages of a logging call, attributing the time spent
+ * in each stage to the log code being logged.
+ * <p>
+ * Each call being profiled obtains a {@link Probe}, marks the end of each stage
+ * as it completes, and finally records its timings against its log code. The
+ * timings are kept in per-code, per-stage {@link LatencyHistogram}s in
+ * nanoseconds, and can be reported on demand using {@link #report()} or
+ * periodically once {@link #start()} has been called.
+ * <p>
+ * Profiling costs a few calls to {@link System#nanoTime()} and one small
+ * allocation per logging call, so it is intended to be switched on while
+ * investigating the cost of logging rather than left on permanently.
+ */
+public class StageProfiler {
+
+  /** The stages of a logging call. */
+  public enum Stage {
+
+    /** Checking the log code and runtime levels, and resolving the code's identifier. */
+    VALIDATE,
+
+    /** Substituting the arguments into the message template. */
+    FORMAT,
+
+    /** Creating and initializing the log line. */
+    INIT,
+
+    /** Rendering the log line, including reading the MDC. */
+    RENDER,
+
+    /**
+     * Handing the line to the flight recorder and metrics rollup, and once
+     * rendered to the EELF logger, the sinks and the counters; or, for a
+     * deferred line, capturing it for the deferred renderer.
+     */
+    DISPATCH
+  }
+
+  /** Prefix of every line of a report. */
+  public static final String REPORT_PREFIX = "Stage profile:";
+
+  /** The pseudo log code under which the timings of every call are combined. */
+  public static final String ALL_CODES = "ALL";
+
+  private static final Stage[] STAGES = Stage.values();
+
+  /** The timings recorded since the profiler was created or reset, replaced as a whole. */
+  private volatile Timings timings = new Timings();
+
+  private final EELFLogger reportLogger;
+  private final long reportIntervalMs;
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Creates a new profiler.
+   *
+   * @param reportLogger
+   *          - The EELF logger that periodic reports are written to.
+   * @param reportIntervalMs
+   *          - The interval between periodic reports.
+   */
+  public StageProfiler(EELFLogger reportLogger, long reportIntervalMs) {
+    if (reportIntervalMs <= 0) {
+      throw new IllegalArgumentException("Interval must be positive: " + reportIntervalMs);
+    }
+    this.reportLogger = reportLogger;
+    this.reportIntervalMs = reportIntervalMs;
+  }
+
+  /**
+   * Begins profiling a single logging call.
+   *
+   * @return - A probe which the stages of the call are marked on.
+   */
+  public Probe begin() {
+    return new Probe(this);
+  }
+
+  /**
+   * Returns the histogram of the time spent in a stage for a log code.
+   *
+   * @param logCode
+   *          - The log code, or {@link #ALL_CODES} for the combined timings.
+   * @param stage
+   *          - The stage.
+   *
+   * @return - The histogram, in nanoseconds, or null if the code has not been
+   *         logged since the profiler was created or reset.
+   */
+  public LatencyHistogram getHistogram(String logCode, Stage stage) {
+    Timings current = timings;
+    LatencyHistogram[] histograms = ALL_CODES.equals(logCode) ? current.total : current.byCode.get(logCode);
+    return histograms == null ? null : histograms[stage.ordinal()];
+  }
+
+  /**
+   * Discards every timing recorded so far. A call which is being recorded as
+   * the profiler is reset lands wholly before or wholly after the reset.
+   */
+  public void reset() {
+    timings = new Timings();
+  }
+
+  /**
+   * Produces a report of the timings recorded so far. The first line combines
+   * every call, and it is followed by one line per log code, most expensive
+   * (by total time spent) first.
+   *
+   * @return - The lines of the report.
+   */
+  public List<String> report() {
+    Timings current = timings;
+    List<Map.Entry<String, LatencyHistogram[]>> entries =
+        new ArrayList<Map.Entry<String, LatencyHistogram[]>>(current.byCode.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<String, LatencyHistogram[]>>() {
+      @Override
+      public int compare(Map.Entry<String, LatencyHistogram[]> a,
+          Map.Entry<String, LatencyHistogram[]> b) {
+        return Long.compare(totalTime(b.getValue()), totalTime(a.getValue()));
+      }
+    });
+
+    List<String> lines = new ArrayList<String>(entries.size() + 1);
+    lines.add(reportLine(ALL_CODES, current.total));
+    for (Map.Entry<String, LatencyHistogram[]> entry : entries) {
+      lines.add(reportLine(entry.getKey(), entry.getValue()));
+    }
+    return lines;
+  }
+
+  /** Starts writing a report at the end of every interval. */
+  public synchronized void start() {
+    if (scheduler == null) {
+      scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "StageProfiler");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      scheduler.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          for (String line : report()) {
+            reportLogger.info(line);
+          }
+        }
+      }, reportIntervalMs, reportIntervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Stops the periodic reports. */
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  private void record(String logCode, long[] stageNanos) {
+    Timings current = timings;
+    LatencyHistogram[] histograms = current.byCode.get(logCode);
+    if (histograms == null) {
+      LatencyHistogram[] created = newHistograms();
+      histograms = current.byCode.putIfAbsent(logCode, created);
+      if (histograms == null) {
+        histograms = created;
+      }
+    }
+    for (int i = 0; i < STAGES.length; i++) {
+      histograms[i].record(stageNanos[i]);
+      current.total[i].record(stageNanos[i]);
+    }
+  }
+
+  private static String reportLine(String logCode, LatencyHistogram[] histograms) {
+    StringBuilder line = new StringBuilder(REPORT_PREFIX).append(" code=").append(logCode)
+        .append(" count=").append(histograms[0].getCount()).append(" totalNs=")
+        .append(totalTime(histograms));
+    for (Stage stage : STAGES) {
+      LatencyHistogram histogram = histograms[stage.ordinal()];
+      line.append(' ').append(stage.name().toLowerCase()).append("[p50=")
+          .append(histogram.getValueAtPercentile(50)).append(" p99=")
+          .append(histogram.getValueAtPercentile(99)).append(" max=").append(histogram.getMax())
+          .append(']');
+    }
+    return line.toString();
+  }
+
+  private static long totalTime(LatencyHistogram[] histograms) {
+    long sum = 0;
+    for (LatencyHistogram histogram : histograms) {
+      sum += histogram.getSum();
+    }
+    return sum;
+  }
+
+  private static LatencyHistogram[] newHistograms() {
+    LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+    return histograms;
+  }
+
+  /** The histograms of every log code, and of every call combined. */
+  private static final class Timings {
+    private final ConcurrentHashMap<String, LatencyHistogram[]> byCode =
+        new ConcurrentHashMap<String, LatencyHistogram[]>();
+    private final LatencyHistogram[] total = newHistograms();
+  }
+
+  /**
+   * Times the stages of a single logging call. A probe is used by one thread
+   * only.
+   */
+  public static final class Probe {
+    private final StageProfiler profiler;
+    private final long[] stageNanos = new long[STAGES.length];
+    private long last = System.nanoTime();
+
+    private Probe(StageProfiler profiler) {
+      this.profiler = profiler;
+    }
+
+    /**
+     * Marks the end of a stage, attributing the time since the previous mark
+     * to it. A stage may be marked more than once, in which case the times are
+     * added together.
+     *
+     * @param stage
+     *          - The stage which has just completed.
+     */
+    public void mark(Stage stage) {
+      long now = System.nanoTime();
+      stageNanos[stage.ordinal()] += now - last;
+      last = now;
+    }
+
+    /**
+     * Records the stage timings of the call against its log code.
+     *
+     * @param logCode
+     *          - The log code of the call, or an empty string if it has none.
+     */
+    public void end(String logCode) {
+      profiler.record(logCode == null || logCode.isEmpty() ? LoggingStats.NO_LOG_CODE : logCode,
+          stageNanos);
+    }
+  }
+}
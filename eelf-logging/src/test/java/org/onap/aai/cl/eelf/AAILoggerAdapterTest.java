@@ -27,13 +27,17 @@ import static org.junit.Assert.assertTrue;
 import com.att.eelf.configuration.EELFLogger;
 import com.att.eelf.i18n.EELFResolvableResourceEnum;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import org.junit.Before;
 import org.junit.Test;
 import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLevel;
 import org.onap.aai.cl.api.LogLine;
 import org.onap.aai.cl.api.LogLine.DefinedFields;
 import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.sink.LogSink;
 import org.onap.aai.cl.mdc.MdcContext;
 import org.onap.aai.cl.mdc.MdcOverride;
 import org.slf4j.Marker;
@@ -180,6 +184,10 @@ public class AAILoggerAdapterTest {
         // Validate that the message was parsed from the bundle resource.
         logger.validateLogMsg("UT0001E This is a simple error log with no arguments.");
 
+        // The error logger's name is carried in the line, since every error
+        // logger shares the same EELF logger.
+        assertTrue(logger.getMessage().endsWith("|" + LOGGER_NAME));
+
         // Generate an ERROR log with arguments.
         loggerAdapter.error(UnitTestMsgs.ERROR_LOG_WITH_ARGS, new LogFields(), FIRST_ARG, SECOND_ARG);
 
@@ -249,6 +257,24 @@ public class AAILoggerAdapterTest {
         logger.validateLogLevel(EELFLogger.Level.TRACE);
     }
 
+    /** This test validates that the single log entry point produces the same
+     * lines as the level specific methods, with non-string arguments. */
+    @Test
+    public void logEntryPointTest() {
+
+        loggerAdapter.log(LogLevel.WARN, UnitTestMsgs.INFO_LOG_WITH_ARGS, null, null, null, 42, FIRST_ARG);
+        logger.validateLogMsg("UT0002I This is an info log with some arguments 42 and " + FIRST_ARG);
+        logger.validateLogLevel(EELFLogger.Level.WARN);
+
+        loggerAdapter.log(LogLevel.TRACE, UnitTestMsgs.SIMPLE_TRACE_LOG, new LogFields(), new MdcOverride(),
+            null);
+        logger.validateLogMsg("UT0001T This is a simple trace log with no arguments.");
+        logger.validateLogLevel(EELFLogger.Level.TRACE);
+
+        loggerAdapter.log(LogLevel.ERROR, InvalidLogCodeEnum.BAD_LOGCODE1, null, null, null, "arg1");
+        assertBadLogCodeMessage(logger.getMessage(), InvalidLogCodeEnum.BAD_LOGCODE1);
+    }
+
     /** This is a convenience method that validates that a generated log message
      * contains the expected values when a log code could not be parsed.
      *
@@ -280,6 +306,36 @@ public class AAILoggerAdapterTest {
         assertEquals("Invalid formatted msg2", message2, expected2);
     }
 
+    /** This test validates that sinks registered with the {@link LogPipeline}
+     * receive exactly the same formatted line as the EELF logger. */
+    @Test
+    public void pipelineSinkTest() {
+
+        final List<String> sunk = new ArrayList<String>();
+        LogPipeline pipeline = new LogPipeline();
+        pipeline.addSink(LogLineType.AUDIT, new LogSink() {
+            @Override
+            public void write(LogLineType type, LogLine logLine, String formattedLine) {
+                sunk.add(formattedLine);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        AaiLoggerAdapter adapter = new AaiLoggerAdapter(logger, LogLineType.AUDIT, AUDIT_LOGGER_NAME, pipeline);
+        adapter.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, new LogFields(), FIRST_ARG, SECOND_ARG);
+
+        assertEquals(1, sunk.size());
+        assertEquals(logger.getMessage(), sunk.get(0));
+
+        // Lines of other types are not handed to the audit sink.
+        new AaiLoggerAdapter(logger, LogLineType.ERROR, LOGGER_NAME, pipeline)
+            .info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        assertEquals(1, sunk.size());
+    }
+
     /** This is an implementation of the {@link EELFLogger} which just caches the
      * last log statement passed to it and provides some convenience methods for
      * validating the contents of the log message.
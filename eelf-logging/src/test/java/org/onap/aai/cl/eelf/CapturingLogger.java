@@ -0,0 +1,83 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf;
+
+import com.att.eelf.configuration.EELFLogger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** A minimal {@link EELFLogger} for tests which records every plain string that
+ * is logged through it, along with the level it was logged at. */
+public class CapturingLogger implements InvocationHandler {
+
+    /** The lines logged so far, in order. */
+    public final List<String> lines = new CopyOnWriteArrayList<String>();
+
+    /** The level of each entry in {@link #lines}. */
+    public final List<EELFLogger.Level> levels = new CopyOnWriteArrayList<EELFLogger.Level>();
+
+    /** Value returned by the isXxxEnabled() methods. */
+    public volatile boolean enabled = true;
+
+    private final EELFLogger logger = (EELFLogger) Proxy.newProxyInstance(
+        EELFLogger.class.getClassLoader(), new Class<?>[] {EELFLogger.class}, this);
+
+    /** @return - The proxy to hand to the code under test. */
+    public EELFLogger getLogger() {
+        return logger;
+    }
+
+    /** @return - The most recently logged line, or null if nothing was logged. */
+    public String last() {
+        return lines.isEmpty() ? null : lines.get(lines.size() - 1);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (method.getReturnType() == boolean.class && name.startsWith("is")) {
+            return enabled;
+        }
+        if (args != null && args.length >= 1 && args[0] instanceof String) {
+            for (EELFLogger.Level level : EELFLogger.Level.values()) {
+                if (level.name().equalsIgnoreCase(name)) {
+                    lines.add((String) args[0]);
+                    levels.add(level);
+                }
+            }
+        }
+        if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        }
+        if (name.equals("equals")) {
+            return proxy == args[0];
+        }
+        if (name.equals("toString") || name.equals("getName")) {
+            return "CapturingLogger";
+        }
+        return null;
+    }
+}
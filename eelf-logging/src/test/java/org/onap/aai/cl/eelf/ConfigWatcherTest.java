@@ -0,0 +1,283 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer.Ordering;
+import org.onap.aai.cl.eelf.recorder.LogFlightRecorder;
+
+/** This suite of tests validates the parsing of {@link LoggingConfig} files and
+ * their reloading by the {@link ConfigWatcher}. */
+public class ConfigWatcherTest {
+
+    private Path dir;
+    private Path file;
+    private final List<LoggingConfig> applied = new CopyOnWriteArrayList<LoggingConfig>();
+    private ConfigWatcher watcher;
+
+    @Before
+    public void setup() throws Exception {
+        dir = Files.createTempDirectory("ConfigWatcherTest");
+        file = dir.resolve("logging.properties");
+    }
+
+    @After
+    public void teardown() throws Exception {
+        if (watcher != null) {
+            watcher.stop();
+        }
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    /** Validates the settings read from a configuration. */
+    @Test
+    public void parseTest() {
+        Properties properties = new Properties();
+        properties.setProperty("level.org.onap", "warn");
+        properties.setProperty("disabledLogCodes", "UT0001I, UT0002I");
+        properties.setProperty("textOutput.METRICS", "false");
+        properties.setProperty("flightRecorder.enabled", "true");
+        properties.setProperty("flightRecorder.slotSize", "256");
+        properties.setProperty("deferredRendering.enabled", "true");
+        properties.setProperty("deferredRendering.types", "AUDIT");
+
+        LoggingConfig config = LoggingConfig.parse(properties);
+        assertEquals(Level.WARN, config.getLevels().get("org.onap"));
+        assertEquals(2, config.getDisabledLogCodes().size());
+        assertEquals(EnumSet.of(LogLineType.AUDIT, LogLineType.ERROR), config.getTextOutput());
+        assertEquals(0, config.getRollupIntervalMs());
+        assertEquals(0, config.getDebugLinesPerRequest());
+        assertEquals(4096, config.getRecorderCapacity());
+        assertEquals(256, config.getRecorderSlotSize());
+        assertEquals(Ordering.PER_REQUEST, config.getDeferredOrdering());
+        assertEquals(EnumSet.of(LogLineType.AUDIT), config.getDeferredTypes());
+        assertEquals(config, LoggingConfig.parse(properties));
+
+        properties.setProperty("flightRecorder.capacity", "lots");
+        try {
+            LoggingConfig.parse(properties);
+            fail("Expected an invalid capacity to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("flightRecorder.capacity"));
+        }
+
+        // Sizes which the features themselves would reject are rejected up front.
+        String[][] unusable = {{"flightRecorder.slotSize", "32"}, {"flightRecorder.capacity", "16777216"},
+            {"deferredRendering.capacityPerStripe", "1073741824"}};
+        for (String[] setting : unusable) {
+            Properties sized = new Properties();
+            sized.setProperty("flightRecorder.enabled", "true");
+            sized.setProperty("deferredRendering.enabled", "true");
+            sized.setProperty(setting[0], setting[1]);
+            try {
+                LoggingConfig.parse(sized);
+                fail("Expected " + setting[0] + "=" + setting[1] + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(setting[0].substring(0, setting[0].indexOf('.'))));
+            }
+        }
+    }
+
+    /** Validates that only changed, usable, configurations are applied. */
+    @Test
+    public void reloadTest() throws Exception {
+        CapturingLogger capture = new CapturingLogger();
+        write("level.a=ERROR");
+        watcher = new ConfigWatcher(capture.getLogger(), file, new Recorder());
+        assertTrue(watcher.reload());
+        assertEquals(1, applied.size());
+        assertEquals(Level.ERROR, watcher.getConfig().getLevels().get("a"));
+
+        assertFalse(watcher.reload());
+        assertEquals(1, applied.size());
+
+        write("level.a=LOUD");
+        assertFalse(watcher.reload());
+        assertEquals(1, watcher.getFailedReloadCount());
+        assertEquals(1, capture.lines.size());
+        assertEquals(Level.ERROR, watcher.getConfig().getLevels().get("a"));
+
+        write("level.a=INFO");
+        assertTrue(watcher.reload());
+        assertEquals(2, applied.size());
+        assertSame(applied.get(1), watcher.getConfig());
+        assertEquals(2, watcher.getReloadCount());
+    }
+
+    /** Validates that a configuration which the listener fails to apply is
+     * counted, is not published, and does not stop the watch thread. */
+    @Test
+    public void failedApplyTest() throws Exception {
+        CapturingLogger capture = new CapturingLogger();
+        write("level.a=ERROR");
+        watcher = new ConfigWatcher(capture.getLogger(), file, new Recorder() {
+            @Override
+            public void accept(LoggingConfig config) {
+                if (config.getLevels().get("a") == Level.TRACE) {
+                    throw new IllegalStateException("Cannot apply");
+                }
+                super.accept(config);
+            }
+        });
+        watcher.start();
+        LoggingConfig initial = watcher.getConfig();
+
+        write("level.a=TRACE");
+        long deadline = System.currentTimeMillis() + 30000;
+        while (watcher.getFailedReloadCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, watcher.getFailedReloadCount());
+        assertSame(initial, watcher.getConfig());
+        assertTrue(capture.last().contains("Cannot apply"));
+
+        write("level.a=DEBUG");
+        while (watcher.getReloadCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(Level.DEBUG, watcher.getConfig().getLevels().get("a"));
+    }
+
+    /** Validates that a file mounted the way Kubernetes mounts a ConfigMap, through
+     * a symbolic link which is swapped to update it, is reloaded. */
+    @Test
+    public void symlinkSwapTest() throws Exception {
+        Path first = Files.createDirectory(dir.resolve("..2017_01_01_first"));
+        Path second = Files.createDirectory(dir.resolve("..2017_01_01_second"));
+        Path data = dir.resolve("..data");
+        Path swap = dir.resolve("..data_tmp");
+        try {
+            Files.write(first.resolve("logging.properties"), "level.a=ERROR\n".getBytes(StandardCharsets.ISO_8859_1));
+            Files.write(second.resolve("logging.properties"), "level.a=DEBUG\n".getBytes(StandardCharsets.ISO_8859_1));
+            Files.createSymbolicLink(data, first.getFileName());
+            Files.createSymbolicLink(file, data.getFileName().resolve("logging.properties"));
+            watcher = new ConfigWatcher(new CapturingLogger().getLogger(), file, new Recorder());
+            watcher.start();
+
+            Files.createSymbolicLink(swap, second.getFileName());
+            Files.move(swap, data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long deadline = System.currentTimeMillis() + 30000;
+            while (watcher.getReloadCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(Level.DEBUG, watcher.getConfig().getLevels().get("a"));
+        } finally {
+            watcher.stop();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(data);
+            Files.deleteIfExists(first.resolve("logging.properties"));
+            Files.deleteIfExists(second.resolve("logging.properties"));
+            Files.deleteIfExists(first);
+            Files.deleteIfExists(second);
+        }
+    }
+
+    /** Validates that a change to the file is picked up by the watch thread. */
+    @Test
+    public void watchTest() throws Exception {
+        write("level.a=ERROR");
+        watcher = new ConfigWatcher(new CapturingLogger().getLogger(), file, new Recorder());
+        watcher.start();
+
+        write("level.a=DEBUG");
+        long deadline = System.currentTimeMillis() + 30000;
+        while (watcher.getReloadCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(Level.DEBUG, watcher.getConfig().getLevels().get("a"));
+        assertEquals(2, applied.size());
+    }
+
+    /** Validates that the factory applies only the settings which changed. */
+    @Test
+    public void applyConfigTest() throws Exception {
+        LoggerFactory factory = new LoggerFactory();
+        try {
+            write("level.a=WARN", "flightRecorder.enabled=true", "textOutput.AUDIT=false");
+            watcher = factory.watchConfig(file);
+
+            // Later versions of the file are applied explicitly, rather than
+            // waiting for the watch thread.
+            factory.stopWatchingConfig();
+            assertEquals(Level.WARN, factory.getLevelControl().getSnapshot().getLevel("a.b"));
+            assertFalse(factory.getPipeline().isTextOutputEnabled(LogLineType.AUDIT));
+            LogFlightRecorder recorder = factory.getPipeline().getFlightRecorder();
+            assertEquals(LogFlightRecorder.DEFAULT_CAPACITY, recorder.getCapacity());
+
+            write("level.a=WARN", "flightRecorder.enabled=true", "requestDebug.enabled=true");
+            assertTrue(watcher.reload());
+            assertSame(recorder, factory.getPipeline().getFlightRecorder());
+            assertTrue(factory.getPipeline().isTextOutputEnabled(LogLineType.AUDIT));
+            assertNotNull(factory.getPipeline().getRequestDebugBuffer());
+
+            write("level.a=WARN");
+            assertTrue(watcher.reload());
+            assertNull(factory.getPipeline().getFlightRecorder());
+            assertNull(factory.getPipeline().getRequestDebugBuffer());
+        } finally {
+            watcher = null;
+            factory.applyConfig(LoggingConfig.EMPTY);
+        }
+    }
+
+    private void write(String... lines) throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        Path temp = dir.resolve("logging.properties.tmp");
+        Files.write(temp, content.toString().getBytes(StandardCharsets.ISO_8859_1));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Keeps every configuration applied, in order. */
+    private class Recorder implements Consumer<LoggingConfig> {
+        @Override
+        public void accept(LoggingConfig config) {
+            applied.add(config);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer.Ordering;
+import org.onap.aai.cl.eelf.sink.LogSink;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.slf4j.MDC;
+
+/** This suite of tests validates the background rendering of lines by
+ * {@link DeferredRenderer}. */
+public class DeferredRendererTest {
+
+    private DeferredRenderer renderer;
+
+    @After
+    public void teardown() {
+        if (renderer != null) {
+            renderer.stop();
+        }
+        MDC.clear();
+    }
+
+    /** Validates that a deferred audit line is rendered from the values
+     * captured on the calling thread. */
+    @Test
+    public void auditLineTest() throws Exception {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        renderer = new DeferredRenderer(new StripedEventBuffer(2, 16, 512, Ordering.PER_REQUEST),
+            EnumSet.of(LogLineType.AUDIT));
+        renderer.start();
+        pipeline.setDeferredRenderer(renderer);
+        AaiLoggerAdapter auditLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.AUDIT, "UnitTest", pipeline);
+
+        MdcContext.initialize("req-1", "MyService", "MyInstance", "MyPartner", "12.0.0.2");
+        auditLogger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS,
+            new LogFields().setField(LogLine.DefinedFields.RESPONSE_CODE, 202), "arg1", "arg2");
+        MDC.clear();
+
+        assertTrue(renderer.flush(5000));
+        assertEquals(1, capture.lines.size());
+        String[] columns = capture.last().split("\\|", -1);
+        assertEquals("req-1", columns[AuditColumn.REQUEST_ID.ordinal()]);
+        assertEquals(Thread.currentThread().getName(), columns[AuditColumn.THREAD.ordinal()]);
+        assertEquals("MyService", columns[AuditColumn.SERVICE_NAME.ordinal()]);
+        assertEquals("202", columns[AuditColumn.RESPONSE_CODE.ordinal()]);
+        assertEquals("UT0002I This is an info log with some arguments arg1 and arg2",
+            columns[AuditColumn.DETAILS.ordinal()]);
+        assertEquals(1, renderer.getRenderedCount());
+    }
+
+    /** Validates that the captured MDC attributes are in place while a line is
+     * written, and that only the configured types are deferred. */
+    @Test
+    public void errorLineTest() throws Exception {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        ThreadRecordingSink errorSink = new ThreadRecordingSink();
+        ThreadRecordingSink metricsSink = new ThreadRecordingSink();
+        pipeline.addSink(LogLineType.ERROR, errorSink);
+        pipeline.addSink(LogLineType.METRICS, metricsSink);
+        renderer = new DeferredRenderer(new StripedEventBuffer(1, 16, 512, Ordering.BEST_EFFORT),
+            EnumSet.of(LogLineType.ERROR));
+        renderer.start();
+        pipeline.setDeferredRenderer(renderer);
+        AaiLoggerAdapter errorLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+        AaiLoggerAdapter metricsLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest", pipeline);
+
+        MdcContext.initialize("req-2", "MyService", "MyInstance", "MyPartner", "12.0.0.2");
+        errorLogger.error(UnitTestMsgs.SIMPLE_ERROR_LOG, new LogFields());
+        errorLogger.debug("plain debug");
+        metricsLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        assertEquals(Thread.currentThread().getName(), metricsSink.threads.get(0));
+
+        assertTrue(renderer.flush(5000));
+        assertEquals(3, capture.lines.size());
+        assertTrue(capture.lines.contains("|plain debug|UnitTest"));
+        assertEquals(2, errorSink.requestIds.size());
+        assertEquals("req-2", errorSink.requestIds.get(0));
+        assertTrue(errorSink.lines.get(0).startsWith("UT0001E|"));
+        assertEquals("DeferredRenderer", errorSink.threads.get(0));
+    }
+
+    /** Validates that calls which find the buffer full are rendered by the
+     * caller, and that stopping the renderer writes everything captured. */
+    @Test
+    public void fullBufferTest() throws Exception {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        renderer = new DeferredRenderer(new StripedEventBuffer(1, 1, 512, Ordering.BEST_EFFORT),
+            EnumSet.of(LogLineType.ERROR));
+        pipeline.setDeferredRenderer(renderer);
+        AaiLoggerAdapter errorLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        // Nothing is deferred until the renderer is started.
+        errorLogger.debug("before start");
+        assertEquals(1, capture.lines.size());
+
+        // With a single stripe of two slots, some calls find the buffer full
+        // and are rendered by the caller; whichever way each race goes, every
+        // line must be written exactly once.
+        renderer.start();
+        for (int i = 0; i < 50; i++) {
+            errorLogger.debug("line " + i);
+        }
+        renderer.stop();
+        assertEquals(51, capture.lines.size());
+        assertEquals(50, renderer.getRenderedCount() + renderer.getSynchronousCount());
+        renderer = null;
+    }
+
+    /** Validates that a line which fails to render is counted, and does not
+     * stop the lines after it. */
+    @Test
+    public void failedRenderTest() throws Exception {
+        CapturingLogger capture = new CapturingLogger() {
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) {
+                if (args != null && args.length > 0 && String.valueOf(args[0]).contains("broken")) {
+                    throw new IllegalStateException("broken");
+                }
+                return super.invoke(proxy, method, args);
+            }
+        };
+        LogPipeline pipeline = new LogPipeline();
+        renderer = new DeferredRenderer(new StripedEventBuffer(1, 16, 512, Ordering.BEST_EFFORT),
+            EnumSet.of(LogLineType.ERROR));
+        renderer.start();
+        pipeline.setDeferredRenderer(renderer);
+        AaiLoggerAdapter errorLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        errorLogger.debug("broken");
+        errorLogger.debug("fine");
+
+        assertTrue(renderer.flush(5000));
+        assertEquals(1, renderer.getFailedCount());
+        assertEquals(2, renderer.getRenderedCount());
+        assertTrue(capture.last().contains("fine"));
+    }
+
+    /** Records the thread, and the request id in its MDC, which wrote each line. */
+    private static class ThreadRecordingSink implements LogSink {
+        final List<String> lines = new CopyOnWriteArrayList<String>();
+        final List<String> requestIds = new CopyOnWriteArrayList<String>();
+        final List<String> threads = new CopyOnWriteArrayList<String>();
+
+        @Override
+        public void write(LogLineType type, LogLine logLine, String formattedLine) {
+            lines.add(formattedLine);
+            requestIds.add(MDC.get(MdcContext.MDC_REQUEST_ID));
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+
+/** This suite of tests validates the runtime levels and disabled log codes of
+ * the {@link LevelControl}. */
+public class LevelControlTest {
+
+    /** Validates that component levels apply to the component and its children. */
+    @Test
+    public void componentLevelTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR,
+            "org.onap.aai.UnitTest", pipeline);
+        AaiLoggerAdapter other = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "other",
+            pipeline);
+
+        pipeline.getLevelControl().setLevel("org.onap", Level.WARN);
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG);
+        logger.debug("plain debug");
+        other.info(UnitTestMsgs.SIMPLE_INFO_LOG);
+        logger.error(UnitTestMsgs.SIMPLE_ERROR_LOG);
+        assertEquals(2, capture.lines.size());
+        assertFalse(logger.isInfoEnabled());
+        assertTrue(logger.isWarnEnabled());
+        assertTrue(other.isInfoEnabled());
+        assertEquals(2, pipeline.getStats().getTotalSuppressed());
+
+        // A more specific level wins over the level of a prefix.
+        pipeline.getLevelControl().setLevel("org.onap.aai.UnitTest", "debug");
+        logger.debug("plain debug");
+        assertEquals(3, capture.lines.size());
+
+        pipeline.getLevelControl().setLevel("org.onap.aai.UnitTest", Level.OFF);
+        logger.error(UnitTestMsgs.SIMPLE_ERROR_LOG);
+        assertEquals(3, capture.lines.size());
+
+        pipeline.getLevelControl().reset();
+        logger.debug("plain debug");
+        assertEquals(4, capture.lines.size());
+        assertTrue(pipeline.getLevelControl().getLevels().isEmpty());
+    }
+
+    /** Validates that disabled log codes are suppressed, whatever their level. */
+    @Test
+    public void logCodeTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest",
+            pipeline);
+
+        pipeline.getLevelControl().setLogCodeEnabled(UnitTestMsgs.SIMPLE_INFO_LOG, false);
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG);
+        logger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, "arg1", "arg2");
+        logger.debug("plain debug");
+        assertEquals(2, capture.lines.size());
+        assertEquals(1, pipeline.getStats().getByLogCode().get("UT0001I").getSuppressed());
+        assertArrayEquals(new String[] {"UT0001I"}, pipeline.getLevelControl().getDisabledLogCodes());
+
+        pipeline.getLevelControl().setLogCodeEnabled("UT0001I", true);
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG);
+        assertEquals(3, capture.lines.size());
+    }
+
+    /** Validates that every change publishes a new snapshot, leaving those
+     * already handed out unchanged. */
+    @Test
+    public void snapshotTest() {
+        LevelControl control = new LevelControl();
+        LevelControl.Snapshot empty = control.getSnapshot();
+        assertTrue(empty.isEmpty());
+        assertSame(empty, control.getSnapshot());
+
+        control.setLevel("a.b", Level.ERROR);
+        LevelControl.Snapshot snapshot = control.getSnapshot();
+        assertEquals(Level.ERROR, snapshot.getLevel("a.b.c"));
+        assertNull(snapshot.getLevel("a"));
+        assertNull(empty.getLevel("a.b"));
+
+        control.clearLevel("a.b");
+        assertEquals(Level.ERROR, snapshot.getLevel("a.b"));
+        assertTrue(control.getSnapshot().isEmpty());
+    }
+
+    /** Validates that the factory publishes its level control as an MXBean. */
+    @Test
+    public void mbeanTest() throws Exception {
+        LoggerFactory factory = LoggerFactory.getInstance();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(LoggerFactory.LEVEL_CONTROL_MBEAN_NAME);
+        assertTrue(server.isRegistered(name));
+
+        try {
+            server.invoke(name, "setLevel", new Object[] {"LevelControlTest", "ERROR"},
+                new String[] {String.class.getName(), String.class.getName()});
+            assertFalse(factory.getLogger("LevelControlTest").isWarnEnabled());
+        } finally {
+            factory.getLevelControl().reset();
+        }
+    }
+}
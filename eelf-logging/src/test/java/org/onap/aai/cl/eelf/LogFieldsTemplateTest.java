@@ -0,0 +1,128 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.api.Logger;
+
+/** This suite of tests validates layered {@link LogFields} and the loggers
+ * which fill in the fields of a template on every line. */
+public class LogFieldsTemplateTest {
+
+    /** Validates lookups through the layers of a set of fields. */
+    @Test
+    public void layeringTest() {
+        LogFields base = new LogFields().setField(DefinedFields.SERVER_IP, "10.0.0.1")
+            .setField(DefinedFields.CLASS_NAME, "Base").toTemplate();
+        LogFields template = new LogFields(base).setField(DefinedFields.CLASS_NAME, "Derived").toTemplate();
+
+        LogFields call = new LogFields(template).setField(DefinedFields.STATUS_CODE, "200");
+        assertEquals("200", call.getField(DefinedFields.STATUS_CODE));
+        assertEquals("Derived", call.getField(DefinedFields.CLASS_NAME));
+        assertEquals("10.0.0.1", call.getField(DefinedFields.SERVER_IP));
+        assertFalse(call.fieldIsSet(DefinedFields.PROCESS_KEY));
+        assertNull(template.getField(DefinedFields.STATUS_CODE));
+
+        LogFields view = new LogFields().setField(DefinedFields.SERVER_IP, "10.0.0.2").withDefaults(template);
+        assertEquals("10.0.0.2", view.getField(DefinedFields.SERVER_IP));
+        assertEquals("Derived", view.getField(DefinedFields.CLASS_NAME));
+    }
+
+    /** Validates that templates cannot be changed, and are not copied again. */
+    @Test
+    public void immutableTest() {
+        LogFields fields = new LogFields().setField(DefinedFields.INSTANCE_UUID, "uuid");
+        LogFields template = fields.toTemplate();
+        assertSame(template, template.toTemplate());
+
+        // Changes to the fields a template was made from do not show through.
+        fields.setField(DefinedFields.INSTANCE_UUID, "changed");
+        assertEquals("uuid", template.getField(DefinedFields.INSTANCE_UUID));
+
+        try {
+            template.setField(DefinedFields.INSTANCE_UUID, "other");
+            fail("Expected templates to be immutable");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("uuid", template.getField(DefinedFields.INSTANCE_UUID));
+        }
+    }
+
+    /** Validates that a view of a template over other defaults is as immutable
+     * as the template itself. */
+    @Test
+    public void templateViewTest() {
+        LogFields template = new LogFields().setField(DefinedFields.CLASS_NAME, "Template").toTemplate();
+        LogFields defaults = new LogFields().setField(DefinedFields.SERVER_IP, "10.0.0.1").toTemplate();
+        LogFields view = template.withDefaults(defaults);
+        assertEquals("Template", view.getField(DefinedFields.CLASS_NAME));
+        assertEquals("10.0.0.1", view.getField(DefinedFields.SERVER_IP));
+
+        try {
+            view.setField(DefinedFields.CLASS_NAME, "Changed");
+            fail("Expected a view of a template to be immutable");
+        } catch (UnsupportedOperationException e) {
+            assertEquals("Template", template.getField(DefinedFields.CLASS_NAME));
+        }
+    }
+
+    /** Validates that a logger with a template fills its fields in on every
+     * line, under the fields passed to each call. */
+    @Test
+    public void loggerTemplateTest() {
+        CapturingLogger capture = new CapturingLogger();
+        AaiLoggerAdapter plain = new AaiLoggerAdapter(capture.getLogger(), LogLineType.AUDIT, "UnitTest");
+        Logger logger = plain.withFields(new LogFields().setField(DefinedFields.CLASS_NAME, "TemplateClass")
+            .setField(DefinedFields.PROCESS_KEY, "TemplateKey"));
+
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG);
+        assertTrue(capture.last().contains("TemplateClass"));
+        assertTrue(capture.last().contains("TemplateKey"));
+
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields().setField(DefinedFields.CLASS_NAME, "CallClass"));
+        assertTrue(capture.last().contains("CallClass"));
+        assertFalse(capture.last().contains("TemplateClass"));
+        assertTrue(capture.last().contains("TemplateKey"));
+
+        plain.info(UnitTestMsgs.SIMPLE_INFO_LOG);
+        assertFalse(capture.last().contains("TemplateKey"));
+    }
+
+    /** Validates that the factory hands out loggers with templates. */
+    @Test
+    public void factoryTest() {
+        LoggerFactory factory = LoggerFactory.getInstance();
+        LogFields template = new LogFields().setField(DefinedFields.SERVER_IP, "10.0.0.1");
+        Logger logger = factory.getMetricsLogger("LogFieldsTemplateTest", template);
+        assertTrue(logger instanceof AaiLoggerAdapter);
+        assertFalse(logger == factory.getMetricsLogger("LogFieldsTemplateTest"));
+    }
+}
@@ -21,11 +21,20 @@
 
 package org.onap.aai.cl.eelf;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
 import org.onap.aai.cl.api.Logger;
 
 /** This suite of tests is intended to exercise the basic functionality of the
@@ -133,4 +142,39 @@ public class LoggerFactoryTest {
         assertFalse("Expected a unique logger instance", myFirstLogger == myThirdLogger);
         assertFalse("Expected a unique logger instance", mySecondLogger == myThirdLogger);
     }
+
+    /** This test validates that the logger caches of the {@link LoggerFactory}
+     * are bounded, evicting the least recently used logger, and count their
+     * hits and misses. */
+    @Test
+    public void boundedLoggerCacheTest() throws Exception {
+
+        LoggerFactory loggerFactory = new LoggerFactory();
+        LoggerCache cache = loggerFactory.getLoggerCache(LogLineType.ERROR);
+        cache.setMaxSize(2);
+
+        Logger loggerA = loggerFactory.getLogger("A");
+        Logger loggerB = loggerFactory.getLogger("B");
+
+        // Using A again makes B the least recently used logger, so B is the
+        // one evicted to make room for C.
+        assertSame(loggerA, loggerFactory.getLogger("A"));
+        loggerFactory.getLogger("C");
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(loggerA, loggerFactory.getLogger("A"));
+        assertNotSame(loggerB, loggerFactory.getLogger("B"));
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(2.0 / 6, cache.getHitRate(), 0.0001);
+
+        // The other types of logger have caches of their own.
+        assertEquals(0, loggerFactory.getLoggerCache(LogLineType.AUDIT).getSize());
+        loggerFactory.getAuditLogger("A");
+        assertEquals(1, loggerFactory.getLoggerCache(LogLineType.AUDIT).getSize());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertTrue(server.isRegistered(new ObjectName(LoggerFactory.LOGGER_CACHE_MBEAN_NAME + LogLineType.METRICS)));
+    }
 }
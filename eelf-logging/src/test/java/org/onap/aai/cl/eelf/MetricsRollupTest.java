@@ -0,0 +1,143 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+
+/** This suite of tests validates the aggregation of metrics lines performed by
+ * the {@link MetricsRollup}. */
+public class MetricsRollupTest {
+
+    private static final int TARGET_ENTITY_INDEX = 8;
+    private static final int STATUS_CODE_INDEX = 10;
+    private static final int MSG_INDEX = 28;
+
+    /** Validates that, in summary-only mode, per-call lines are suppressed and one
+     * summary line is produced per (target entity, target service, status) key. */
+    @Test
+    public void summaryOnlyTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        MetricsRollup rollup = new MetricsRollup(capture.getLogger(), pipeline, "UnitTest", 60000, false);
+        pipeline.setMetricsRollup(rollup);
+
+        AaiLoggerAdapter metricsLogger =
+            new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest", pipeline);
+
+        for (int i = 0; i < 100; i++) {
+            metricsLogger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, fields("aai", "COMPLETE"),
+                startedMillisAgo(50), "arg1", "arg2");
+        }
+        metricsLogger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, fields("sdc", "ERROR"),
+            startedMillisAgo(10), "arg1", "arg2");
+
+        assertTrue("Per-call lines should be suppressed", capture.lines.isEmpty());
+
+        rollup.flush();
+        assertEquals(2, capture.lines.size());
+
+        for (String line : capture.lines) {
+            String[] tokens = line.split("\\|");
+            assertTrue(tokens[MSG_INDEX].startsWith(MetricsRollup.SUMMARY_PREFIX));
+            if (tokens[TARGET_ENTITY_INDEX].equals("aai")) {
+                assertEquals("COMPLETE", tokens[STATUS_CODE_INDEX]);
+                assertTrue(tokens[MSG_INDEX], tokens[MSG_INDEX].contains("count=100 "));
+            } else {
+                assertEquals("sdc", tokens[TARGET_ENTITY_INDEX]);
+                assertEquals("ERROR", tokens[STATUS_CODE_INDEX]);
+                assertTrue(tokens[MSG_INDEX], tokens[MSG_INDEX].contains("count=1 "));
+            }
+        }
+
+        // Nothing has been recorded since the last flush.
+        rollup.flush();
+        assertEquals(2, capture.lines.size());
+    }
+
+    /** Validates that per-call lines are still written when requested. */
+    @Test
+    public void perCallLinesTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        MetricsRollup rollup = new MetricsRollup(capture.getLogger(), pipeline, "UnitTest", 60000, true);
+        pipeline.setMetricsRollup(rollup);
+
+        AaiLoggerAdapter metricsLogger =
+            new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest", pipeline);
+        metricsLogger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, fields("aai", "COMPLETE"),
+            startedMillisAgo(5), "arg1", "arg2");
+        assertEquals(1, capture.lines.size());
+
+        rollup.stop();
+        assertEquals(2, capture.lines.size());
+        assertTrue(capture.last().contains(MetricsRollup.SUMMARY_PREFIX + " count=1 "));
+    }
+
+    /** Validates that summary lines honour the pipeline's text output setting
+     * and are counted in its statistics like any other metrics line. */
+    @Test
+    public void summaryOutputTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        MetricsRollup rollup = new MetricsRollup(capture.getLogger(), pipeline, "UnitTest", 60000, false);
+        pipeline.setMetricsRollup(rollup);
+
+        AaiLoggerAdapter metricsLogger =
+            new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest", pipeline);
+        metricsLogger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, fields("aai", "COMPLETE"),
+            startedMillisAgo(5), "arg1", "arg2");
+        rollup.flush();
+        assertEquals(1, capture.lines.size());
+        assertEquals(1, pipeline.getStats().getTotalLines());
+
+        pipeline.setTextOutputEnabled(LogLineType.METRICS, false);
+        metricsLogger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, fields("aai", "COMPLETE"),
+            startedMillisAgo(5), "arg1", "arg2");
+        rollup.flush();
+        assertEquals(1, capture.lines.size());
+        assertEquals(1, pipeline.getStats().getTotalLines());
+    }
+
+    private static LogFields fields(String targetEntity, String statusCode) {
+        return new LogFields().setField(DefinedFields.TARGET_ENTITY, targetEntity)
+            .setField(DefinedFields.TARGET_SVC_NAME, "query")
+            .setField(DefinedFields.STATUS_CODE, statusCode);
+    }
+
+    private static MdcOverride startedMillisAgo(long millis) {
+        MdcOverride override = new MdcOverride();
+        override.addAttribute(MdcContext.MDC_START_TIME,
+            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").format(new Date(System.currentTimeMillis() - millis)));
+        return override;
+    }
+}
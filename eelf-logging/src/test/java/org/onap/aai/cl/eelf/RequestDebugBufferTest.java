@@ -0,0 +1,163 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.att.eelf.configuration.EELFLogger;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.slf4j.MDC;
+
+/** This suite of tests validates the holding back of debug lines by
+ * {@link RequestDebugBuffer}. */
+public class RequestDebugBufferTest {
+
+    private CapturingLogger capture;
+    private LogPipeline pipeline;
+    private AaiLoggerAdapter logger;
+
+    @Before
+    public void setup() {
+        capture = new CapturingLogger();
+        pipeline = new LogPipeline();
+        logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+    }
+
+    @After
+    public void teardown() {
+        MDC.clear();
+    }
+
+    /** Validates that the debug lines of a request are only written when it
+     * logs an error, in order and ahead of the error. */
+    @Test
+    public void flushOnErrorTest() {
+        pipeline.setRequestDebugBuffer(new RequestDebugBuffer(8, 8, pipeline.getStats()));
+
+        startRequest("req-1");
+        logger.debug("first");
+        logger.trace(UnitTestMsgs.SIMPLE_INFO_LOG);
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        assertEquals(1, capture.lines.size());
+
+        startRequest("req-2");
+        logger.debug("other request");
+
+        startRequest("req-1");
+        logger.error(UnitTestMsgs.SIMPLE_ERROR_LOG, new LogFields());
+
+        assertEquals(4, capture.lines.size());
+        assertTrue(capture.lines.get(1).contains("first"));
+        assertTrue(capture.lines.get(2).contains("UT0001I"));
+        assertTrue(capture.lines.get(3).contains("UT0001E"));
+        assertEquals(Arrays.asList(EELFLogger.Level.INFO, EELFLogger.Level.ERROR,
+            EELFLogger.Level.ERROR, EELFLogger.Level.ERROR), capture.levels);
+
+        RequestDebugBuffer buffer = pipeline.getRequestDebugBuffer();
+        assertEquals(2, buffer.getFlushedCount());
+        assertEquals(1, buffer.getRequestCount());
+        assertEquals(4, pipeline.getStats().getTotalLines());
+    }
+
+    /** Validates that only the most recent lines of a request are kept. */
+    @Test
+    public void ringOverflowTest() {
+        pipeline.setRequestDebugBuffer(new RequestDebugBuffer(3, 8, pipeline.getStats()));
+
+        startRequest("req-1");
+        for (int i = 0; i < 5; i++) {
+            logger.debug("line " + i);
+        }
+        logger.error(UnitTestMsgs.SIMPLE_ERROR_LOG, new LogFields());
+
+        assertEquals(4, capture.lines.size());
+        assertTrue(capture.lines.get(0).contains("line 2"));
+        assertTrue(capture.lines.get(2).contains("line 4"));
+        assertEquals(2, pipeline.getRequestDebugBuffer().getDiscardedCount());
+        assertEquals(2, pipeline.getStats().getByLevel().get("DEBUG").getSuppressed());
+    }
+
+    /** Validates that the lines of the oldest request are discarded once too
+     * many requests are tracked, and that discard releases a request. */
+    @Test
+    public void evictionTest() {
+        RequestDebugBuffer buffer = new RequestDebugBuffer(4, 2, pipeline.getStats());
+        pipeline.setRequestDebugBuffer(buffer);
+
+        for (String requestId : new String[] {"req-1", "req-2", "req-3"}) {
+            startRequest(requestId);
+            logger.debug("debug for " + requestId);
+        }
+        assertEquals(2, buffer.getRequestCount());
+        assertEquals(1, buffer.getDiscardedCount());
+
+        startRequest("req-1");
+        logger.error(UnitTestMsgs.SIMPLE_ERROR_LOG, new LogFields());
+        assertEquals(1, capture.lines.size());
+
+        buffer.discard("req-2");
+        assertEquals(1, buffer.getRequestCount());
+        assertEquals(2, buffer.getDiscardedCount());
+
+        buffer.clear();
+        assertEquals(0, buffer.getRequestCount());
+        assertEquals(3, buffer.getDiscardedCount());
+        assertEquals(3, pipeline.getStats().getTotalSuppressed());
+    }
+
+    /** Validates that lines without a request id are written as usual. */
+    @Test
+    public void noRequestIdTest() {
+        pipeline.setRequestDebugBuffer(new RequestDebugBuffer(4, 4, pipeline.getStats()));
+
+        MDC.clear();
+        logger.debug("no request");
+        assertEquals(1, capture.lines.size());
+        assertEquals(EELFLogger.Level.DEBUG, capture.levels.get(0));
+    }
+
+    /** Validates enabling and disabling buffering through the factory. */
+    @Test
+    public void factoryTest() {
+        LoggerFactory factory = LoggerFactory.getInstance();
+        RequestDebugBuffer buffer = factory.enableRequestDebugBuffering(4, 4);
+        try {
+            assertEquals(buffer, factory.getPipeline().getRequestDebugBuffer());
+        } finally {
+            factory.disableRequestDebugBuffering();
+        }
+        assertEquals(null, factory.getPipeline().getRequestDebugBuffer());
+    }
+
+    private static void startRequest(String requestId) {
+        MdcContext.initialize(requestId, "MyService", "MyInstance", "MyPartner", "12.0.0.2");
+    }
+}
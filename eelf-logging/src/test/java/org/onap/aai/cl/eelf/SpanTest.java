@@ -0,0 +1,92 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.SimpleDateFormat;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.api.Span;
+
+/** This suite of tests validates the lines produced by closing a {@link Span}. */
+public class SpanTest {
+
+    private static final int START_TIME_INDEX = 0;
+    private static final int TARGET_ENTITY_INDEX = 8;
+    private static final int STATUS_CODE_INDEX = 10;
+    private static final int ELAPSED_TIME_INDEX = 17;
+    private static final int MSG_INDEX = 28;
+
+    /** Validates that a metrics line with the span's fields and timings is
+     * emitted when the span is closed, and only then. */
+    @Test
+    public void metricsSpanTest() throws Exception {
+        CapturingLogger capture = new CapturingLogger();
+        AaiLoggerAdapter metricsLogger =
+            new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest");
+
+        long before = System.currentTimeMillis();
+        try (Span span = metricsLogger.startSpan(UnitTestMsgs.INFO_LOG_WITH_ARGS)) {
+            span.setField(DefinedFields.TARGET_ENTITY, "aai").setArguments("arg1", "arg2");
+            Thread.sleep(20);
+            span.setField(DefinedFields.STATUS_CODE, "COMPLETE");
+            assertTrue(capture.lines.isEmpty());
+        }
+
+        assertEquals(1, capture.lines.size());
+        String[] tokens = capture.last().split("\\|");
+        assertEquals("aai", tokens[TARGET_ENTITY_INDEX]);
+        assertEquals("COMPLETE", tokens[STATUS_CODE_INDEX]);
+        assertEquals("UT0002I This is an info log with some arguments arg1 and arg2", tokens[MSG_INDEX]);
+        assertTrue(Long.parseLong(tokens[ELAPSED_TIME_INDEX]) >= 20);
+
+        long start = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").parse(tokens[START_TIME_INDEX]).getTime();
+        assertTrue(start >= before && start <= before + 20);
+    }
+
+    /** Validates that child spans emit their own lines, and are closed before
+     * their parent. */
+    @Test
+    public void childSpanTest() {
+        CapturingLogger capture = new CapturingLogger();
+        AaiLoggerAdapter auditLogger =
+            new AaiLoggerAdapter(capture.getLogger(), LogLineType.AUDIT, "UnitTest");
+
+        Span parent = auditLogger.startSpan(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        Span child = parent.startChild(UnitTestMsgs.INFO_LOG_WITH_ARGS).setArguments("a", "b");
+        assertTrue(child.getParent() == parent);
+
+        parent.close();
+        parent.close();
+
+        assertTrue(child.isClosed());
+        assertEquals(2, capture.lines.size());
+        assertTrue(capture.lines.get(0).endsWith("UT0002I This is an info log with some arguments a and b"));
+        assertTrue(capture.lines.get(1).endsWith("UT0001I This is a simple info log with no arguments."));
+        assertTrue(child.getElapsedNanos() <= parent.getElapsedNanos());
+    }
+}
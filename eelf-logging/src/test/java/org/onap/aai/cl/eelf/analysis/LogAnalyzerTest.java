@@ -0,0 +1,148 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.MetricsColumn;
+import org.onap.aai.cl.eelf.stats.LatencyHistogram;
+
+/** This suite of tests validates the behaviour of the {@link LogAnalyzer}. */
+public class LogAnalyzerTest {
+
+    /** Validates the results of analyzing a file in many small chunks. */
+    @Test
+    public void analyzeTest() throws Exception {
+        File file = LogFileReaderTest.write(lines(600), "");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            LogAnalysis whole = new LogAnalyzer(LogLineType.METRICS, 60000, Long.MAX_VALUE)
+                .analyze(Collections.singletonList(file.toPath()), pool);
+            LogAnalysis chunked = new LogAnalyzer(LogLineType.METRICS, 60000, 500)
+                .analyze(Collections.singletonList(file.toPath()), pool);
+
+            for (LogAnalysis analysis : Arrays.asList(whole, chunked)) {
+                assertEquals(600, analysis.getLineCount());
+                assertEquals(0, analysis.getSkippedCount());
+                assertEquals(Arrays.asList("service-0", "service-1", "service-2"),
+                    new ArrayList<String>(analysis.getLatencyByService().keySet()));
+                LatencyHistogram service = analysis.getLatencyByService().get("service-1");
+                assertEquals(200, service.getCount());
+                assertEquals(1, service.getMin());
+                assertEquals(598, service.getMax());
+                assertEquals(600, analysis.getLatencyByTarget().get("elasticsearch|search").getCount());
+                assertEquals(Long.valueOf(120), analysis.getErrorCounts().get("500"));
+                assertEquals(1, analysis.getErrorCounts().size());
+
+                Map<Long, Long> throughput = analysis.getThroughput();
+                assertEquals(10, throughput.size());
+                for (long count : throughput.values()) {
+                    assertEquals(60, count);
+                }
+            }
+            assertEquals(whole.report(new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT)),
+                chunked.report(new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Validates that the results of several files are combined. */
+    @Test
+    public void multipleFilesTest() throws Exception {
+        List<Path> files = new ArrayList<Path>();
+        for (int i = 0; i < 3; i++) {
+            files.add(LogFileReaderTest.write(lines(100), "").toPath());
+        }
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            LogAnalysis analysis = new LogAnalyzer(LogLineType.METRICS, 1000, 1000).analyze(files, pool);
+            assertEquals(300, analysis.getLineCount());
+            assertEquals(Long.valueOf(60), analysis.getErrorCounts().get("500"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Validates the command line interface. */
+    @Test
+    public void commandLineTest() throws Exception {
+        File file = LogFileReaderTest.write(lines(60), "");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        int status = LogAnalyzer.run(new String[] {"--type", "metrics", "--bucket", "3600", "--threads", "2",
+            file.getPath()}, new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+        assertEquals(0, status);
+        String report = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(report, report.startsWith("Lines analyzed: 60, skipped: 0"));
+        assertTrue(report, report.contains("elasticsearch|search"));
+        assertTrue(report, report.contains("500 count=12"));
+
+        status = LogAnalyzer.run(new String[] {"--type", "error", file.getPath()},
+            new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+        assertEquals(2, status);
+        assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).startsWith("Usage:"));
+    }
+
+    /**
+     * Builds metrics lines spread evenly over three services, with one line in
+     * five failing and one line per second.
+     */
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            String time = String.format("2017-01-01T10:%02d:%02d.000Z", i / 60, i % 60);
+            lines.add(TestLine.metrics()
+                .set(MetricsColumn.START_TIME, time)
+                .set(MetricsColumn.END_TIME, time)
+                .set(MetricsColumn.REQUEST_ID, "req-" + i)
+                .set(MetricsColumn.SERVICE_NAME, "service-" + (i % 3))
+                .set(MetricsColumn.PARTNER_NAME, "partner")
+                .set(MetricsColumn.TARGET_ENTITY, "elasticsearch")
+                .set(MetricsColumn.TARGET_SERVICE_NAME, "search")
+                .set(MetricsColumn.STATUS_CODE, i % 5 == 0 ? "ERROR" : "COMPLETE")
+                .set(MetricsColumn.RESPONSE_CODE, i % 5 == 0 ? "500" : "200")
+                .set(MetricsColumn.ELAPSED_TIME, Integer.toString(i))
+                .set(MetricsColumn.DETAILS, "call " + i)
+                .build());
+        }
+        return lines;
+    }
+}
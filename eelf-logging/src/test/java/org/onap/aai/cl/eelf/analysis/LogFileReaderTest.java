@@ -0,0 +1,214 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AaiLoggerAdapter;
+import org.onap.aai.cl.eelf.AuditColumn;
+import org.onap.aai.cl.eelf.CapturingLogger;
+import org.onap.aai.cl.eelf.LogColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.LogPipeline;
+import org.onap.aai.cl.eelf.MetricsColumn;
+import org.onap.aai.cl.eelf.UnitTestMsgs;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+
+/** This suite of tests validates the behaviour of the {@link LogFileReader}. */
+public class LogFileReaderTest {
+
+    /** Validates that every column of lines written by the metrics logger is read back. */
+    @Test
+    public void parseTest() throws Exception {
+        List<String> lines = metricsLines(50);
+        File file = write(lines, "");
+
+        LogFileReader reader = new LogFileReader(file.toPath(), LogLineType.METRICS);
+        try {
+            int i = 0;
+            long offset = 0;
+            for (LogRecord record : reader) {
+                assertRecord(lines.get(i), record, MetricsColumn.values());
+                assertTrue(record.isComplete());
+                assertEquals(offset, record.getLineOffset());
+                offset += lines.get(i).getBytes(StandardCharsets.UTF_8).length + 1;
+                assertEquals(new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT)
+                    .parse(record.getString(MetricsColumn.END_TIME)).getTime(),
+                    record.getTimestamp(MetricsColumn.END_TIME));
+                assertEquals(Long.parseLong(record.getString(MetricsColumn.ELAPSED_TIME)),
+                    record.getLong(MetricsColumn.ELAPSED_TIME));
+                assertTrue(record.matches(MetricsColumn.TARGET_ENTITY, "elasticsearch".getBytes(StandardCharsets.UTF_8)));
+                assertFalse(record.matches(MetricsColumn.TARGET_ENTITY, "elastic".getBytes(StandardCharsets.UTF_8)));
+                i++;
+            }
+            assertEquals(lines.size(), i);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Validates handling of short lines, CRLF terminators and an incomplete last line. */
+    @Test
+    public void irregularLinesTest() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        lines.add("2017-01-01T10:00:00.000Z|2017-01-01T10:00:00.010Z|short line");
+        lines.add("");
+        File file = File.createTempFile("LogFileReaderTest", ".log");
+        file.deleteOnExit();
+        Files.write(file.toPath(), (lines.get(0) + "\r\n\n" + "partial|line").getBytes(StandardCharsets.UTF_8));
+
+        LogFileReader reader = new LogFileReader(file.toPath(), LogLineType.AUDIT);
+        try {
+            assertTrue(reader.next());
+            LogRecord record = reader.getRecord();
+            assertEquals(lines.get(0), record.getLine());
+            assertFalse(record.isComplete());
+            assertEquals(3, record.getColumnCount());
+            assertEquals("short line", record.getString(AuditColumn.REQUEST_ID));
+            assertEquals("", record.getString(AuditColumn.DETAILS));
+            assertEquals(-1, record.getLong(AuditColumn.ELAPSED_TIME));
+            assertEquals(1483264800000L, record.getTimestamp(AuditColumn.START_TIME));
+            assertEquals(Long.MIN_VALUE, record.getTimestamp(AuditColumn.REQUEST_ID));
+
+            assertTrue(reader.next());
+            assertEquals(0, reader.getRecord().getLineLength());
+            assertFalse(reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Validates reading through a window which is smaller than the lines. */
+    @Test
+    public void smallWindowTest() throws Exception {
+        List<String> lines = metricsLines(20);
+        File file = write(lines, "");
+
+        LogFileReader reader = new LogFileReader(file.toPath(), MetricsColumn.values(), 0, Long.MAX_VALUE, 64);
+        try {
+            int i = 0;
+            while (reader.next()) {
+                assertEquals(lines.get(i++), reader.getRecord().getLine());
+            }
+            assertEquals(lines.size(), i);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Validates that readers over adjacent ranges read every line exactly once. */
+    @Test
+    public void rangeTest() throws Exception {
+        List<String> lines = metricsLines(40);
+        File file = write(lines, "");
+        long size = file.length();
+
+        for (int parts = 1; parts <= 7; parts++) {
+            List<String> read = new ArrayList<String>();
+            for (int p = 0; p < parts; p++) {
+                LogFileReader reader = new LogFileReader(file.toPath(), MetricsColumn.values(),
+                    size * p / parts, size * (p + 1) / parts, 100);
+                try {
+                    while (reader.next()) {
+                        read.add(reader.getRecord().getLine());
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+            assertEquals(lines, read);
+        }
+    }
+
+    /** Validates timestamp parsing against the JDK's parser. */
+    @Test
+    public void timestampTest() throws Exception {
+        String[] timestamps = {"1970-01-01T00:00:00.000Z", "2017-03-01T00:00:00.001+05:30",
+            "2016-02-29T23:59:59.999-08:00", "1969-12-31T23:59:59.999Z", "2400-12-31T12:34:56.789+14:00"};
+        SimpleDateFormat formatter = new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT);
+        for (String timestamp : timestamps) {
+            byte[] bytes = timestamp.getBytes(StandardCharsets.UTF_8);
+            assertEquals(timestamp, formatter.parse(timestamp).getTime(),
+                TimestampParser.parse(java.nio.ByteBuffer.wrap(bytes), 0, bytes.length));
+        }
+    }
+
+    private static void assertRecord(String line, LogRecord record, LogColumn[] columns) {
+        String[] expected = line.split("\\|", columns.length);
+        assertEquals(line, record.getLine());
+        for (LogColumn column : columns) {
+            assertEquals(column.name(), expected[column.ordinal()], record.getString(column));
+            assertEquals(expected[column.ordinal()].getBytes(StandardCharsets.UTF_8).length, record.length(column));
+            assertEquals(expected[column.ordinal()].isEmpty(), record.isEmpty(column));
+        }
+    }
+
+    static List<String> metricsLines(int count) {
+        CapturingLogger capture = new CapturingLogger();
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest", new LogPipeline());
+        for (int i = 0; i < count; i++) {
+            MdcOverride override = new MdcOverride();
+            override.addAttribute(MdcContext.MDC_REQUEST_ID, "req-" + i);
+            override.addAttribute(MdcContext.MDC_START_TIME, "2017-01-01T10:00:00.000Z");
+            LogFields fields = new LogFields()
+                .setField(DefinedFields.TARGET_ENTITY, "elasticsearch")
+                .setField(DefinedFields.STATUS_CODE, i % 3 == 0 ? "ERROR" : "COMPLETE")
+                .setField(DefinedFields.CUSTOM_1, "café");
+            logger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, fields, override, "a|b", "line " + i);
+        }
+        return capture.lines;
+    }
+
+    /** Writes lines to a temporary file, each followed by a line terminator, and
+     * then a suffix, such as an unterminated last line. */
+    public static File write(List<String> lines, String suffix) throws Exception {
+        File file = File.createTempFile("LogFileReaderTest", ".log");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text(lines, suffix));
+        return file;
+    }
+
+    /** Encodes lines as the contents of a log file, each followed by a line
+     * terminator, and then a suffix. */
+    public static byte[] text(List<String> lines, String suffix) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        text.append(suffix);
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
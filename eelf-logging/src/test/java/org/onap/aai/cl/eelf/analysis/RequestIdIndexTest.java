@@ -0,0 +1,207 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AuditColumn;
+
+/** This suite of tests validates the {@link RequestIdIndex} and {@link RequestIdLookup}. */
+public class RequestIdIndexTest {
+
+    /** Validates the Bloom filter and offset table of an index. */
+    @Test
+    public void indexTest() throws Exception {
+        List<String> lines = lines("req-", 200, 50);
+        Path segment = segment(lines);
+
+        RequestIdIndex index = RequestIdIndex.build(segment, LogLineType.AUDIT);
+        try {
+            assertEquals(LogLineType.AUDIT, index.getType());
+            assertEquals(Files.size(segment), index.getSegmentSize());
+            assertEquals(200, index.getEntryCount());
+            for (int i = 0; i < 50; i++) {
+                assertTrue(index.mightContain("req-" + i));
+            }
+
+            long[] offsets = index.getOffsets("req-7");
+            assertEquals(4, offsets.length);
+            for (int i = 0; i < offsets.length; i++) {
+                long expected = 0;
+                for (int j = 0; j < 7 + i * 50; j++) {
+                    expected += lines.get(j).length() + 1;
+                }
+                assertEquals(expected, offsets[i]);
+            }
+
+            int falsePositives = 0;
+            for (int i = 0; i < 1000; i++) {
+                if (index.mightContain("other-" + i)) {
+                    falsePositives++;
+                }
+            }
+            assertTrue("False positives: " + falsePositives, falsePositives < 50);
+            assertEquals(0, index.getOffsets("other").length);
+        } finally {
+            index.close();
+        }
+
+        // The index can be reopened from its file.
+        index = RequestIdIndex.open(RequestIdIndex.indexFileFor(segment));
+        try {
+            assertEquals(200, index.getEntryCount());
+            assertEquals(4, index.getOffsets("req-49").length);
+        } finally {
+            index.close();
+        }
+    }
+
+    /** Validates finding a request across segments, including lines written since indexing. */
+    @Test
+    public void lookupTest() throws Exception {
+        List<Path> segments = new ArrayList<Path>();
+        for (int s = 0; s < 20; s++) {
+            segments.add(segment(lines("seg" + s + "-req-", 100, 25)));
+        }
+        RequestIdLookup lookup = new RequestIdLookup(LogLineType.AUDIT);
+        for (Path segment : segments) {
+            lookup.index(segment);
+        }
+
+        List<String> found = lookup.find("seg3-req-5", segments);
+        assertEquals(4, found.size());
+        for (String line : found) {
+            assertTrue(line, line.contains("|seg3-req-5|"));
+        }
+        assertEquals(20, lookup.getSegmentsSkipped() + lookup.getSegmentsSearched());
+        assertTrue(lookup.getSegmentsSkipped() >= 17);
+
+        // Lines appended since the segment was indexed are scanned.
+        List<String> appended = lines("seg3-req-", 50, 25);
+        Files.write(segments.get(3), LogFileReaderTest.text(appended, ""),
+            StandardOpenOption.APPEND);
+        assertEquals(6, lookup.find("seg3-req-5", segments).size());
+
+        // A segment which has been replaced is reindexed.
+        Files.write(segments.get(3), LogFileReaderTest.text(lines("new-", 10, 10), ""));
+        assertEquals(0, lookup.find("seg3-req-5", segments).size());
+        assertEquals(Collections.singletonList(lines("new-", 10, 10).get(4)),
+            lookup.find("new-4", segments));
+    }
+
+    /** Validates that the index of a file which has been rolled by renaming is
+     * not used for the new file which takes its name, even once the new file
+     * has grown past the size of the old one. */
+    @Test
+    public void rolledSegmentTest() throws Exception {
+        Path segment = segment(lines("old-", 10, 10));
+        RequestIdLookup lookup = new RequestIdLookup(LogLineType.AUDIT);
+        lookup.index(segment);
+
+        Path rolled = segment.resolveSibling(segment.getFileName() + ".1");
+        Files.move(segment, rolled);
+        rolled.toFile().deleteOnExit();
+        RequestIdIndex.indexFileFor(rolled).toFile().deleteOnExit();
+        List<String> lines = lines("new-", 50, 50);
+        Files.write(segment, LogFileReaderTest.text(lines, ""));
+
+        RequestIdIndex stale = RequestIdIndex.open(RequestIdIndex.indexFileFor(segment));
+        try {
+            assertTrue(stale.getSegmentSize() < Files.size(segment));
+            assertFalse(stale.isIndexOf(segment));
+        } finally {
+            stale.close();
+        }
+        assertEquals(Collections.singletonList(lines.get(3)),
+            lookup.find("new-3", Collections.singletonList(segment)));
+        assertEquals(Collections.singletonList(lines.get(42)),
+            lookup.find("new-42", Collections.singletonList(segment)));
+        assertEquals(1, lookup.find("old-3", Collections.singletonList(rolled)).size());
+    }
+
+    /** Validates that a segment without an index is indexed when it is first searched. */
+    @Test
+    public void missingIndexTest() throws Exception {
+        Path segment = segment(lines("req-", 10, 10));
+        assertFalse(Files.exists(RequestIdIndex.indexFileFor(segment)));
+        assertEquals(1, new RequestIdLookup(LogLineType.AUDIT).find("req-3",
+            Collections.singletonList(segment)).size());
+        assertTrue(Files.exists(RequestIdIndex.indexFileFor(segment)));
+    }
+
+    /** Validates the command line interface. */
+    @Test
+    public void commandLineTest() throws Exception {
+        List<String> lines = lines("req-", 20, 10);
+        Path segment = segment(lines);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertEquals(0, RequestIdLookup.run(new String[] {"--type", "audit", "--index", segment.toString()},
+            new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+        assertTrue(Files.exists(RequestIdIndex.indexFileFor(segment)));
+
+        assertEquals(0, RequestIdLookup.run(new String[] {"req-2", segment.toString()},
+            new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+        assertEquals(lines.get(2) + System.lineSeparator() + lines.get(12) + System.lineSeparator(),
+            new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        assertEquals(2, RequestIdLookup.run(new String[] {"req-2"},
+            new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+    }
+
+    /** Builds audit lines whose request ids cycle through a number of distinct values. */
+    private static List<String> lines(String prefix, int count, int distinct) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            lines.add(TestLine.audit()
+                .set(AuditColumn.START_TIME, "2017-01-01T10:00:00.000Z")
+                .set(AuditColumn.END_TIME, "2017-01-01T10:00:00.010Z")
+                .set(AuditColumn.REQUEST_ID, prefix + (i % distinct))
+                .set(AuditColumn.SERVICE_NAME, "service")
+                .set(AuditColumn.DETAILS, "line " + i)
+                .build());
+        }
+        return lines;
+    }
+
+    private static Path segment(List<String> lines) throws Exception {
+        File file = LogFileReaderTest.write(lines, "");
+        RequestIdIndex.indexFileFor(file.toPath()).toFile().deleteOnExit();
+        return file.toPath();
+    }
+}
@@ -0,0 +1,81 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.analysis;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.onap.aai.cl.eelf.AuditColumn;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.MetricsColumn;
+
+/** Builds the text of an audit or metrics line for tests, setting only the
+ * columns a test cares about and leaving the rest empty. */
+public class TestLine<C extends Enum<C>> {
+
+    private final String[] values;
+
+    private TestLine(int columnCount) {
+        values = new String[columnCount];
+        Arrays.fill(values, "");
+    }
+
+    /** @return - A builder for an audit line with every column empty. */
+    public static TestLine<AuditColumn> audit() {
+        return new TestLine<AuditColumn>(AuditColumn.values().length);
+    }
+
+    /** @return - A builder for a metrics line with every column empty. */
+    public static TestLine<MetricsColumn> metrics() {
+        return new TestLine<MetricsColumn>(MetricsColumn.values().length);
+    }
+
+    /** Sets a column to a value. */
+    public TestLine<C> set(C column, String value) {
+        values[column.ordinal()] = value;
+        return this;
+    }
+
+    /** Sets a column to a time, formatted as a UTC timestamp. */
+    public TestLine<C> setTime(C column, long time) {
+        return set(column, timestamp(time));
+    }
+
+    /** @return - The values of the columns, in column order. */
+    public String[] values() {
+        return values;
+    }
+
+    /** @return - The text of the line, without a line terminator. */
+    public String build() {
+        return LogColumns.join(values);
+    }
+
+    /** Formats a time as a UTC timestamp, as the columns of a line hold it. */
+    public static String timestamp(long time) {
+        SimpleDateFormat formatter = new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT);
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return formatter.format(new Date(time));
+    }
+}
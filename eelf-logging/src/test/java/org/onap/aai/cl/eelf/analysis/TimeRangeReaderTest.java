@@ -0,0 +1,207 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.MetricsColumn;
+import org.onap.aai.cl.eelf.sink.TimeIndexedFileDestination;
+
+/** This suite of tests validates the {@link TimeIndex} and {@link TimeRangeReader}. */
+public class TimeRangeReaderTest {
+
+    private static final long BASE = 1483264800000L; // 2017-01-01T10:00:00.000Z
+
+    /** Validates range queries against an index built from an existing file. */
+    @Test
+    public void rangeTest() throws Exception {
+        List<String> lines = lines(0, 2000);
+        Path file = file(lines);
+        TimeIndex index = TimeIndex.build(file, LogLineType.METRICS, 1024);
+        assertEquals(Files.size(file), index.getCoveredSize());
+        assertTrue(index.getBlockCount() > 100);
+
+        long[][] queries = {{200, 210}, {0, 1}, {1995, 3000}, {-100, 0}, {500, 500}, {0, 2000}};
+        for (long[] query : queries) {
+            long from = BASE + query[0] * 1000;
+            long to = BASE + query[1] * 1000;
+            TimeRangeReader reader = new TimeRangeReader(file, LogLineType.METRICS, from, to);
+            try {
+                assertEquals(Arrays.toString(query), expected(lines, from, to), read(reader));
+                if (query[1] - query[0] <= 10) {
+                    assertTrue(reader.getBytesRead() < Files.size(file) / 20);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /** Validates that lines written through the destination are indexed as they are written. */
+    @Test
+    public void liveFileTest() throws Exception {
+        File created = File.createTempFile("TimeRangeReaderTest", ".log");
+        created.deleteOnExit();
+        TimeIndex.indexFileFor(created.toPath()).toFile().deleteOnExit();
+        Path file = created.toPath();
+        List<String> lines = lines(0, 1000);
+
+        TimeIndexedFileDestination destination = new TimeIndexedFileDestination(file, LogLineType.METRICS, 1024);
+        write(destination, lines);
+        long from = BASE + 990 * 1000;
+        long to = BASE + 1000 * 1000;
+
+        // The last lines are not yet in the index, so are read from the end of the file.
+        TimeIndex index = TimeIndex.open(TimeIndex.indexFileFor(file));
+        assertTrue(index.getCoveredSize() > 0);
+        assertTrue(index.getCoveredSize() < Files.size(file));
+        assertEquals(expected(lines, from, to), read(new TimeRangeReader(file, LogLineType.METRICS, from, to)));
+        destination.close();
+        assertEquals(Files.size(file), TimeIndex.open(TimeIndex.indexFileFor(file)).getCoveredSize());
+
+        // Reopening the file carries on with the same index.
+        List<String> more = lines(1000, 500);
+        destination = new TimeIndexedFileDestination(file, LogLineType.METRICS, 1024);
+        write(destination, more);
+        destination.close();
+        lines.addAll(more);
+        from = BASE + 900 * 1000;
+        to = BASE + 1100 * 1000;
+        assertEquals(expected(lines, from, to), read(new TimeRangeReader(file, LogLineType.METRICS, from, to)));
+        assertEquals(Files.size(file), TimeIndex.open(TimeIndex.indexFileFor(file)).getCoveredSize());
+    }
+
+    /** Validates that the index of a file which has been replaced is rebuilt. */
+    @Test
+    public void replacedFileTest() throws Exception {
+        Path file = file(lines(0, 1000));
+        TimeIndex.build(file, LogLineType.METRICS, 1024);
+        List<String> lines = lines(5000, 10);
+        Files.write(file, (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+
+        long from = BASE;
+        long to = BASE + 10000 * 1000;
+        assertEquals(lines, read(new TimeRangeReader(file, LogLineType.METRICS, from, to)));
+    }
+
+    /** Validates that the index of a file which has been rolled by renaming is
+     * not used for the new file which takes its name, by the reader or by the
+     * writer, even when the new file is as large as the old one. */
+    @Test
+    public void rolledFileTest() throws Exception {
+        Path file = file(lines(0, 1000));
+        TimeIndex.build(file, LogLineType.METRICS, 1024);
+        Path rolled = file.resolveSibling(file.getFileName() + ".1");
+        Files.move(file, rolled);
+        rolled.toFile().deleteOnExit();
+
+        List<String> lines = lines(0, 1000);
+        Collections.reverse(lines);
+        Files.write(file, (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+        assertEquals(Files.size(rolled), Files.size(file));
+        assertFalse(TimeIndex.open(TimeIndex.indexFileFor(file)).isIndexOf(file));
+
+        long from = BASE + 100 * 1000;
+        long to = BASE + 110 * 1000;
+        assertEquals(expected(lines, from, to), read(new TimeRangeReader(file, LogLineType.METRICS, from, to)));
+
+        // Put the old file's index back, as a writer reopening the file would find it.
+        TimeIndex.build(rolled, LogLineType.METRICS, 1024);
+        Files.copy(TimeIndex.indexFileFor(rolled), TimeIndex.indexFileFor(file),
+            StandardCopyOption.REPLACE_EXISTING);
+        TimeIndex.indexFileFor(rolled).toFile().deleteOnExit();
+        new TimeIndexedFileDestination(file, LogLineType.METRICS, 1024).close();
+        assertTrue(TimeIndex.open(TimeIndex.indexFileFor(file)).isIndexOf(file));
+        assertEquals(expected(lines, from, to), read(new TimeRangeReader(file, LogLineType.METRICS, from, to)));
+    }
+
+    /**
+     * Builds metrics lines one second apart. Lines are written when they end,
+     * so their start times are slightly out of order.
+     */
+    private static List<String> lines(int first, int count) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = first; i < first + count; i++) {
+            long start = BASE + i * 1000L - (i % 7) * 700;
+            lines.add(TestLine.metrics()
+                .setTime(MetricsColumn.START_TIME, start)
+                .setTime(MetricsColumn.END_TIME, BASE + i * 1000L)
+                .set(MetricsColumn.REQUEST_ID, "req-" + i)
+                .set(MetricsColumn.DETAILS, "line " + i)
+                .build());
+        }
+        return lines;
+    }
+
+    private static List<String> expected(List<String> lines, long from, long to) throws Exception {
+        SimpleDateFormat formatter = new SimpleDateFormat(LogColumns.TIMESTAMP_FORMAT);
+        List<String> expected = new ArrayList<String>();
+        for (String line : lines) {
+            long start = formatter.parse(line.substring(0, line.indexOf('|'))).getTime();
+            if (start >= from && start < to) {
+                expected.add(line);
+            }
+        }
+        return expected;
+    }
+
+    private static List<String> read(TimeRangeReader reader) throws Exception {
+        List<String> read = new ArrayList<String>();
+        try {
+            for (LogRecord record : reader) {
+                read.add(record.getLine());
+            }
+        } finally {
+            reader.close();
+        }
+        return read;
+    }
+
+    private static void write(TimeIndexedFileDestination destination, List<String> lines) throws Exception {
+        for (String line : lines) {
+            destination.write(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static Path file(List<String> lines) throws Exception {
+        File file = LogFileReaderTest.write(lines, "");
+        TimeIndex.indexFileFor(file.toPath()).toFile().deleteOnExit();
+        return file.toPath();
+    }
+}
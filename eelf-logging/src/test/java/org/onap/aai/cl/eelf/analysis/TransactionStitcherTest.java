@@ -0,0 +1,199 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AuditColumn;
+import org.onap.aai.cl.eelf.MetricsColumn;
+
+/** This suite of tests validates the behaviour of the {@link TransactionStitcher}. */
+public class TransactionStitcherTest {
+
+    private static final long BASE = 1483264800000L; // 2017-01-01T10:00:00.000Z
+
+    /** Validates the summaries of transactions joined from two files. */
+    @Test
+    public void stitchTest() throws Exception {
+        List<Transaction> transactions = new ArrayList<Transaction>();
+        TransactionStitcher stitcher = new TransactionStitcher(5000, 1000, transactions::add);
+        stitch(stitcher, 100);
+        stitcher.flush();
+
+        assertEquals(100, transactions.size());
+        for (Transaction transaction : transactions) {
+            int i = Integer.parseInt(transaction.getRequestId().substring("req-".length()));
+            assertTrue(transaction.isAudited());
+            assertEquals("service", transaction.getServiceName());
+            assertEquals("partner", transaction.getPartnerName());
+            assertEquals(BASE + i * 1000L, transaction.getStartTime());
+            assertEquals(500, transaction.getTotalTime());
+            assertEquals(2, transaction.getCallCount());
+            assertEquals(250, transaction.getDownstreamTime());
+            assertEquals(Long.valueOf(100), transaction.getDownstreamTimeByTarget().get("aai|query"));
+            assertEquals(Long.valueOf(150), transaction.getDownstreamTimeByTarget().get("sdc|get"));
+            assertEquals(i % 10 == 0 ? Arrays.asList("404", "500") : Collections.emptyList(),
+                transaction.getErrorCodes());
+        }
+    }
+
+    /** Validates that transactions are emitted as the watermark passes them, so memory stays bounded. */
+    @Test
+    public void watermarkTest() throws Exception {
+        List<Transaction> transactions = new ArrayList<Transaction>();
+        TransactionStitcher stitcher = new TransactionStitcher(2000, 1000, transactions::add);
+        stitch(stitcher, 100);
+
+        // Only the transactions within the window of the end of the streams are still held.
+        assertTrue(stitcher.getOpenCount() <= 4);
+        assertEquals(100, transactions.size() + stitcher.getOpenCount());
+        assertEquals(0, stitcher.getEvictedCount());
+        assertEquals("req-0", transactions.get(0).getRequestId());
+
+        // An idle stream can be moved on so that the rest complete.
+        stitcher.advance(LogLineType.AUDIT, BASE + 1000000);
+        stitcher.advance(LogLineType.METRICS, BASE + 1000000);
+        assertEquals(0, stitcher.getOpenCount());
+        assertEquals(100, transactions.size());
+    }
+
+    /** Validates the limit on the number of transactions held. */
+    @Test
+    public void limitTest() throws Exception {
+        List<Transaction> transactions = new ArrayList<Transaction>();
+        TransactionStitcher stitcher = new TransactionStitcher(Long.MAX_VALUE / 2, 10, transactions::add);
+        stitch(stitcher, 50);
+        assertEquals(10, stitcher.getOpenCount());
+        assertEquals(40, stitcher.getEvictedCount());
+        assertEquals(40, transactions.size());
+    }
+
+    /** Validates that calls whose request has no audit line still form a transaction. */
+    @Test
+    public void unauditedTest() throws Exception {
+        List<Transaction> transactions = new ArrayList<Transaction>();
+        TransactionStitcher stitcher = new TransactionStitcher(1000, 1000, transactions::add);
+        LogFileReader metrics = reader(metricsLines(1), LogLineType.METRICS);
+        LogFileReader audit = reader(Collections.<String>emptyList(), LogLineType.AUDIT);
+        TransactionStitcher.stitch(stitcher, audit, metrics);
+        audit.close();
+        metrics.close();
+        stitcher.flush();
+
+        assertEquals(1, transactions.size());
+        assertFalse(transactions.get(0).isAudited());
+        assertEquals(-1, transactions.get(0).getTotalTime());
+        assertEquals(2, transactions.get(0).getCallCount());
+        assertTrue(transactions.get(0).toString().contains("(no audit line)"));
+    }
+
+    /** Validates the command line interface. */
+    @Test
+    public void commandLineTest() throws Exception {
+        File audit = LogFileReaderTest.write(auditLines(20), "");
+        File metrics = LogFileReaderTest.write(metricsLines(20), "");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertEquals(0, TransactionStitcher.run(new String[] {"--window", "5", audit.getPath(), metrics.getPath()},
+            new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\\R");
+        assertEquals(20, lines.length);
+        assertEquals("req-0 service=service partner=partner total=500ms calls=2 downstream=250ms"
+            + " aai|query=100ms sdc|get=150ms errors=[404, 500]", lines[0]);
+
+        assertEquals(2, TransactionStitcher.run(new String[] {audit.getPath()},
+            new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+    }
+
+    private static void stitch(TransactionStitcher stitcher, int count) throws Exception {
+        LogFileReader audit = reader(auditLines(count), LogLineType.AUDIT);
+        LogFileReader metrics = reader(metricsLines(count), LogLineType.METRICS);
+        try {
+            TransactionStitcher.stitch(stitcher, audit, metrics);
+        } finally {
+            audit.close();
+            metrics.close();
+        }
+    }
+
+    private static LogFileReader reader(List<String> lines, LogLineType type) throws Exception {
+        return new LogFileReader(LogFileReaderTest.write(lines, "").toPath(), type);
+    }
+
+    /** Builds the audit lines of requests starting a second apart and taking 500ms, one in ten failing. */
+    private static List<String> auditLines(int count) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            lines.add(TestLine.audit()
+                .setTime(AuditColumn.START_TIME, BASE + i * 1000L)
+                .setTime(AuditColumn.END_TIME, BASE + i * 1000L + 500)
+                .set(AuditColumn.REQUEST_ID, "req-" + i)
+                .set(AuditColumn.SERVICE_NAME, "service")
+                .set(AuditColumn.PARTNER_NAME, "partner")
+                .set(AuditColumn.STATUS_CODE, i % 10 == 0 ? "ERROR" : "COMPLETE")
+                .set(AuditColumn.RESPONSE_CODE, i % 10 == 0 ? "500" : "200")
+                .set(AuditColumn.ELAPSED_TIME, "500")
+                .build());
+        }
+        return lines;
+    }
+
+    /** Builds the metrics lines of two calls made by each request, the first failing for one in ten. */
+    private static List<String> metricsLines(int count) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            long start = BASE + i * 1000L;
+            lines.add(metricsLine(i, start + 100, start + 200, "aai", "query", i % 10 == 0 ? "404" : null));
+            lines.add(metricsLine(i, start + 250, start + 400, "sdc", "get", null));
+        }
+        return lines;
+    }
+
+    private static String metricsLine(int request, long start, long end, String entity, String service,
+            String errorCode) {
+        return TestLine.metrics()
+            .setTime(MetricsColumn.START_TIME, start)
+            .setTime(MetricsColumn.END_TIME, end)
+            .set(MetricsColumn.REQUEST_ID, "req-" + request)
+            .set(MetricsColumn.SERVICE_NAME, "service")
+            .set(MetricsColumn.TARGET_ENTITY, entity)
+            .set(MetricsColumn.TARGET_SERVICE_NAME, service)
+            .set(MetricsColumn.STATUS_CODE, errorCode == null ? "COMPLETE" : "ERROR")
+            .set(MetricsColumn.RESPONSE_CODE, errorCode == null ? "200" : errorCode)
+            .set(MetricsColumn.ELAPSED_TIME, Long.toString(end - start))
+            .build();
+    }
+}
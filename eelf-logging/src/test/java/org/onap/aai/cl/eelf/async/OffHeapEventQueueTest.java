@@ -0,0 +1,190 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.async;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.UnitTestMsgs;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+import org.slf4j.MDC;
+
+/** This suite of tests validates the encoding of events by {@link OffHeapEventQueue}. */
+public class OffHeapEventQueueTest {
+
+    @After
+    public void teardown() {
+        MDC.clear();
+    }
+
+    /** Validates that every value of an event survives the round trip through
+     * a slot. */
+    @Test
+    public void roundTripTest() {
+        OffHeapEventQueue queue = new OffHeapEventQueue(4, OffHeapEventQueue.DEFAULT_SLOT_SIZE);
+        MdcContext.initialize("req-1", "MyService", "MyInstance", "MyPartner", "12.0.0.2");
+        MdcOverride override = new MdcOverride();
+        override.addAttribute(MdcContext.MDC_PARTNER_NAME, "OtherPartner");
+        LogFields fields = new LogFields()
+            .setField(DefinedFields.RESPONSE_CODE, 202)
+            .setField(DefinedFields.TARGET_ENTITY, "café");
+        Exception ex = new Exception("test");
+
+        assertTrue(queue.offer(this, LogLineType.METRICS, Level.WARN, UnitTestMsgs.INFO_LOG_WITH_ARGS, "UnitTest",
+            fields, override, ex, 1000L, 25L, "arg1", null, "€😀"));
+        fields.setField(DefinedFields.RESPONSE_CODE, 500);
+        MDC.clear();
+        assertEquals(1, queue.size());
+
+        CapturedEvent event = new CapturedEvent();
+        assertTrue(queue.poll(event));
+        assertSame(this, event.getSource());
+        assertEquals(LogLineType.METRICS, event.getType());
+        assertEquals(Level.WARN, event.getLevel());
+        assertSame(UnitTestMsgs.INFO_LOG_WITH_ARGS, event.getLogCode());
+        assertSame(ex, event.getThrowable());
+        assertEquals("UnitTest", event.getComponent());
+        assertEquals(Thread.currentThread().getName(), event.getThreadName());
+        assertEquals(1000L, event.getStartTime());
+        assertEquals(25L, event.getElapsedTime());
+        assertTrue(Math.abs(System.currentTimeMillis() - event.getTimestamp()) < 60000);
+        assertArrayEquals(new String[] {"arg1", null, "€😀"}, event.getArguments());
+        assertEquals("202", event.getFields().getField(DefinedFields.RESPONSE_CODE));
+        assertEquals("café", event.getFields().getField(DefinedFields.TARGET_ENTITY));
+        assertFalse(event.getFields().fieldIsSet(DefinedFields.STATUS_CODE));
+        assertEquals("req-1", event.getMdc().getAttributeValue(MdcContext.MDC_REQUEST_ID));
+        assertEquals("OtherPartner", event.getMdc().getAttributeValue(MdcContext.MDC_PARTNER_NAME));
+        assertEquals("", event.getMdc().getAttributeValue(MdcContext.MDC_REMOTE_HOST));
+
+        assertFalse(queue.poll(event));
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.getSpilledCount());
+    }
+
+    /** Validates that a full queue rejects events, and that slots are reused
+     * once polled. */
+    @Test
+    public void capacityTest() {
+        assertEquals(2, new OffHeapEventQueue(1, 256).getCapacity());
+        OffHeapEventQueue queue = new OffHeapEventQueue(3, 256);
+        assertEquals(4, queue.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(null, LogLineType.ERROR, Level.DEBUG, null, "UnitTest", null, null, null, -1, -1, "line " + i));
+        }
+        assertFalse(queue.offer(null, LogLineType.ERROR, Level.DEBUG, null, "UnitTest", null, null, null, -1, -1, "line 4"));
+        assertEquals(1, queue.getRejectedCount());
+
+        CapturedEvent event = new CapturedEvent();
+        for (int round = 0; round < 3; round++) {
+            assertTrue(queue.poll(event));
+            assertTrue(queue.offer(null, LogLineType.ERROR, Level.DEBUG, null, "UnitTest", null, null, null, -1, -1, "again " + round));
+        }
+        List<String> messages = new ArrayList<String>();
+        while (queue.poll(event)) {
+            messages.add(event.getArguments()[0]);
+            assertNull(event.getLogCode());
+        }
+        assertEquals(4, messages.size());
+        assertEquals("line 3", messages.get(0));
+        assertEquals("again 2", messages.get(3));
+    }
+
+    /** Validates that an event too large for its slot is kept intact. */
+    @Test
+    public void spillTest() {
+        OffHeapEventQueue queue = new OffHeapEventQueue(2, 256);
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            big.append('x');
+        }
+        MdcContext.initialize("req-2", "MyService", "MyInstance", "MyPartner", "12.0.0.2");
+        assertTrue(queue.offer(null, LogLineType.AUDIT, Level.INFO, UnitTestMsgs.SIMPLE_INFO_LOG, "UnitTest",
+            new LogFields().setField(DefinedFields.CUSTOM_1, "c1"), null, null, -1, -1, big.toString()));
+        MDC.clear();
+
+        CapturedEvent event = new CapturedEvent();
+        assertTrue(queue.poll(event));
+        assertEquals(1, queue.getSpilledCount());
+        assertEquals(big.toString(), event.getArguments()[0]);
+        assertEquals("c1", event.getFields().getField(DefinedFields.CUSTOM_1));
+        assertEquals("req-2", event.getMdc().getAttributeValue(MdcContext.MDC_REQUEST_ID));
+        assertSame(UnitTestMsgs.SIMPLE_INFO_LOG, event.getLogCode());
+    }
+
+    /** Validates that events offered by several threads at once all arrive,
+     * in the order each thread offered them. */
+    @Test
+    public void concurrentProducersTest() throws Exception {
+        final OffHeapEventQueue queue = new OffHeapEventQueue(1024, 256);
+        final int producers = 4;
+        final int perProducer = 20000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            final String component = "producer-" + p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!queue.offer(null, LogLineType.ERROR, Level.INFO, null, component, null, null, null, -1, -1,
+                            Integer.toString(i))) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        int[] next = new int[producers];
+        CapturedEvent event = new CapturedEvent();
+        int received = 0;
+        while (received < producers * perProducer) {
+            if (queue.poll(event)) {
+                int producer = Integer.parseInt(event.getComponent().substring("producer-".length()));
+                assertEquals(next[producer]++, Integer.parseInt(event.getArguments()[0]));
+                received++;
+            } else {
+                Thread.yield();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
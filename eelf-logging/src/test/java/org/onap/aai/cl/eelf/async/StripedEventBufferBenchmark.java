@@ -0,0 +1,126 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.async;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.UnitTestMsgs;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer.Ordering;
+
+/** Measures how the throughput of a {@link StripedEventBuffer} scales with the
+ * number of producer threads, against a single shared queue. Each round starts
+ * the producers together on an empty buffer and times how long they take to
+ * offer a fixed number of events each; the buffer is then drained, untimed, so
+ * the single consumer never limits what is measured. Producers pick stripes
+ * by thread id, so several may share one; stripes are sized with headroom for
+ * that, and a run which still has offers rejected fails rather than reporting
+ * them as throughput. Not run as part of the
+ * unit tests; run it by hand with:
+ *
+ * <pre>
+ * java -cp &lt;test classpath&gt; org.onap.aai.cl.eelf.async.StripedEventBufferBenchmark [maxThreads] [rounds]
+ * </pre>
+ */
+public class StripedEventBufferBenchmark {
+
+    private static final int EVENTS_PER_THREAD = 4096;
+    private static final int SLOT_SIZE = 192;
+    /** How many producers' worth of events each stripe holds. */
+    private static final int STRIPE_HEADROOM = 4;
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        // Let the JIT compile the offer and drain paths before anything is timed.
+        run(new StripedEventBuffer(2, STRIPE_HEADROOM * EVENTS_PER_THREAD, SLOT_SIZE, Ordering.BEST_EFFORT),
+            2, rounds);
+
+        System.out.println("threads  single-queue events/s  striped events/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double single = run(new StripedEventBuffer(1, threads * EVENTS_PER_THREAD, SLOT_SIZE,
+                Ordering.BEST_EFFORT), threads, rounds);
+            double striped = run(new StripedEventBuffer(threads, STRIPE_HEADROOM * EVENTS_PER_THREAD,
+                SLOT_SIZE, Ordering.BEST_EFFORT), threads, rounds);
+            System.out.println(String.format("%7d  %22.0f  %16.0f", threads, single, striped));
+        }
+    }
+
+    /** Times a number of threads filling a buffer, and returns the rate at
+     * which they offered events. */
+    private static double run(final StripedEventBuffer buffer, int threads, int rounds) throws Exception {
+        final LogFields fields = new LogFields().setField(DefinedFields.TARGET_ENTITY, "benchmark");
+        final LongAdder rejected = new LongAdder();
+        long elapsed = 0;
+        for (int round = 0; round < rounds; round++) {
+            final CountDownLatch ready = new CountDownLatch(threads);
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Thread> producers = new ArrayList<Thread>();
+            for (int t = 0; t < threads; t++) {
+                Thread producer = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        ready.countDown();
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                            if (!buffer.offer(null, LogLineType.ERROR, Level.INFO, UnitTestMsgs.INFO_LOG_WITH_ARGS,
+                                "Benchmark", fields, null, null, -1, -1, "arg1", "arg2")) {
+                                rejected.increment();
+                            }
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            ready.await();
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            elapsed += System.nanoTime() - begin;
+
+            while (buffer.drain(event -> { }, Integer.MAX_VALUE) > 0) {
+                // Empty the buffer for the next round.
+            }
+        }
+        if (rejected.sum() > 0) {
+            throw new IllegalStateException(rejected.sum() + " offers rejected by a full stripe with "
+                + threads + " threads; raise STRIPE_HEADROOM");
+        }
+        long events = (long) threads * EVENTS_PER_THREAD * rounds;
+        return events * 1e9 / elapsed;
+    }
+}
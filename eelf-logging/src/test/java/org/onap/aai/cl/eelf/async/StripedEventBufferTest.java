@@ -0,0 +1,129 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer.Ordering;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.slf4j.MDC;
+
+/** This suite of tests validates the ordering guarantees of {@link StripedEventBuffer}. */
+public class StripedEventBufferTest {
+
+    @After
+    public void teardown() {
+        MDC.clear();
+    }
+
+    /** Validates that the events of each request are drained in the order
+     * they were logged, even when several threads log for the same request. */
+    @Test
+    public void perRequestOrderTest() throws Exception {
+        final StripedEventBuffer buffer = new StripedEventBuffer(8, 256, 256, Ordering.PER_REQUEST);
+        final String[] requests = {"req-a", "req-b", "req-c"};
+        final int[] counters = new int[requests.length];
+        final int perThread = 5000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 6; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        int request = i % requests.length;
+                        MDC.put(MdcContext.MDC_REQUEST_ID, requests[request]);
+                        synchronized (counters) {
+                            while (!buffer.offer(null, LogLineType.ERROR, Level.DEBUG, null, "UnitTest", null, null, null, -1, -1,
+                                Integer.toString(counters[request]))) {
+                                Thread.yield();
+                            }
+                            counters[request]++;
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        final Map<String, Integer> next = new HashMap<String, Integer>();
+        final AtomicBoolean inOrder = new AtomicBoolean(true);
+        int drained = 0;
+        while (drained < 6 * perThread) {
+            drained += buffer.drain(event -> {
+                String requestId = event.getMdc().getAttributeValue(MdcContext.MDC_REQUEST_ID);
+                int expected = next.containsKey(requestId) ? next.get(requestId) : 0;
+                if (Integer.parseInt(event.getArguments()[0]) != expected) {
+                    inOrder.set(false);
+                }
+                next.put(requestId, expected + 1);
+            }, 1000);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(inOrder.get());
+        assertEquals(3, next.size());
+        assertTrue(buffer.isEmpty());
+    }
+
+    /** Validates that events from several stripes are merged in timestamp order. */
+    @Test
+    public void mergeOrderTest() throws Exception {
+        final StripedEventBuffer buffer = new StripedEventBuffer(3, 64, 256, Ordering.BEST_EFFORT);
+        assertEquals(4, buffer.getStripeCount());
+        for (int t = 0; t < 8; t++) {
+            final int id = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 5; i++) {
+                        buffer.offer(null, LogLineType.ERROR, Level.INFO, null, "thread-" + id, null, null, null, -1, -1, "x");
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+            Thread.sleep(2);
+        }
+        assertEquals(40, buffer.size());
+
+        final List<Long> timestamps = new ArrayList<Long>();
+        assertEquals(40, buffer.drain(event -> timestamps.add(event.getTimestamp()), 100));
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertTrue(timestamps.get(i - 1) <= timestamps.get(i));
+        }
+        assertEquals(0, buffer.getRejectedCount());
+    }
+}
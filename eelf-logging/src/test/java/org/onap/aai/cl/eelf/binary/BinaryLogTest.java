@@ -0,0 +1,330 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AaiLoggerAdapter;
+import org.onap.aai.cl.eelf.AuditColumn;
+import org.onap.aai.cl.eelf.CapturingLogger;
+import org.onap.aai.cl.eelf.LogColumns;
+import org.onap.aai.cl.eelf.LogPipeline;
+import org.onap.aai.cl.eelf.MetricsColumn;
+import org.onap.aai.cl.eelf.UnitTestMsgs;
+import org.onap.aai.cl.eelf.analysis.TestLine;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+
+/** This suite of tests validates the binary log format. */
+public class BinaryLogTest {
+
+    /** Validates that awkward column values survive a round trip unchanged. */
+    @Test
+    public void roundTripTest() throws Exception {
+        List<String[]> lines = new ArrayList<String[]>();
+        lines.add(auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "250", "hello"));
+        lines.add(auditValues("2017-01-01T15:30:00.000+05:30", "2017-01-01T15:30:01.000+05:30", "0", "offset"));
+        lines.add(auditValues("2016-12-31T23:59:59.999-08:00", "2017-01-01T10:00:00.250Z", "007", "mixed"));
+        lines.add(auditValues("", "not a timestamp", "-5", "bad values"));
+        lines.add(auditValues("2017-02-30T10:00:00.000Z", "2017-01-01T10:00:00.000+00:00", "12x", "invalid dates"));
+        lines.add(auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", "café 😀 | pipe"));
+        String[] withNull = auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryLogEncoder encoder = new BinaryLogEncoder(out, false);
+        for (String[] line : lines) {
+            encoder.encode(LogLineType.AUDIT, line);
+        }
+        encoder.encode(LogLineType.AUDIT, withNull);
+
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(out.toByteArray()));
+        for (String[] line : lines) {
+            assertTrue(decoder.next());
+            assertEquals(LogLineType.AUDIT, decoder.getType());
+            assertEquals(Arrays.asList(line), Arrays.asList(decoder.getColumnValues()));
+            assertEquals(LogColumns.join(line), decoder.getLine());
+        }
+        assertTrue(decoder.next());
+        assertEquals("null", decoder.getColumnValues()[AuditColumn.DETAILS.ordinal()]);
+        assertFalse(decoder.next());
+    }
+
+    /** Validates that the dictionary stops growing once it is full. */
+    @Test
+    public void dictionaryLimitTest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryLogEncoder encoder = new BinaryLogEncoder(out, false, 2);
+        for (int i = 0; i < 10; i++) {
+            String[] values = auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "250", "line " + i);
+            values[AuditColumn.CUSTOM_1.ordinal()] = "value " + (i % 3);
+            encoder.encode(LogLineType.AUDIT, values);
+        }
+
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(out.toByteArray()));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(decoder.next());
+            assertEquals("value " + (i % 3), decoder.getColumnValues()[AuditColumn.CUSTOM_1.ordinal()]);
+        }
+        assertFalse(decoder.next());
+    }
+
+    /** Validates that a partially written last record is treated as the end of the log. */
+    @Test
+    public void truncatedTest() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryLogEncoder encoder = new BinaryLogEncoder(out, false);
+        encoder.encode(LogLineType.AUDIT, auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", "a"));
+        encoder.encode(LogLineType.AUDIT, auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", "b"));
+        byte[] bytes = Arrays.copyOf(out.toByteArray(), out.size() - 3);
+
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(bytes));
+        assertTrue(decoder.next());
+        assertFalse(decoder.next());
+    }
+
+    /** Validates that a sink appending to a log whose last record is torn
+     * truncates the torn record first, so the lines after it can be read. */
+    @Test
+    public void tornAppendTest() throws Exception {
+        File file = File.createTempFile("BinaryLogTest", ".bin");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            BinaryLogEncoder encoder = new BinaryLogEncoder(out, false);
+            encoder.encode(LogLineType.AUDIT, auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", "a"));
+            encoder.encode(LogLineType.AUDIT, auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", "b"));
+        } finally {
+            out.close();
+        }
+        RandomAccessFile torn = new RandomAccessFile(file, "rw");
+        try {
+            torn.setLength(torn.length() - 3);
+        } finally {
+            torn.close();
+        }
+
+        BinaryLogSink sink = new BinaryLogSink(file.toPath());
+        assertEquals(file.length(), BinaryLogSink.completeLength(file.toPath()));
+        sink.close();
+        FileOutputStream append = new FileOutputStream(file, true);
+        try {
+            new BinaryLogEncoder(append, true).encode(LogLineType.AUDIT,
+                auditValues("2017-01-01T10:00:01.000Z", "2017-01-01T10:00:01.250Z", "1", "c"));
+        } finally {
+            append.close();
+        }
+
+        List<String> details = new ArrayList<String>();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            BinaryLogDecoder decoder = new BinaryLogDecoder(in);
+            while (decoder.next()) {
+                details.add(decoder.getColumnValues()[AuditColumn.DETAILS.ordinal()]);
+            }
+        } finally {
+            in.close();
+        }
+        assertEquals(Arrays.asList("a", "c"), details);
+    }
+
+    /** Validates that an encoder which fails to write a line starts afresh
+     * with a reset record, so that later lines do not refer to dictionary
+     * entries the log never received. */
+    @Test
+    public void failedWriteTest() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final boolean[] failing = {false};
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                if (failing[0]) {
+                    throw new IOException("disk full");
+                }
+                bytes.write(b);
+            }
+        };
+        BinaryLogEncoder encoder = new BinaryLogEncoder(out, false);
+        encoder.encode(LogLineType.AUDIT, auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", "a"));
+        failing[0] = true;
+        try {
+            encoder.encode(LogLineType.AUDIT, auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", "lost"));
+        } catch (IOException e) {
+            failing[0] = false;
+        }
+        encoder.encode(LogLineType.AUDIT, auditValues("2017-01-01T10:00:00.000Z", "2017-01-01T10:00:00.250Z", "1", "lost"));
+
+        BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(bytes.toByteArray()));
+        assertTrue(decoder.next());
+        assertTrue(decoder.next());
+        assertEquals("lost", decoder.getColumnValues()[AuditColumn.DETAILS.ordinal()]);
+        assertFalse(decoder.next());
+    }
+
+    /** Validates that strings with unpaired surrogates read back exactly. */
+    @Test
+    public void surrogateTest() throws Exception {
+        String[] values = {"", "plain", "caf\u00e9 \ud83d\ude00", "bad \ud83d", "\ude00 bad", "\ude00\ud83d", "\ud7ff\ue000"};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (String value : values) {
+            Varints.writeString(out, value);
+        }
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        for (String value : values) {
+            assertEquals(value, Varints.readString(in));
+        }
+    }
+
+    /** Validates that input which is not a binary log is rejected. */
+    @Test(expected = IOException.class)
+    public void badHeaderTest() throws Exception {
+        new BinaryLogDecoder(new ByteArrayInputStream("2017-01-01T10:00:00.000Z|".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Validates that the sink reproduces the text lines exactly, including
+     * when it appends to an existing file, and that the binary form is compact. */
+    @Test
+    public void sinkTest() throws Exception {
+        File file = File.createTempFile("BinaryLogTest", ".bin");
+        file.deleteOnExit();
+        CapturingLogger capture = new CapturingLogger();
+
+        for (int pass = 0; pass < 2; pass++) {
+            LogPipeline pipeline = new LogPipeline();
+            BinaryLogSink sink = new BinaryLogSink(file.toPath());
+            pipeline.addSink(LogLineType.AUDIT, sink);
+            pipeline.addSink(LogLineType.METRICS, sink);
+            AaiLoggerAdapter auditLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.AUDIT, "UnitTest", pipeline);
+            AaiLoggerAdapter metricsLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest", pipeline);
+
+            for (int i = 0; i < 500; i++) {
+                MdcOverride override = new MdcOverride();
+                override.addAttribute(MdcContext.MDC_REQUEST_ID, "7c5dd4f4-5ba0-4b4a-b2a5-" + i);
+                override.addAttribute(MdcContext.MDC_SERVICE_NAME, "search-data-service");
+                override.addAttribute(MdcContext.MDC_PARTNER_NAME, "aai-resources");
+                override.addAttribute(MdcContext.MDC_SERVER_FQDN, "aai-search-01.example.org");
+                override.addAttribute(MdcContext.MDC_START_TIME, "2017-01-01T10:00:00.000Z");
+                LogFields fields = new LogFields()
+                    .setField(DefinedFields.TARGET_ENTITY, "elasticsearch")
+                    .setField(DefinedFields.TARGET_SVC_NAME, "/services/search-data-service/v1/search")
+                    .setField(DefinedFields.STATUS_CODE, i % 10 == 0 ? "ERROR" : "COMPLETE")
+                    .setField(DefinedFields.CLASS_NAME, "org.onap.aai.sa.searchdbabstraction.SearchDbServiceImpl");
+                metricsLogger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, fields, override, "arg" + (i % 4), "x");
+                auditLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, fields, override);
+            }
+            sink.close();
+            assertEquals(0, sink.getFailedCount());
+            assertEquals(0, sink.getDroppedCount());
+        }
+
+        List<String> decoded = new ArrayList<String>();
+        FileInputStream in = new FileInputStream(file);
+        try {
+            BinaryLogDecoder decoder = new BinaryLogDecoder(in);
+            while (decoder.next()) {
+                decoded.add(decoder.getLine());
+            }
+        } finally {
+            in.close();
+        }
+        assertEquals(capture.lines, decoded);
+
+        long textBytes = 0;
+        for (String line : capture.lines) {
+            textBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        assertTrue("binary " + file.length() + " vs text " + textBytes, file.length() * 5 < textBytes);
+    }
+
+    private static String[] auditValues(String start, String end, String elapsed, String details) {
+        return TestLine.audit()
+            .set(AuditColumn.START_TIME, start)
+            .set(AuditColumn.END_TIME, end)
+            .set(AuditColumn.ELAPSED_TIME, elapsed)
+            .set(AuditColumn.LEVEL, "INFO")
+            .set(AuditColumn.DETAILS, details)
+            .values();
+    }
+
+    /** Validates that the writer thread flushes lines to the file as soon as
+     * it has emptied its queue, without waiting for the sink to be closed. */
+    @Test
+    public void backgroundFlushTest() throws Exception {
+        File file = File.createTempFile("BinaryLogTest", ".bin");
+        file.deleteOnExit();
+        file.delete();
+        BinaryLogSink sink = new BinaryLogSink(file.toPath());
+        LogPipeline pipeline = new LogPipeline();
+        pipeline.addSink(LogLineType.AUDIT, sink);
+        AaiLoggerAdapter auditLogger = new AaiLoggerAdapter(new CapturingLogger().getLogger(), LogLineType.AUDIT, "UnitTest", pipeline);
+        try {
+            auditLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (BinaryLogSink.completeLength(file.toPath()) <= BinaryLogEncoder.MAGIC.length + 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            FileInputStream in = new FileInputStream(file);
+            try {
+                BinaryLogDecoder decoder = new BinaryLogDecoder(in);
+                assertTrue(decoder.next());
+                assertFalse(decoder.next());
+            } finally {
+                in.close();
+            }
+        } finally {
+            sink.close();
+        }
+
+        // Lines which arrive after the sink has been closed are counted.
+        auditLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        assertEquals(1, sink.getDroppedCount());
+        assertEquals(0, sink.getFailedCount());
+    }
+
+    /** Checks that the metrics columns are shared with the line writer. */
+    @Test
+    public void columnCountTest() {
+        assertEquals(26, LogColumns.of(LogLineType.AUDIT).length);
+        assertEquals(29, LogColumns.of(LogLineType.METRICS).length);
+        assertEquals(MetricsColumn.DETAILS, LogColumns.of(LogLineType.METRICS)[28]);
+    }
+}
@@ -0,0 +1,200 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.columnar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.MetricsColumn;
+import org.onap.aai.cl.eelf.analysis.LogFileReaderTest;
+import org.onap.aai.cl.eelf.analysis.TestLine;
+
+/** This suite of tests validates the {@link ColumnarExporter} and {@link ColumnarReader}. */
+public class ColumnarTest {
+
+    private static final long BASE = 1483264800000L; // 2017-01-01T10:00:00.000Z
+
+    /** Validates that every value of every column is read back. */
+    @Test
+    public void roundTripTest() throws Exception {
+        List<String> lines = lines(5000);
+        File columnar = export(lines, 1000);
+
+        ColumnarReader reader = new ColumnarReader(columnar.toPath());
+        try {
+            assertEquals(LogLineType.METRICS, reader.getType());
+            assertEquals(5000, reader.getRowCount());
+            assertEquals(5, reader.getRowGroupCount());
+
+            ColumnScanner scanner = reader.scan(MetricsColumn.values());
+            for (String line : lines) {
+                assertTrue(scanner.next());
+                String[] expected = line.split("\\|", MetricsColumn.values().length);
+                for (MetricsColumn column : MetricsColumn.values()) {
+                    assertEquals(column.name(), expected[column.ordinal()], scanner.getString(column));
+                }
+                assertEquals(Long.parseLong(expected[MetricsColumn.ELAPSED_TIME.ordinal()]),
+                    scanner.getLong(MetricsColumn.ELAPSED_TIME));
+            }
+            assertFalse(scanner.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Validates that the columnar file is compact and that a scan only reads the columns it needs. */
+    @Test
+    public void projectionTest() throws Exception {
+        List<String> lines = lines(20000);
+        File columnar = export(lines, 4096);
+        long textSize = 0;
+        for (String line : lines) {
+            textSize += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        assertTrue("Columnar size " + columnar.length() + " of " + textSize, columnar.length() * 5 < textSize);
+
+        ColumnarReader reader = new ColumnarReader(columnar.toPath());
+        try {
+            ColumnScanner scanner = reader.scan(MetricsColumn.STATUS_CODE, MetricsColumn.ELAPSED_TIME);
+            long errors = 0;
+            long elapsed = 0;
+            while (scanner.next()) {
+                if ("ERROR".equals(scanner.getString(MetricsColumn.STATUS_CODE))) {
+                    errors++;
+                }
+                elapsed += scanner.getLong(MetricsColumn.ELAPSED_TIME);
+            }
+            assertEquals(2000, errors);
+            long expected = 0;
+            for (int i = 0; i < 20000; i++) {
+                expected += (i * 37) % 1000;
+            }
+            assertEquals(expected, elapsed);
+            assertTrue("Read " + reader.getBytesRead() + " of " + columnar.length(),
+                reader.getBytesRead() * 5 < columnar.length());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Validates the column statistics and filtering on them. */
+    @Test
+    public void filterTest() throws Exception {
+        File columnar = export(lines(5000), 1000);
+        ColumnarReader reader = new ColumnarReader(columnar.toPath());
+        try {
+            ColumnStats stats = reader.getStats(2, MetricsColumn.START_TIME);
+            assertTrue(stats.hasValues());
+            assertEquals(BASE + 2000 * 1000L, stats.getMin());
+            assertEquals(BASE + 2999 * 1000L, stats.getMax());
+            assertEquals("COMPLETE", reader.getStats(0, MetricsColumn.STATUS_CODE).getMinString());
+            assertEquals("ERROR", reader.getStats(0, MetricsColumn.STATUS_CODE).getMaxString());
+            assertFalse(reader.getStats(0, MetricsColumn.REQUEST_ID).hasValues());
+
+            ColumnScanner scanner = reader.scan(MetricsColumn.REQUEST_ID)
+                .where(MetricsColumn.START_TIME, BASE + 2500 * 1000L, BASE + 2509 * 1000L);
+            List<String> ids = new ArrayList<String>();
+            while (scanner.next()) {
+                ids.add(scanner.getString(MetricsColumn.REQUEST_ID));
+            }
+            assertEquals(10, ids.size());
+            assertEquals("req-2500", ids.get(0));
+
+            // Only the one row group which can hold the range was read.
+            long oneGroup = reader.getBytesRead();
+            reader.scan(MetricsColumn.REQUEST_ID).where(MetricsColumn.START_TIME, 0, Long.MAX_VALUE).next();
+            assertTrue(reader.getBytesRead() - oneGroup >= oneGroup);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** Validates the command line interface. */
+    @Test
+    public void commandLineTest() throws Exception {
+        File log = LogFileReaderTest.write(lines(100), "");
+        File columnar = File.createTempFile("ColumnarTest", ".col");
+        columnar.deleteOnExit();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        assertEquals(0, ColumnarExporter.run(new String[] {"--type", "metrics", "--rows", "10", log.getPath(),
+            columnar.getPath()}, new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+        assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).startsWith("Exported 100 rows"));
+        ColumnarReader reader = new ColumnarReader(columnar.toPath());
+        assertEquals(10, reader.getRowGroupCount());
+        reader.close();
+
+        assertEquals(2, ColumnarExporter.run(new String[] {log.getPath()},
+            new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8")));
+    }
+
+    private static File export(List<String> lines, int rowGroupSize) throws Exception {
+        File columnar = File.createTempFile("ColumnarTest", ".col");
+        columnar.deleteOnExit();
+        assertEquals(lines.size(), new ColumnarExporter(LogLineType.METRICS, rowGroupSize)
+            .export(LogFileReaderTest.write(lines, "").toPath(), columnar.toPath()));
+        return columnar;
+    }
+
+    /** Builds metrics lines a second apart, with one in ten failing. */
+    private static List<String> lines(int count) {
+        String[] targets = {"aai", "sdc", "so", "policy"};
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            long start = BASE + i * 1000L;
+            long elapsed = (i * 37) % 1000;
+            lines.add(TestLine.metrics()
+                .setTime(MetricsColumn.START_TIME, start)
+                .setTime(MetricsColumn.END_TIME, start + elapsed)
+                .set(MetricsColumn.REQUEST_ID, "req-" + i)
+                .set(MetricsColumn.SERVICE_INSTANCE_ID, "instance-1")
+                .set(MetricsColumn.THREAD, "thread-" + (i % 8))
+                .set(MetricsColumn.SERVER_FQDN, "host1.example.com")
+                .set(MetricsColumn.SERVICE_NAME, "service")
+                .set(MetricsColumn.PARTNER_NAME, "partner")
+                .set(MetricsColumn.TARGET_ENTITY, targets[i % targets.length])
+                .set(MetricsColumn.TARGET_SERVICE_NAME, "query")
+                .set(MetricsColumn.STATUS_CODE, i % 10 == 0 ? "ERROR" : "COMPLETE")
+                .set(MetricsColumn.RESPONSE_CODE, i % 10 == 0 ? "500" : "200")
+                .set(MetricsColumn.INSTANCE_UUID, "9f1c6a62-0d29-4a4e-9a4a-1f3c9b1e2d10")
+                .set(MetricsColumn.SEVERITY, "INFO")
+                .set(MetricsColumn.SERVER_IP, "10.0.0.1")
+                .set(MetricsColumn.ELAPSED_TIME, Long.toString(elapsed))
+                .set(MetricsColumn.SERVER_NAME, "host1.example.com")
+                .set(MetricsColumn.CLASS_NAME, "org.onap.aai.Client")
+                .set(MetricsColumn.DETAILS, "call to " + targets[i % targets.length])
+                .build());
+        }
+        return lines;
+    }
+}
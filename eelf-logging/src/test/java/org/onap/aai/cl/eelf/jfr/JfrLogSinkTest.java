@@ -0,0 +1,161 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.EnumSet;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.DefinedFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AaiLoggerAdapter;
+import org.onap.aai.cl.eelf.CapturingLogger;
+import org.onap.aai.cl.eelf.DeferredRenderer;
+import org.onap.aai.cl.eelf.LogPipeline;
+import org.onap.aai.cl.eelf.UnitTestMsgs;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer;
+import org.onap.aai.cl.eelf.async.StripedEventBuffer.Ordering;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+
+/** This suite of tests validates the flight recorder events emitted by {@link JfrLogSink}. */
+public class JfrLogSinkTest {
+
+    /** Validates that audit and error lines are recorded as events, and that
+     * disabling text output for a type stops its text lines. */
+    @Test
+    public void eventsTest() throws Exception {
+        assertTrue(JfrLogSink.isSupported());
+
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        JfrLogSink sink = new JfrLogSink();
+        pipeline.addSink(LogLineType.AUDIT, sink);
+        pipeline.addSink(LogLineType.ERROR, sink);
+        pipeline.setTextOutputEnabled(LogLineType.AUDIT, false);
+
+        AaiLoggerAdapter auditLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.AUDIT, "UnitTest", pipeline);
+        AaiLoggerAdapter errorLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        File file = File.createTempFile("JfrLogSinkTest", ".jfr");
+        file.deleteOnExit();
+        Recording recording = new Recording();
+        recording.enable("org.onap.aai.cl.Audit");
+        recording.enable("org.onap.aai.cl.Error");
+        recording.start();
+        try {
+            MdcOverride override = new MdcOverride();
+            override.addAttribute(MdcContext.MDC_REQUEST_ID, "req-1");
+            override.addAttribute(MdcContext.MDC_START_TIME, "2017-01-01T00:00:00.000Z");
+            auditLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG,
+                new LogFields().setField(DefinedFields.STATUS_CODE, "COMPLETE"), override);
+            errorLogger.error(UnitTestMsgs.SIMPLE_ERROR_LOG, new LogFields());
+        } finally {
+            recording.stop();
+            recording.dump(file.toPath());
+            recording.close();
+        }
+
+        // Only the error line should have been written as text.
+        assertEquals(1, capture.lines.size());
+        assertTrue(capture.last().contains("UT0001E"));
+        assertEquals(0, pipeline.getStats().getByLogLineType().get("AUDIT").getBytes());
+        assertEquals(1, pipeline.getStats().getByLogLineType().get("AUDIT").getLines());
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+        RecordedEvent audit = find(events, "org.onap.aai.cl.Audit");
+        assertEquals("UT0001I", audit.getString("logCode"));
+        assertEquals("INFO", audit.getString("level"));
+        assertEquals("UnitTest", audit.getString("component"));
+        assertEquals("req-1", audit.getString("requestId"));
+        assertEquals("COMPLETE", audit.getString("statusCode"));
+        assertTrue(audit.getDuration("elapsedTime").toMillis() > 0);
+        long start = audit.getInstant("startTimestamp").toEpochMilli();
+        assertTrue(Math.abs(start - 1483228800000L) < 1000);
+        assertEquals(Thread.currentThread().getName(), audit.getString("loggingThread"));
+
+        RecordedEvent error = find(events, "org.onap.aai.cl.Error");
+        assertEquals("UT0001E", error.getString("logCode"));
+        assertEquals("ERROR", error.getString("level"));
+    }
+
+    /** Validates that lines whose events are enabled are not deferred, so that
+     * the events are committed on the logging thread, while lines whose events
+     * are not enabled still are. */
+    @Test
+    public void deferredTest() throws Exception {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        JfrLogSink sink = new JfrLogSink();
+        pipeline.addSink(LogLineType.AUDIT, sink);
+        pipeline.addSink(LogLineType.METRICS, sink);
+        DeferredRenderer renderer = new DeferredRenderer(new StripedEventBuffer(1, 16, 512, Ordering.BEST_EFFORT),
+            EnumSet.of(LogLineType.AUDIT, LogLineType.METRICS));
+        renderer.start();
+        pipeline.setDeferredRenderer(renderer);
+
+        AaiLoggerAdapter auditLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.AUDIT, "UnitTest", pipeline);
+        AaiLoggerAdapter metricsLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest", pipeline);
+
+        File file = File.createTempFile("JfrLogSinkTest", ".jfr");
+        file.deleteOnExit();
+        Recording recording = new Recording();
+        recording.enable("org.onap.aai.cl.Audit");
+        recording.disable("org.onap.aai.cl.Metrics");
+        recording.start();
+        try {
+            auditLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+            metricsLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+            assertTrue(renderer.flush(5000));
+        } finally {
+            recording.stop();
+            recording.dump(file.toPath());
+            recording.close();
+            renderer.stop();
+        }
+
+        // Only the metrics line went through the renderer.
+        assertEquals(1, renderer.getRenderedCount());
+        assertEquals(2, capture.lines.size());
+
+        RecordedEvent audit = find(RecordingFile.readAllEvents(file.toPath()), "org.onap.aai.cl.Audit");
+        assertEquals(Thread.currentThread().getName(), audit.getThread().getJavaName());
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        throw new AssertionError("No " + name + " event was recorded");
+    }
+}
@@ -0,0 +1,186 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.recorder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.att.eelf.configuration.EELFLogger.Level;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AaiLoggerAdapter;
+import org.onap.aai.cl.eelf.CapturingLogger;
+import org.onap.aai.cl.eelf.LogPipeline;
+import org.onap.aai.cl.eelf.LoggerFactory;
+import org.onap.aai.cl.eelf.UnitTestMsgs;
+import org.onap.aai.cl.mdc.MdcContext;
+import org.onap.aai.cl.mdc.MdcOverride;
+import org.slf4j.MDC;
+
+/** This suite of tests validates the recent events kept by {@link LogFlightRecorder}. */
+public class LogFlightRecorderTest {
+
+    @After
+    public void teardown() {
+        MDC.clear();
+    }
+
+    /** Validates that lines are recorded, including lines which are never
+     * written, and that only the most recent are kept. */
+    @Test
+    public void recordTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        LogFlightRecorder recorder = new LogFlightRecorder(4, LogFlightRecorder.DEFAULT_SLOT_SIZE);
+        pipeline.setFlightRecorder(recorder);
+        pipeline.setTextOutputEnabled(LogLineType.ERROR, false);
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        MdcContext.initialize("req-1", "MyService", "MyInstance", "MyPartner", "12.0.0.2");
+        for (int i = 0; i < 5; i++) {
+            logger.debug("debug " + i);
+        }
+        logger.error(UnitTestMsgs.SIMPLE_ERROR_LOG, new LogFields(), new IllegalStateException("broken"));
+        assertTrue(capture.lines.isEmpty());
+
+        List<String> events = recorder.getRecentEvents();
+        assertEquals(4, events.size());
+        assertTrue(events.get(0).endsWith("|ERROR|DEBUG||req-1|UnitTest|debug 2|"));
+        assertTrue(events.get(2).contains("|debug 4|"));
+        String error = events.get(3);
+        assertTrue(error.contains("|ERROR|ERROR|UT0001E|req-1|UnitTest|"));
+        assertTrue(error.endsWith("|java.lang.IllegalStateException: broken"));
+
+        assertEquals(4, recorder.getCapacity());
+        assertEquals(6, recorder.getRecordedCount());
+        assertEquals(0, recorder.getDroppedCount());
+    }
+
+    /** Validates that lines suppressed by the runtime levels are still
+     * recorded, although they are not written. */
+    @Test
+    public void suppressedTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        LogFlightRecorder recorder = new LogFlightRecorder(4, LogFlightRecorder.DEFAULT_SLOT_SIZE);
+        pipeline.setFlightRecorder(recorder);
+        pipeline.getLevelControl().setLevel("UnitTest", "ERROR");
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        MdcContext.initialize("req-1", "MyService", "MyInstance", "MyPartner", "12.0.0.2");
+        logger.debug("hidden");
+        MdcOverride override = new MdcOverride();
+        override.addAttribute(MdcContext.MDC_REQUEST_ID, "req-2");
+        logger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, new LogFields(), override, "one", "two");
+        assertTrue(capture.lines.isEmpty());
+        assertEquals(2, recorder.getRecordedCount());
+
+        // The suppressed lines are recorded unformatted, and only formatted
+        // here.
+        List<String> events = recorder.getRecentEvents();
+        assertTrue(events.get(0).endsWith("|ERROR|DEBUG||req-1|UnitTest|hidden|"));
+        assertTrue(events.get(1).contains("|ERROR|INFO|UT0002I|req-2|UnitTest|"));
+        assertTrue(events.get(1).endsWith("This is an info log with some arguments one and two|"));
+    }
+
+    /** Validates that the arguments of an unformatted event are truncated to
+     * fit its slot. */
+    @Test
+    public void unformattedTruncationTest() {
+        LogFlightRecorder recorder = new LogFlightRecorder(1, LogFlightRecorder.MIN_SLOT_SIZE);
+        StringBuilder argument = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            argument.append('x');
+        }
+        recorder.record(LogLineType.ERROR, Level.INFO, UnitTestMsgs.INFO_LOG_WITH_ARGS, null, "UnitTest", null,
+            new String[] {argument.toString(), "two"});
+
+        String event = recorder.getRecentEvents().get(0);
+        assertTrue(event.contains("|INFO|UT0002I||UnitTest|"));
+        assertTrue(event.contains("This is an info log with some arguments x"));
+        assertFalse(event.contains(argument.toString()));
+    }
+
+    /** Validates that text which does not fit a slot is truncated without
+     * splitting a character. */
+    @Test
+    public void truncationTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        LogFlightRecorder recorder = new LogFlightRecorder(3, LogFlightRecorder.MIN_SLOT_SIZE);
+        assertEquals(4, recorder.getCapacity());
+        pipeline.setFlightRecorder(recorder);
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            message.append("€😀");
+        }
+        logger.debug(message.toString());
+
+        String event = recorder.getRecentEvents().get(0);
+        String recorded = event.substring(event.indexOf("|UnitTest|") + 10, event.length() - 1);
+        assertFalse(recorded.isEmpty());
+        assertTrue(message.toString().startsWith(recorded));
+        assertTrue(recorded.getBytes(StandardCharsets.UTF_8).length <= LogFlightRecorder.MIN_SLOT_SIZE);
+    }
+
+    /** Validates dumping the recorder from the factory's MBean. */
+    @Test
+    public void dumpTest() throws Exception {
+        LoggerFactory factory = LoggerFactory.getInstance();
+        LogFlightRecorder recorder = factory.enableFlightRecorder(16, LogFlightRecorder.DEFAULT_SLOT_SIZE);
+        File file = File.createTempFile("recorder", ".log");
+        try {
+            ((AaiLoggerAdapter) factory.getLogger("LogFlightRecorderTest")).info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(LoggerFactory.FLIGHT_RECORDER_MBEAN_NAME);
+            Object written = server.invoke(name, "dump", new Object[] {file.getPath()},
+                new String[] {String.class.getName()});
+            assertEquals(1, written);
+
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            assertEquals(recorder.getRecentEvents(), lines);
+            assertTrue(lines.get(0).contains("|INFO|UT0001I|"));
+
+            factory.disableFlightRecorder();
+            assertFalse(server.isRegistered(name));
+        } finally {
+            factory.disableFlightRecorder();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+
+/** This suite of tests validates the behaviour of the {@link FanOutSink}. */
+public class FanOutSinkTest {
+
+    /** Validates that every destination receives each line exactly once. */
+    @Test
+    public void fanOutToAllDestinationsTest() {
+        CapturingDestination first = new CapturingDestination();
+        CapturingDestination second = new CapturingDestination();
+
+        FanOutSink sink = new FanOutSink();
+        sink.addDestination("first", first);
+        sink.addDestination("second", second);
+
+        sink.write(LogLineType.AUDIT, null, "line|one");
+        sink.write(LogLineType.AUDIT, null, "line|two");
+        sink.close();
+
+        for (CapturingDestination destination : new CapturingDestination[] {first, second}) {
+            assertEquals(2, destination.records.size());
+            assertEquals("line|one\n", destination.records.get(0));
+            assertEquals("line|two\n", destination.records.get(1));
+            assertTrue("Expected destination to be closed", destination.closed);
+        }
+    }
+
+    /** Validates that a destination which stops making progress only drops its
+     * own records and does not hold up the other destinations. */
+    @Test
+    public void slowDestinationDoesNotStallOthersTest() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        LogDestination stuck = new LogDestination() {
+            @Override
+            public void write(ByteBuffer record) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        CapturingDestination fast = new CapturingDestination();
+
+        FanOutSink sink = new FanOutSink(4);
+        sink.addDestination("stuck", stuck);
+        sink.addDestination("fast", fast);
+
+        for (int i = 0; i < 50; i++) {
+            sink.write(LogLineType.METRICS, null, "line" + i);
+            // Give the fast destination's writer a chance to keep up with us.
+            Thread.sleep(1);
+        }
+
+        assertTrue("Expected records to be dropped for the stuck destination",
+            sink.getDroppedCount("stuck") > 0);
+
+        release.countDown();
+        sink.close();
+
+        assertEquals(50 - sink.getDroppedCount("fast"), fast.records.size());
+        assertEquals("line0\n", fast.records.get(0));
+    }
+
+    /** Validates that the file destination appends newline terminated records. */
+    @Test
+    public void fileDestinationTest() throws IOException {
+        Path file = Files.createTempFile("fanout", ".log");
+        try {
+            FanOutSink sink = new FanOutSink();
+            sink.addDestination("file", new FileDestination(file));
+            sink.write(LogLineType.ERROR, null, "first");
+            sink.write(LogLineType.ERROR, null, "second");
+            sink.close();
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(2, lines.size());
+            assertEquals("first", lines.get(0));
+            assertEquals("second", lines.get(1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** A destination which simply remembers every record written to it. */
+    private static class CapturingDestination implements LogDestination {
+
+        private final List<String> records = new CopyOnWriteArrayList<String>();
+        private volatile boolean closed;
+
+        @Override
+        public void write(ByteBuffer record) throws IOException {
+            byte[] bytes = new byte[record.remaining()];
+            record.get(bytes);
+            records.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.sink;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AuditLogLine;
+import org.onap.aai.cl.mdc.MdcOverride;
+
+/** This suite of tests validates the {@link SyslogSink} against a local stand-in
+ * for a syslog collector. */
+public class SyslogSinkTest {
+
+    private static final int TIMEOUT_MS = 10000;
+
+    /** Validates that lines are delivered over TCP using RFC 5424 headers and
+     * octet-counting framing. */
+    @Test
+    public void tcpDeliveryTest() throws Exception {
+        try (ServerSocket collector = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            collector.setSoTimeout(TIMEOUT_MS);
+            SyslogSink sink = new SyslogSink(SyslogSink.Transport.TCP,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), collector.getLocalPort()), "UnitTest");
+
+            sink.write(LogLineType.AUDIT, logLine("INFO"), "first|line");
+            sink.write(LogLineType.METRICS, logLine("ERROR"), "second|line");
+
+            try (Socket connection = collector.accept()) {
+                connection.setSoTimeout(TIMEOUT_MS);
+                InputStream in = connection.getInputStream();
+
+                String first = readFrame(in);
+                assertTrue("Unexpected header: " + first, first.startsWith("<134>1 "));
+                assertTrue("Unexpected message: " + first, first.endsWith(" UnitTest " + pid() + " AUDIT - first|line"));
+
+                String second = readFrame(in);
+                assertTrue("Unexpected header: " + second, second.startsWith("<131>1 "));
+                assertTrue("Unexpected message: " + second, second.endsWith(" METRICS - second|line"));
+            }
+            sink.close();
+            assertEquals(2, sink.getSentCount());
+        }
+    }
+
+    /** Validates that lines written while the collector is down are delivered
+     * once it becomes available. */
+    @Test
+    public void deliveryAfterCollectorStartsTest() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+
+        SyslogSink sink = new SyslogSink(SyslogSink.Transport.TCP,
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), "UnitTest");
+        sink.write(LogLineType.AUDIT, logLine("INFO"), "queued|line");
+
+        // Let the sink fail to connect at least once before the collector comes up.
+        Thread.sleep(300);
+
+        try (ServerSocket collector = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            collector.setSoTimeout(TIMEOUT_MS);
+            try (Socket connection = collector.accept()) {
+                connection.setSoTimeout(TIMEOUT_MS);
+                assertTrue(readFrame(connection.getInputStream()).endsWith(" AUDIT - queued|line"));
+            }
+        }
+        sink.close();
+    }
+
+    /** Validates that buffering is bounded while the collector is unavailable. */
+    @Test
+    public void boundedBufferingTest() throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+
+        SyslogSink sink = new SyslogSink(SyslogSink.Transport.TCP,
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), "UnitTest",
+            SyslogSink.DEFAULT_FACILITY, 2);
+        for (int i = 0; i < 10; i++) {
+            sink.write(LogLineType.AUDIT, logLine("INFO"), "line" + i);
+        }
+        assertEquals(8, sink.getDroppedCount());
+        sink.close();
+    }
+
+    /** Validates that lines are delivered as individual UDP datagrams. */
+    @Test
+    public void udpDeliveryTest() throws Exception {
+        try (DatagramSocket collector = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            collector.setSoTimeout(TIMEOUT_MS);
+            SyslogSink sink = new SyslogSink(SyslogSink.Transport.UDP,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), collector.getLocalPort()), "UnitTest");
+
+            sink.write(LogLineType.ERROR, logLine("WARN"), "udp|line");
+
+            DatagramPacket packet = new DatagramPacket(new byte[2048], 2048);
+            collector.receive(packet);
+            String message = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8);
+            assertTrue("Unexpected header: " + message, message.startsWith("<132>1 "));
+            assertTrue("Unexpected message: " + message, message.endsWith(" ERROR - udp|line"));
+            sink.close();
+        }
+    }
+
+    /** Validates that oversized messages are truncated without splitting a
+     * character. */
+    @Test
+    public void truncateTest() {
+        byte[] bytes = "ab\u20ac\ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+        for (int max = 0; max <= bytes.length; max++) {
+            String truncated = new String(SyslogSink.truncate(bytes, max), StandardCharsets.UTF_8);
+            assertTrue(truncated, "ab\u20ac\ud83d\ude00".startsWith(truncated));
+            assertTrue(truncated.getBytes(StandardCharsets.UTF_8).length > max - 4);
+        }
+    }
+
+    private static LogLine logLine(String level) {
+        LogLine line = new AuditLogLine();
+        line.init("UnitTest", "UT0001I", level, "msg", new LogFields(), new MdcOverride());
+        return line;
+    }
+
+    private static String pid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        return name.substring(0, name.indexOf('@'));
+    }
+
+    /** Reads a single octet-counted frame from the stream. */
+    private static String readFrame(InputStream in) throws IOException {
+        int length = 0;
+        int c;
+        while ((c = in.read()) != ' ') {
+            if (c < 0) {
+                throw new IOException("Unexpected end of stream");
+            }
+            length = length * 10 + (c - '0');
+        }
+        byte[] message = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(message, read, length - read);
+            if (n < 0) {
+                throw new IOException("Unexpected end of stream");
+            }
+            read += n;
+        }
+        return new String(message, StandardCharsets.UTF_8);
+    }
+}
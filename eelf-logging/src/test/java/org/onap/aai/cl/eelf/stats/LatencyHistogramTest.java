@@ -0,0 +1,107 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/** This suite of tests validates the accuracy of the {@link LatencyHistogram}. */
+public class LatencyHistogramTest {
+
+    /** Validates the statistics reported for a uniform range of values. */
+    @Test
+    public void percentileTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10000, histogram.getMax());
+        assertWithin(5000, histogram.getValueAtPercentile(50), 0.04);
+        assertWithin(9900, histogram.getValueAtPercentile(99), 0.04);
+        assertEquals(10000, histogram.getValueAtPercentile(100));
+    }
+
+    /** Validates that small values are counted exactly. */
+    @Test
+    public void smallValuesTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-1);
+
+        assertEquals(0, histogram.getMin());
+        assertEquals(3, histogram.getValueAtPercentile(50));
+        assertEquals(7, histogram.getValueAtPercentile(99));
+        assertEquals("count=4 min=0 max=7 p50=3 p99=7", histogram.summary());
+    }
+
+    /** Validates that every bucket's upper bound maps back onto that bucket. */
+    @Test
+    public void bucketBoundsTest() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(value <= upper);
+            assertEquals(index, LatencyHistogram.bucketIndex(upper));
+        }
+    }
+
+    /** Validates merging and concurrent recording. */
+    @Test
+    public void concurrentMergeTest() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 25000; i++) {
+                        histogram.record(i % 100);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.record(1000);
+        merged.merge(histogram);
+        assertEquals(100001, merged.getCount());
+        assertEquals(0, merged.getMin());
+        assertEquals(1000, merged.getMax());
+    }
+
+    private static void assertWithin(long expected, long actual, double tolerance) {
+        assertTrue("Expected " + expected + " but was " + actual,
+            Math.abs(expected - actual) <= expected * tolerance);
+    }
+}
@@ -0,0 +1,138 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AaiLoggerAdapter;
+import org.onap.aai.cl.eelf.CapturingLogger;
+import org.onap.aai.cl.eelf.LogPipeline;
+import org.onap.aai.cl.eelf.LoggerFactory;
+import org.onap.aai.cl.eelf.MetricsRollup;
+import org.onap.aai.cl.eelf.UnitTestMsgs;
+
+/** This suite of tests validates the counters kept by {@link LoggingStats}. */
+public class LoggingStatsTest {
+
+    /** Validates the breakdown of lines by type, level and code. */
+    @Test
+    public void countersTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        AaiLoggerAdapter errorLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+        AaiLoggerAdapter auditLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.AUDIT, "UnitTest", pipeline);
+
+        errorLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        errorLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        errorLogger.error(UnitTestMsgs.SIMPLE_ERROR_LOG, new LogFields(), new Exception("test"));
+        errorLogger.debug("plain debug");
+        auditLogger.info(UnitTestMsgs.INFO_LOG_WITH_ARGS, new LogFields(), "arg1", "arg2");
+
+        LoggingStats stats = pipeline.getStats();
+        assertEquals(5, stats.getTotalLines());
+        assertEquals(4, stats.getByLogLineType().get("ERROR").getLines());
+        assertEquals(1, stats.getByLogLineType().get("AUDIT").getLines());
+        assertEquals(3, stats.getByLevel().get("INFO").getLines());
+        assertEquals(1, stats.getByLevel().get("ERROR").getExceptions());
+        assertEquals(2, stats.getByLogCode().get("UT0001I").getLines());
+        assertEquals(1, stats.getByLogCode().get(LoggingStats.NO_LOG_CODE).getLines());
+
+        long expectedBytes = 0;
+        for (String line : capture.lines) {
+            expectedBytes += line.length();
+        }
+        assertEquals(expectedBytes, stats.getTotalBytes());
+
+        stats.reset();
+        assertEquals(0, stats.getTotalLines());
+        assertTrue(stats.getByLogCode().isEmpty());
+    }
+
+    /** Validates that metrics lines absorbed by a summary-only rollup are
+     * counted as suppressed. */
+    @Test
+    public void suppressedTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        pipeline.setMetricsRollup(new MetricsRollup(capture.getLogger(), pipeline, "UnitTest", 60000, false));
+        AaiLoggerAdapter metricsLogger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.METRICS, "UnitTest", pipeline);
+
+        metricsLogger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+
+        assertEquals(0, pipeline.getStats().getTotalLines());
+        assertEquals(1, pipeline.getStats().getTotalSuppressed());
+        assertEquals(1, pipeline.getStats().getByLogCode().get("UT0001I").getSuppressed());
+    }
+
+    /** Validates that lines discarded by the EELF logger's own level are
+     * counted as suppressed rather than written. */
+    @Test
+    public void eelfLevelTest() {
+        CapturingLogger capture = new CapturingLogger();
+        capture.enabled = false;
+        LogPipeline pipeline = new LogPipeline();
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        logger.debug("hidden");
+
+        assertEquals(0, pipeline.getStats().getTotalLines());
+        assertEquals(0, pipeline.getStats().getTotalBytes());
+        assertEquals(1, pipeline.getStats().getTotalSuppressed());
+    }
+
+    /** Validates the UTF-8 length calculation. */
+    @Test
+    public void utf8LengthTest() throws Exception {
+        String[] values = {"", "ascii", "café", "€100", "😀 smile", "bad \ud83d"};
+        for (String value : values) {
+            assertEquals(value, value.getBytes("UTF-8").length, LoggingStats.utf8Length(value));
+        }
+    }
+
+    /** Validates that the factory publishes its counters as an MXBean. */
+    @Test
+    public void mbeanTest() throws Exception {
+        LoggerFactory factory = LoggerFactory.getInstance();
+        factory.getPipeline().getStats().reset();
+        ((AaiLoggerAdapter) factory.getLogger("LoggingStatsTest")).info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(LoggerFactory.STATS_MBEAN_NAME);
+        assertTrue(server.isRegistered(name));
+        assertEquals(1L, server.getAttribute(name, "TotalLines"));
+
+        TabularData byCode = (TabularData) server.getAttribute(name, "ByLogCode");
+        CompositeData row = byCode.get(new Object[] {"UT0001I"});
+        assertEquals(1L, ((CompositeData) row.get("value")).get("lines"));
+    }
+}
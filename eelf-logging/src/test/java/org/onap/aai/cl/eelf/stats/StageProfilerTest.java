@@ -0,0 +1,94 @@
+/*-
+ * ============LICENSE_START=======================================================
+ * Common Logging Library
+ * ================================================================================
+ * Copyright (C) 2017 AT&T Intellectual Property. All rights
+ *                  reserved.
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+
+package org.onap.aai.cl.eelf.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.onap.aai.cl.api.LogFields;
+import org.onap.aai.cl.api.LogLine.LogLineType;
+import org.onap.aai.cl.eelf.AaiLoggerAdapter;
+import org.onap.aai.cl.eelf.CapturingLogger;
+import org.onap.aai.cl.eelf.LogPipeline;
+import org.onap.aai.cl.eelf.UnitTestMsgs;
+import org.onap.aai.cl.eelf.stats.StageProfiler.Stage;
+
+/** This suite of tests validates the behaviour of the {@link StageProfiler}. */
+public class StageProfilerTest {
+
+    /** Validates that every stage of every call is attributed to its log code. */
+    @Test
+    public void attributionTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        StageProfiler profiler = new StageProfiler(capture.getLogger(), 60000);
+        pipeline.setStageProfiler(profiler);
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        logger.error(UnitTestMsgs.ERROR_LOG_WITH_ARGS, new LogFields(), "arg1", "arg2");
+        logger.debug("plain debug");
+        logger.info(BadEnum.NOT_A_LOG_CODE);
+
+        for (Stage stage : Stage.values()) {
+            assertEquals(2, profiler.getHistogram("UT0001I", stage).getCount());
+            assertEquals(4, profiler.getHistogram(StageProfiler.ALL_CODES, stage).getCount());
+        }
+        assertEquals(1, profiler.getHistogram("UT0002E", Stage.FORMAT).getCount());
+        assertEquals(1, profiler.getHistogram(LoggingStats.NO_LOG_CODE, Stage.RENDER).getCount());
+
+        List<String> report = profiler.report();
+        assertEquals(4, report.size());
+        assertTrue(report.get(0).startsWith(StageProfiler.REPORT_PREFIX + " code=ALL count=4"));
+        assertTrue(report.get(0).contains("render[p50="));
+
+        profiler.reset();
+        assertNull(profiler.getHistogram("UT0001I", Stage.VALIDATE));
+        assertEquals(0, profiler.getHistogram(StageProfiler.ALL_CODES, Stage.VALIDATE).getCount());
+    }
+
+    /** Validates that nothing is recorded once profiling is switched off. */
+    @Test
+    public void disabledTest() {
+        CapturingLogger capture = new CapturingLogger();
+        LogPipeline pipeline = new LogPipeline();
+        StageProfiler profiler = new StageProfiler(capture.getLogger(), 60000);
+        pipeline.setStageProfiler(profiler);
+        AaiLoggerAdapter logger = new AaiLoggerAdapter(capture.getLogger(), LogLineType.ERROR, "UnitTest", pipeline);
+
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+        pipeline.setStageProfiler(null);
+        logger.info(UnitTestMsgs.SIMPLE_INFO_LOG, new LogFields());
+
+        assertEquals(1, profiler.getHistogram("UT0001I", Stage.DISPATCH).getCount());
+        assertEquals(2, capture.lines.size());
+    }
+
+    private enum BadEnum {
+        NOT_A_LOG_CODE
+    }
+}
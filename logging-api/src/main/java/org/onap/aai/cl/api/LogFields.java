@@ -23,10 +23,43 @@ package org.onap.aai.cl.api;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * The values of the standardized fields of a log line.
+ * <p>
+ * A set of fields may be layered over another set of defaults, such as an
+ * immutable template of the fields which are the same for every line a
+ * component logs. Fields which are not set in the layer are looked up in its
+ * defaults, so a call only has to supply the fields which differ, and neither
+ * set is copied.
+ */
 public class LogFields {
 
   /** Map of field names to values. */
-  private Map<Integer, String> fields = new HashMap<Integer, String>();
+  private final Map<Integer, String> fields;
+
+  /** The fields to fall back to for fields which are not set here, or null. */
+  private final LogFields defaults;
+
+  /** Creates an empty set of fields. */
+  public LogFields() {
+    this(new HashMap<Integer, String>(), null);
+  }
+
+  /**
+   * Creates an empty set of fields layered over a set of defaults, typically
+   * a template created with {@link #toTemplate()}.
+   *
+   * @param defaults
+   *          - The fields to fall back to for fields which are not set here.
+   */
+  public LogFields(LogFields defaults) {
+    this(new HashMap<Integer, String>(), defaults);
+  }
+
+  private LogFields(Map<Integer, String> fields, LogFields defaults) {
+    this.fields = fields;
+    this.defaults = defaults;
+  }
 
   /**
    * Retrieve the contents of the specified field entry.
@@ -38,7 +71,8 @@ public class LogFields {
    *         is no such entry.
    */
   public String getField(Enum field) {
-    return fields.get(field.ordinal());
+    String value = fields.get(field.ordinal());
+    return value == null && defaults != null ? defaults.getField(field) : value;
   }
 
   /**
@@ -79,6 +113,62 @@ public class LogFields {
    * @return - true if an entry exists for the specified field, false otherwise.
    */
   public boolean fieldIsSet(Enum field) {
-    return fields.containsKey(field.ordinal()) && (fields.get(field.ordinal()) != null);
+    return getField(field) != null;
+  }
+
+  /**
+   * Returns a view of these fields which falls back to a set of defaults for
+   * the fields which are not set here. The view shares the values of both
+   * sets rather than copying them.
+   *
+   * @param template
+   *          - The fields to fall back to.
+   *
+   * @return - The layered view.
+   */
+  public LogFields withDefaults(LogFields template) {
+    return new LogFields(fields, defaults == null ? template : defaults.withDefaults(template));
+  }
+
+  /**
+   * Returns an immutable copy of these fields, which can be shared by any
+   * number of threads and used as the defaults of other sets of fields.
+   *
+   * @return - The template.
+   */
+  public LogFields toTemplate() {
+    return new Template(new HashMap<Integer, String>(fields),
+        defaults == null ? null : defaults.toTemplate());
+  }
+
+  /** An immutable set of fields, whose values are set when it is created. */
+  private static final class Template extends LogFields {
+
+    private Template(Map<Integer, String> fields, LogFields defaults) {
+      super(fields, defaults);
+    }
+
+    @Override
+    public LogFields setField(Enum field, String value) {
+      throw new UnsupportedOperationException("Log field templates cannot be changed");
+    }
+
+    @Override
+    public LogFields setField(Enum field, int value) {
+      throw new UnsupportedOperationException("Log field templates cannot be changed");
+    }
+
+    @Override
+    public LogFields withDefaults(LogFields template) {
+      // The view shares our values, so it must be as immutable as we are.
+      LogFields self = this;
+      return new Template(self.fields,
+          self.defaults == null ? template : self.defaults.withDefaults(template));
+    }
+
+    @Override
+    public LogFields toTemplate() {
+      return this;
+    }
   }
 }
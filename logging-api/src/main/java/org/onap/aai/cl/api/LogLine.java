@@ -68,6 +68,18 @@ public abstract class LogLine {
   protected MdcOverride override = new MdcOverride();
   protected LogFields fields = new LogFields();
 
+  /** Start time in milliseconds since the epoch, or -1 to use the MDC start time. */
+  protected long startTime = -1;
+
+  /** Elapsed time in milliseconds, or -1 to derive it from the start time. */
+  protected long elapsedTime = -1;
+
+  /** Time the line was logged in milliseconds since the epoch, or -1 if it is rendered as it is logged. */
+  protected long logTime = -1;
+
+  /** Name of the thread which logged the line, or null if it is rendered by that thread. */
+  protected String threadName;
+
   /**
    * Sets common values that the log line will use for populating the log
    * string.
@@ -95,9 +107,135 @@ public abstract class LogLine {
     this.message = msg;
     this.override = override;
     this.fields = fields;
+    this.startTime = -1;
+    this.elapsedTime = -1;
+    this.logTime = -1;
+    this.threadName = null;
+  }
+
+  /**
+   * Supplies precise timings for the line, such as those measured by a
+   * {@link Span}, in place of the start time held in the {@link MdcContext}.
+   *
+   * @param startTime
+   *          - Start time in milliseconds since the epoch.
+   * @param elapsedTime
+   *          - Elapsed time in milliseconds.
+   */
+  public void setTiming(long startTime, long elapsedTime) {
+    this.startTime = startTime;
+    this.elapsedTime = elapsedTime;
+  }
+
+  /**
+   * Indicates whether precise timings have been supplied for the line.
+   *
+   * @return - true if {@link #setTiming(long, long)} has been called.
+   */
+  public boolean hasTiming() {
+    return startTime >= 0 && elapsedTime >= 0;
+  }
+
+  /**
+   * Returns the precise start time supplied for the line.
+   *
+   * @return - The start time supplied by {@link #setTiming(long, long)}, in
+   *         milliseconds since the epoch, or -1 if none was.
+   */
+  public long getStartTime() {
+    return hasTiming() ? startTime : -1;
+  }
+
+  /**
+   * Records where and when the line was logged, for a line which is rendered
+   * later or on another thread.
+   *
+   * @param logTime
+   *          - The time the line was logged, in milliseconds since the epoch.
+   * @param threadName
+   *          - The name of the thread which logged the line.
+   */
+  public void setOrigin(long logTime, String threadName) {
+    this.logTime = logTime;
+    this.threadName = threadName;
+  }
+
+  /**
+   * Returns the time the line was logged.
+   *
+   * @return - The time supplied by {@link #setOrigin(long, String)}, or the
+   *         current time if none was.
+   */
+  public long getLogTime() {
+    return logTime >= 0 ? logTime : System.currentTimeMillis();
+  }
+
+  /**
+   * Returns the name of the thread which logged the line.
+   *
+   * @return - The name supplied by {@link #setOrigin(long, String)}, or the
+   *         name of the current thread if none was.
+   */
+  public String getThreadName() {
+    return threadName != null ? threadName : Thread.currentThread().getName();
+  }
+
+  /**
+   * Returns the identifier of the entity which invoked the log.
+   *
+   * @return - The component name.
+   */
+  public String getComponent() {
+    return component;
   }
 
-  protected String getMdcValue(String attribute) {
+  /**
+   * Returns the string version of the log message code.
+   *
+   * @return - The log code, or an empty string if there is none.
+   */
+  public String getLogCode() {
+    return logCode;
+  }
+
+  /**
+   * Returns the level the line was logged at.
+   *
+   * @return - The log level (DEBUG, TRACE, INFO, WARN, ERROR...)
+   */
+  public String getLevel() {
+    return level;
+  }
+
+  /**
+   * Returns the log message.
+   *
+   * @return - The log message.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Returns the client supplied values for the predefined log line fields.
+   *
+   * @return - The {@link LogFields} the line was initialized with.
+   */
+  public LogFields getFields() {
+    return fields;
+  }
+
+  /**
+   * Returns the value of an {@link MdcContext} attribute for this line, taking
+   * any override the line was initialized with into account.
+   *
+   * @param attribute
+   *          - The name of the MDC attribute, such as
+   *          {@link MdcContext#MDC_REQUEST_ID}.
+   *
+   * @return - The value, or an empty string if the attribute is not set.
+   */
+  public String getMdcValue(String attribute) {
     if (override.hasOverride(attribute)) {
       return override.getAttributeValue(attribute);
     }
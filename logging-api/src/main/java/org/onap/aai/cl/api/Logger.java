@@ -20,6 +20,10 @@
  */
 package org.onap.aai.cl.api;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.onap.aai.cl.mdc.MdcContext;
 import org.onap.aai.cl.mdc.MdcOverride;
 
 /** Defines the common API which all Logger implementations must expose. */
@@ -206,6 +210,65 @@ public interface Logger {
    */
   public void error(Enum logCode, LogFields fields, Throwable ex, String... arguments);
 
+  /**
+   * Log a message based on a message key defined in a resource bundle, at the
+   * specified level. This is the single entry point which all of the level
+   * specific methods above are equivalent to.
+   * <p>
+   * The default implementation passes the call on to the level specific
+   * method which takes the most of its arguments; as only INFO lines accept
+   * an MDC override, the override is ignored at other levels, as is an
+   * exception below ERROR. Implementations should override this method to
+   * handle every argument at every level.
+   *
+   * @param level     - The level to log the message at.
+   * @param logCode   - Log message identifier.
+   * @param fields    - Map containing values for any log fields which the
+   *                    client wants to populate, or null for none.
+   * @param override  - A set of values to override values stored in the MDC
+   *                    context, or null for none.
+   * @param ex        - The exception to be logged, or null for none.
+   * @param arguments - Arguments to populate the log message template with.
+   */
+  public default void log(LogLevel level, Enum logCode, LogFields fields, MdcOverride override,
+      Throwable ex, Object... arguments) {
+    String[] strings = null;
+    if (arguments instanceof String[]) {
+      strings = (String[]) arguments;
+    } else if (arguments != null) {
+      strings = new String[arguments.length];
+      for (int i = 0; i < arguments.length; i++) {
+        strings[i] = arguments[i] == null ? null : arguments[i].toString();
+      }
+    }
+    LogFields logFields = fields == null ? new LogFields() : fields;
+    switch (level) {
+      case TRACE:
+        trace(logCode, logFields, strings);
+        break;
+      case DEBUG:
+        debug(logCode, logFields, strings);
+        break;
+      case INFO:
+        if (override == null) {
+          info(logCode, logFields, strings);
+        } else {
+          info(logCode, logFields, override, strings);
+        }
+        break;
+      case WARN:
+        warn(logCode, logFields, strings);
+        break;
+      default:
+        if (ex == null) {
+          error(logCode, logFields, strings);
+        } else {
+          error(logCode, logFields, ex, strings);
+        }
+        break;
+    }
+  }
+
   /**
    * Format the given log using the supplied arguments
    * @param logCode   - Log message identifier.
@@ -213,4 +276,42 @@ public interface Logger {
    */
   public String formatMsg(Enum logCode, String... arguments);
 
+  /**
+   * Opens a {@link Span} which times an operation and emits an INFO line,
+   * including the elapsed time, through this logger when it is closed.
+   *
+   * @param logCode   - Log message identifier of the line emitted on close.
+   * @param fields    - Initial values for the fields of the emitted line.
+   *
+   * @return - The open {@link Span}.
+   */
+  public default Span startSpan(Enum logCode, LogFields fields) {
+    return new Span(this, null, logCode, fields);
+  }
+
+  /**
+   * Opens a {@link Span} which times an operation and emits an INFO line,
+   * including the elapsed time, through this logger when it is closed.
+   *
+   * @param logCode   - Log message identifier of the line emitted on close.
+   *
+   * @return - The open {@link Span}.
+   */
+  public default Span startSpan(Enum logCode) {
+    return startSpan(logCode, new LogFields());
+  }
+
+  /**
+   * Emits the line for a {@link Span} which has just been closed. The default
+   * implementation passes the span's start time through an {@link MdcOverride};
+   * implementations should override this to use the span's timings directly.
+   *
+   * @param span      - The closed span.
+   */
+  public default void logSpan(Span span) {
+    MdcOverride override = new MdcOverride();
+    override.addAttribute(MdcContext.MDC_START_TIME,
+        new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").format(new Date(span.getStartTime())));
+    info(span.getLogCode(), span.getFields(), override, span.getArguments());
+  }
 }
@@ -0,0 +1,207 @@
+/**
+ * ============LICENSE_START=======================================================
+ * org.onap.aai
+ * ================================================================================
+ * Copyright © 2017-2018 AT&T Intellectual Property. All rights reserved.
+ * Copyright © 2017-2018 Amdocs
+ * ================================================================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ============LICENSE_END=========================================================
+ */
+package org.onap.aai.cl.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times an operation and emits a single log line describing it when the
+ * operation completes. Spans are intended to be used with try-with-resources:
+ *
+ * <pre>
+ * try (Span span = metricsLogger.startSpan(MyMsgEnum.QUERY_COMPLETE)) {
+ *   span.setField(LogLine.DefinedFields.TARGET_ENTITY, "aai");
+ *   ...
+ *   span.setField(LogLine.DefinedFields.STATUS_CODE, "COMPLETE");
+ * }
+ * </pre>
+ *
+ * The start time is captured with {@link System#nanoTime()} when the span is
+ * opened, so the elapsed time reported in the log line is accurate to the
+ * nanosecond clock rather than being derived from formatted timestamps.
+ * <p>
+ * A span is not thread safe; it should be opened and closed by the thread
+ * performing the operation.
+ */
+public class Span implements AutoCloseable {
+
+  private final Logger logger;
+  private final Span parent;
+  private final Enum logCode;
+  private final LogFields fields;
+  private final long startTime;
+  private final long startNanos;
+
+  private String[] arguments = new String[0];
+  private List<Span> children;
+  private long elapsedNanos = -1;
+
+  /**
+   * Opens a new span. Spans are normally obtained through
+   * {@link Logger#startSpan(Enum, LogFields)} or {@link #startChild(Enum)}.
+   *
+   * @param logger
+   *          - The logger which will emit the line when the span is closed.
+   * @param parent
+   *          - The enclosing span, or null if this is a top-level span.
+   * @param logCode
+   *          - Log message identifier of the line emitted on close.
+   * @param fields
+   *          - Initial values for the fields of the emitted line.
+   */
+  public Span(Logger logger, Span parent, Enum logCode, LogFields fields) {
+    this.logger = logger;
+    this.parent = parent;
+    this.logCode = logCode;
+    this.fields = fields == null ? new LogFields() : fields;
+    this.startTime = System.currentTimeMillis();
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Assigns a value to one of the fields of the line emitted on close.
+   *
+   * @param field
+   *          - The field to assign a value to.
+   * @param value
+   *          - The value to assign to the field.
+   *
+   * @return - The {@link Span} (this is useful for parameter chaining).
+   */
+  public Span setField(Enum field, String value) {
+    fields.setField(field, value);
+    return this;
+  }
+
+  /**
+   * Assigns a value to one of the fields of the line emitted on close.
+   *
+   * @param field
+   *          - The field to assign a value to.
+   * @param value
+   *          - The value to assign to the field.
+   *
+   * @return - The {@link Span} (this is useful for parameter chaining).
+   */
+  public Span setField(Enum field, int value) {
+    fields.setField(field, value);
+    return this;
+  }
+
+  /**
+   * Sets the arguments used to populate the log message template on close.
+   *
+   * @param arguments
+   *          - Arguments to populate the log message template with.
+   *
+   * @return - The {@link Span} (this is useful for parameter chaining).
+   */
+  public Span setArguments(String... arguments) {
+    this.arguments = arguments == null ? new String[0] : arguments;
+    return this;
+  }
+
+  /**
+   * Opens a span which times a sub-operation of this one. The child emits its
+   * own line through the same logger, and is closed automatically if it is
+   * still open when this span is closed.
+   *
+   * @param childLogCode
+   *          - Log message identifier of the line emitted by the child.
+   *
+   * @return - The child {@link Span}.
+   */
+  public Span startChild(Enum childLogCode) {
+    Span child = new Span(logger, this, childLogCode, new LogFields());
+    if (children == null) {
+      children = new ArrayList<Span>();
+    }
+    children.add(child);
+    return child;
+  }
+
+  /** @return - The enclosing span, or null if this is a top-level span. */
+  public Span getParent() {
+    return parent;
+  }
+
+  /** @return - Log message identifier of the line emitted on close. */
+  public Enum getLogCode() {
+    return logCode;
+  }
+
+  /** @return - The fields of the line emitted on close. */
+  public LogFields getFields() {
+    return fields;
+  }
+
+  /** @return - Arguments to populate the log message template with. */
+  public String[] getArguments() {
+    return arguments;
+  }
+
+  /** @return - The wall clock time, in milliseconds since the epoch, at which the span was opened. */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Returns how long the span was (or, if still open, has been) running.
+   *
+   * @return - The elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+  }
+
+  /**
+   * Returns how long the span was (or, if still open, has been) running.
+   *
+   * @return - The elapsed time in milliseconds.
+   */
+  public long getElapsedTime() {
+    return getElapsedNanos() / 1000000L;
+  }
+
+  /** @return - true if the span has been closed. */
+  public boolean isClosed() {
+    return elapsedNanos >= 0;
+  }
+
+  /**
+   * Stops the clock and emits the span's log line. Any children which are
+   * still open are closed first. Closing a span more than once has no effect.
+   */
+  @Override
+  public void close() {
+    if (isClosed()) {
+      return;
+    }
+    if (children != null) {
+      for (Span child : children) {
+        child.close();
+      }
+    }
+    elapsedNanos = System.nanoTime() - startNanos;
+    logger.logSpan(this);
+  }
+}